@@ -15,6 +15,8 @@ import android.widget.TextView;
 import android.widget.Toast;
 
 import com.leo.calendarprovidermanager.CalendarAlarmDateType;
+import com.leo.calendarprovidermanager.CalendarCallback;
+import com.leo.calendarprovidermanager.CalendarLogger;
 import com.leo.calendarprovidermanager.CalendarProviderManager;
 
 import java.text.ParseException;
@@ -51,7 +53,8 @@ public class MainActivity extends AppCompatActivity {
 
 
 
-        mBuilder = new CalendarProviderManager.Builder(this);
+        mBuilder = new CalendarProviderManager.Builder(this)
+                .setLogger(CalendarLogger.LOGCAT);
 
         initClick();
 
@@ -101,7 +104,7 @@ public class MainActivity extends AppCompatActivity {
     @NeedsPermission({Manifest.permission.READ_CALENDAR,Manifest.permission.WRITE_CALENDAR})
     public void add() {
 
-        long eventId = mBuilder
+        mBuilder
                 .setCalendarName(null)
                 .setEvent(mEdtEventTitle.getText().toString(), mEdtEventDescription.getText().toString())
                 .setHasAlarm(mCbAlarm.isChecked())
@@ -109,56 +112,90 @@ public class MainActivity extends AppCompatActivity {
                 .setAlarmDurationTime(10)
                 .setAlarmLeadTime(30, CalendarAlarmDateType.MINUTE)
                 .build()
-                .addCalendarEvent();
-        id = eventId;
-        if (eventId > -1){
-            showText("添加:成功, EVENT ID = "+eventId);
-            mEdtInputEventId.setText(String.valueOf(eventId));
-        }
-        else {
-            showText("添加:失败");
-
-        }
+                .addCalendarEventAsync(new CalendarCallback<Long>() {
+                    @Override
+                    public void onSuccess(Long eventId) {
+                        id = eventId;
+                        if (eventId > -1){
+                            showText("添加:成功, EVENT ID = "+eventId);
+                            mEdtInputEventId.setText(String.valueOf(eventId));
+                        }
+                        else {
+                            showText("添加:失败");
+
+                        }
+                    }
+
+                    @Override
+                    public void onFailure(Throwable throwable) {
+                        showText("添加:失败 "+throwable);
+                    }
+                });
 
     }
 
     @NeedsPermission({Manifest.permission.READ_CALENDAR,Manifest.permission.WRITE_CALENDAR})
     public void delete(long eventId) {
 
-        boolean isDelete = mBuilder.build().deleteCalendarEvent(eventId);
-       if (isDelete){
-           showText("删除:成功");
-           mEdtInputEventId.setText(null);
-       }
-       else
-       {
-          showText("删除:失败，请检查 EVENT ID 是否正确");
-       }
+        mBuilder.build().deleteCalendarEventAsync(eventId, new CalendarCallback<Boolean>() {
+            @Override
+            public void onSuccess(Boolean isDelete) {
+                if (isDelete){
+                    showText("删除:成功");
+                    mEdtInputEventId.setText(null);
+                }
+                else
+                {
+                    showText("删除:失败，请检查 EVENT ID 是否正确");
+                }
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                showText("删除:失败 "+throwable);
+            }
+        });
     }
 
     @NeedsPermission({Manifest.permission.READ_CALENDAR,Manifest.permission.WRITE_CALENDAR})
     public void update(long eventId) {
 
-        boolean isUpdate = mBuilder
+        mBuilder
                 .setHasAlarm(true)
                 .setAlarmStartTime(date2TimeMillis("2019-12-07 15:00:00"))
                 .setAlarmLeadTime(2,CalendarAlarmDateType.MINUTE)
                 .build()
-                .updateCalendarEvent(id);
+                .updateCalendarEventAsync(id, new CalendarCallback<Boolean>() {
+                    @Override
+                    public void onSuccess(Boolean isUpdate) {
+                        showText(isUpdate?"更新:成功":"更新:失败，请检查 EVENT ID 是否正确");
+                    }
+
+                    @Override
+                    public void onFailure(Throwable throwable) {
+                        showText("更新:失败 "+throwable);
+                    }
+                });
         Log.e("tag","is hasAlarm "+mCbAlarm.isChecked());
 
 
-            showText(isUpdate?"更新:成功":"更新:失败，请检查 EVENT ID 是否正确");
-
-
     }
 
     @NeedsPermission({Manifest.permission.READ_CALENDAR,Manifest.permission.WRITE_CALENDAR})
     public void query() {
 
-        long eventId = mBuilder.build().queryCalendarEvent(mEdtEventTitle.getText().toString(), mEdtEventDescription.getText().toString());
-
-        showText("查询:"+(eventId>-1 ? "事件存在, EVENT ID = "+eventId:"事件不存在"));
+        mBuilder.build().queryCalendarEventAsync(mEdtEventTitle.getText().toString(), mEdtEventDescription.getText().toString(),
+                new CalendarCallback<Long>() {
+                    @Override
+                    public void onSuccess(Long eventId) {
+                        showText("查询:"+(eventId>-1 ? "事件存在, EVENT ID = "+eventId:"事件不存在"));
+                    }
+
+                    @Override
+                    public void onFailure(Throwable throwable) {
+                        showText("查询:失败 "+throwable);
+                    }
+                });
     }
 
     public void showText(String s){
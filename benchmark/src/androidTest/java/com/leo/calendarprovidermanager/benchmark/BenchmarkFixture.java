@@ -0,0 +1,94 @@
+package com.leo.calendarprovidermanager.benchmark;
+
+import android.content.ContentValues;
+import android.content.Context;
+import android.provider.CalendarContract;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.leo.calendarprovidermanager.CalendarAlarmDateType;
+import com.leo.calendarprovidermanager.CalendarProviderManager;
+import com.leo.calendarprovidermanager.EventSpec;
+import com.leo.calendarprovidermanager.fake.FakeCalendarProvider;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 基准测试环境，CalendarProviderManager 绑定到内存中的 FakeCalendarProvider
+ */
+final class BenchmarkFixture {
+    static final String CALENDAR_NAME = "benchmark";
+    //2026-01-01 00:00 UTC
+    private static final long START_TIME = 1767225600000L;
+    //批量预置事件时每批的数量
+    private static final int SEED_BATCH = 1000;
+
+    private final Context mContext = InstrumentationRegistry.getInstrumentation().getTargetContext();
+    private FakeCalendarProvider mProvider;
+    private CalendarProviderManager mManager;
+
+    BenchmarkFixture() {
+        reset();
+    }
+
+    /**
+     * 换一个只有日历账户、没有事件的新 provider
+     */
+    void reset() {
+        mProvider = new FakeCalendarProvider();
+        ContentValues calendar = new ContentValues();
+        calendar.put(CalendarContract.Calendars.NAME, CALENDAR_NAME);
+        calendar.put(CalendarContract.Calendars.ACCOUNT_NAME, "calendar@" + CALENDAR_NAME + ".com");
+        calendar.put(CalendarContract.Calendars.ACCOUNT_TYPE, CalendarContract.ACCOUNT_TYPE_LOCAL);
+        calendar.put(CalendarContract.Calendars.CALENDAR_DISPLAY_NAME, CALENDAR_NAME);
+        mProvider.insert(CalendarContract.Calendars.CONTENT_URI, calendar);
+
+        mManager = new CalendarProviderManager.Builder(mContext)
+                .setCalendarName(CALENDAR_NAME)
+                .setProviderClient(mProvider)
+                .build();
+    }
+
+    FakeCalendarProvider provider() {
+        return mProvider;
+    }
+
+    CalendarProviderManager manager() {
+        return mManager;
+    }
+
+    /**
+     * 预置 count 个事件，每个事件带一个提醒
+     *
+     * @return 事件 id
+     */
+    long[] seed(int count) {
+        long[] ids = new long[count];
+        for (int from = 0; from < count; from += SEED_BATCH) {
+            int to = Math.min(count, from + SEED_BATCH);
+            List<EventSpec> events = new ArrayList<>(to - from);
+            for (int i = from; i < to; i++) {
+                events.add(event(i));
+            }
+            long[] batchIds = mManager.addCalendarEvents(events);
+            System.arraycopy(batchIds, 0, ids, from, batchIds.length);
+        }
+        return ids;
+    }
+
+    /**
+     * 第 index 个事件，标题不重复，每 30 分钟一个
+     */
+    static EventSpec event(int index) {
+        return new EventSpec.Builder()
+                .setEvent("event " + index, "benchmark event " + index)
+                .setAlarmStartTime(START_TIME + index * 30 * 60 * 1000L)
+                .setAlarmDurationTime(30)
+                .setHasAlarm(true)
+                .setAlarmLeadTime(10, CalendarAlarmDateType.MINUTE)
+                .build();
+    }
+}
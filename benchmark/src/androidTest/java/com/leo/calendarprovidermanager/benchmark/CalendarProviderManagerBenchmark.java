@@ -0,0 +1,219 @@
+package com.leo.calendarprovidermanager.benchmark;
+
+import android.provider.CalendarContract;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+import androidx.test.ext.junit.runners.AndroidJUnit4;
+
+import com.leo.calendarprovidermanager.CalendarAlarmDateType;
+import com.leo.calendarprovidermanager.EventPatch;
+import com.leo.calendarprovidermanager.EventSpec;
+import com.leo.calendarprovidermanager.ReconcileResult;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 添加、批量添加、更新、部分更新、删除、同步的耗时，以及每次操作的 provider 调用次数和内存分配
+ */
+@RunWith(AndroidJUnit4.class)
+public class CalendarProviderManagerBenchmark {
+    //添加多少个事件后换新的 provider，避免表越来越大影响结果
+    private static final int RESET_INTERVAL = 1000;
+    private static final int BULK_SIZE = 100;
+    private static final int RECONCILE_SIZE = 500;
+    //每次同步变化的事件数
+    private static final int RECONCILE_CHANGED = 50;
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private BenchmarkFixture mFixture;
+    private final List<EventSpec> mEvents = new ArrayList<>();
+
+    @Before
+    public void setUp() {
+        mFixture = new BenchmarkFixture();
+        for (int i = 0; i < RESET_INTERVAL; i++) {
+            mEvents.add(BenchmarkFixture.event(i));
+        }
+    }
+
+    @Test
+    public void addSingleEvent() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        int index = 0;
+        while (state.keepRunning()) {
+            if (index == RESET_INTERVAL) {
+                state.pauseTiming();
+                mFixture.reset();
+                index = 0;
+                state.resumeTiming();
+            }
+            mFixture.manager().addCalendarEvent(mEvents.get(index++));
+        }
+
+        mFixture.reset();
+        ProviderCost.report("addSingleEvent", mFixture.provider(), new ProviderCost.Operation() {
+            @Override
+            public void run(int iteration) {
+                mFixture.manager().addCalendarEvent(mEvents.get(iteration + 1));
+            }
+        });
+    }
+
+    @Test
+    public void addEventsInBulk() {
+        final List<EventSpec> batch = mEvents.subList(0, BULK_SIZE);
+        BenchmarkState state = mBenchmarkRule.getState();
+        int added = 0;
+        while (state.keepRunning()) {
+            if (added == RESET_INTERVAL * 10) {
+                state.pauseTiming();
+                mFixture.reset();
+                added = 0;
+                state.resumeTiming();
+            }
+            mFixture.manager().addCalendarEvents(batch);
+            added += BULK_SIZE;
+        }
+
+        mFixture.reset();
+        ProviderCost.report("addEventsInBulk(" + BULK_SIZE + ")", mFixture.provider(), new ProviderCost.Operation() {
+            @Override
+            public void run(int iteration) {
+                mFixture.manager().addCalendarEvents(batch);
+            }
+        });
+    }
+
+    @Test
+    public void updateEventWithReminders() {
+        final long eventId = mFixture.manager().addCalendarEvent(reminderEvent(30));
+        //交替写入两组提醒，每次更新都删除一个提醒、插入一个提醒
+        final EventSpec[] updates = {reminderEvent(60), reminderEvent(30)};
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        int index = 0;
+        while (state.keepRunning()) {
+            mFixture.manager().updateCalendarEvent(eventId, updates[index++ & 1]);
+        }
+
+        ProviderCost.report("updateEventWithReminders", mFixture.provider(), new ProviderCost.Operation() {
+            @Override
+            public void run(int iteration) {
+                mFixture.manager().updateCalendarEvent(eventId, updates[iteration & 1]);
+            }
+        });
+    }
+
+    @Test
+    public void patchEventStartTime() {
+        final long eventId = mFixture.manager().addCalendarEvent(reminderEvent(30));
+        //只改开始和结束时间，提醒不读不写
+        final long startTime = BenchmarkFixture.event(0).getAlarmStartTime();
+        final EventPatch[] patches = {
+                new EventPatch.Builder().setStartTime(startTime + 60 * 60 * 1000L)
+                        .setEndTime(startTime + 2 * 60 * 60 * 1000L).build(),
+                new EventPatch.Builder().setStartTime(startTime)
+                        .setEndTime(startTime + 60 * 60 * 1000L).build()
+        };
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        int index = 0;
+        while (state.keepRunning()) {
+            mFixture.manager().patchCalendarEvent(eventId, patches[index++ & 1]);
+        }
+
+        ProviderCost.report("patchEventStartTime", mFixture.provider(), new ProviderCost.Operation() {
+            @Override
+            public void run(int iteration) {
+                mFixture.manager().patchCalendarEvent(eventId, patches[iteration & 1]);
+            }
+        });
+    }
+
+    @Test
+    public void deleteEvent() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        long[] ids = mFixture.seed(RESET_INTERVAL);
+        int index = 0;
+        while (state.keepRunning()) {
+            if (index == ids.length) {
+                state.pauseTiming();
+                mFixture.reset();
+                ids = mFixture.seed(RESET_INTERVAL);
+                index = 0;
+                state.resumeTiming();
+            }
+            mFixture.manager().deleteCalendarEvent(ids[index++]);
+        }
+
+        mFixture.reset();
+        final long[] seeded = mFixture.seed(RESET_INTERVAL);
+        ProviderCost.report("deleteEvent", mFixture.provider(), new ProviderCost.Operation() {
+            @Override
+            public void run(int iteration) {
+                mFixture.manager().deleteCalendarEvent(seeded[iteration + 1]);
+            }
+        });
+    }
+
+    @Test
+    public void reconcileChangedEvents() {
+        //两组期望状态只有 RECONCILE_CHANGED 个事件不同，每次同步更新这些事件
+        final List<Map<String, EventSpec>> desired = new ArrayList<>();
+        for (int version = 0; version < 2; version++) {
+            Map<String, EventSpec> events = new HashMap<>();
+            for (int i = 0; i < RECONCILE_SIZE; i++) {
+                EventSpec event = mEvents.get(i);
+                if (version == 1 && i < RECONCILE_CHANGED) {
+                    event = new EventSpec.Builder()
+                            .setEvent(event.getEventTitle() + " (moved)", event.getEventDescription())
+                            .setAlarmStartTime(event.getAlarmStartTime() + 60 * 60 * 1000L)
+                            .build();
+                }
+                events.put("external-" + i, event);
+            }
+            desired.add(events);
+        }
+        assertTrue(mFixture.manager().reconcileCalendarEvents(desired.get(0)).isSuccessful());
+
+        BenchmarkState state = mBenchmarkRule.getState();
+        int index = 1;
+        while (state.keepRunning()) {
+            ReconcileResult result = mFixture.manager().reconcileCalendarEvents(desired.get(index++ & 1));
+            assertTrue(result.toString(), result.isSuccessful());
+        }
+
+        ProviderCost.report("reconcile(" + RECONCILE_SIZE + ", " + RECONCILE_CHANGED + " changed)",
+                mFixture.provider(), new ProviderCost.Operation() {
+                    @Override
+                    public void run(int iteration) {
+                        mFixture.manager().reconcileCalendarEvents(desired.get(iteration & 1));
+                    }
+                });
+    }
+
+    private static EventSpec reminderEvent(int secondReminderMinutes) {
+        return new EventSpec.Builder()
+                .setEvent("update", "benchmark update")
+                .setAlarmStartTime(BenchmarkFixture.event(0).getAlarmStartTime())
+                .addReminder(10, CalendarAlarmDateType.MINUTE, CalendarContract.Reminders.METHOD_ALERT)
+                .addReminder(secondReminderMinutes, CalendarAlarmDateType.MINUTE,
+                        CalendarContract.Reminders.METHOD_ALERT)
+                .build();
+    }
+}
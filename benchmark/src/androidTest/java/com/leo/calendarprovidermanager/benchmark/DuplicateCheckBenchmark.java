@@ -0,0 +1,169 @@
+package com.leo.calendarprovidermanager.benchmark;
+
+import android.database.Cursor;
+import android.provider.CalendarContract;
+
+import androidx.benchmark.BenchmarkState;
+import androidx.benchmark.junit4.BenchmarkRule;
+
+import com.leo.calendarprovidermanager.EventIterator;
+import com.leo.calendarprovidermanager.EventSpec;
+
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 重复检查和查询随日历大小的变化，日历中分别有 1k、10k、100k 个事件
+ * queryCalendarEventFullScan 是改为 _ID 投影和 provider 端匹配之前的做法，作为对照。
+ */
+@RunWith(Parameterized.class)
+public class DuplicateCheckBenchmark {
+    private static final int PAGE_SIZE = 50;
+
+    @Parameterized.Parameters(name = "events={0}")
+    public static List<Object[]> sizes() {
+        return Arrays.asList(new Object[][]{{1000}, {10000}, {100000}});
+    }
+
+    @Rule
+    public BenchmarkRule mBenchmarkRule = new BenchmarkRule();
+
+    private final int mSize;
+    private BenchmarkFixture mFixture;
+    //日历中间的一个已存在的事件
+    private EventSpec mExisting;
+
+    public DuplicateCheckBenchmark(int size) {
+        mSize = size;
+    }
+
+    @Before
+    public void setUp() {
+        mFixture = new BenchmarkFixture();
+        mFixture.seed(mSize);
+        mExisting = BenchmarkFixture.event(mSize / 2);
+    }
+
+    /**
+     * 添加已存在的事件，只做重复检查，不写入
+     */
+    @Test
+    public void addDuplicateEvent() {
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mFixture.manager().addCalendarEvent(mExisting);
+        }
+        assertEquals(-1, mFixture.manager().addCalendarEvent(mExisting));
+
+        ProviderCost.report("addDuplicateEvent(" + mSize + ")", mFixture.provider(), new ProviderCost.Operation() {
+            @Override
+            public void run(int iteration) {
+                mFixture.manager().addCalendarEvent(mExisting);
+            }
+        });
+    }
+
+    @Test
+    public void queryCalendarEvent() {
+        final String title = mExisting.getEventTitle();
+        final String description = mExisting.getEventDescription();
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            mFixture.manager().queryCalendarEvent(title, description);
+        }
+        assertTrue(mFixture.manager().queryCalendarEvent(title, description) > -1);
+
+        ProviderCost.report("queryCalendarEvent(" + mSize + ")", mFixture.provider(), new ProviderCost.Operation() {
+            @Override
+            public void run(int iteration) {
+                mFixture.manager().queryCalendarEvent(title, description);
+            }
+        });
+    }
+
+    /**
+     * 对照：不带投影和 selection 读取全部事件，在 Java 中逐行比较标题和描述
+     */
+    @Test
+    public void queryCalendarEventFullScan() {
+        final String title = mExisting.getEventTitle();
+        final String description = mExisting.getEventDescription();
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            fullScan(title, description);
+        }
+        assertEquals(mFixture.manager().queryCalendarEvent(title, description), fullScan(title, description));
+
+        ProviderCost.report("queryCalendarEventFullScan(" + mSize + ")", mFixture.provider(),
+                new ProviderCost.Operation() {
+                    @Override
+                    public void run(int iteration) {
+                        fullScan(title, description);
+                    }
+                });
+    }
+
+    private long fullScan(String title, String description) {
+        Cursor cursor = mFixture.provider().query(CalendarContract.Events.CONTENT_URI, null, null, null, null);
+        if (cursor == null) return -1;
+        long eventId = -1;
+        try {
+            while (cursor.moveToNext()) {
+                if (title.equals(cursor.getString(cursor.getColumnIndex(CalendarContract.Events.TITLE)))
+                        && description.equals(cursor.getString(
+                        cursor.getColumnIndex(CalendarContract.Events.DESCRIPTION)))) {
+                    eventId = cursor.getLong(cursor.getColumnIndex(CalendarContract.Events._ID));
+                }
+            }
+        } finally {
+            cursor.close();
+        }
+        return eventId;
+    }
+
+    /**
+     * 从日历中间读取一页实例
+     */
+    @Test
+    public void queryEventsPage() {
+        final long from = mExisting.getAlarmStartTime();
+        final long to = BenchmarkFixture.event(mSize).getAlarmStartTime();
+        BenchmarkState state = mBenchmarkRule.getState();
+        while (state.keepRunning()) {
+            readPage(from, to);
+        }
+        assertEquals(PAGE_SIZE, readPage(from, to));
+
+        ProviderCost.report("queryEventsPage(" + mSize + ")", mFixture.provider(), new ProviderCost.Operation() {
+            @Override
+            public void run(int iteration) {
+                readPage(from, to);
+            }
+        });
+    }
+
+    private int readPage(long from, long to) {
+        int count = 0;
+        EventIterator iterator = mFixture.manager().queryEvents(from, to, null, PAGE_SIZE);
+        try {
+            while (iterator.hasNext()) {
+                iterator.next();
+                count++;
+            }
+        } finally {
+            iterator.close();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,58 @@
+package com.leo.calendarprovidermanager.benchmark;
+
+import android.os.Bundle;
+import android.os.Debug;
+import android.util.Log;
+
+import androidx.test.platform.app.InstrumentationRegistry;
+
+import com.leo.calendarprovidermanager.fake.FakeCalendarProvider;
+
+import java.util.Locale;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 在计时循环之外单独统计每次操作的 provider 调用次数和内存分配
+ * 耗时由 BenchmarkRule 统计；这里把操作再执行固定次数，
+ * 用 FakeCalendarProvider.getIpcCount() 统计模拟的跨进程调用，用 Debug 分配计数统计分配的对象和字节。
+ * 结果输出到 logcat 和 Android Studio 的测试结果中。
+ */
+final class ProviderCost {
+    private static final String TAG = "CalendarBenchmark";
+    //AndroidBenchmarkRunner 在 Android Studio 中显示该键的内容
+    private static final String STUDIO_OUTPUT_KEY = "android.studio.display.benchmark";
+    private static final int ITERATIONS = 50;
+
+    private ProviderCost() {
+    }
+
+    interface Operation {
+        void run(int iteration);
+    }
+
+    @SuppressWarnings("deprecation")
+    static void report(String name, FakeCalendarProvider provider, Operation operation) {
+        //预热，避免统计到类加载和首次查询
+        operation.run(-1);
+
+        provider.resetIpcCount();
+        Debug.resetThreadAllocCount();
+        Debug.resetThreadAllocSize();
+        Debug.startAllocCounting();
+        for (int i = 0; i < ITERATIONS; i++) {
+            operation.run(i);
+        }
+        Debug.stopAllocCounting();
+        double ipc = provider.getIpcCount() / (double) ITERATIONS;
+        double allocations = Debug.getThreadAllocCount() / (double) ITERATIONS;
+        double allocatedBytes = Debug.getThreadAllocSize() / (double) ITERATIONS;
+
+        String line = String.format(Locale.US, "%s: %.1f ipc/op, %.0f allocs/op, %.0f bytes/op",
+                name, ipc, allocations, allocatedBytes);
+        Log.i(TAG, line);
+        Bundle status = new Bundle();
+        status.putString(STUDIO_OUTPUT_KEY, line);
+        InstrumentationRegistry.getInstrumentation().sendStatus(2, status);
+    }
+}
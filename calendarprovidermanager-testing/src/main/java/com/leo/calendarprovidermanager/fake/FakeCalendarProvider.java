@@ -0,0 +1,912 @@
+package com.leo.calendarprovidermanager.fake;
+
+import android.content.ContentProvider;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.database.MatrixCursor;
+import android.net.Uri;
+import android.provider.BaseColumns;
+import android.provider.CalendarContract;
+import android.provider.CalendarContract.Attendees;
+import android.provider.CalendarContract.Calendars;
+import android.provider.CalendarContract.Events;
+import android.provider.CalendarContract.ExtendedProperties;
+import android.provider.CalendarContract.Instances;
+import android.provider.CalendarContract.Reminders;
+import android.text.TextUtils;
+
+import androidx.annotation.NonNull;
+
+import com.leo.calendarprovidermanager.CalendarProviderClient;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 内存中的日历 provider，用于在 JVM 上测试和基准测试
+ * 实现 Calendars、Events、Reminders、Attendees、ExtendedProperties、Instances 六张表和 Events.CONTENT_EXCEPTION_URI，
+ * selection/排序按 SQL 语义求值，行为尽量与系统 CalendarProvider 一致：
+ * <ul>
+ * <li>非 sync adapter 写入 Events 时置 DIRTY=1，写入 SYNC_DATA/_SYNC_ID/DIRTY/DELETED 抛出 IllegalArgumentException</li>
+ * <li>插入未知列时插入失败返回 null，更新未知列抛出 IllegalArgumentException</li>
+ * <li>删除已同步（有 _SYNC_ID）的事件只标记 DELETED=1，sync adapter 或未同步的事件直接删除</li>
+ * <li>删除事件级联删除提醒、参与人、扩展属性和例外事件，插入/删除提醒时更新事件的 HAS_ALARM</li>
+ * <li>只有 sync adapter 可以写入 ExtendedProperties，否则抛出 IllegalArgumentException</li>
+ * <li>Instances 展开重复规则并应用例外事件，只读</li>
+ * <li>写入事件时计算 LAST_DATE，无限重复的事件为 null</li>
+ * <li>applyBatch 在一个事务中执行，失败时回滚；每次变更在 CalendarContract.CONTENT_URI 上通知一次</li>
+ * </ul>
+ * 可直接作为 CalendarProviderClient 传给 CalendarProviderManager.Builder.setProviderClient，
+ * 需要 Android 框架类（如 Robolectric）。
+ */
+public class FakeCalendarProvider extends ContentProvider implements CalendarProviderClient {
+
+    private static final String CALENDARS = "calendars";
+    private static final String EVENTS = "events";
+    private static final String REMINDERS = "reminders";
+    private static final String ATTENDEES = "attendees";
+    private static final String EXTENDED_PROPERTIES = "extendedproperties";
+    private static final String INSTANCES = "instances";
+    private static final String EXCEPTION = "exception";
+    private static final String ID = BaseColumns._ID;
+
+    private static final Set<String> CALENDAR_COLUMNS = columns(
+            Calendars._ID, Calendars.NAME, Calendars.ACCOUNT_NAME, Calendars.ACCOUNT_TYPE,
+            Calendars.CALENDAR_DISPLAY_NAME, Calendars.VISIBLE, Calendars.CALENDAR_ACCESS_LEVEL,
+            Calendars.SYNC_EVENTS, Calendars.CALENDAR_TIME_ZONE, Calendars.OWNER_ACCOUNT,
+            Calendars.CAN_ORGANIZER_RESPOND, Calendars.CALENDAR_COLOR, Calendars.DELETED, Calendars.DIRTY);
+
+    private static final Set<String> EVENT_COLUMNS = columns(
+            Events._ID, Events.CALENDAR_ID, Events.TITLE, Events.DESCRIPTION, Events.EVENT_LOCATION,
+            Events.DTSTART, Events.DTEND, Events.DURATION, Events.EVENT_TIMEZONE, Events.EVENT_END_TIMEZONE,
+            Events.ALL_DAY, Events.HAS_ALARM, Events.RRULE, Events.RDATE, Events.EXRULE, Events.EXDATE,
+            Events.ORIGINAL_ID, Events.ORIGINAL_SYNC_ID, Events.ORIGINAL_INSTANCE_TIME, Events.ORIGINAL_ALL_DAY,
+            Events.LAST_DATE, Events.STATUS, Events.UID_2445, Events.ORGANIZER, Events.AVAILABILITY,
+            Events.HAS_ATTENDEE_DATA, Events.HAS_EXTENDED_PROPERTIES, Events.DELETED, Events.DIRTY, Events._SYNC_ID,
+            Events.SYNC_DATA1, Events.SYNC_DATA2, Events.SYNC_DATA3, Events.SYNC_DATA4, Events.SYNC_DATA5,
+            Events.SYNC_DATA6, Events.SYNC_DATA7, Events.SYNC_DATA8, Events.SYNC_DATA9, Events.SYNC_DATA10);
+
+    //只允许 sync adapter 写入的事件列
+    private static final Set<String> EVENT_SYNC_COLUMNS = columns(
+            Events.DELETED, Events.DIRTY, Events._SYNC_ID,
+            Events.SYNC_DATA1, Events.SYNC_DATA2, Events.SYNC_DATA3, Events.SYNC_DATA4, Events.SYNC_DATA5,
+            Events.SYNC_DATA6, Events.SYNC_DATA7, Events.SYNC_DATA8, Events.SYNC_DATA9, Events.SYNC_DATA10);
+
+    //Events 视图中来自 Calendars 的列，列名与 Calendars 相同，只读
+    private static final String[] EVENT_VIEW_CALENDAR_COLUMNS = {
+            Events.ACCOUNT_NAME, Events.ACCOUNT_TYPE, Events.CALENDAR_DISPLAY_NAME,
+            Events.CALENDAR_TIME_ZONE, Events.OWNER_ACCOUNT};
+
+    private static final Set<String> REMINDER_COLUMNS = columns(
+            Reminders._ID, Reminders.EVENT_ID, Reminders.MINUTES, Reminders.METHOD);
+
+    private static final Set<String> ATTENDEE_COLUMNS = columns(
+            Attendees._ID, Attendees.EVENT_ID, Attendees.ATTENDEE_NAME, Attendees.ATTENDEE_EMAIL,
+            Attendees.ATTENDEE_RELATIONSHIP, Attendees.ATTENDEE_TYPE, Attendees.ATTENDEE_STATUS);
+
+    private static final Set<String> EXTENDED_PROPERTY_COLUMNS = columns(
+            ExtendedProperties._ID, ExtendedProperties.EVENT_ID, ExtendedProperties.NAME, ExtendedProperties.VALUE);
+
+    private static final Set<String> EVENT_VIEW_COLUMNS = union(EVENT_COLUMNS, EVENT_VIEW_CALENDAR_COLUMNS);
+    private static final Set<String> INSTANCE_COLUMNS = union(EVENT_VIEW_COLUMNS,
+            Instances.EVENT_ID, Instances.BEGIN, Instances.END);
+
+    private final Object mLock = new Object();
+    private final Table mCalendars = new Table(CALENDAR_COLUMNS);
+    private final Table mEvents = new Table(EVENT_COLUMNS);
+    private final Table mReminders = new Table(REMINDER_COLUMNS);
+    private final Table mAttendees = new Table(ATTENDEE_COLUMNS);
+    private final Table mExtendedProperties = new Table(EXTENDED_PROPERTY_COLUMNS);
+    private final List<Observer> mObservers = new CopyOnWriteArrayList<>();
+
+    //applyBatch 嵌套深度，批次内的操作不单独计数和通知
+    private int mBatchDepth;
+    //批次内的变更记录，失败时倒序恢复
+    private List<Undo> mUndo;
+    private long mIpcCount;
+
+    @Override
+    public boolean onCreate() {
+        return true;
+    }
+
+    @Override
+    public String getType(@NonNull Uri uri) {
+        return null;
+    }
+
+    /**
+     * @return 模拟的跨进程调用次数，applyBatch 整批计一次
+     */
+    public long getIpcCount() {
+        synchronized (mLock) {
+            return mIpcCount;
+        }
+    }
+
+    public void resetIpcCount() {
+        synchronized (mLock) {
+            mIpcCount = 0;
+        }
+    }
+
+    /**
+     * @return 已注册的 ContentObserver 数，用于检查 close() 后是否全部注销
+     */
+    public int getObserverCount() {
+        return mObservers.size();
+    }
+
+    @Override
+    public Cursor query(@NonNull Uri uri, String[] projection, String selection, String[] selectionArgs,
+                        String sortOrder) {
+        Route route = route(uri);
+        synchronized (mLock) {
+            countIpc();
+            Set<String> columns;
+            Iterable<Map<String, Object>> source;
+            switch (route.mTable) {
+                case CALENDARS:
+                    columns = CALENDAR_COLUMNS;
+                    source = mCalendars.rows(route.mId);
+                    break;
+                case EVENTS:
+                    columns = EVENT_VIEW_COLUMNS;
+                    source = mEvents.rows(route.mId);
+                    break;
+                case REMINDERS:
+                    columns = REMINDER_COLUMNS;
+                    source = mReminders.rows(route.mId);
+                    break;
+                case ATTENDEES:
+                    columns = ATTENDEE_COLUMNS;
+                    source = mAttendees.rows(route.mId);
+                    break;
+                case EXTENDED_PROPERTIES:
+                    columns = EXTENDED_PROPERTY_COLUMNS;
+                    source = mExtendedProperties.rows(route.mId);
+                    break;
+                case INSTANCES:
+                    columns = INSTANCE_COLUMNS;
+                    source = instances(route.mBegin, route.mEnd);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown URL " + uri);
+            }
+            if (projection == null) {
+                projection = columns.toArray(new String[0]);
+            } else {
+                for (String column : projection) {
+                    if (!columns.contains(column)) throw new IllegalArgumentException("Invalid column " + column);
+                }
+            }
+
+            Selection where = Selection.parse(selection);
+            where.checkColumns(columns);
+            List<Map<String, Object>> rows = new ArrayList<>();
+            for (Map<String, Object> row : source) {
+                if (where.matches(row, selectionArgs)) rows.add(row);
+            }
+            Comparator<Map<String, Object>> comparator = Selection.comparator(sortOrder);
+            if (comparator != null) Collections.sort(rows, comparator);
+            int limit = Selection.limit(sortOrder);
+            if (limit > -1 && limit < rows.size()) rows = rows.subList(0, limit);
+
+            MatrixCursor cursor = new MatrixCursor(projection, rows.size());
+            for (Map<String, Object> row : rows) {
+                Object[] values = new Object[projection.length];
+                for (int i = 0; i < projection.length; i++) {
+                    values[i] = row.get(projection[i]);
+                }
+                cursor.addRow(values);
+            }
+            return cursor;
+        }
+    }
+
+    @Override
+    public Uri insert(@NonNull Uri uri, ContentValues values) {
+        Route route = route(uri);
+        boolean syncAdapter = isSyncAdapter(uri);
+        checkWriteAllowed(route, uri, syncAdapter);
+        Uri result;
+        boolean notify;
+        synchronized (mLock) {
+            countIpc();
+            Map<String, Object> row = toRow(values);
+            switch (route.mTable) {
+                case CALENDARS:
+                    result = insertCalendar(row);
+                    break;
+                case EVENTS:
+                    result = insertEvent(row, syncAdapter);
+                    break;
+                case REMINDERS:
+                    result = insertReminder(row, syncAdapter);
+                    break;
+                case ATTENDEES:
+                    result = insertEventChild(mAttendees, Attendees.CONTENT_URI, row, syncAdapter);
+                    break;
+                case EXTENDED_PROPERTIES:
+                    result = insertEventChild(mExtendedProperties, ExtendedProperties.CONTENT_URI, row, syncAdapter);
+                    break;
+                case EXCEPTION:
+                    result = insertException(route.mId, row, syncAdapter);
+                    break;
+                default:
+                    throw new UnsupportedOperationException("Cannot insert into that URL: " + uri);
+            }
+            notify = result != null && mBatchDepth == 0;
+        }
+        if (notify) dispatchChange();
+        return result;
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        Route route = route(uri);
+        boolean syncAdapter = isSyncAdapter(uri);
+        checkWriteAllowed(route, uri, syncAdapter);
+        int count;
+        boolean notify;
+        synchronized (mLock) {
+            countIpc();
+            Map<String, Object> changes = toRow(values);
+            Table table = table(route, uri);
+            checkColumns(table, changes, syncAdapter);
+            if (changes.containsKey(ID)) {
+                throw new IllegalArgumentException("Cannot update " + ID);
+            }
+            List<Long> ids = select(table, route.mId, selection, selectionArgs);
+            for (long id : ids) {
+                Map<String, Object> row = new HashMap<>(table.mRows.get(id));
+                row.putAll(changes);
+                if (table == mEvents) {
+                    if (!syncAdapter) row.put(Events.DIRTY, 1L);
+                    putLastDate(row);
+                } else if (table == mReminders || table == mAttendees) {
+                    if (!syncAdapter) markDirty(toLong(row.get(Reminders.EVENT_ID)));
+                } else if (table == mCalendars) {
+                    propagateCalendar(id, row);
+                }
+                put(table, id, row);
+            }
+            count = ids.size();
+            notify = count > 0 && mBatchDepth == 0;
+        }
+        if (notify) dispatchChange();
+        return count;
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, String selection, String[] selectionArgs) {
+        Route route = route(uri);
+        boolean syncAdapter = isSyncAdapter(uri);
+        checkWriteAllowed(route, uri, syncAdapter);
+        int count;
+        boolean notify;
+        synchronized (mLock) {
+            countIpc();
+            Table table = table(route, uri);
+            List<Long> ids = select(table, route.mId, selection, selectionArgs);
+            if (table == mCalendars) {
+                Set<Long> calendarIds = new HashSet<>(ids);
+                for (long id : ids) remove(mCalendars, id);
+                Set<Long> eventIds = new HashSet<>();
+                for (Map.Entry<Long, Map<String, Object>> entry : mEvents.mRows.entrySet()) {
+                    if (calendarIds.contains(toLong(entry.getValue().get(Events.CALENDAR_ID)))) {
+                        eventIds.add(entry.getKey());
+                    }
+                }
+                removeEvents(eventIds);
+            } else if (table == mEvents) {
+                Set<Long> removed = new HashSet<>();
+                for (long id : ids) {
+                    Map<String, Object> row = mEvents.mRows.get(id);
+                    Object syncId = row.get(Events._SYNC_ID);
+                    if (syncAdapter || syncId == null || syncId.toString().isEmpty()) {
+                        removed.add(id);
+                    } else {
+                        //已同步的事件留下墓碑，等待 sync adapter 上传后删除
+                        Map<String, Object> tombstone = new HashMap<>(row);
+                        tombstone.put(Events.DELETED, 1L);
+                        tombstone.put(Events.DIRTY, 1L);
+                        put(mEvents, id, tombstone);
+                    }
+                }
+                removeEvents(removed);
+            } else if (table == mReminders) {
+                Set<Long> eventIds = new HashSet<>();
+                for (long id : ids) {
+                    eventIds.add(toLong(mReminders.mRows.get(id).get(Reminders.EVENT_ID)));
+                    remove(mReminders, id);
+                }
+                for (long eventId : eventIds) {
+                    updateHasAlarm(eventId, syncAdapter);
+                }
+            } else {
+                for (long id : ids) {
+                    Long eventId = toLong(table.mRows.get(id).get(Attendees.EVENT_ID));
+                    remove(table, id);
+                    if (table == mAttendees && !syncAdapter) markDirty(eventId);
+                }
+            }
+            count = ids.size();
+            notify = count > 0 && mBatchDepth == 0;
+        }
+        if (notify) dispatchChange();
+        return count;
+    }
+
+    @Override
+    public @NonNull ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws OperationApplicationException {
+        ContentProviderResult[] results;
+        boolean notify;
+        synchronized (mLock) {
+            countIpc();
+            boolean outermost = mBatchDepth == 0;
+            if (outermost) mUndo = new ArrayList<>();
+            mBatchDepth++;
+            boolean success = false;
+            try {
+                results = super.applyBatch(operations);
+                success = true;
+            } finally {
+                mBatchDepth--;
+                if (outermost) {
+                    if (!success) rollback();
+                    notify = success && !mUndo.isEmpty();
+                    mUndo = null;
+                } else {
+                    notify = false;
+                }
+            }
+        }
+        if (notify) dispatchChange();
+        return results;
+    }
+
+    @Override
+    public void registerContentObserver(@NonNull Uri uri, boolean notifyForDescendants,
+                                        @NonNull ContentObserver observer) {
+        mObservers.add(new Observer(uri, notifyForDescendants, observer));
+    }
+
+    @Override
+    public void unregisterContentObserver(@NonNull ContentObserver observer) {
+        for (Observer registered : mObservers) {
+            if (registered.mObserver == observer) mObservers.remove(registered);
+        }
+    }
+
+    private Uri insertCalendar(Map<String, Object> row) {
+        if (!hasOnlyColumns(mCalendars, row)) return null;
+        putDefault(row, Calendars.VISIBLE, 1L);
+        putDefault(row, Calendars.SYNC_EVENTS, 0L);
+        putDefault(row, Calendars.DELETED, 0L);
+        putDefault(row, Calendars.DIRTY, 0L);
+        long id = mCalendars.nextId();
+        row.put(Calendars._ID, id);
+        put(mCalendars, id, row);
+        return ContentUris.withAppendedId(Calendars.CONTENT_URI, id);
+    }
+
+    private Uri insertEvent(Map<String, Object> row, boolean syncAdapter) {
+        checkSyncColumns(row, syncAdapter);
+        if (!hasOnlyColumns(mEvents, row)) return null;
+        validateEvent(row);
+        putLastDate(row);
+        Map<String, Object> calendar = mCalendars.mRows.get(toLong(row.get(Events.CALENDAR_ID)));
+        if (calendar == null) throw new IllegalArgumentException("Calendar id is not valid");
+
+        putDefault(row, Events.HAS_ALARM, 0L);
+        putDefault(row, Events.ALL_DAY, 0L);
+        putDefault(row, Events.DELETED, 0L);
+        if (!syncAdapter) {
+            row.put(Events.DIRTY, 1L);
+        } else {
+            putDefault(row, Events.DIRTY, 0L);
+        }
+        for (String column : EVENT_VIEW_CALENDAR_COLUMNS) {
+            row.put(column, calendar.get(column));
+        }
+        long id = mEvents.nextId();
+        row.put(Events._ID, id);
+        put(mEvents, id, row);
+        return ContentUris.withAppendedId(Events.CONTENT_URI, id);
+    }
+
+    private Uri insertReminder(Map<String, Object> row, boolean syncAdapter) {
+        if (!hasOnlyColumns(mReminders, row)) return null;
+        Long eventId = toLong(row.get(Reminders.EVENT_ID));
+        if (eventId == null || !mEvents.mRows.containsKey(eventId)) {
+            throw new IllegalArgumentException("Reminders must have a valid event_id");
+        }
+        putDefault(row, Reminders.MINUTES, (long) Reminders.MINUTES_DEFAULT);
+        putDefault(row, Reminders.METHOD, (long) Reminders.METHOD_DEFAULT);
+        long id = mReminders.nextId();
+        row.put(Reminders._ID, id);
+        put(mReminders, id, row);
+        updateHasAlarm(eventId, syncAdapter);
+        return ContentUris.withAppendedId(Reminders.CONTENT_URI, id);
+    }
+
+    /**
+     * 插入 Attendees、ExtendedProperties 的一行，非 sync adapter 写入参与人时置事件 DIRTY=1
+     */
+    private Uri insertEventChild(Table table, Uri contentUri, Map<String, Object> row, boolean syncAdapter) {
+        if (!hasOnlyColumns(table, row)) return null;
+        Long eventId = toLong(row.get(Attendees.EVENT_ID));
+        if (eventId == null || !mEvents.mRows.containsKey(eventId)) {
+            throw new IllegalArgumentException("Rows must have a valid event_id");
+        }
+        long id = table.nextId();
+        row.put(ID, id);
+        put(table, id, row);
+        if (table == mAttendees && !syncAdapter) markDirty(eventId);
+        return ContentUris.withAppendedId(contentUri, id);
+    }
+
+    /**
+     * 为重复事件的某一次发生写入例外事件，未给出的列沿用原事件
+     */
+    private Uri insertException(long originalId, Map<String, Object> values, boolean syncAdapter) {
+        checkSyncColumns(values, syncAdapter);
+        if (!hasOnlyColumns(mEvents, values)) return null;
+        Map<String, Object> original = mEvents.mRows.get(originalId);
+        if (original == null) return null;
+        if (original.get(Events.RRULE) == null && original.get(Events.RDATE) == null) {
+            throw new IllegalArgumentException("Original event is not recurring");
+        }
+        Long instanceTime = toLong(values.get(Events.ORIGINAL_INSTANCE_TIME));
+        if (instanceTime == null) {
+            throw new IllegalArgumentException("Exceptions must specify " + Events.ORIGINAL_INSTANCE_TIME);
+        }
+
+        Map<String, Object> row = new HashMap<>(original);
+        row.keySet().removeAll(EVENT_SYNC_COLUMNS);
+        row.remove(Events.RRULE);
+        row.remove(Events.RDATE);
+        row.remove(Events.EXRULE);
+        row.remove(Events.EXDATE);
+        row.remove(Events.DURATION);
+        row.remove(Events.UID_2445);
+        row.put(Events.ORIGINAL_ID, originalId);
+        row.put(Events.ORIGINAL_SYNC_ID, original.get(Events._SYNC_ID));
+        row.put(Events.ORIGINAL_ALL_DAY, original.get(Events.ALL_DAY));
+        row.put(Events.DTSTART, instanceTime);
+        row.putAll(values);
+        if (!values.containsKey(Events.DTEND)) {
+            row.put(Events.DTEND, toLong(row.get(Events.DTSTART)) + duration(original));
+        }
+        row.put(Events.DELETED, 0L);
+        row.put(Events.DIRTY, syncAdapter ? 0L : 1L);
+        putLastDate(row);
+        long id = mEvents.nextId();
+        row.put(Events._ID, id);
+        put(mEvents, id, row);
+
+        //例外事件沿用原事件的提醒
+        for (Map<String, Object> reminder : new ArrayList<>(mReminders.mRows.values())) {
+            if (originalId == toLong(reminder.get(Reminders.EVENT_ID))) {
+                Map<String, Object> copy = new HashMap<>(reminder);
+                long reminderId = mReminders.nextId();
+                copy.put(Reminders._ID, reminderId);
+                copy.put(Reminders.EVENT_ID, id);
+                put(mReminders, reminderId, copy);
+            }
+        }
+        return ContentUris.withAppendedId(Events.CONTENT_URI, id);
+    }
+
+    private void validateEvent(Map<String, Object> row) {
+        if (row.get(Events.CALENDAR_ID) == null) throw new IllegalArgumentException("Calendar id is required");
+        if (row.get(Events.DTSTART) == null) throw new IllegalArgumentException("DTSTART cannot be empty.");
+        boolean hasEnd = row.get(Events.DTEND) != null;
+        boolean hasDuration = row.get(Events.DURATION) != null && !row.get(Events.DURATION).toString().isEmpty();
+        if (!hasEnd && !hasDuration) {
+            throw new IllegalArgumentException("DTEND and DURATION cannot both be null for an event.");
+        }
+        if (hasEnd && hasDuration) {
+            throw new IllegalArgumentException("Cannot have both DTEND and DURATION in an event");
+        }
+        Object rrule = row.get(Events.RRULE);
+        if (rrule != null) {
+            //无法解析的规则在插入时报错
+            Recurrence.expand(toLong(row.get(Events.DTSTART)), 0, rrule.toString(), null, null,
+                    TimeZone.getTimeZone("UTC"), 0, 0);
+        }
+    }
+
+    private static void putLastDate(Map<String, Object> row) {
+        Object rrule = row.get(Events.RRULE);
+        Object rdate = row.get(Events.RDATE);
+        Object exdate = row.get(Events.EXDATE);
+        Object zone = row.get(Events.EVENT_TIMEZONE);
+        row.put(Events.LAST_DATE, Recurrence.lastEnd(toLong(row.get(Events.DTSTART)), duration(row),
+                rrule == null ? null : rrule.toString(), rdate == null ? null : rdate.toString(),
+                exdate == null ? null : exdate.toString(), TimeZone.getTimeZone(zone == null ? "UTC" : zone.toString())));
+    }
+
+    /**
+     * 展开 [begin, end] 内的事件实例
+     */
+    private List<Map<String, Object>> instances(long begin, long end) {
+        //被例外事件替换或取消的发生：原事件 id -> 原开始时间
+        Map<Long, Set<Long>> overridden = new HashMap<>();
+        for (Map<String, Object> event : mEvents.mRows.values()) {
+            Long originalId = toLong(event.get(Events.ORIGINAL_ID));
+            Long instanceTime = toLong(event.get(Events.ORIGINAL_INSTANCE_TIME));
+            if (originalId == null || instanceTime == null) continue;
+            Set<Long> times = overridden.get(originalId);
+            if (times == null) {
+                times = new HashSet<>();
+                overridden.put(originalId, times);
+            }
+            times.add(instanceTime);
+        }
+
+        List<Map<String, Object>> instances = new ArrayList<>();
+        long instanceId = 1;
+        for (Map<String, Object> event : mEvents.mRows.values()) {
+            if (Long.valueOf(1).equals(toLong(event.get(Events.DELETED)))) continue;
+            Long status = toLong(event.get(Events.STATUS));
+            if (status != null && status == Events.STATUS_CANCELED && event.get(Events.ORIGINAL_ID) != null) continue;
+
+            long eventId = toLong(event.get(Events._ID));
+            long start = toLong(event.get(Events.DTSTART));
+            long duration = duration(event);
+            Object rrule = event.get(Events.RRULE);
+            Object rdate = event.get(Events.RDATE);
+            List<Long> begins;
+            if (rrule == null && rdate == null) {
+                begins = start <= end && start + duration >= begin
+                        ? Collections.singletonList(start) : Collections.<Long>emptyList();
+            } else {
+                Object exdate = event.get(Events.EXDATE);
+                Object zone = event.get(Events.EVENT_TIMEZONE);
+                begins = Recurrence.expand(start, duration, rrule == null ? null : rrule.toString(),
+                        rdate == null ? null : rdate.toString(), exdate == null ? null : exdate.toString(),
+                        TimeZone.getTimeZone(zone == null ? "UTC" : zone.toString()), begin, end);
+            }
+            Set<Long> skipped = overridden.get(eventId);
+            for (long instanceBegin : begins) {
+                if (skipped != null && skipped.contains(instanceBegin)) continue;
+                Map<String, Object> instance = new HashMap<>(event);
+                instance.put(Instances._ID, instanceId++);
+                instance.put(Instances.EVENT_ID, eventId);
+                instance.put(Instances.BEGIN, instanceBegin);
+                instance.put(Instances.END, instanceBegin + duration);
+                instances.add(instance);
+            }
+        }
+        return instances;
+    }
+
+    private static long duration(Map<String, Object> event) {
+        Long end = toLong(event.get(Events.DTEND));
+        if (end != null) return end - toLong(event.get(Events.DTSTART));
+        Object duration = event.get(Events.DURATION);
+        return duration == null ? 0 : Recurrence.parseDuration(duration.toString());
+    }
+
+    private void removeEvents(Set<Long> eventIds) {
+        if (eventIds.isEmpty()) return;
+        //例外事件随原事件删除
+        Set<Long> all = new HashSet<>(eventIds);
+        for (Map.Entry<Long, Map<String, Object>> entry : mEvents.mRows.entrySet()) {
+            if (all.contains(toLong(entry.getValue().get(Events.ORIGINAL_ID)))) all.add(entry.getKey());
+        }
+        for (long id : all) remove(mEvents, id);
+        for (Table table : new Table[]{mReminders, mAttendees, mExtendedProperties}) {
+            for (Map.Entry<Long, Map<String, Object>> entry : new ArrayList<>(table.mRows.entrySet())) {
+                if (all.contains(toLong(entry.getValue().get(Reminders.EVENT_ID)))) remove(table, entry.getKey());
+            }
+        }
+    }
+
+    private void updateHasAlarm(long eventId, boolean syncAdapter) {
+        Map<String, Object> event = mEvents.mRows.get(eventId);
+        if (event == null) return;
+        long hasAlarm = 0;
+        for (Map<String, Object> reminder : mReminders.mRows.values()) {
+            if (eventId == toLong(reminder.get(Reminders.EVENT_ID))) {
+                hasAlarm = 1;
+                break;
+            }
+        }
+        Map<String, Object> row = new HashMap<>(event);
+        row.put(Events.HAS_ALARM, hasAlarm);
+        if (!syncAdapter) row.put(Events.DIRTY, 1L);
+        put(mEvents, eventId, row);
+    }
+
+    private void markDirty(Long eventId) {
+        Map<String, Object> event = eventId == null ? null : mEvents.mRows.get(eventId);
+        if (event == null) return;
+        Map<String, Object> row = new HashMap<>(event);
+        row.put(Events.DIRTY, 1L);
+        put(mEvents, eventId, row);
+    }
+
+    /**
+     * 日历的账户列变化时同步到 Events 视图
+     */
+    private void propagateCalendar(long calendarId, Map<String, Object> calendar) {
+        for (Map.Entry<Long, Map<String, Object>> entry : new ArrayList<>(mEvents.mRows.entrySet())) {
+            if (calendarId != toLong(entry.getValue().get(Events.CALENDAR_ID))) continue;
+            Map<String, Object> row = new HashMap<>(entry.getValue());
+            for (String column : EVENT_VIEW_CALENDAR_COLUMNS) {
+                row.put(column, calendar.get(column));
+            }
+            put(mEvents, entry.getKey(), row);
+        }
+    }
+
+    private List<Long> select(Table table, long id, String selection, String[] selectionArgs) {
+        Selection where = Selection.parse(selection);
+        where.checkColumns(table == mEvents ? EVENT_VIEW_COLUMNS : table.mColumns);
+        List<Long> ids = new ArrayList<>();
+        for (Map<String, Object> row : table.rows(id)) {
+            if (where.matches(row, selectionArgs)) ids.add(toLong(row.get(ID)));
+        }
+        return ids;
+    }
+
+    private Table table(Route route, Uri uri) {
+        switch (route.mTable) {
+            case CALENDARS:
+                return mCalendars;
+            case EVENTS:
+                return mEvents;
+            case REMINDERS:
+                return mReminders;
+            case ATTENDEES:
+                return mAttendees;
+            case EXTENDED_PROPERTIES:
+                return mExtendedProperties;
+            default:
+                throw new UnsupportedOperationException("Cannot modify that URL: " + uri);
+        }
+    }
+
+    private void checkColumns(Table table, Map<String, Object> values, boolean syncAdapter) {
+        if (table == mEvents) checkSyncColumns(values, syncAdapter);
+        for (String column : values.keySet()) {
+            if (!table.mColumns.contains(column)) throw new IllegalArgumentException("Invalid column " + column);
+        }
+    }
+
+    private static void checkSyncColumns(Map<String, Object> values, boolean syncAdapter) {
+        if (syncAdapter) return;
+        for (String column : values.keySet()) {
+            if (EVENT_SYNC_COLUMNS.contains(column)) {
+                throw new IllegalArgumentException("Only sync adapters may write to " + column);
+            }
+        }
+    }
+
+    /**
+     * 插入未知列时 SQLite 插入失败，provider 返回 null
+     */
+    private static boolean hasOnlyColumns(Table table, Map<String, Object> values) {
+        return table.mColumns.containsAll(values.keySet());
+    }
+
+    private void put(Table table, long id, Map<String, Object> row) {
+        Map<String, Object> previous = table.mRows.put(id, row);
+        if (mUndo != null) mUndo.add(new Undo(table, id, previous));
+    }
+
+    private void remove(Table table, long id) {
+        Map<String, Object> previous = table.mRows.remove(id);
+        if (previous != null && mUndo != null) mUndo.add(new Undo(table, id, previous));
+    }
+
+    private void rollback() {
+        for (int i = mUndo.size() - 1; i >= 0; i--) {
+            Undo undo = mUndo.get(i);
+            if (undo.mRow == null) {
+                undo.mTable.mRows.remove(undo.mId);
+            } else {
+                undo.mTable.mRows.put(undo.mId, undo.mRow);
+            }
+        }
+    }
+
+    private void countIpc() {
+        if (mBatchDepth == 0) mIpcCount++;
+    }
+
+    /**
+     * 与系统 provider 一致，任何变更都在 CalendarContract.CONTENT_URI 上通知
+     */
+    private void dispatchChange() {
+        Uri changed = CalendarContract.CONTENT_URI;
+        for (Observer observer : mObservers) {
+            if (isAncestorOrSame(changed, observer.mUri)
+                    || (observer.mNotifyForDescendants && isAncestorOrSame(observer.mUri, changed))) {
+                observer.mObserver.dispatchChange(false, changed);
+            }
+        }
+    }
+
+    private static boolean isAncestorOrSame(Uri ancestor, Uri uri) {
+        if (!equal(ancestor.getAuthority(), uri.getAuthority())) return false;
+        List<String> prefix = ancestor.getPathSegments();
+        List<String> segments = uri.getPathSegments();
+        return segments.size() >= prefix.size() && segments.subList(0, prefix.size()).equals(prefix);
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    private static void checkWriteAllowed(Route route, Uri uri, boolean syncAdapter) {
+        if (!syncAdapter && EXTENDED_PROPERTIES.equals(route.mTable)) {
+            throw new IllegalArgumentException("Only sync adapters may write using " + uri);
+        }
+    }
+
+    private static boolean isSyncAdapter(Uri uri) {
+        String value = uri.getQueryParameter(CalendarContract.CALLER_IS_SYNCADAPTER);
+        boolean syncAdapter = value != null && !value.equalsIgnoreCase("false") && !value.equals("0");
+        if (syncAdapter && (TextUtils.isEmpty(uri.getQueryParameter(Calendars.ACCOUNT_NAME))
+                || TextUtils.isEmpty(uri.getQueryParameter(Calendars.ACCOUNT_TYPE)))) {
+            throw new IllegalArgumentException("Sync adapters must specify an account and account type: " + uri);
+        }
+        return syncAdapter;
+    }
+
+    private static Route route(Uri uri) {
+        if (!CalendarContract.AUTHORITY.equals(uri.getAuthority())) {
+            throw new IllegalArgumentException("Unknown authority " + uri);
+        }
+        List<String> segments = uri.getPathSegments();
+        if (segments.isEmpty()) throw new IllegalArgumentException("Unknown URL " + uri);
+        Route route = new Route();
+        route.mTable = segments.get(0);
+        try {
+            switch (route.mTable) {
+                case CALENDARS:
+                case EVENTS:
+                case REMINDERS:
+                case ATTENDEES:
+                case EXTENDED_PROPERTIES:
+                    if (segments.size() > 1) route.mId = Long.parseLong(segments.get(1));
+                    break;
+                case EXCEPTION:
+                    route.mId = Long.parseLong(segments.get(1));
+                    break;
+                case INSTANCES:
+                    if (segments.size() < 4 || !segments.get(1).equals("when")) {
+                        throw new IllegalArgumentException("Unknown URL " + uri);
+                    }
+                    route.mBegin = Long.parseLong(segments.get(2));
+                    route.mEnd = Long.parseLong(segments.get(3));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown URL " + uri);
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new IllegalArgumentException("Unknown URL " + uri, e);
+        }
+        return route;
+    }
+
+    /**
+     * ContentValues 转为行，整数统一为 Long、布尔为 0/1
+     */
+    private static Map<String, Object> toRow(ContentValues values) {
+        Map<String, Object> row = new HashMap<>();
+        if (values == null) return row;
+        for (String key : values.keySet()) {
+            Object value = values.get(key);
+            if (value instanceof Boolean) {
+                value = (Boolean) value ? 1L : 0L;
+            } else if (value instanceof Integer || value instanceof Short || value instanceof Byte) {
+                value = ((Number) value).longValue();
+            } else if (value instanceof Float) {
+                value = ((Float) value).doubleValue();
+            }
+            row.put(key, value);
+        }
+        return row;
+    }
+
+    private static Long toLong(Object value) {
+        if (value == null) return null;
+        if (value instanceof Number) return ((Number) value).longValue();
+        try {
+            return Long.valueOf(value.toString());
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static void putDefault(Map<String, Object> row, String column, Object value) {
+        if (row.get(column) == null) row.put(column, value);
+    }
+
+    private static Set<String> columns(String... columns) {
+        return Collections.unmodifiableSet(new LinkedHashSet<>(Arrays.asList(columns)));
+    }
+
+    private static Set<String> union(Set<String> columns, String... more) {
+        Set<String> union = new LinkedHashSet<>(columns);
+        union.addAll(Arrays.asList(more));
+        return Collections.unmodifiableSet(union);
+    }
+
+    private static final class Table {
+        final Set<String> mColumns;
+        //_ID -> 行，行写入后不再修改，更新时整行替换
+        final TreeMap<Long, Map<String, Object>> mRows = new TreeMap<>();
+        private long mNextId = 1;
+
+        Table(Set<String> columns) {
+            mColumns = columns;
+        }
+
+        long nextId() {
+            return mNextId++;
+        }
+
+        Iterable<Map<String, Object>> rows(long id) {
+            if (id < 0) return mRows.values();
+            Map<String, Object> row = mRows.get(id);
+            return row == null ? Collections.<Map<String, Object>>emptyList() : Collections.singletonList(row);
+        }
+    }
+
+    private static final class Route {
+        String mTable;
+        long mId = -1;
+        long mBegin;
+        long mEnd;
+    }
+
+    private static final class Undo {
+        final Table mTable;
+        final long mId;
+        //null 表示该行原本不存在
+        final Map<String, Object> mRow;
+
+        Undo(Table table, long id, Map<String, Object> row) {
+            mTable = table;
+            mId = id;
+            mRow = row;
+        }
+    }
+
+    private static final class Observer {
+        final Uri mUri;
+        final boolean mNotifyForDescendants;
+        final ContentObserver mObserver;
+
+        Observer(Uri uri, boolean notifyForDescendants, ContentObserver observer) {
+            mUri = uri;
+            mNotifyForDescendants = notifyForDescendants;
+            mObserver = observer;
+        }
+    }
+}
@@ -0,0 +1,249 @@
+package com.leo.calendarprovidermanager.fake;
+
+import java.text.ParseException;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Calendar;
+import java.util.List;
+import java.util.Locale;
+import java.util.TimeZone;
+import java.util.TreeSet;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : RFC 5545 重复规则展开，覆盖 provider 常见用法的子集
+ * RRULE 支持 FREQ=DAILY/WEEKLY/MONTHLY/YEARLY、INTERVAL、COUNT、UNTIL，WEEKLY 支持 BYDAY=MO,WE；
+ * RDATE/EXDATE 为逗号分隔的 yyyyMMdd'T'HHmmss['Z'] 或 yyyyMMdd。
+ */
+final class Recurrence {
+    private static final TimeZone UTC = TimeZone.getTimeZone("UTC");
+    //防止错误规则无限展开
+    private static final int MAX_ITERATIONS = 100000;
+    private static final String[] WEEKDAYS = {"SU", "MO", "TU", "WE", "TH", "FR", "SA"};
+
+    private Recurrence() {
+    }
+
+    /**
+     * @return 与 [rangeBegin, rangeEnd] 重叠的每次发生的开始时间，升序
+     */
+    static List<Long> expand(long dtStart, long durationMillis, String rrule, String rdate, String exdate,
+                             TimeZone timeZone, long rangeBegin, long rangeEnd) {
+        TreeSet<Long> begins = new TreeSet<>();
+        if (rrule != null) {
+            expandRule(dtStart, rrule, timeZone, rangeEnd, begins);
+        } else {
+            begins.add(dtStart);
+        }
+        if (rdate != null) begins.addAll(parseDates(rdate, timeZone));
+        if (exdate != null) begins.removeAll(parseDates(exdate, timeZone));
+
+        List<Long> result = new ArrayList<>();
+        for (long begin : begins) {
+            if (begin > rangeEnd) break;
+            if (begin + durationMillis >= rangeBegin) result.add(begin);
+        }
+        return result;
+    }
+
+    /**
+     * 与系统 provider 的 Events.LAST_DATE 一致：最后一次发生的结束时间
+     *
+     * @return 没有 COUNT 和 UNTIL 的无限重复为 null
+     */
+    static Long lastEnd(long dtStart, long durationMillis, String rrule, String rdate, String exdate,
+                        TimeZone timeZone) {
+        if (rrule != null) {
+            String rule = rrule.toUpperCase(Locale.ROOT);
+            if (!rule.contains("COUNT=") && !rule.contains("UNTIL=")) return null;
+        }
+        List<Long> begins = expand(dtStart, durationMillis, rrule, rdate, exdate, timeZone, dtStart, Long.MAX_VALUE);
+        long last = begins.isEmpty() ? dtStart : begins.get(begins.size() - 1);
+        return last + durationMillis;
+    }
+
+    private static void expandRule(long dtStart, String rrule, TimeZone timeZone, long rangeEnd, TreeSet<Long> out) {
+        String frequency = null;
+        int interval = 1;
+        int count = -1;
+        long until = Long.MAX_VALUE;
+        List<Integer> byDay = new ArrayList<>();
+        for (String part : rrule.split(";")) {
+            int equals = part.indexOf('=');
+            if (equals < 0) continue;
+            String key = part.substring(0, equals).trim().toUpperCase(Locale.ROOT);
+            String value = part.substring(equals + 1).trim();
+            switch (key) {
+                case "FREQ":
+                    frequency = value.toUpperCase(Locale.ROOT);
+                    break;
+                case "INTERVAL":
+                    interval = Math.max(1, Integer.parseInt(value));
+                    break;
+                case "COUNT":
+                    count = Integer.parseInt(value);
+                    break;
+                case "UNTIL":
+                    until = parseDate(value, timeZone);
+                    break;
+                case "BYDAY":
+                    for (String day : value.split(",")) {
+                        String name = day.trim().toUpperCase(Locale.ROOT);
+                        name = name.substring(Math.max(0, name.length() - 2));
+                        for (int i = 0; i < WEEKDAYS.length; i++) {
+                            if (WEEKDAYS[i].equals(name)) byDay.add(i + Calendar.SUNDAY);
+                        }
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+        if (frequency == null) throw new IllegalArgumentException("RRULE without FREQ: " + rrule);
+
+        long last = Math.min(until, rangeEnd);
+        Calendar start = Calendar.getInstance(timeZone);
+        start.setTimeInMillis(dtStart);
+        if (frequency.equals("WEEKLY") && !byDay.isEmpty()) {
+            expandWeeklyByDay(start, interval, count, last, byDay, out);
+            return;
+        }
+
+        int field;
+        switch (frequency) {
+            case "DAILY":
+                field = Calendar.DAY_OF_MONTH;
+                break;
+            case "WEEKLY":
+                field = Calendar.WEEK_OF_YEAR;
+                break;
+            case "MONTHLY":
+                field = Calendar.MONTH;
+                break;
+            case "YEARLY":
+                field = Calendar.YEAR;
+                break;
+            default:
+                throw new IllegalArgumentException("Unsupported FREQ: " + frequency);
+        }
+        int dayOfMonth = start.get(Calendar.DAY_OF_MONTH);
+        int emitted = 0;
+        for (int n = 0; n < MAX_ITERATIONS && (count < 0 || emitted < count); n++) {
+            Calendar occurrence = (Calendar) start.clone();
+            occurrence.add(field, n * interval);
+            //1 月 31 日按月重复时跳过没有 31 日的月份
+            if ((field == Calendar.MONTH || field == Calendar.YEAR)
+                    && occurrence.get(Calendar.DAY_OF_MONTH) != dayOfMonth) {
+                continue;
+            }
+            long begin = occurrence.getTimeInMillis();
+            if (begin > last) break;
+            out.add(begin);
+            emitted++;
+        }
+    }
+
+    private static void expandWeeklyByDay(Calendar start, int interval, int count, long last,
+                                          List<Integer> byDay, TreeSet<Long> out) {
+        Calendar week = (Calendar) start.clone();
+        week.setFirstDayOfWeek(Calendar.MONDAY);
+        //回到 start 所在周的周一
+        int offset = (week.get(Calendar.DAY_OF_WEEK) + 5) % 7;
+        week.add(Calendar.DAY_OF_MONTH, -offset);
+        int emitted = 0;
+        for (int n = 0; n < MAX_ITERATIONS; n++) {
+            for (int d = 0; d < 7; d++) {
+                Calendar day = (Calendar) week.clone();
+                day.add(Calendar.DAY_OF_MONTH, d);
+                if (!byDay.contains(day.get(Calendar.DAY_OF_WEEK))) continue;
+                long begin = day.getTimeInMillis();
+                if (begin < start.getTimeInMillis()) continue;
+                if (begin > last || (count >= 0 && emitted >= count)) return;
+                out.add(begin);
+                emitted++;
+            }
+            week.add(Calendar.WEEK_OF_YEAR, interval);
+        }
+    }
+
+    private static List<Long> parseDates(String value, TimeZone timeZone) {
+        //去掉 TZID=...: 前缀
+        int colon = value.lastIndexOf(':');
+        if (colon >= 0) value = value.substring(colon + 1);
+        List<Long> dates = new ArrayList<>();
+        for (String token : value.split(",")) {
+            if (!token.trim().isEmpty()) dates.add(parseDate(token.trim(), timeZone));
+        }
+        return dates;
+    }
+
+    private static long parseDate(String value, TimeZone timeZone) {
+        String pattern;
+        TimeZone zone = timeZone;
+        if (value.endsWith("Z")) {
+            pattern = "yyyyMMdd'T'HHmmss'Z'";
+            zone = UTC;
+        } else if (value.indexOf('T') >= 0) {
+            pattern = "yyyyMMdd'T'HHmmss";
+        } else {
+            pattern = "yyyyMMdd";
+        }
+        SimpleDateFormat format = new SimpleDateFormat(pattern, Locale.US);
+        format.setTimeZone(zone);
+        try {
+            return format.parse(value).getTime();
+        } catch (ParseException e) {
+            throw new IllegalArgumentException("Invalid date: " + value, e);
+        }
+    }
+
+    /**
+     * 解析 RFC 5545 DURATION，如 P600S、PT1H30M、P1D、-P1W
+     */
+    static long parseDuration(String duration) {
+        if (duration == null || duration.isEmpty()) return 0;
+        int i = 0;
+        int sign = 1;
+        if (duration.charAt(i) == '+' || duration.charAt(i) == '-') {
+            if (duration.charAt(i) == '-') sign = -1;
+            i++;
+        }
+        if (i >= duration.length() || duration.charAt(i) != 'P') {
+            throw new IllegalArgumentException("Invalid duration: " + duration);
+        }
+        i++;
+        long millis = 0;
+        long number = 0;
+        for (; i < duration.length(); i++) {
+            char c = duration.charAt(i);
+            if (Character.isDigit(c)) {
+                number = number * 10 + (c - '0');
+                continue;
+            }
+            switch (c) {
+                case 'W':
+                    millis += number * 7 * 24 * 3600 * 1000L;
+                    break;
+                case 'D':
+                    millis += number * 24 * 3600 * 1000L;
+                    break;
+                case 'H':
+                    millis += number * 3600 * 1000L;
+                    break;
+                case 'M':
+                    millis += number * 60 * 1000L;
+                    break;
+                case 'S':
+                    millis += number * 1000L;
+                    break;
+                case 'T':
+                    break;
+                default:
+                    throw new IllegalArgumentException("Invalid duration: " + duration);
+            }
+            number = 0;
+        }
+        return sign * millis;
+    }
+}
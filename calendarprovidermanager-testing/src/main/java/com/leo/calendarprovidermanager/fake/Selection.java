@@ -0,0 +1,509 @@
+package com.leo.calendarprovidermanager.fake;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : SQL WHERE 子句的解析与求值，覆盖 provider 查询中常用的子集
+ * 支持 AND/OR/NOT、括号、= != <> < <= > >=、IS [NOT] NULL、[NOT] IN (...)、[NOT] LIKE，
+ * 操作数为列名、? 参数、数字、'字符串' 和 NULL。比较遵循 SQLite 的习惯：
+ * 两边都是数字时按数值比较，否则按字符串比较，与 NULL 比较结果为假。
+ */
+final class Selection {
+    //排序末尾的 "LIMIT n"
+    private static final Pattern LIMIT = Pattern.compile("\\s+LIMIT\\s+(\\d+)\\s*$", Pattern.CASE_INSENSITIVE);
+
+    private static final Map<String, Selection> sCache = new LinkedHashMap<String, Selection>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, Selection> eldest) {
+            return size() > 64;
+        }
+    };
+
+    private final Node mRoot;
+    private final int mArgumentCount;
+    private final Set<String> mColumns;
+
+    private Selection(Node root, int argumentCount, Set<String> columns) {
+        mRoot = root;
+        mArgumentCount = argumentCount;
+        mColumns = columns;
+    }
+
+    /**
+     * @param where 为空时匹配所有行
+     */
+    static Selection parse(String where) {
+        if (where == null || where.trim().isEmpty()) {
+            return new Selection(null, 0, Collections.<String>emptySet());
+        }
+        synchronized (sCache) {
+            Selection selection = sCache.get(where);
+            if (selection == null) {
+                Parser parser = new Parser(where);
+                Node root = parser.parseExpression();
+                parser.expectEnd();
+                selection = new Selection(root, parser.mArgumentCount, parser.mColumns);
+                sCache.put(where, selection);
+            }
+            return selection;
+        }
+    }
+
+    /**
+     * 与 SQLite 一致，引用不存在的列时报错
+     */
+    void checkColumns(Set<String> columns) {
+        for (String column : mColumns) {
+            if (!columns.contains(column)) throw new IllegalArgumentException("no such column: " + column);
+        }
+    }
+
+    boolean matches(Map<String, Object> row, String[] args) {
+        if (mRoot == null) return true;
+        int supplied = args == null ? 0 : args.length;
+        if (supplied < mArgumentCount) {
+            throw new IllegalArgumentException("Too few bind arguments: " + supplied + " < " + mArgumentCount);
+        }
+        return Boolean.TRUE.equals(mRoot.evaluate(row, args));
+    }
+
+    /**
+     * 解析 "col ASC, col2 DESC" 形式的排序，NULL 最小；为空时返回 null
+     * 末尾的 "LIMIT n" 由 limit 解析
+     */
+    static Comparator<Map<String, Object>> comparator(String sortOrder) {
+        if (sortOrder == null) return null;
+        sortOrder = LIMIT.matcher(sortOrder).replaceFirst("");
+        if (sortOrder.trim().isEmpty()) return null;
+        String[] terms = sortOrder.split(",");
+        final String[] columns = new String[terms.length];
+        final boolean[] descending = new boolean[terms.length];
+        for (int i = 0; i < terms.length; i++) {
+            String[] parts = terms[i].trim().split("\\s+");
+            columns[i] = column(parts[0]);
+            descending[i] = parts.length > 1 && parts[1].equalsIgnoreCase("DESC");
+        }
+        return new Comparator<Map<String, Object>>() {
+            @Override
+            public int compare(Map<String, Object> a, Map<String, Object> b) {
+                for (int i = 0; i < columns.length; i++) {
+                    int result = compareValues(a.get(columns[i]), b.get(columns[i]));
+                    if (result != 0) return descending[i] ? -result : result;
+                }
+                return 0;
+            }
+        };
+    }
+
+    /**
+     * 系统 provider 把排序拼接在 ORDER BY 之后，末尾的 "LIMIT n" 限制返回的行数
+     *
+     * @return n，没有 LIMIT 时为 -1
+     */
+    static int limit(String sortOrder) {
+        if (sortOrder == null) return -1;
+        Matcher matcher = LIMIT.matcher(sortOrder);
+        return matcher.find() ? Integer.parseInt(matcher.group(1)) : -1;
+    }
+
+    /**
+     * 去掉 "Events.title" 中的表名
+     */
+    static String column(String name) {
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? name : name.substring(dot + 1);
+    }
+
+    static int compareValues(Object a, Object b) {
+        if (a == null || b == null) {
+            return a == null ? (b == null ? 0 : -1) : 1;
+        }
+        Double x = toNumber(a);
+        Double y = toNumber(b);
+        if (x != null && y != null) {
+            if (a instanceof Long && b instanceof Long) return Long.compare((Long) a, (Long) b);
+            return Double.compare(x, y);
+        }
+        return a.toString().compareTo(b.toString());
+    }
+
+    private static Double toNumber(Object value) {
+        if (value instanceof Number) return ((Number) value).doubleValue();
+        String text = value.toString();
+        if (text.isEmpty()) return null;
+        try {
+            return Double.valueOf(text);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static Object toLong(Object value) {
+        if (value instanceof String) {
+            try {
+                return Long.valueOf((String) value);
+            } catch (NumberFormatException e) {
+                return value;
+            }
+        }
+        return value;
+    }
+
+    private static boolean like(String value, String pattern) {
+        //与 SQLite 一致，ASCII 字母不区分大小写
+        pattern = pattern.toLowerCase(Locale.ROOT);
+        StringBuilder regex = new StringBuilder();
+        for (int i = 0; i < pattern.length(); i++) {
+            char c = pattern.charAt(i);
+            if (c == '%') {
+                regex.append(".*");
+            } else if (c == '_') {
+                regex.append('.');
+            } else {
+                regex.append(Pattern.quote(String.valueOf(c)));
+            }
+        }
+        return value.toLowerCase(Locale.ROOT).matches(regex.toString());
+    }
+
+    private interface Node {
+        /**
+         * @return 比较和逻辑节点返回 Boolean，NULL 参与时返回 null；操作数节点返回值
+         */
+        Object evaluate(Map<String, Object> row, String[] args);
+    }
+
+    private static final class Column implements Node {
+        final String mName;
+
+        Column(String name) {
+            mName = name;
+        }
+
+        @Override
+        public Object evaluate(Map<String, Object> row, String[] args) {
+            return row.get(mName);
+        }
+    }
+
+    private static final class Argument implements Node {
+        final int mIndex;
+
+        Argument(int index) {
+            mIndex = index;
+        }
+
+        @Override
+        public Object evaluate(Map<String, Object> row, String[] args) {
+            return args[mIndex];
+        }
+    }
+
+    private static final class Literal implements Node {
+        final Object mValue;
+
+        Literal(Object value) {
+            mValue = value;
+        }
+
+        @Override
+        public Object evaluate(Map<String, Object> row, String[] args) {
+            return mValue;
+        }
+    }
+
+    private static final class Logical implements Node {
+        final boolean mAnd;
+        final Node mLeft;
+        final Node mRight;
+
+        Logical(boolean and, Node left, Node right) {
+            mAnd = and;
+            mLeft = left;
+            mRight = right;
+        }
+
+        @Override
+        public Object evaluate(Map<String, Object> row, String[] args) {
+            Object left = mLeft.evaluate(row, args);
+            if (mAnd && Boolean.FALSE.equals(left)) return false;
+            if (!mAnd && Boolean.TRUE.equals(left)) return true;
+            Object right = mRight.evaluate(row, args);
+            if (mAnd) {
+                if (Boolean.FALSE.equals(right)) return false;
+                return left == null || right == null ? null : true;
+            }
+            if (Boolean.TRUE.equals(right)) return true;
+            return left == null || right == null ? null : false;
+        }
+    }
+
+    private static final class Not implements Node {
+        final Node mOperand;
+
+        Not(Node operand) {
+            mOperand = operand;
+        }
+
+        @Override
+        public Object evaluate(Map<String, Object> row, String[] args) {
+            Object value = mOperand.evaluate(row, args);
+            return value == null ? null : !((Boolean) value);
+        }
+    }
+
+    private static final class Comparison implements Node {
+        final String mOperator;
+        final Node mLeft;
+        final Node mRight;
+
+        Comparison(String operator, Node left, Node right) {
+            mOperator = operator;
+            mLeft = left;
+            mRight = right;
+        }
+
+        @Override
+        public Object evaluate(Map<String, Object> row, String[] args) {
+            Object left = mLeft.evaluate(row, args);
+            Object right = mRight.evaluate(row, args);
+            if (left == null || right == null) return null;
+            if (mOperator.equals("LIKE")) return like(left.toString(), right.toString());
+            int result = compareValues(toLong(left), toLong(right));
+            switch (mOperator) {
+                case "=":
+                case "==":
+                    return result == 0;
+                case "!=":
+                case "<>":
+                    return result != 0;
+                case "<":
+                    return result < 0;
+                case "<=":
+                    return result <= 0;
+                case ">":
+                    return result > 0;
+                default:
+                    return result >= 0;
+            }
+        }
+    }
+
+    private static final class IsNull implements Node {
+        final Node mOperand;
+
+        IsNull(Node operand) {
+            mOperand = operand;
+        }
+
+        @Override
+        public Object evaluate(Map<String, Object> row, String[] args) {
+            return mOperand.evaluate(row, args) == null;
+        }
+    }
+
+    private static final class In implements Node {
+        final Node mOperand;
+        final List<Node> mValues;
+
+        In(Node operand, List<Node> values) {
+            mOperand = operand;
+            mValues = values;
+        }
+
+        @Override
+        public Object evaluate(Map<String, Object> row, String[] args) {
+            Object value = mOperand.evaluate(row, args);
+            if (value == null) return null;
+            Object left = toLong(value);
+            for (Node node : mValues) {
+                Object candidate = node.evaluate(row, args);
+                if (candidate != null && compareValues(left, toLong(candidate)) == 0) return true;
+            }
+            return false;
+        }
+    }
+
+    private static final class Parser {
+        private final String mText;
+        private int mPosition;
+        private int mArgumentCount;
+        private final Set<String> mColumns = new HashSet<>();
+
+        Parser(String text) {
+            mText = text;
+        }
+
+        Node parseExpression() {
+            Node left = parseAnd();
+            while (acceptKeyword("OR")) {
+                left = new Logical(false, left, parseAnd());
+            }
+            return left;
+        }
+
+        void expectEnd() {
+            skipSpaces();
+            if (mPosition < mText.length()) throw error("Unexpected input");
+        }
+
+        private Node parseAnd() {
+            Node left = parseNot();
+            while (acceptKeyword("AND")) {
+                left = new Logical(true, left, parseNot());
+            }
+            return left;
+        }
+
+        private Node parseNot() {
+            if (acceptKeyword("NOT")) return new Not(parseNot());
+            return parsePredicate();
+        }
+
+        private Node parsePredicate() {
+            if (accept("(")) {
+                Node inner = parseExpression();
+                expect(")");
+                return inner;
+            }
+            Node left = parseOperand();
+            if (acceptKeyword("IS")) {
+                boolean not = acceptKeyword("NOT");
+                if (!acceptKeyword("NULL")) throw error("Expected NULL");
+                Node node = new IsNull(left);
+                return not ? new Not(node) : node;
+            }
+            boolean not = acceptKeyword("NOT");
+            Node node;
+            if (acceptKeyword("IN")) {
+                expect("(");
+                List<Node> values = new ArrayList<>();
+                do {
+                    values.add(parseOperand());
+                } while (accept(","));
+                expect(")");
+                node = new In(left, values);
+            } else if (acceptKeyword("LIKE")) {
+                node = new Comparison("LIKE", left, parseOperand());
+            } else if (not) {
+                throw error("Expected IN or LIKE");
+            } else {
+                String operator = parseOperator();
+                node = new Comparison(operator, left, parseOperand());
+            }
+            return not ? new Not(node) : node;
+        }
+
+        private String parseOperator() {
+            String[] operators = {"<=", ">=", "!=", "<>", "==", "=", "<", ">"};
+            skipSpaces();
+            for (String operator : operators) {
+                if (mText.startsWith(operator, mPosition)) {
+                    mPosition += operator.length();
+                    return operator;
+                }
+            }
+            throw error("Expected operator");
+        }
+
+        private Node parseOperand() {
+            skipSpaces();
+            if (mPosition >= mText.length()) throw error("Expected operand");
+            char c = mText.charAt(mPosition);
+            if (c == '?') {
+                mPosition++;
+                return new Argument(mArgumentCount++);
+            }
+            if (c == '\'') {
+                StringBuilder value = new StringBuilder();
+                mPosition++;
+                while (true) {
+                    if (mPosition >= mText.length()) throw error("Unterminated string");
+                    char next = mText.charAt(mPosition++);
+                    if (next == '\'') {
+                        if (mPosition < mText.length() && mText.charAt(mPosition) == '\'') {
+                            value.append('\'');
+                            mPosition++;
+                        } else {
+                            break;
+                        }
+                    } else {
+                        value.append(next);
+                    }
+                }
+                return new Literal(value.toString());
+            }
+            if (c == '-' || Character.isDigit(c)) {
+                int start = mPosition++;
+                while (mPosition < mText.length()
+                        && (Character.isDigit(mText.charAt(mPosition)) || mText.charAt(mPosition) == '.')) {
+                    mPosition++;
+                }
+                String number = mText.substring(start, mPosition);
+                return new Literal(number.indexOf('.') < 0 ? (Object) Long.valueOf(number) : Double.valueOf(number));
+            }
+            String identifier = parseIdentifier();
+            if (identifier.equalsIgnoreCase("NULL")) return new Literal(null);
+            String column = column(identifier);
+            mColumns.add(column);
+            return new Column(column);
+        }
+
+        private String parseIdentifier() {
+            skipSpaces();
+            int start = mPosition;
+            while (mPosition < mText.length()) {
+                char c = mText.charAt(mPosition);
+                if (!Character.isLetterOrDigit(c) && c != '_' && c != '.') break;
+                mPosition++;
+            }
+            if (start == mPosition) throw error("Expected identifier");
+            return mText.substring(start, mPosition);
+        }
+
+        private boolean acceptKeyword(String keyword) {
+            skipSpaces();
+            int end = mPosition + keyword.length();
+            if (!mText.regionMatches(true, mPosition, keyword, 0, keyword.length())) return false;
+            if (end < mText.length()) {
+                char next = mText.charAt(end);
+                if (Character.isLetterOrDigit(next) || next == '_') return false;
+            }
+            mPosition = end;
+            return true;
+        }
+
+        private boolean accept(String token) {
+            skipSpaces();
+            if (!mText.startsWith(token, mPosition)) return false;
+            mPosition += token.length();
+            return true;
+        }
+
+        private void expect(String token) {
+            if (!accept(token)) throw error("Expected '" + token + "'");
+        }
+
+        private void skipSpaces() {
+            while (mPosition < mText.length() && Character.isWhitespace(mText.charAt(mPosition))) {
+                mPosition++;
+            }
+        }
+
+        private IllegalArgumentException error(String message) {
+            return new IllegalArgumentException(message + " at " + mPosition + " in: " + mText);
+        }
+    }
+}
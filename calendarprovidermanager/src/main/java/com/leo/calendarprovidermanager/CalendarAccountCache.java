@@ -0,0 +1,96 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.Context;
+import android.database.ContentObserver;
+import android.provider.CalendarContract;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 日历账户 id 缓存
+ * 账户名称/类型 -> Calendars._ID。系统 provider 的缓存进程内共享，所有 CalendarProviderManager 实例共用；
+ * 自定义 CalendarProviderClient 使用各自的缓存，由创建它的 manager 在 close() 时关闭。
+ * 通过 Calendars.CONTENT_URI 上的 ContentObserver 失效，账户被删除后不会返回过期 id。
+ */
+final class CalendarAccountCache {
+
+    private static volatile CalendarAccountCache sDefault;
+
+    private final CalendarProviderClient mClient;
+    private final ContentObserver mObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            invalidate();
+        }
+    };
+    private final ConcurrentHashMap<String, Long> mCalendarIds = new ConcurrentHashMap<>();
+    //每次失效加一，用于丢弃失效前发起的查询结果
+    private final AtomicInteger mGeneration = new AtomicInteger();
+    private volatile boolean isClosed;
+
+    CalendarAccountCache(CalendarProviderClient client) {
+        mClient = client;
+        client.registerContentObserver(CalendarContract.Calendars.CONTENT_URI, true, mObserver);
+    }
+
+    /**
+     * 系统 provider 的共享缓存，只在第一次调用时注册失效监听
+     */
+    static CalendarAccountCache getDefault(Context context) {
+        if (sDefault != null) return sDefault;
+        synchronized (CalendarAccountCache.class) {
+            if (sDefault == null) {
+                sDefault = new CalendarAccountCache(
+                        new ContentResolverClient(context.getApplicationContext().getContentResolver()));
+            }
+            return sDefault;
+        }
+    }
+
+    /**
+     * @return 缓存的日历 id，null 表示未缓存
+     */
+    Long get(String accountName, String accountType) {
+        return mCalendarIds.get(key(accountName, accountType));
+    }
+
+    /**
+     * 查询前读取，put 时传回，查询期间发生过失效则不写入缓存
+     */
+    int generation() {
+        return mGeneration.get();
+    }
+
+    void put(String accountName, String accountType, long calendarId, int generation) {
+        //关闭后收不到失效通知，不再缓存
+        if (isClosed) return;
+        String key = key(accountName, accountType);
+        mCalendarIds.put(key, calendarId);
+        if (generation != mGeneration.get()) {
+            mCalendarIds.remove(key, calendarId);
+        }
+    }
+
+    void invalidate() {
+        mGeneration.incrementAndGet();
+        mCalendarIds.clear();
+    }
+
+    /**
+     * 注销 ContentObserver 并清空缓存，之后每次都查询 provider；系统 provider 的共享缓存不能关闭
+     */
+    synchronized void close() {
+        if (isClosed) return;
+        isClosed = true;
+        mClient.unregisterContentObserver(mObserver);
+        invalidate();
+    }
+
+    private static String key(String accountName, String accountType) {
+        //未指定账户时缓存系统第一个账户
+        return (accountName == null ? "" : accountName) + '\u0000' + accountType;
+    }
+}
@@ -9,5 +9,26 @@ public enum CalendarAlarmDateType {
     SECOND,
     MINUTE,
     HOUR,
-    DAY
+    DAY;
+
+    /**
+     * 将提前提醒时间转为分钟
+     *
+     * @param leadTime 提前提醒时间
+     * @return 分钟
+     */
+    public long toMinutes(long leadTime) {
+        switch (this) {
+            case SECOND:
+                return leadTime / 1000 / 60;
+            case MINUTE:
+                return leadTime;
+            case HOUR:
+                return leadTime * 60;
+            case DAY:
+                return leadTime * 24 * 60;
+            default:
+                return 0;
+        }
+    }
 }
@@ -0,0 +1,13 @@
+package com.leo.calendarprovidermanager;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 异步操作回调，在主线程执行
+ */
+public interface CalendarCallback<T> {
+
+    void onSuccess(T result);
+
+    void onFailure(Throwable throwable);
+}
@@ -0,0 +1,291 @@
+package com.leo.calendarprovidermanager;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 日历异步操作线程池
+ * 线程数与等待队列长度有上限，等待中的任务（含按 key 排队的任务）达到上限时，
+ * submit 返回的 Future 立即以 RejectedExecutionException 失败；已接受的任务不会再被拒绝。
+ * 相同 key（eventId）的任务按提交顺序依次执行，不同 key 的任务并行执行。
+ * 涉及多个 key 的任务（如批量删除）排在每个 key 之前提交的任务之后，之后提交的任务排在它之后。
+ */
+public final class CalendarExecutor {
+    private static final int DEFAULT_THREAD_COUNT = 2;
+    private static final int DEFAULT_QUEUE_CAPACITY = 128;
+
+    private static volatile CalendarExecutor sDefault;
+
+    private final ThreadPoolExecutor mExecutor;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    //key -> 该 key 上等待执行的任务或 Barrier，队列为空时移除；同时用作 mPendingCount 的锁
+    private final Map<Object, SerialQueue> mSerialQueues = new HashMap<>();
+    private final int mQueueCapacity;
+    //已接受、尚未开始执行的任务数
+    private int mPendingCount;
+
+    /**
+     * @param threadCount   最大线程数
+     * @param queueCapacity 等待队列长度
+     */
+    public CalendarExecutor(int threadCount, int queueCapacity) {
+        if (threadCount <= 0 || queueCapacity <= 0)
+            throw new IllegalArgumentException("threadCount and queueCapacity must be positive");
+        mQueueCapacity = queueCapacity;
+        //容量在 submit 中检查，线程池的队列不设上限，已接受的任务在交给线程池时不会被拒绝
+        mExecutor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(), new CalendarThreadFactory());
+        mExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * @return 进程内共享的默认线程池
+     */
+    public static CalendarExecutor getDefault() {
+        if (sDefault == null) {
+            synchronized (CalendarExecutor.class) {
+                if (sDefault == null) {
+                    sDefault = new CalendarExecutor(DEFAULT_THREAD_COUNT, DEFAULT_QUEUE_CAPACITY);
+                }
+            }
+        }
+        return sDefault;
+    }
+
+    /**
+     * 提交任务
+     *
+     * @param key      顺序 key，相同 key 的任务串行执行；null 表示不需要保证顺序
+     * @param callable 任务
+     * @param callback 结果回调，可为 null
+     */
+    public <T> Future<T> submit(Object key, Callable<T> callable, CalendarCallback<T> callback) {
+        final CalendarTask<T> task = new CalendarTask<>(callable, callback);
+        synchronized (mSerialQueues) {
+            if (mPendingCount >= mQueueCapacity) {
+                task.reject(new RejectedExecutionException("Calendar executor queue is full"));
+                return task;
+            }
+            mPendingCount++;
+            if (key == null) {
+                try {
+                    mExecutor.execute(new Runnable() {
+                        @Override
+                        public void run() {
+                            onTaskStarted();
+                            task.run();
+                        }
+                    });
+                } catch (RejectedExecutionException e) {
+                    //已调用 shutdown
+                    mPendingCount--;
+                    task.reject(e);
+                }
+            } else {
+                SerialQueue queue = mSerialQueues.get(key);
+                if (queue == null) {
+                    queue = new SerialQueue(key);
+                    mSerialQueues.put(key, queue);
+                    queue.mTasks.add(task);
+                    queue.scheduleNext();
+                } else {
+                    queue.mTasks.add(task);
+                }
+            }
+        }
+        return task;
+    }
+
+    /**
+     * 提交涉及多个 key 的任务
+     * 任务在每个 key 之前提交的任务都执行完后执行，执行期间这些 key 上之后提交的任务等待
+     *
+     * @param keys     顺序 key，为空时与 submit(null, ...) 相同
+     * @param callable 任务
+     * @param callback 结果回调，可为 null
+     */
+    public <T> Future<T> submitForKeys(Collection<?> keys, Callable<T> callable, CalendarCallback<T> callback) {
+        Set<Object> distinctKeys = new LinkedHashSet<Object>(keys);
+        distinctKeys.remove(null);
+        if (distinctKeys.isEmpty()) return submit(null, callable, callback);
+        if (distinctKeys.size() == 1) return submit(distinctKeys.iterator().next(), callable, callback);
+
+        CalendarTask<T> task = new CalendarTask<>(callable, callback);
+        synchronized (mSerialQueues) {
+            if (mPendingCount >= mQueueCapacity) {
+                task.reject(new RejectedExecutionException("Calendar executor queue is full"));
+                return task;
+            }
+            mPendingCount++;
+            Barrier barrier = new Barrier(task, distinctKeys.size());
+            List<SerialQueue> idleQueues = new ArrayList<>();
+            for (Object key : distinctKeys) {
+                SerialQueue queue = mSerialQueues.get(key);
+                if (queue == null) {
+                    queue = new SerialQueue(key);
+                    mSerialQueues.put(key, queue);
+                    idleQueues.add(queue);
+                }
+                queue.mTasks.add(barrier);
+                barrier.mQueues.add(queue);
+            }
+            //所有队列都加入后再放行空闲的队列，最后一个到达时执行
+            for (SerialQueue queue : idleQueues) {
+                queue.scheduleNext();
+            }
+        }
+        return task;
+    }
+
+    private void onTaskStarted() {
+        synchronized (mSerialQueues) {
+            mPendingCount--;
+        }
+    }
+
+    public void shutdown() {
+        mExecutor.shutdown();
+    }
+
+    /**
+     * 执行排队的任务，结束后放行 queues 中的下一个任务；调用方需持有 mSerialQueues 锁
+     */
+    private void executeQueued(final CalendarTask<?> task, final List<SerialQueue> queues) {
+        try {
+            mExecutor.execute(new Runnable() {
+                @Override
+                public void run() {
+                    onTaskStarted();
+                    try {
+                        task.run();
+                    } finally {
+                        synchronized (mSerialQueues) {
+                            for (SerialQueue queue : queues) {
+                                queue.scheduleNext();
+                            }
+                        }
+                    }
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            //只在 shutdown 之后发生
+            mPendingCount--;
+            task.reject(e);
+            for (SerialQueue queue : queues) {
+                queue.scheduleNext();
+            }
+        }
+    }
+
+    private final class SerialQueue {
+        private final Object mKey;
+        //CalendarTask 或 Barrier
+        private final ArrayDeque<Object> mTasks = new ArrayDeque<>();
+
+        SerialQueue(Object key) {
+            mKey = key;
+        }
+
+        //调用方需持有 mSerialQueues 锁
+        void scheduleNext() {
+            Object next = mTasks.poll();
+            if (next == null) {
+                mSerialQueues.remove(mKey);
+                return;
+            }
+            if (next instanceof Barrier) {
+                //队列停在这里，直到多 key 任务执行完
+                ((Barrier) next).arrive();
+                return;
+            }
+            executeQueued((CalendarTask<?>) next, Collections.singletonList(this));
+        }
+    }
+
+    /**
+     * 多 key 任务在每个 key 队列中的位置，所有队列都到达后执行
+     */
+    private final class Barrier {
+        private final CalendarTask<?> mTask;
+        private final List<SerialQueue> mQueues = new ArrayList<>();
+        private int mWaiting;
+
+        Barrier(CalendarTask<?> task, int waiting) {
+            mTask = task;
+            mWaiting = waiting;
+        }
+
+        //调用方需持有 mSerialQueues 锁
+        void arrive() {
+            if (--mWaiting == 0) executeQueued(mTask, mQueues);
+        }
+    }
+
+    private final class CalendarTask<T> extends FutureTask<T> {
+        private final CalendarCallback<T> mCallback;
+
+        CalendarTask(Callable<T> callable, CalendarCallback<T> callback) {
+            super(callable);
+            mCallback = callback;
+        }
+
+        void reject(RejectedExecutionException e) {
+            setException(e);
+        }
+
+        @Override
+        protected void done() {
+            if (mCallback == null || isCancelled()) return;
+            mMainHandler.post(new Runnable() {
+                @Override
+                public void run() {
+                    T result;
+                    try {
+                        result = get();
+                    } catch (ExecutionException e) {
+                        mCallback.onFailure(e.getCause());
+                        return;
+                    } catch (InterruptedException | CancellationException e) {
+                        mCallback.onFailure(e);
+                        return;
+                    }
+                    mCallback.onSuccess(result);
+                }
+            });
+        }
+    }
+
+    private static final class CalendarThreadFactory implements ThreadFactory {
+        private final AtomicInteger mCount = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread thread = new Thread(r, "CalendarProvider #" + mCount.incrementAndGet());
+            thread.setPriority(Thread.NORM_PRIORITY - 1);
+            return thread;
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.leo.calendarprovidermanager;
+
+import android.util.Log;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 日志输出
+ * isLoggable() 返回 false 时不会拼接日志字符串。
+ */
+public interface CalendarLogger {
+
+    /**
+     * 不输出日志，默认值
+     */
+    CalendarLogger NONE = new CalendarLogger() {
+        @Override
+        public boolean isLoggable() {
+            return false;
+        }
+
+        @Override
+        public void log(String tag, String message) {
+        }
+    };
+
+    /**
+     * 输出到 logcat
+     */
+    CalendarLogger LOGCAT = new CalendarLogger() {
+        @Override
+        public boolean isLoggable() {
+            return true;
+        }
+
+        @Override
+        public void log(String tag, String message) {
+            Log.d(tag, message);
+        }
+    };
+
+    boolean isLoggable();
+
+    void log(String tag, String message);
+}
@@ -0,0 +1,12 @@
+package com.leo.calendarprovidermanager;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 操作耗时统计
+ * 每个公开操作结束时在调用线程回调一次，未设置时不做任何统计。
+ */
+public interface CalendarMetrics {
+
+    void onOperation(CalendarOperationStats stats);
+}
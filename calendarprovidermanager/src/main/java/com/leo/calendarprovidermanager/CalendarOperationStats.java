@@ -0,0 +1,116 @@
+package com.leo.calendarprovidermanager;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 一次操作的统计数据
+ */
+public final class CalendarOperationStats {
+    private final String mOperation;
+    private final long mStartNanos;
+    private long mDurationNanos;
+    private long mQueryNanos;
+    private int mQueryCount;
+    private int mRowsScanned;
+    private int mIpcCount;
+    private int mInsertedRows;
+    private int mUpdatedRows;
+    private int mDeletedRows;
+
+    CalendarOperationStats(String operation) {
+        mOperation = operation;
+        mStartNanos = System.nanoTime();
+    }
+
+    /**
+     * @return 操作名称，如 addCalendarEvent
+     */
+    public String getOperation() {
+        return mOperation;
+    }
+
+    /**
+     * @return 操作总耗时 纳秒
+     */
+    public long getDurationNanos() {
+        return mDurationNanos;
+    }
+
+    /**
+     * @return 查询耗时 纳秒，从发起查询到拿到第一页结果
+     */
+    public long getQueryNanos() {
+        return mQueryNanos;
+    }
+
+    public int getQueryCount() {
+        return mQueryCount;
+    }
+
+    /**
+     * @return 从游标读取的行数
+     */
+    public int getRowsScanned() {
+        return mRowsScanned;
+    }
+
+    /**
+     * @return 与 provider 的交互次数，每次 query/insert/update/delete/applyBatch 计一次
+     */
+    public int getIpcCount() {
+        return mIpcCount;
+    }
+
+    public int getInsertedRows() {
+        return mInsertedRows;
+    }
+
+    public int getUpdatedRows() {
+        return mUpdatedRows;
+    }
+
+    public int getDeletedRows() {
+        return mDeletedRows;
+    }
+
+    void recordQuery(long nanos) {
+        mIpcCount++;
+        mQueryCount++;
+        mQueryNanos += nanos;
+    }
+
+    void recordRow() {
+        mRowsScanned++;
+    }
+
+    void recordIpc() {
+        mIpcCount++;
+    }
+
+    void recordInserted(int rows) {
+        mInsertedRows += rows;
+    }
+
+    void recordUpdated(int rows) {
+        mUpdatedRows += rows;
+    }
+
+    void recordDeleted(int rows) {
+        mDeletedRows += rows;
+    }
+
+    void finish() {
+        mDurationNanos = System.nanoTime() - mStartNanos;
+    }
+
+    @Override
+    public String toString() {
+        return mOperation + "{duration=" + mDurationNanos / 1000 + "us"
+                + ", query=" + mQueryNanos / 1000 + "us x" + mQueryCount
+                + ", rows=" + mRowsScanned
+                + ", ipc=" + mIpcCount
+                + ", inserted=" + mInsertedRows
+                + ", updated=" + mUpdatedRows
+                + ", deleted=" + mDeletedRows + '}';
+    }
+}
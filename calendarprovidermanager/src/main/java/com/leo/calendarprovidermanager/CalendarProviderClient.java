@@ -0,0 +1,42 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.RemoteException;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 日历 provider 的访问接口
+ * 默认由 ContentResolver 实现；测试和基准测试中可通过 Builder.setProviderClient
+ * 替换为 calendarprovidermanager-testing 模块中的 FakeCalendarProvider 等内存实现，无需设备即可运行。
+ */
+public interface CalendarProviderClient {
+
+    Cursor query(@NonNull Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder);
+
+    Uri insert(@NonNull Uri uri, ContentValues values);
+
+    int update(@NonNull Uri uri, ContentValues values, String selection, String[] selectionArgs);
+
+    int delete(@NonNull Uri uri, String selection, String[] selectionArgs);
+
+    /**
+     * 在一个事务中执行一批 CalendarContract.AUTHORITY 下的操作
+     */
+    ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws RemoteException, OperationApplicationException;
+
+    void registerContentObserver(@NonNull Uri uri, boolean notifyForDescendants, @NonNull ContentObserver observer);
+
+    void unregisterContentObserver(@NonNull ContentObserver observer);
+}
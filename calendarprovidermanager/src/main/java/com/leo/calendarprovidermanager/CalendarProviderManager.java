@@ -1,113 +1,185 @@
 package com.leo.calendarprovidermanager;
 
 import android.annotation.SuppressLint;
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
 import android.content.ContentUris;
 import android.content.ContentValues;
 import android.content.Context;
+import android.content.OperationApplicationException;
 import android.database.Cursor;
 import android.net.Uri;
+import android.os.RemoteException;
 import android.provider.CalendarContract;
 import android.text.TextUtils;
-import android.util.Log;
 import androidx.annotation.NonNull;
-import java.util.TimeZone;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
 
 /**
  * Created by : Leo
  * Date : 2019/12/3
  * Describe :
+ * 一个实例绑定一个日历账户，可长期持有并复用：
+ * 通过 Builder 只设置日历名称创建实例，再把 EventSpec 传给 addCalendarEvent(EventSpec) 等方法。
+ * Builder 上设置的事件参数仍可通过无参的 addCalendarEvent()/updateCalendarEvent(long) 使用。
  */
 @SuppressLint("MissingPermission")
 
 public final class CalendarProviderManager {
-    private Context mContext;
-    //事件开始时间 时间戳
-    private long mAlarmStartTime;
-    //事件持续时长 默认10分钟
-    private int mAlarmDurationTime;
-
-    //可选  是否闹钟提醒
-    private boolean hasAlarm;
-    //可选  提前提醒时间
-    private long mAlarmLeadTime;
-    //提前提醒时间类型 时、分、秒、天
-    private CalendarAlarmDateType mAlarmDateType;
+    private final Context mContext;
 
-    //可选  新建日历名称
-    private String mCalendarName;
-    private String mAccountName;
-    private String mAccountDisplayName;
-    private String mAccountType = "LOCAL";
+    //Builder 上设置的事件，供无参的 addCalendarEvent()/updateCalendarEvent(long) 使用
+    private final EventSpec mEvent;
 
-    //添加事件的标题
-    private String mEventTitle;
-    //添加事件的描述
-    private String mEventDescription;
+    //可选  新建日历名称
+    private final String mCalendarName;
+    private final String mAccountName;
+    private final String mAccountDisplayName;
+    private final String mAccountType = ACCOUNT_TYPE;
+
+    //异步操作线程池
+    private final CalendarExecutor mExecutor;
+
+    //日志输出，默认不输出
+    private final CalendarLogger mLogger;
+    private final boolean isLog;
+    //操作统计，null 时不统计
+    private final CalendarMetrics mMetrics;
+
+    //provider 访问，默认为系统 ContentResolver
+    private final CalendarProviderClient mClient;
+    private final CalendarAccountCache mAccountCache;
+    //账户缓存由本实例创建，close() 时注销监听
+    private final boolean isOwnAccountCache;
+    //写入使用的 URI，sync adapter 模式下带账户参数
+    private final CalendarUris mUris;
+    private final boolean isSyncAdapter;
+    //外部 key -> eventId 索引
+    private final EventKeyIndex mKeyIndex;
+    //索引由本实例创建，close() 时注销监听
+    private final boolean isOwnKeyIndex;
+    //事件快照缓存，null 表示不缓存
+    private final EventCache mEventCache;
 
     private String TAG = "calendar";
 
+    //本库创建的日历使用的账户类型
+    static final String ACCOUNT_TYPE = "LOCAL";
+
+    private static final String[] CALENDAR_ID_PROJECTION = new String[]{CalendarContract.Calendars._ID};
+    private static final String[] EVENT_ID_PROJECTION = new String[]{CalendarContract.Events._ID};
+
     private  CalendarProviderManager(Builder builder) {
-        mContext = builder.mContext;
-        hasAlarm = builder.hasAlarm;
-        mAlarmStartTime = builder.mAlarmStartTime;
-        if (mAlarmStartTime <= 0) {
-            mAlarmStartTime = System.currentTimeMillis();
-        }
+        //实例可能被长期持有，不引用 Activity
+        Context applicationContext = builder.mContext.getApplicationContext();
+        mContext = applicationContext != null ? applicationContext : builder.mContext;
+
+        mEvent = new EventSpec.Builder()
+                .setHasAlarm(builder.hasAlarm)
+                .setAlarmStartTime(builder.mAlarmStartTime)
+                .setAlarmDurationTime(builder.mAlarmDurationTime)
+                .setAlarmLeadTime(builder.mAlarmLeadTime, builder.mAlarmDateType)
+                .setEvent(builder.mEventTitle, builder.mEventDescription)
+                .build();
 
-        mAlarmDurationTime = builder.mAlarmDurationTime;
-        mAlarmLeadTime = builder.mAlarmLeadTime;
-        mAlarmDateType = builder.mAlarmDateType;
         mCalendarName = builder.mCalendarName;
         if (!TextUtils.isEmpty(mCalendarName)) {
-            mAccountName = "calendar@" + builder.mCalendarName + ".com";
+            mAccountName = accountName(mCalendarName);
             mAccountDisplayName = mCalendarName;
+        } else {
+            mAccountName = null;
+            mAccountDisplayName = null;
+        }
+        mExecutor = builder.mExecutor != null ? builder.mExecutor : CalendarExecutor.getDefault();
+        mLogger = builder.mLogger != null ? builder.mLogger : CalendarLogger.NONE;
+        isLog = mLogger.isLoggable();
+        mMetrics = builder.mMetrics;
+        if (builder.mProviderClient != null) {
+            mClient = builder.mProviderClient;
+            isOwnAccountCache = builder.mAccountCache == null;
+            mAccountCache = isOwnAccountCache ? new CalendarAccountCache(mClient) : builder.mAccountCache;
+        } else {
+            mClient = new ContentResolverClient(mContext.getContentResolver());
+            isOwnAccountCache = false;
+            mAccountCache = CalendarAccountCache.getDefault(mContext);
         }
-        mEventTitle = builder.mEventTitle;
-        mEventDescription = builder.mEventDescription;
+        isSyncAdapter = builder.isSyncAdapter && mAccountName != null;
+        if (isSyncAdapter) {
+            mUris = CalendarUris.syncAdapter(mAccountName, mAccountType);
+        } else {
+            mUris = mAccountName != null ? CalendarUris.forAccount(mAccountName, mAccountType) : CalendarUris.DEFAULT;
+        }
+        isOwnKeyIndex = builder.mProviderClient != null;
+        mKeyIndex = isOwnKeyIndex ? new EventKeyIndex(mContext, mClient) : EventKeyIndex.getDefault(mContext);
+        mEventCache = builder.mEventCacheSize > 0 ? new EventCache(mClient, builder.mEventCacheSize) : null;
+    }
+
+    /**
+     * @return 日历名称对应的账户名称
+     */
+    static String accountName(String calendarName) {
+        return "calendar@" + calendarName + ".com";
+    }
+
+    /**
+     * 每个公开操作使用一个 CalendarResolver，结束时调用 finish() 上报统计
+     */
+    private CalendarResolver resolver(String operation) {
+        return new CalendarResolver(mClient, mUris, operation, mMetrics, mKeyIndex);
     }
 
 
     /**
      * 查询是否存在calendar 账户
      * 如果accountName为空，使用已有账户，否则使用指定账户
+     * 结果缓存在 CalendarAccountCache 中
      *
      * @return account id,  -1 表示不存在账户
      */
-    private long checkCalendarAccount() {
+    private long checkCalendarAccount(CalendarResolver resolver) {
+        Long cachedId = mAccountCache.get(mAccountName, mAccountType);
+        if (cachedId != null) return cachedId;
+
+        int generation = mAccountCache.generation();
         long accountId = -1;
         String selections = null;
         String[] selectionArgs = null;
         if (!TextUtils.isEmpty(mAccountName)) {
-            selections = CalendarContract.Calendars.ACCOUNT_NAME + "=?";
-            selectionArgs = new String[]{mAccountName};
+            selections = CalendarContract.Calendars.ACCOUNT_NAME + "=? AND "
+                    + CalendarContract.Calendars.ACCOUNT_TYPE + "=?";
+            selectionArgs = new String[]{mAccountName, mAccountType};
         }
-        Cursor cursor = mContext.getContentResolver().query(CalendarContract.Calendars.CONTENT_URI,
-                null, selections, selectionArgs, null);
+        Cursor cursor = resolver.query(CalendarContract.Calendars.CONTENT_URI,
+                CALENDAR_ID_PROJECTION, selections, selectionArgs, CalendarContract.Calendars._ID + " ASC");
         try {
             if (cursor == null) return accountId;
 
-            if (cursor.getCount() > 0) {
-                cursor.moveToFirst();
+            if (cursor.moveToFirst()) {
                 if (TextUtils.isEmpty(mAccountName)) {
-
                     log("未指定账户，默认返回系统第一个账户ID");
-                    accountId = cursor.getLong(cursor.getColumnIndex(CalendarContract.Calendars._ID));
                 } else {
-                    while (cursor.moveToNext()) {
-                        String name = cursor.getString(cursor.getColumnIndex(CalendarContract.Calendars.ACCOUNT_NAME));
-                        if (mAccountName.equals(name)) {
-                            log("已指定账户，返回指定账户ID");
-
-                            accountId = cursor.getLong(cursor.getColumnIndex(CalendarContract.Calendars._ID));
-                        }
-                    }
-
+                    log("已指定账户，返回指定账户ID");
                 }
+                accountId = cursor.getLong(0);
             } else {
                 //无账户，添加新账户
                 log("系统无账户，添加新账户");
 
-                accountId = addCalendarAccount();
+                accountId = addCalendarAccount(resolver);
                 if (accountId > -1) {
                     log("添加账户成功");
                 } else {
@@ -119,18 +191,33 @@ public final class CalendarProviderManager {
             if (cursor != null) cursor.close();
         }
 
+        if (accountId > -1) {
+            mAccountCache.put(mAccountName, mAccountType, accountId, generation);
+        }
         return accountId;
 
     }
 
+    /**
+     * 查询日历 id，不存在时创建，结果缓存在 CalendarAccountCache 中
+     *
+     * @return 日历 id，-1 表示失败
+     */
+    long getCalendarId() {
+        CalendarResolver resolver = resolver("getCalendarId");
+        try {
+            return checkCalendarAccount(resolver);
+        } finally {
+            resolver.finish();
+        }
+    }
+
     /**
      * 添加账户
      *
      * @return account id
      */
-    private long addCalendarAccount() {
-        TimeZone timeZone = TimeZone.getDefault();
-
+    private long addCalendarAccount(CalendarResolver resolver) {
         ContentValues values = new ContentValues();
         values.put(CalendarContract.Calendars.NAME, mCalendarName);
         values.put(CalendarContract.Calendars.ACCOUNT_NAME, mAccountName);
@@ -139,13 +226,14 @@ public final class CalendarProviderManager {
         values.put(CalendarContract.Calendars.VISIBLE, 1);
         values.put(CalendarContract.Calendars.CALENDAR_ACCESS_LEVEL, CalendarContract.Calendars.CAL_ACCESS_OWNER);
         values.put(CalendarContract.Calendars.SYNC_EVENTS, 1);
-        values.put(CalendarContract.Calendars.CALENDAR_TIME_ZONE, timeZone.getID());
+        values.put(CalendarContract.Calendars.CALENDAR_TIME_ZONE, CalendarTimeZones.getDefaultId());
         values.put(CalendarContract.Calendars.OWNER_ACCOUNT, mAccountName);
         values.put(CalendarContract.Calendars.CAN_ORGANIZER_RESPOND, 0);
-        values.put(CalendarContract.CALLER_IS_SYNCADAPTER, true);
-        values.put(CalendarContract.Events.SYNC_EVENTS, 1);
 
-        Uri insertUri = mContext.getContentResolver().insert(CalendarContract.Calendars.CONTENT_URI, values);
+        //日历只能由 sync adapter 创建，CALLER_IS_SYNCADAPTER 是 URI 参数而不是列
+        Uri calendarsUri = TextUtils.isEmpty(mAccountName) ? CalendarContract.Calendars.CONTENT_URI
+                : CalendarUris.asSyncAdapter(CalendarContract.Calendars.CONTENT_URI, mAccountName, mAccountType);
+        Uri insertUri = resolver.insert(calendarsUri, values);
         long id = insertUri == null ? -1 : ContentUris.parseId(insertUri);
         return id;
     }
@@ -155,8 +243,8 @@ public final class CalendarProviderManager {
      *
      * @param accountId
      */
-    private void deleteCalendarAccount(long accountId) {
-      mContext.getContentResolver().delete(CalendarContract.Calendars.CONTENT_URI, CalendarContract.Calendars._ID + "=?", new String[]{String.valueOf(accountId)});
+    private void deleteCalendarAccount(CalendarResolver resolver, long accountId) {
+      resolver.delete(resolver.uris().calendars(), CalendarContract.Calendars._ID + "=?", new String[]{String.valueOf(accountId)});
     }
 
     /**
@@ -165,71 +253,409 @@ public final class CalendarProviderManager {
      * @return eventId
      */
     public long addCalendarEvent() {
+        return addCalendarEvent(mEvent);
+    }
+
+    /**
+     * 添加日历事件，当前日历中已存在相同标题和描述的事件时不添加
+     *
+     * @return eventId
+     */
+    public long addCalendarEvent(@NonNull EventSpec event) {
+        CalendarResolver resolver = resolver("addCalendarEvent");
+        try {
+            return addCalendarEvent(resolver, event);
+        } finally {
+            resolver.finish();
+        }
+    }
+
+    private long addCalendarEvent(CalendarResolver resolver, EventSpec event) {
         long eventId = -1;
-        long accountId = checkCalendarAccount();
+        long accountId = checkCalendarAccount(resolver);
         if (accountId > -1) {
 
 
-            boolean isExist = queryCalendarEvent(mEventTitle, mEventDescription) > -1;
-            log("添加日历事件开始时间：" + mAlarmStartTime + "     结束时间：" + mAlarmStartTime + mAlarmDurationTime * 60 * 1000 + "  " + isExist);
+            boolean isExist = queryEventId(resolver, accountId, event.getEventTitle(), event.getEventDescription(), null, null) > -1;
+            if (isLog) {
+                log("添加日历事件开始时间：" + event.getAlarmStartTime() + "     结束时间：" + event.getAlarmEndTime() + "  " + isExist);
+            }
 
             if (isExist) return eventId;
 
-            ContentValues events = new ContentValues();
-            events.put(CalendarContract.Events.CALENDAR_ID, accountId);
-            events.put(CalendarContract.Events.TITLE, mEventTitle);
-            events.put(CalendarContract.Events.DESCRIPTION, mEventDescription);
-            events.put(CalendarContract.Events.DTSTART, mAlarmStartTime);
-            events.put(CalendarContract.Events.DTEND, mAlarmStartTime + mAlarmDurationTime * 60 * 1000);
-            events.put(CalendarContract.Events.EVENT_TIMEZONE, "Asia");
+            eventId = insertCalendarEvent(resolver,
+                    buildEventValues(accountId, event, CalendarTimeZones.getDefaultId()), event);
+        } else {
+            log("无法添加账户，添加事件失败");
+        }
+        log(eventId > -1 ? "添加事件成功" : "添加事件失败");
 
-            events.put(CalendarContract.Events.HAS_ALARM, hasAlarm ? 1 : 0);
+        return eventId;
+    }
 
-            Uri insert = mContext.getContentResolver().insert(CalendarContract.Events.CONTENT_URI, events);
-            eventId = insert == null ? -1 : ContentUris.parseId(insert);
+    /**
+     * 事件及其提醒、参与人、扩展属性在同一批次中写入
+     *
+     * @return eventId，-1 表示失败
+     */
+    private long insertCalendarEvent(CalendarResolver resolver, ContentValues values, EventSpec event) {
+        OperationList operations = new OperationList();
+        operations.insert(ContentProviderOperation.newInsert(resolver.uris().events())
+                .withValues(values)
+                .build());
+        operations.addAll(insertChildOperations(resolver.uris(), 0, event));
+        try {
+            ContentProviderResult[] results = resolver.applyBatch(operations);
+            Uri insert = results[0].uri;
+            if (isLog) log("添加闹钟 " + event.getReminders().size() + "，子行 " + (operations.size() - 1));
+            return insert == null ? -1 : ContentUris.parseId(insert);
+        } catch (RemoteException | OperationApplicationException e) {
+            if (isLog) log("添加事件失败 " + e.getMessage());
+            return -1;
+        }
+    }
 
 
-            if (hasAlarm && eventId > -1) {
-                addOrUpdateCalendarEventAlarm(eventId,false);
+    /**
+     * 批量添加日历事件
+     * 只查询一次账户，所有事件及其提醒、参与人、扩展属性在同一个 applyBatch 中写入，
+     * 子行通过 back-reference 关联到同批次插入的事件。
+     * 批量添加不做重复事件检查。
+     *
+     * @param events 事件列表
+     * @return 与 events 顺序一致的 eventId，-1 表示添加失败
+     */
+    public long[] addCalendarEvents(@NonNull List<EventSpec> events) {
+        long[] eventIds = new long[events.size()];
+        Arrays.fill(eventIds, -1);
+        if (events.isEmpty()) return eventIds;
 
+        CalendarResolver resolver = resolver("addCalendarEvents");
+        try {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) {
+                log("无法添加账户，批量添加事件失败");
+                return eventIds;
             }
 
-        } else {
-            log("无法添加账户，添加事件失败");
+            OperationList operations = new OperationList();
+            int[] eventOperationIndexes = new int[events.size()];
+            String defaultTimeZone = CalendarTimeZones.getDefaultId();
+            for (int i = 0; i < events.size(); i++) {
+                EventSpec event = events.get(i);
+                ContentValues values = buildEventValues(accountId, event, defaultTimeZone);
+                int eventIndex = operations.insert(ContentProviderOperation.newInsert(resolver.uris().events())
+                        .withValues(values)
+                        .build());
+                eventOperationIndexes[i] = eventIndex;
+                operations.addAll(insertChildOperations(resolver.uris(), eventIndex, event));
+            }
+
+            try {
+                ContentProviderResult[] results = resolver.applyBatch(operations);
+                for (int i = 0; i < eventIds.length; i++) {
+                    Uri insert = results[eventOperationIndexes[i]].uri;
+                    eventIds[i] = insert == null ? -1 : ContentUris.parseId(insert);
+                }
+                if (isLog) log("批量添加事件成功 " + eventIds.length);
+            } catch (RemoteException | OperationApplicationException e) {
+                if (isLog) log("批量添加事件失败 " + e.getMessage());
+            }
+            return eventIds;
+        } finally {
+            resolver.finish();
+        }
+    }
+
+    /**
+     * 按外部 key 添加日历事件，key 已存在时不重复添加
+     * key 写入 Events.UID_2445 并记录在本地索引中，索引与 provider 一致时查找不访问 provider。
+     * 带 key 的事件与 reconcileCalendarEvents 使用同一个外部 id。
+     *
+     * @param externalKey 调用方的稳定 id，如服务端事件 id
+     * @return eventId，key 已存在时返回已有事件，-1 表示失败
+     */
+    public long addCalendarEvent(@NonNull String externalKey, @NonNull EventSpec event) {
+        CalendarResolver resolver = resolver("addCalendarEventByKey");
+        try {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) return -1;
+            long eventId = findEventByKey(resolver, accountId, externalKey);
+            if (eventId > -1) {
+                if (isLog) log("事件已存在 " + externalKey + " -> " + eventId);
+                return eventId;
+            }
+            return insertKeyedEvent(resolver, accountId, externalKey, event);
+        } finally {
+            resolver.finish();
+        }
+    }
+
+    /**
+     * 按外部 key 添加或覆盖日历事件
+     *
+     * @return eventId，-1 表示失败
+     */
+    public long upsertCalendarEvent(@NonNull String externalKey, @NonNull EventSpec event) {
+        CalendarResolver resolver = resolver("upsertCalendarEvent");
+        try {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) return -1;
+            long eventId = findEventByKey(resolver, accountId, externalKey);
+            if (eventId > -1) {
+                return updateCalendarEvent(resolver, eventId, event) ? eventId : -1;
+            }
+            return insertKeyedEvent(resolver, accountId, externalKey, event);
+        } finally {
+            resolver.finish();
+        }
+    }
+
+    /**
+     * 按外部 key 查询日历事件
+     *
+     * @return eventId，-1 表示不存在
+     */
+    public long findCalendarEvent(@NonNull String externalKey) {
+        CalendarResolver resolver = resolver("findCalendarEventByKey");
+        try {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) return -1;
+            return findEventByKey(resolver, accountId, externalKey);
+        } finally {
+            resolver.finish();
         }
-        log("添加事件" + (eventId > -1 ? "成功" : "失败"));
+    }
 
+    /**
+     * 按外部 key 删除日历事件
+     *
+     * @return 事件存在且已删除
+     */
+    public boolean deleteCalendarEventByKey(@NonNull String externalKey) {
+        CalendarResolver resolver = resolver("deleteCalendarEventByKey");
+        try {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) return false;
+            long eventId = findEventByKey(resolver, accountId, externalKey);
+            if (eventId <= -1) return false;
+            int count = resolver.delete(resolver.uris().event(eventId), null, null);
+            mKeyIndex.remove(accountId, externalKey);
+            invalidateEvent(eventId);
+            return count > 0;
+        } finally {
+            resolver.finish();
+        }
+    }
+
+    private long insertKeyedEvent(CalendarResolver resolver, long accountId, String externalKey, EventSpec event) {
+        ContentValues values = buildEventValues(accountId, event, CalendarTimeZones.getDefaultId());
+        values.put(CalendarReconciler.EXTERNAL_ID, externalKey);
+        long eventId = insertCalendarEvent(resolver, values, event);
+        if (eventId > -1) mKeyIndex.put(accountId, externalKey, eventId);
+        if (isLog) log("添加事件 " + externalKey + " -> " + eventId);
         return eventId;
     }
 
+    /**
+     * 从索引查找 key 对应的事件
+     * 索引与 provider 一致时直接采信，命中和未命中都不访问 provider；
+     * 进程内第一次使用，或 provider 被其它写入方（sync adapter、其它进程、数据恢复）修改后，先从 provider 完整读取一次。
+     *
+     * @return eventId，-1 表示不存在
+     */
+    private long findEventByKey(CalendarResolver resolver, long accountId, String externalKey) {
+        if (!mKeyIndex.isCurrent(accountId)) rebuildKeyIndex(resolver, accountId);
+        return mKeyIndex.get(accountId, externalKey);
+    }
+
+    private void rebuildKeyIndex(CalendarResolver resolver, long accountId) {
+        int generation = mKeyIndex.generation();
+        int modCount = mKeyIndex.modCount();
+        Cursor cursor = resolver.query(CalendarContract.Events.CONTENT_URI,
+                new String[]{CalendarContract.Events._ID, CalendarReconciler.EXTERNAL_ID},
+                CalendarContract.Events.CALENDAR_ID + "=? AND "
+                        + CalendarReconciler.EXTERNAL_ID + " IS NOT NULL AND "
+                        + CalendarContract.Events.DELETED + "=0",
+                new String[]{String.valueOf(accountId)}, null);
+        if (cursor == null) return;
+        Map<String, Long> eventIds = new HashMap<>();
+        try {
+            while (cursor.moveToNext()) {
+                eventIds.put(cursor.getString(1), cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+        mKeyIndex.replace(accountId, eventIds, generation, modCount);
+        if (isLog) log("建立外部 key 索引 " + eventIds.size());
+    }
 
     /**
-     * 添加或修改事件闹钟提醒
+     * 按外部 id 同步日历事件
+     * 一次查询读取日历当前状态，计算需要新增、更新、删除的事件，只分批写入差异。
+     * 外部 id 保存在 Events.UID_2445 中；日历中带外部 id 但不在 desiredEvents 中的事件会被删除，
+     * 没有外部 id 的事件（如 addCalendarEvent 添加的事件）不受影响。
      *
-     * @param eventId
-     * @return
+     * @param desiredEvents 外部 id -> 期望的事件
+     * @return 同步结果
+     */
+    public ReconcileResult reconcileCalendarEvents(@NonNull Map<String, EventSpec> desiredEvents) {
+        CalendarResolver resolver = resolver("reconcileCalendarEvents");
+        try {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) {
+                log("无法添加账户，同步事件失败");
+                return ReconcileResult.failed();
+            }
+            int generation = mKeyIndex.generation();
+            int modCount = mKeyIndex.modCount();
+            ReconcileResult result = new CalendarReconciler(resolver, accountId, CalendarTimeZones.getDefaultId()).reconcile(desiredEvents);
+            //同步使用同一个外部 id 列，成功时结果就是日历中全部带 key 的事件
+            if (result.isSuccessful()) {
+                mKeyIndex.replace(accountId, result.getEventIds(), generation, modCount);
+            } else {
+                mKeyIndex.putAll(accountId, result.getEventIds());
+            }
+            invalidateEvents();
+            if (isLog) log("同步事件 " + result);
+            return result;
+        } finally {
+            resolver.finish();
+        }
+    }
+
+    /**
+     * 从 .ics 文件导入事件，边读边分批写入，内存占用与文件大小无关
+     * 带 UID 的事件按 UID 更新已有事件（与 upsertCalendarEvent 的 key 相同），不存在时插入并以 UID 为 key；
+     * exportIcs 导出的没有 key 的事件仍在本日历中时更新原事件，导出的文件再次导入不会重复。没有 UID 的事件直接插入。
+     * 失败时之前已提交的批次不会回滚。流由调用方关闭。
+     *
+     * @return 插入和更新的事件数，-1 表示失败
      */
-    private boolean addOrUpdateCalendarEventAlarm(long eventId,boolean isUpdate) {
+    public int importIcs(@NonNull InputStream in) {
+        final CalendarResolver resolver = resolver("importIcs");
+        try {
+            final long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) {
+                log("无法添加账户，导入事件失败");
+                return -1;
+            }
+            IcsReader reader = new IcsReader(in);
+            int count = new IcsTransfer(resolver, accountId, CalendarTimeZones.getDefaultId())
+                    .importEvents(reader, new IcsTransfer.EventKeys() {
+                        @Override
+                        public long find(String uid) {
+                            return findEventByKey(resolver, accountId, uid);
+                        }
 
-        ContentValues values = new ContentValues();
-        values.put(CalendarContract.Reminders.EVENT_ID, eventId);
-        values.put(CalendarContract.Reminders.MINUTES, toMillis());
-        values.put(CalendarContract.Reminders.METHOD, CalendarContract.Reminders.METHOD_ALERT);
-
-        if (isUpdate){
-//            Uri uri = ContentUris.withAppendedId(CalendarContract.Reminders.CONTENT_URI, eventId);
-            mContext.getContentResolver().update(CalendarContract.Reminders.CONTENT_URI, values, CalendarContract.Reminders.EVENT_ID + "=?", new String[]{String.valueOf(eventId)});
-            log("更新闹钟 "+eventId);
-            return true;
+                        @Override
+                        public void putAll(Map<String, Long> eventIds) {
+                            mKeyIndex.putAll(accountId, eventIds);
+                        }
+                    }, uidDomain(accountId));
+            if (isLog) log("导入事件 " + count + "，跳过 " + reader.getSkippedCount());
+            return count;
+        } catch (IOException | RemoteException | OperationApplicationException e) {
+            if (isLog) log("导入事件失败 " + e.getMessage());
+            return -1;
+        } finally {
+            //已有事件可能被更新
+            invalidateEvents();
+            resolver.finish();
         }
-        else
-        {
-            Uri insert = mContext.getContentResolver().insert(CalendarContract.Reminders.CONTENT_URI, values);
-            log("添加闹钟" + (insert == null ? "失败" : "成功"));
-            return insert == null;
+    }
+
+    /**
+     * 把当前日历中的事件导出为 .ics，逐页读取并直接写入流
+     * 重复事件的例外事件不导出。流由调用方关闭。
+     *
+     * @return 导出的事件数，-1 表示失败
+     */
+    public int exportIcs(@NonNull OutputStream out) {
+        CalendarResolver resolver = resolver("exportIcs");
+        try {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) return -1;
+            int count = new IcsTransfer(resolver, accountId, CalendarTimeZones.getDefaultId())
+                    .exportEvents(new IcsWriter(out), uidDomain(accountId));
+            if (isLog) log("导出事件 " + count);
+            return count;
+        } catch (IOException e) {
+            if (isLog) log("导出事件失败 " + e.getMessage());
+            return -1;
+        } finally {
+            resolver.finish();
         }
     }
 
+    /**
+     * 导出时没有 UID_2445 的事件使用 eventId@uidDomain 作为 UID
+     */
+    private String uidDomain(long accountId) {
+        return mAccountName != null ? mAccountName : "calendar-" + accountId;
+    }
+
+    /**
+     * 事件的提醒、参与人、扩展属性通过 back-reference 关联到同批次插入的事件，
+     * 与事件在同一个 applyBatch 中原子写入
+     *
+     * @param eventIndex 同一批次中插入事件的操作位置
+     * @return 共 event.getChildRowCount() 个插入操作
+     */
+    static OperationList insertChildOperations(CalendarUris uris, int eventIndex, EventSpec event) {
+        OperationList operations = new OperationList();
+        for (EventReminder reminder : event.getReminders()) {
+            operations.insert(EventReminders.insertWithBackReference(uris, eventIndex, reminder));
+        }
+        for (EventAttendee attendee : event.getAttendees()) {
+            operations.insert(EventAttendees.insertWithBackReference(uris, eventIndex, attendee));
+        }
+        for (Map.Entry<String, String> property : event.getExtendedProperties().entrySet()) {
+            if (property.getValue() == null) continue;
+            operations.insert(EventProperties.insertWithBackReference(uris, eventIndex,
+                    property.getKey(), property.getValue()));
+        }
+        return operations;
+    }
+
+    /**
+     * @param defaultTimeZone 事件未设置时区时使用的时区 id，每个操作读取一次设备时区
+     */
+    static ContentValues buildEventValues(long accountId, EventSpec event, String defaultTimeZone) {
+        ContentValues events = new ContentValues();
+        events.put(CalendarContract.Events.CALENDAR_ID, accountId);
+        events.put(CalendarContract.Events.TITLE, event.getEventTitle());
+        events.put(CalendarContract.Events.DESCRIPTION, event.getEventDescription());
+        putTimeValues(events, event, defaultTimeZone);
+
+        events.put(CalendarContract.Events.HAS_ALARM, event.hasAlarm() ? 1 : 0);
+        return events;
+    }
+
+    /**
+     * 写入时间、时区和重复规则，重复事件使用 DURATION，普通事件使用 DTEND
+     */
+    static void putTimeValues(ContentValues values, EventSpec event, String defaultTimeZone) {
+        String timeZone = event.getTimeZone() != null ? event.getTimeZone() : defaultTimeZone;
+        values.put(CalendarContract.Events.DTSTART, event.getAlarmStartTime());
+        values.put(CalendarContract.Events.EVENT_TIMEZONE, timeZone);
+        values.put(CalendarContract.Events.ALL_DAY, event.isAllDay() ? 1 : 0);
+        if (event.isRecurring()) {
+            values.putNull(CalendarContract.Events.DTEND);
+            values.putNull(CalendarContract.Events.EVENT_END_TIMEZONE);
+            values.put(CalendarContract.Events.DURATION, event.getDuration());
+        } else {
+            values.put(CalendarContract.Events.DTEND, event.getAlarmEndTime());
+            values.put(CalendarContract.Events.EVENT_END_TIMEZONE,
+                    event.getEndTimeZone() != null ? event.getEndTimeZone() : timeZone);
+            values.putNull(CalendarContract.Events.DURATION);
+        }
+        values.put(CalendarContract.Events.RRULE, event.getRecurrenceRule());
+        values.put(CalendarContract.Events.RDATE, event.getRecurrenceDates());
+        values.put(CalendarContract.Events.EXDATE, event.getExceptionDates());
+    }
+
 
     /**
      * 删除日历事件
@@ -238,7 +664,13 @@ public final class CalendarProviderManager {
      */
     public boolean deleteCalendarEvent(long eventId) {
         if (eventId > -1) {
-            mContext.getContentResolver().delete(CalendarContract.Events.CONTENT_URI, CalendarContract.Events._ID + "=?", new String[]{String.valueOf(eventId)});
+            CalendarResolver resolver = resolver("deleteCalendarEvent");
+            try {
+                resolver.delete(resolver.uris().events(), CalendarContract.Events._ID + "=?", new String[]{String.valueOf(eventId)});
+            } finally {
+                invalidateEvent(eventId);
+                resolver.finish();
+            }
             return true;
         }
         else
@@ -247,32 +679,308 @@ public final class CalendarProviderManager {
         }
     }
 
+    /**
+     * 批量删除日历事件
+     * id 按 Selections.MAX_IN_ARGUMENTS 分组拼成 _ID IN (...)，所有分组在一个 applyBatch 中删除
+     *
+     * @return 删除的事件数，-1 表示失败
+     */
+    public int deleteCalendarEvents(@NonNull Collection<Long> eventIds) {
+        if (eventIds.isEmpty()) return 0;
+        List<Long> ids = new ArrayList<>(eventIds);
+        OperationList operations = new OperationList();
+        for (int from = 0; from < ids.size(); from += Selections.MAX_IN_ARGUMENTS) {
+            int to = Math.min(ids.size(), from + Selections.MAX_IN_ARGUMENTS);
+            operations.delete(ContentProviderOperation.newDelete(mUris.events())
+                    .withSelection(Selections.in(CalendarContract.Events._ID, to - from), Selections.args(ids, from, to))
+                    .build());
+        }
+
+        CalendarResolver resolver = resolver("deleteCalendarEvents");
+        try {
+            ContentProviderResult[] results = resolver.applyBatch(operations);
+            int count = 0;
+            for (ContentProviderResult result : results) {
+                if (result.count != null) count += result.count;
+            }
+            if (isLog) log("批量删除事件 " + count);
+            return count;
+        } catch (RemoteException | OperationApplicationException e) {
+            if (isLog) log("批量删除事件失败 " + e.getMessage());
+            return -1;
+        } finally {
+            for (Long eventId : ids) invalidateEvent(eventId);
+            resolver.finish();
+        }
+    }
+
+    /**
+     * 删除当前日历中的全部事件，日历账户保留
+     *
+     * @return 删除的事件数，-1 表示失败
+     */
+    public int deleteAllCalendarEvents() {
+        CalendarResolver resolver = resolver("deleteAllCalendarEvents");
+        try {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) return -1;
+            int count = resolver.delete(resolver.uris().events(),
+                    CalendarContract.Events.CALENDAR_ID + "=?", new String[]{String.valueOf(accountId)});
+            invalidateEvents();
+            if (isLog) log("删除日历全部事件 " + count);
+            return count;
+        } finally {
+            resolver.finish();
+        }
+    }
+
+    /**
+     * 删除当前日历中与 [fromMillis, toMillis) 重叠的事件，一次 provider 调用
+     * 单次事件开始早于 toMillis 且结束晚于 fromMillis 即删除，跨越范围边界的事件也删除；
+     * 重复事件只有全部发生都在范围内（DTSTART 不早于 fromMillis，LAST_DATE 不晚于 toMillis）时整个系列删除，
+     * 范围外还有发生的系列（包括无限重复的系列）连同其例外事件都保留，不会因为一次发生在范围内而整个删除
+     *
+     * @return 删除的事件数，-1 表示失败
+     */
+    public int deleteCalendarEvents(long fromMillis, long toMillis) {
+        CalendarResolver resolver = resolver("deleteCalendarEventsInRange");
+        try {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) return -1;
+            String from = String.valueOf(fromMillis);
+            String to = String.valueOf(toMillis);
+            //LAST_DATE 是最后一次发生的结束时间，单次事件即 DTEND，无限重复时为 null
+            int count = resolver.delete(resolver.uris().events(),
+                    CalendarContract.Events.CALENDAR_ID + "=? AND " + CalendarContract.Events.ORIGINAL_ID + " IS NULL AND (("
+                            + CalendarContract.Events.RRULE + " IS NULL AND " + CalendarContract.Events.RDATE + " IS NULL AND "
+                            + CalendarContract.Events.DTSTART + "<? AND (" + CalendarContract.Events.DTSTART + ">=? OR "
+                            + CalendarContract.Events.LAST_DATE + ">?)) OR ("
+                            + CalendarContract.Events.DTSTART + ">=? AND " + CalendarContract.Events.LAST_DATE + "<=?))",
+                    new String[]{String.valueOf(accountId), to, from, from, from, to});
+            invalidateEvents();
+            if (isLog) log("删除事件 [" + fromMillis + ", " + toMillis + ") " + count);
+            return count;
+        } finally {
+            resolver.finish();
+        }
+    }
+
     /**
      * 更新日历事件
      *
      * @param eventId
      */
     public boolean updateCalendarEvent(long eventId) {
+        return updateCalendarEvent(eventId, mEvent);
+    }
+
+    /**
+     * 用 event 覆盖日历事件的标题、描述、时间和提醒
+     * 提醒与现有提醒比对，只删除多余的、插入缺少的，与事件更新在同一批次中写入；
+     * event 设置了参与人、扩展属性时同样比对后在该批次中写入
+     *
+     * @param eventId
+     * @return 事件存在且更新成功
+     */
+    public boolean updateCalendarEvent(long eventId, @NonNull EventSpec event) {
+        CalendarResolver resolver = resolver("updateCalendarEvent");
+        try {
+            return updateCalendarEvent(resolver, eventId, event);
+        } finally {
+            resolver.finish();
+        }
+    }
+
+    private boolean updateCalendarEvent(CalendarResolver resolver, long eventId, EventSpec event) {
         ContentValues valuesEvent = new ContentValues();
 
-        valuesEvent.put(CalendarContract.Events.TITLE, mEventTitle);
+        valuesEvent.put(CalendarContract.Events.TITLE, event.getEventTitle());
+
+        valuesEvent.put(CalendarContract.Events.DESCRIPTION, event.getEventDescription());
+        valuesEvent.put(CalendarContract.Events.HAS_ALARM, event.hasAlarm() ? 1 : 0);
+        if (isLog) log("hasAlarm  " + event.hasAlarm());
+
+        putTimeValues(valuesEvent, event, CalendarTimeZones.getDefaultId());
+
+        try {
+            List<Long> eventIds = Collections.singletonList(eventId);
+            Map<Long, EventReminder> existingReminders = EventReminders.query(resolver, eventIds).get(eventId);
+
+            OperationList operations = new OperationList();
+            operations.update(ContentProviderOperation.newUpdate(resolver.uris().event(eventId))
+                    .withValues(valuesEvent)
+                    .build());
+            operations.addAll(EventReminders.diff(resolver.uris(), eventId, existingReminders, event.getReminders()));
+            //未设置参与人、扩展属性时不读取也不改动
+            if (event.isAttendeesSet()) {
+                operations.addAll(EventAttendees.diff(resolver.uris(), eventId,
+                        EventAttendees.query(resolver, eventIds).get(eventId), event.getAttendees()));
+            }
+            if (!event.getExtendedProperties().isEmpty()) {
+                operations.addAll(EventProperties.diff(resolver.uris(), eventId,
+                        EventProperties.query(resolver, eventIds).get(eventId), event.getExtendedProperties()));
+            }
+
+            ContentProviderResult[] results = resolver.applyBatch(operations);
+            if (isLog) log("更新事件 " + eventId + "，子行变更 " + (operations.size() - 1));
+            return results[0].count != null && results[0].count > 0;
+        } catch (RemoteException | OperationApplicationException e) {
+            if (isLog) log("更新事件失败 " + e.getMessage());
+            return false;
+        } finally {
+            invalidateEvent(eventId);
+        }
+    }
 
-        valuesEvent.put(CalendarContract.Events.DESCRIPTION, mEventDescription);
-        valuesEvent.put(CalendarContract.Events.HAS_ALARM, hasAlarm ? 1 : 0);
-        log("hasAlarm  "+hasAlarm);
+    /**
+     * 部分更新日历事件，只写入 patch 中设置过的列
+     * 设置了提醒、参与人、扩展属性时与现有子行比对，无变化则不写入；HAS_ALARM 由 provider 随提醒维护
+     *
+     * @param eventId
+     * @return 事件存在且更新成功，patch 为空时直接返回 true
+     */
+    public boolean patchCalendarEvent(long eventId, @NonNull EventPatch patch) {
+        if (patch.isEmpty()) return true;
+        ContentValues valuesEvent = patch.getValues();
 
-        valuesEvent.put(CalendarContract.Events.DTSTART, mAlarmStartTime);
+        CalendarResolver resolver = resolver("patchCalendarEvent");
+        try {
+            Uri eventUri = resolver.uris().event(eventId);
+            OperationList childOperations = new OperationList();
+            if (patch.hasChildRows()) {
+                EventChildRows childRows = new EventChildRows();
+                childRows.add(eventId, patch);
+                childRows.query(resolver);
+                childOperations = childRows.diff(resolver.uris(), eventId, patch);
+            }
+
+            //子行无变化时只更新事件，不需要批次
+            if (childOperations.isEmpty()) {
+                if (valuesEvent.size() == 0) return true;
+                int count = resolver.update(eventUri, valuesEvent, null, null);
+                if (isLog) log("部分更新事件 " + eventId + " " + valuesEvent.keySet());
+                return count > 0;
+            }
+
+            OperationList operations = new OperationList();
+            if (valuesEvent.size() > 0) {
+                operations.update(ContentProviderOperation.newUpdate(eventUri).withValues(valuesEvent).build());
+            }
+            operations.addAll(childOperations);
+            ContentProviderResult[] results = resolver.applyBatch(operations);
+            if (isLog) log("部分更新事件 " + eventId + " " + valuesEvent.keySet()
+                    + "，子行变更 " + childOperations.size());
+            return valuesEvent.size() == 0 || (results[0].count != null && results[0].count > 0);
+        } catch (RemoteException | OperationApplicationException e) {
+            if (isLog) log("部分更新事件失败 " + e.getMessage());
+            return false;
+        } finally {
+            invalidateEvent(eventId);
+            resolver.finish();
+        }
+    }
 
-        valuesEvent.put(CalendarContract.Events.DTEND, mAlarmStartTime + mAlarmDurationTime * 60 * 1000);
+    /**
+     * 批量部分更新日历事件
+     * 所有需要比对的提醒、参与人、扩展属性每张表分段一次查出，更新和子行变更按
+     * OperationBatcher.DEFAULT_MAX_OPERATIONS 分批写入，一个事件的操作不会被拆到两个批次中
+     *
+     * @param patches eventId -> 修改
+     * @return 更新的事件数（只改子行的事件也计入），-1 表示失败
+     */
+    public int patchCalendarEvents(@NonNull Map<Long, EventPatch> patches) {
+        EventChildRows childRows = new EventChildRows();
+        for (Map.Entry<Long, EventPatch> entry : patches.entrySet()) {
+            childRows.add(entry.getKey(), entry.getValue());
+        }
 
+        CalendarResolver resolver = resolver("patchCalendarEvents");
+        try {
+            childRows.query(resolver);
+
+            OperationBatcher batcher = new OperationBatcher(resolver, OperationBatcher.DEFAULT_MAX_OPERATIONS, 0);
+            int childOnly = 0;
+            for (Map.Entry<Long, EventPatch> entry : patches.entrySet()) {
+                long eventId = entry.getKey();
+                EventPatch patch = entry.getValue();
+                ContentValues valuesEvent = patch.getValues();
+                OperationList childOperations = childRows.diff(resolver.uris(), eventId, patch);
+                int groupSize = (valuesEvent.size() > 0 ? 1 : 0) + childOperations.size();
+                if (groupSize == 0) continue;
+
+                batcher.beginGroup(groupSize);
+                if (valuesEvent.size() > 0) {
+                    batcher.update(ContentProviderOperation.newUpdate(resolver.uris().event(eventId))
+                            .withValues(valuesEvent)
+                            .build());
+                } else {
+                    childOnly++;
+                }
+                batcher.addAll(childOperations);
+            }
+            batcher.flush();
+
+            int count = batcher.getUpdatedRows() + childOnly;
+            if (isLog) log("批量部分更新事件 " + count + "/" + patches.size());
+            return count;
+        } catch (RemoteException | OperationApplicationException e) {
+            if (isLog) log("批量部分更新事件失败 " + e.getMessage());
+            return -1;
+        } finally {
+            for (Long eventId : patches.keySet()) invalidateEvent(eventId);
+            resolver.finish();
+        }
+    }
 
-        Uri uriEvent = ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, eventId);
+    /**
+     * 修改重复事件的某一次发生，不改动整个系列
+     * 在 provider 中为该次发生写入一个例外事件
+     *
+     * @param eventId              重复事件 id
+     * @param originalInstanceTime 被修改的那次发生原本的开始时间，即 EventInstance.getBegin()
+     * @param event                该次发生的新内容
+     * @return 例外事件 id，-1 表示失败
+     */
+    public long updateCalendarEventOccurrence(long eventId, long originalInstanceTime, @NonNull EventSpec event) {
+        ContentValues values = new ContentValues();
+        values.put(CalendarContract.Events.ORIGINAL_INSTANCE_TIME, originalInstanceTime);
+        values.put(CalendarContract.Events.TITLE, event.getEventTitle());
+        values.put(CalendarContract.Events.DESCRIPTION, event.getEventDescription());
+        values.put(CalendarContract.Events.DTSTART, event.getAlarmStartTime());
+        values.put(CalendarContract.Events.DTEND, event.getAlarmEndTime());
+        values.put(CalendarContract.Events.STATUS, CalendarContract.Events.STATUS_CONFIRMED);
+        CalendarResolver resolver = resolver("updateCalendarEventOccurrence");
+        try {
+            return insertException(resolver, eventId, values);
+        } finally {
+            resolver.finish();
+        }
+    }
 
-        mContext.getContentResolver().update(CalendarContract.Events.CONTENT_URI, valuesEvent,
-                CalendarContract.Events._ID+"=?", new String[]{String.valueOf(eventId)});
-        log("更新事件 "+eventId);
-        return addOrUpdateCalendarEventAlarm(eventId,true);
+    /**
+     * 取消重复事件的某一次发生，不改动整个系列
+     *
+     * @param eventId              重复事件 id
+     * @param originalInstanceTime 被取消的那次发生原本的开始时间，即 EventInstance.getBegin()
+     */
+    public boolean cancelCalendarEventOccurrence(long eventId, long originalInstanceTime) {
+        ContentValues values = new ContentValues();
+        values.put(CalendarContract.Events.ORIGINAL_INSTANCE_TIME, originalInstanceTime);
+        values.put(CalendarContract.Events.STATUS, CalendarContract.Events.STATUS_CANCELED);
+        CalendarResolver resolver = resolver("cancelCalendarEventOccurrence");
+        try {
+            return insertException(resolver, eventId, values) > -1;
+        } finally {
+            resolver.finish();
+        }
+    }
 
+    private long insertException(CalendarResolver resolver, long eventId, ContentValues values) {
+        Uri exceptionUri = resolver.uris().exception(eventId);
+        Uri insert = resolver.insert(exceptionUri, values);
+        long exceptionId = insert == null ? -1 : ContentUris.parseId(insert);
+        if (isLog) log("添加例外事件 " + eventId + " -> " + exceptionId);
+        return exceptionId;
     }
 
     /**
@@ -284,77 +992,646 @@ public final class CalendarProviderManager {
      * @return eventId
      */
     public long queryCalendarEvent(String eventTitle, String eventDescription) {
-        long eventId = -1;
         if (eventTitle == null || eventDescription == null)
             throw new NullPointerException("event title and description can't be null");
-        Cursor cursor = mContext.getContentResolver().query(CalendarContract.Events.CONTENT_URI, null, null, null, null);
+        CalendarResolver resolver = resolver("queryCalendarEvent");
+        try {
+            long eventId = queryEventId(resolver, -1, eventTitle, eventDescription, null, null);
+            if (isLog) log("事件" + (eventId > -1 ? "已存在" : "不存在") + eventId);
+            return eventId;
+        } finally {
+            resolver.finish();
+        }
+    }
 
-        if (cursor == null) return eventId;
+    /**
+     * 在当前日历账户中查询事件
+     *
+     * @return eventId，-1 表示不存在
+     */
+    public long findCalendarEvent(@NonNull String eventTitle, @NonNull String eventDescription) {
+        CalendarResolver resolver = resolver("findCalendarEvent");
         try {
-            cursor.moveToFirst();
-            while (cursor.moveToNext()) {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) return -1;
+            return queryEventId(resolver, accountId, eventTitle, eventDescription, null, null);
+        } finally {
+            resolver.finish();
+        }
+    }
 
-                log(
-                        cursor.getString(cursor.getColumnIndex(CalendarContract.Events._ID)) + "\n"
-                                + cursor.getString(cursor.getColumnIndex(CalendarContract.Events.TITLE)) + "\n"
-                                + cursor.getString(cursor.getColumnIndex(CalendarContract.Events.DESCRIPTION)) + "\n"
-                                + cursor.getString(cursor.getColumnIndex(CalendarContract.Events.EVENT_LOCATION)) + "\n"
-                );
-                if (eventTitle.equals(cursor.getString(cursor.getColumnIndex(CalendarContract.Events.TITLE)))) {
-                    if (eventDescription.equals(cursor.getString(cursor.getColumnIndex(CalendarContract.Events.DESCRIPTION)))) {
-                        eventId = cursor.getLong(cursor.getColumnIndex(CalendarContract.Events._ID));
+    /**
+     * 在当前日历账户中查询开始时间位于 [startFrom, startTo) 内的事件
+     *
+     * @return eventId，-1 表示不存在
+     */
+    public long findCalendarEvent(@NonNull String eventTitle, @NonNull String eventDescription,
+                                  long startFrom, long startTo) {
+        CalendarResolver resolver = resolver("findCalendarEvent");
+        try {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) return -1;
+            return queryEventId(resolver, accountId, eventTitle, eventDescription, startFrom, startTo);
+        } finally {
+            resolver.finish();
+        }
+    }
+
+    /**
+     * 查询当前日历在 [fromMillis, toMillis] 内的事件实例，重复事件会展开为多个实例
+     * 结果按开始时间排序，逐行读取，用完需 close()
+     */
+    public EventIterator queryEvents(long fromMillis, long toMillis) {
+        return queryEvents(fromMillis, toMillis, null, 0);
+    }
+
+    /**
+     * 分页查询当前日历在 [fromMillis, toMillis] 内的事件实例
+     *
+     * @param resumeAfter 上一页 EventIterator.getNextPageToken() 的返回值，null 表示从头开始
+     * @param limit       本页最多返回的实例数，0 表示不限
+     */
+    public EventIterator queryEvents(long fromMillis, long toMillis, EventPageToken resumeAfter, int limit) {
+        //统计在 EventIterator.close() 时上报
+        CalendarResolver resolver = resolver("queryEvents");
+        long accountId = checkCalendarAccount(resolver);
+        if (accountId <= -1) return new EventIterator(null, limit, resolver);
+
+        Uri.Builder builder = CalendarContract.Instances.CONTENT_URI.buildUpon();
+        ContentUris.appendId(builder, fromMillis);
+        ContentUris.appendId(builder, toMillis);
+
+        String selection = CalendarContract.Instances.CALENDAR_ID + "=?";
+        String[] selectionArgs;
+        if (resumeAfter == null) {
+            selectionArgs = new String[]{String.valueOf(accountId)};
+        } else {
+            selection += " AND (" + CalendarContract.Instances.BEGIN + ">? OR ("
+                    + CalendarContract.Instances.BEGIN + "=? AND " + CalendarContract.Instances.EVENT_ID + ">?))";
+            String begin = String.valueOf(resumeAfter.getBegin());
+            selectionArgs = new String[]{String.valueOf(accountId), begin, begin,
+                    String.valueOf(resumeAfter.getEventId())};
+        }
+
+        String sortOrder = CalendarContract.Instances.BEGIN + " ASC, " + CalendarContract.Instances.EVENT_ID + " ASC";
+        //provider 把排序拼接在 ORDER BY 之后，只返回本页的行；多取一行判断是否还有下一页
+        //CalendarProvider 不处理 ContentResolver.QUERY_ARG_LIMIT，API 26 以上同样使用 LIMIT
+        if (limit > 0) sortOrder += " LIMIT " + (limit + 1);
+        Cursor cursor = resolver.query(builder.build(), EventIterator.PROJECTION, selection, selectionArgs, sortOrder);
+        return new EventIterator(cursor, limit, resolver);
+    }
+
+    /**
+     * 按 id 读取日历事件及其提醒、参与人、扩展属性
+     * 开启 Builder.setEventCacheSize 时优先从缓存读取，未命中时查询并写入缓存
+     *
+     * @return 事件快照，null 表示事件不存在或查询失败
+     */
+    public EventSnapshot getCalendarEvent(long eventId) {
+        return getCalendarEvents("getCalendarEvent", Collections.singletonList(eventId)).get(eventId);
+    }
+
+    /**
+     * 批量读取日历事件，每 Selections.MAX_IN_ARGUMENTS 个事件只查询一次事件表和各子表，
+     * 不按事件逐个查询
+     *
+     * @return eventId -> 事件快照，顺序与 eventIds 一致，不存在的事件不在结果中
+     */
+    public Map<Long, EventSnapshot> getCalendarEvents(@NonNull Collection<Long> eventIds) {
+        return getCalendarEvents("getCalendarEvents", eventIds);
+    }
+
+    private Map<Long, EventSnapshot> getCalendarEvents(String operation, Collection<Long> eventIds) {
+        Map<Long, EventSnapshot> snapshots = new HashMap<>();
+        Set<Long> missing = new LinkedHashSet<>();
+        for (Long eventId : eventIds) {
+            EventSnapshot cached = mEventCache != null ? mEventCache.get(eventId) : null;
+            if (cached != null) {
+                snapshots.put(eventId, cached);
+            } else {
+                missing.add(eventId);
+            }
+        }
+        if (!missing.isEmpty()) {
+            List<Long> missingIds = new ArrayList<>(missing);
+            int generation = mEventCache != null ? mEventCache.generation() : 0;
+            CalendarResolver resolver = resolver(operation);
+            try {
+                for (int from = 0; from < missingIds.size(); from += Selections.MAX_IN_ARGUMENTS) {
+                    List<Long> chunk = missingIds.subList(from,
+                            Math.min(missingIds.size(), from + Selections.MAX_IN_ARGUMENTS));
+                    for (EventSnapshot snapshot : querySnapshots(resolver, chunk)) {
+                        snapshots.put(snapshot.getEventId(), snapshot);
+                        if (mEventCache != null) mEventCache.put(snapshot, generation);
                     }
                 }
+            } finally {
+                resolver.finish();
             }
-            log("事件" + (eventId > -1 ? "已存在" : "不存在") + eventId);
-
-            return eventId;
+        }
 
+        Map<Long, EventSnapshot> ordered = new LinkedHashMap<>();
+        for (Long eventId : eventIds) {
+            EventSnapshot snapshot = snapshots.get(eventId);
+            if (snapshot != null) ordered.put(eventId, snapshot);
+        }
+        return ordered;
+    }
 
+    /**
+     * 一次 IN 查询读取事件，提醒、参与人、扩展属性各一次 IN 查询
+     *
+     * @param eventIds 不超过 Selections.MAX_IN_ARGUMENTS 个
+     */
+    private List<EventSnapshot> querySnapshots(CalendarResolver resolver, List<Long> eventIds) {
+        List<EventSnapshot> snapshots = new ArrayList<>(eventIds.size());
+        Map<Long, Map<Long, EventReminder>> reminders = EventReminders.query(resolver, eventIds);
+        Map<Long, Map<Long, EventAttendee>> attendees = EventAttendees.query(resolver, eventIds);
+        Map<Long, Map<Long, String[]>> properties = EventProperties.query(resolver, eventIds);
+
+        Cursor cursor = resolver.query(CalendarContract.Events.CONTENT_URI, EventSnapshot.PROJECTION,
+                Selections.in(CalendarContract.Events._ID, eventIds.size())
+                        + " AND " + CalendarContract.Events.DELETED + "=0",
+                Selections.args(eventIds, 0, eventIds.size()), null);
+        if (cursor == null) return snapshots;
+        try {
+            while (cursor.moveToNext()) {
+                long eventId = cursor.getLong(0);
+                Map<Long, EventReminder> eventReminders = reminders.get(eventId);
+                Map<Long, EventAttendee> eventAttendees = attendees.get(eventId);
+                snapshots.add(new EventSnapshot(cursor,
+                        eventReminders == null ? null : eventReminders.values(),
+                        eventAttendees == null ? null : eventAttendees.values(),
+                        EventProperties.toMap(properties.get(eventId))));
+            }
         } finally {
             cursor.close();
+        }
+        return snapshots;
+    }
+
+    /**
+     * @return 快照缓存的命中、未命中次数等统计，未开启缓存时为 null
+     */
+    public EventCacheStats getEventCacheStats() {
+        return mEventCache != null ? mEventCache.stats() : null;
+    }
+
+    /**
+     * 注销快照缓存、外部 key 索引和账户缓存在 provider 上注册的 ContentObserver，
+     * 开启了 setEventCacheSize 或使用了自定义 CalendarProviderClient 时不再使用需调用
+     * 之后各方法仍可使用，只是不再缓存快照和日历 id，按 key 查找每次都从 provider 读取。
+     */
+    public void close() {
+        if (mEventCache != null) mEventCache.close();
+        if (isOwnKeyIndex) mKeyIndex.close();
+        if (isOwnAccountCache) mAccountCache.close();
+    }
+
+    private void invalidateEvent(long eventId) {
+        if (mEventCache != null) mEventCache.invalidate(eventId);
+    }
+
+    private void invalidateEvents() {
+        if (mEventCache != null) mEventCache.invalidateAll();
+    }
+
+    /**
+     * 查询与 [start, end) 重叠的事件，用于安排新事件前检查冲突
+     * 只读取该时间段内的实例；同一窗口需要反复查询时使用 openFreeBusyIndex
+     *
+     * @return 冲突的事件 id，按实例开始时间排列，null 表示查询失败
+     */
+    public long[] findConflicts(long start, long end) {
+        FreeBusyIndex index = loadFreeBusyIndex("findConflicts", start, end);
+        return index == null ? null : index.findConflicts(start, end);
+    }
 
+    /**
+     * 查找 [from, to) 内不短于 durationTime 的空闲时间段
+     *
+     * @param durationTime 最短时长 分钟
+     * @return 按时间排列的空闲时间段，null 表示查询失败
+     */
+    public List<TimeSlot> findFreeSlots(long from, long to, int durationTime) {
+        FreeBusyIndex index = loadFreeBusyIndex("findFreeSlots", from, to);
+        return index == null ? null : index.findFreeSlots(from, to, durationTime);
+    }
+
+    /**
+     * 读取 [windowStart, windowEnd) 内的实例建立忙闲索引，之后的查询不再访问 provider
+     * 事件变化时只重新读取变化的事件，不再需要时调用 close()
+     *
+     * @return null 表示日历不存在或读取失败
+     */
+    public FreeBusyIndex openFreeBusyIndex(long windowStart, long windowEnd) {
+        if (windowStart >= windowEnd) throw new IllegalArgumentException("windowStart must be before windowEnd");
+        //读取实例前取快照，读取期间的变化在订阅后回调并重新读取
+        Map<Long, Long> snapshot = snapshotCalendarEvents();
+        if (snapshot == null) return null;
+        FreeBusyIndex index = loadFreeBusyIndex("openFreeBusyIndex", windowStart, windowEnd);
+        if (index != null) {
+            index.attach(newEventChangeFeed(index.mListener, EventChangeFeed.DEFAULT_DEBOUNCE_MILLIS, snapshot));
+        }
+        return index;
+    }
+
+    private FreeBusyIndex loadFreeBusyIndex(String operation, long windowStart, long windowEnd) {
+        if (windowStart >= windowEnd) throw new IllegalArgumentException("windowStart must be before windowEnd");
+        FreeBusyIndex.Loader loader = new FreeBusyIndex.Loader() {
+            @Override
+            public IntervalIndex load(long windowStart, long windowEnd, Set<Long> eventIds,
+                                      Map<Long, Long> originalIds) {
+                return loadBusyIntervals("loadFreeBusy", windowStart, windowEnd, eventIds, originalIds);
+            }
+        };
+        Map<Long, Long> originalIds = new HashMap<>();
+        IntervalIndex intervals = loadBusyIntervals(operation, windowStart, windowEnd, null, originalIds);
+        if (intervals == null) return null;
+        if (isLog) log("忙闲索引 " + intervals.size());
+        return new FreeBusyIndex(windowStart, windowEnd, intervals, originalIds, loader, mExecutor);
+    }
+
+    private IntervalIndex loadBusyIntervals(String operation, long windowStart, long windowEnd,
+                                            Set<Long> eventIds, Map<Long, Long> originalIds) {
+        CalendarResolver resolver = resolver(operation);
+        try {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) return null;
+            return FreeBusyIndex.query(resolver, accountId, windowStart, windowEnd, eventIds, originalIds);
+        } catch (RuntimeException e) {
+            //权限被收回等情况下 provider 抛出异常
+            if (isLog) log("读取忙闲失败 " + e.getMessage());
+            return null;
+        } finally {
+            resolver.finish();
+        }
+    }
+
+    /**
+     * 由 provider 完成匹配，只返回 _ID 一列
+     *
+     * @param accountId 日历 id，-1 表示不限日历
+     * @param startFrom DTSTART 下限（包含），null 表示不限
+     * @param startTo   DTSTART 上限（不包含），null 表示不限
+     * @return 最后插入的匹配事件 id，-1 表示不存在
+     */
+    private long queryEventId(CalendarResolver resolver, long accountId, String eventTitle, String eventDescription,
+                              Long startFrom, Long startTo) {
+        StringBuilder selection = new StringBuilder()
+                .append(CalendarContract.Events.TITLE).append("=? AND ")
+                .append(CalendarContract.Events.DESCRIPTION).append("=? AND ")
+                //已删除、等待同步的墓碑不算重复
+                .append(CalendarContract.Events.DELETED).append("=0");
+        List<String> selectionArgs = new ArrayList<>(5);
+        selectionArgs.add(eventTitle);
+        selectionArgs.add(eventDescription);
+        if (accountId > -1) {
+            selection.append(" AND ").append(CalendarContract.Events.CALENDAR_ID).append("=?");
+            selectionArgs.add(String.valueOf(accountId));
+        }
+        if (startFrom != null) {
+            selection.append(" AND ").append(CalendarContract.Events.DTSTART).append(">=?");
+            selectionArgs.add(String.valueOf(startFrom));
+        }
+        if (startTo != null) {
+            selection.append(" AND ").append(CalendarContract.Events.DTSTART).append("<?");
+            selectionArgs.add(String.valueOf(startTo));
+        }
+
+        Cursor cursor = resolver.query(CalendarContract.Events.CONTENT_URI,
+                EVENT_ID_PROJECTION, selection.toString(), selectionArgs.toArray(new String[0]),
+                CalendarContract.Events._ID + " DESC");
+        if (cursor == null) return -1;
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
         }
+    }
+
+    /**
+     * 异步添加日历事件
+     *
+     * @param callback 主线程回调，可为 null
+     */
+    public Future<Long> addCalendarEventAsync(CalendarCallback<Long> callback) {
+        return addCalendarEventAsync(mEvent, callback);
+    }
 
+    /**
+     * 异步添加日历事件
+     *
+     * @param callback 主线程回调，可为 null
+     */
+    public Future<Long> addCalendarEventAsync(@NonNull final EventSpec event, CalendarCallback<Long> callback) {
+        return mExecutor.submit(null, new Callable<Long>() {
+            @Override
+            public Long call() {
+                return addCalendarEvent(event);
+            }
+        }, callback);
     }
 
     /**
-     * 将闹钟提前提醒时间转为分钟
+     * 异步批量添加日历事件
      *
-     * @return
+     * @param callback 主线程回调，可为 null
      */
-    private long toMillis() {
-        long l = 0;
-        if (mAlarmDateType == null) return l;
-        log("     switch       "+mAlarmDateType.name()+"     "+mAlarmLeadTime);
-        switch (mAlarmDateType) {
-            case SECOND:
-                l = mAlarmLeadTime / 1000 / 60;
-                break;
-            case MINUTE:
-                l = mAlarmLeadTime;
+    public Future<long[]> addCalendarEventsAsync(@NonNull final List<EventSpec> events, CalendarCallback<long[]> callback) {
+        return mExecutor.submit(null, new Callable<long[]>() {
+            @Override
+            public long[] call() {
+                return addCalendarEvents(events);
+            }
+        }, callback);
+    }
 
-                break;
-            case HOUR:
-                l = mAlarmLeadTime * 60;
+    /**
+     * 异步更新日历事件，同一 eventId 上的更新、删除按提交顺序执行
+     *
+     * @param callback 主线程回调，可为 null
+     */
+    public Future<Boolean> updateCalendarEventAsync(long eventId, CalendarCallback<Boolean> callback) {
+        return updateCalendarEventAsync(eventId, mEvent, callback);
+    }
 
-                break;
-            case DAY:
-                l = mAlarmLeadTime * 24 * 60;
+    /**
+     * 异步更新日历事件，同一 eventId 上的更新、删除按提交顺序执行
+     *
+     * @param callback 主线程回调，可为 null
+     */
+    public Future<Boolean> updateCalendarEventAsync(final long eventId, @NonNull final EventSpec event,
+                                                    CalendarCallback<Boolean> callback) {
+        return mExecutor.submit(eventId, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return updateCalendarEvent(eventId, event);
+            }
+        }, callback);
+    }
+
+    /**
+     * 异步部分更新日历事件，同一 eventId 上的更新、删除按提交顺序执行
+     *
+     * @param callback 主线程回调，可为 null
+     */
+    public Future<Boolean> patchCalendarEventAsync(final long eventId, @NonNull final EventPatch patch,
+                                                   CalendarCallback<Boolean> callback) {
+        return mExecutor.submit(eventId, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return patchCalendarEvent(eventId, patch);
+            }
+        }, callback);
+    }
+
+    /**
+     * 异步删除日历事件，同一 eventId 上的更新、删除按提交顺序执行
+     *
+     * @param callback 主线程回调，可为 null
+     */
+    public Future<Boolean> deleteCalendarEventAsync(final long eventId, CalendarCallback<Boolean> callback) {
+        return mExecutor.submit(eventId, new Callable<Boolean>() {
+            @Override
+            public Boolean call() {
+                return deleteCalendarEvent(eventId);
+            }
+        }, callback);
+    }
+
+    /**
+     * 异步批量删除日历事件
+     * 在这些事件之前提交的异步修改之后执行，之后提交的修改在删除之后执行
+     *
+     * @param callback 主线程回调，可为 null
+     */
+    public Future<Integer> deleteCalendarEventsAsync(@NonNull Collection<Long> eventIds, CalendarCallback<Integer> callback) {
+        final List<Long> ids = new ArrayList<>(eventIds);
+        return mExecutor.submitForKeys(ids, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return deleteCalendarEvents(ids);
+            }
+        }, callback);
+    }
+
+    /**
+     * 异步查询日历事件
+     *
+     * @param callback 主线程回调，可为 null
+     */
+    public Future<Long> queryCalendarEventAsync(final String eventTitle, final String eventDescription,
+                                                CalendarCallback<Long> callback) {
+        return mExecutor.submit(null, new Callable<Long>() {
+            @Override
+            public Long call() {
+                return queryCalendarEvent(eventTitle, eventDescription);
+            }
+        }, callback);
+    }
+
+    /**
+     * 订阅当前日历中事件的变化，代替轮询 queryCalendarEvent
+     * 通知在 EventChangeFeed.DEFAULT_DEBOUNCE_MILLIS 内合并，回调在主线程执行，不再需要时调用 close()
+     */
+    public EventChangeFeed subscribeEventChanges(@NonNull EventChangeListener listener) {
+        return subscribeEventChanges(listener, EventChangeFeed.DEFAULT_DEBOUNCE_MILLIS);
+    }
+
+    /**
+     * 订阅当前日历中事件的变化
+     *
+     * @param debounceMillis 最后一次通知后等待多久再比对，期间的通知合并为一次
+     */
+    public EventChangeFeed subscribeEventChanges(@NonNull EventChangeListener listener, long debounceMillis) {
+        return newEventChangeFeed(listener, debounceMillis, null);
+    }
+
+    private EventChangeFeed newEventChangeFeed(EventChangeListener listener, long debounceMillis,
+                                               Map<Long, Long> snapshot) {
+        return new EventChangeFeed(mClient, new EventChangeFeed.Source() {
+            @Override
+            public Map<Long, Long> snapshot() {
+                return snapshotCalendarEvents();
+            }
+        }, listener, mExecutor, debounceMillis, snapshot);
+    }
+
+    /**
+     * 当前日历的后台修改队列，进程被杀后仍会执行，适合大量导入
+     * 修改写入队列后调用 CalendarSyncQueue.schedule() 安排执行
+     */
+    public CalendarSyncQueue getSyncQueue() {
+        return new CalendarSyncQueue(mContext, this, mCalendarName, isSyncAdapter);
+    }
 
-                break;
-            default:
-                break;
+    /**
+     * 在一组批次中执行后台队列中的记录，按队列顺序写入
+     * 新事件插入后 key 立即写入索引，批次中途失败时已提交的插入也已记录，重新执行不会重复插入。
+     * provider 拒绝的记录（如无法解析的 RRULE）重试也不会成功，逐条执行找出后跳过，不阻塞之后的记录；
+     * 权限被收回、provider 进程退出等暂时的失败返回 -1，稍后重试。
+     *
+     * @return 执行的记录数，不含跳过的记录，-1 表示失败
+     */
+    int applySyncOperations(List<SyncOperation> operations) {
+        try {
+            return applySyncBatch(operations);
+        } catch (IllegalArgumentException | OperationApplicationException e) {
+            if (operations.size() == 1) {
+                if (isLog) log("跳过无效的后台队列记录 " + operations.get(0) + " " + e.getMessage());
+                return 0;
+            }
+            if (isLog) log("后台队列中有无效的记录，逐条执行 " + e.getMessage());
+            int count = 0;
+            for (SyncOperation operation : operations) {
+                int applied = applySyncOperations(Collections.singletonList(operation));
+                if (applied < 0) return -1;
+                count += applied;
+            }
+            return count;
+        } catch (RemoteException | RuntimeException e) {
+            //权限被收回等情况下 provider 抛出异常，稍后重试
+            if (isLog) log("执行后台队列失败 " + e.getMessage());
+            return -1;
+        }
+    }
+
+    private int applySyncBatch(List<SyncOperation> operations) throws RemoteException, OperationApplicationException {
+        CalendarResolver resolver = resolver("applySyncOperations");
+        long accountId = -1;
+        List<String> insertedKeys = new ArrayList<>();
+        Map<String, Long> keyIds = new HashMap<>();
+        OperationBatcher batcher = null;
+        try {
+            accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) return -1;
+
+            //同一个 key 只执行最后一次 upsert，新事件在批次提交前没有 id，无法再修改
+            Map<String, Integer> lastUpserts = new HashMap<>();
+            EventChildRows childRows = new EventChildRows();
+            for (int i = 0; i < operations.size(); i++) {
+                SyncOperation operation = operations.get(i);
+                if (operation.mType == SyncOperation.UPSERT) {
+                    lastUpserts.put(operation.mKey, i);
+                    if (!keyIds.containsKey(operation.mKey)) {
+                        keyIds.put(operation.mKey, findEventByKey(resolver, accountId, operation.mKey));
+                    }
+                    long eventId = keyIds.get(operation.mKey);
+                    if (eventId > -1) childRows.add(eventId, operation.mPatch);
+                } else if (operation.mType == SyncOperation.PATCH) {
+                    childRows.add(operation.mEventId, operation.mPatch);
+                }
+            }
+            childRows.query(resolver);
+
+            batcher = new OperationBatcher(resolver, OperationBatcher.DEFAULT_MAX_OPERATIONS, lastUpserts.size());
+            for (int i = 0; i < operations.size(); i++) {
+                SyncOperation operation = operations.get(i);
+                if (operation.mType == SyncOperation.DELETE) {
+                    batcher.beginGroup(1);
+                    batcher.delete(ContentProviderOperation.newDelete(resolver.uris().event(operation.mEventId)).build());
+                    continue;
+                }
+                long eventId = operation.mEventId;
+                if (operation.mType == SyncOperation.UPSERT) {
+                    if (lastUpserts.get(operation.mKey) != i) continue;
+                    eventId = keyIds.get(operation.mKey);
+                    if (eventId <= -1) {
+                        ContentValues values = operation.mPatch.getValues();
+                        values.put(CalendarContract.Events.CALENDAR_ID, accountId);
+                        values.put(CalendarReconciler.EXTERNAL_ID, operation.mKey);
+                        int eventIndex = batcher.beginGroup(1 + EventChildRows.insertCount(operation.mPatch));
+                        batcher.insert(ContentProviderOperation.newInsert(resolver.uris().events())
+                                .withValues(values)
+                                .build(), insertedKeys.size());
+                        insertedKeys.add(operation.mKey);
+                        batcher.addAll(EventChildRows.insert(resolver.uris(), eventIndex, operation.mPatch));
+                        continue;
+                    }
+                }
+                ContentValues valuesEvent = operation.mPatch.getValues();
+                OperationList childOperations = childRows.diff(resolver.uris(), eventId, operation.mPatch);
+                int groupSize = (valuesEvent.size() > 0 ? 1 : 0) + childOperations.size();
+                if (groupSize == 0) continue;
+                batcher.beginGroup(groupSize);
+                if (valuesEvent.size() > 0) {
+                    batcher.update(ContentProviderOperation.newUpdate(resolver.uris().event(eventId))
+                            .withValues(valuesEvent)
+                            .build());
+                }
+                batcher.addAll(childOperations);
+            }
+            batcher.flush();
+            if (isLog) log("执行后台队列 " + operations.size() + "，新增 " + insertedKeys.size());
+            return operations.size();
+        } finally {
+            if (batcher != null) {
+                //一次写入索引，每次 put 都会重写整个 SharedPreferences 文件
+                long[] insertedIds = batcher.getInsertedIds();
+                Map<String, Long> insertedKeyIds = new HashMap<>();
+                for (int slot = 0; slot < insertedKeys.size(); slot++) {
+                    if (insertedIds[slot] > -1) insertedKeyIds.put(insertedKeys.get(slot), insertedIds[slot]);
+                }
+                mKeyIndex.putAll(accountId, insertedKeyIds);
+            }
+            for (SyncOperation operation : operations) {
+                if (operation.mType != SyncOperation.UPSERT) invalidateEvent(operation.mEventId);
+            }
+            for (Long eventId : keyIds.values()) {
+                if (eventId > -1) invalidateEvent(eventId);
+            }
+            resolver.finish();
         }
-        log("闹钟将在事件发生 " + l + " 分钟前提醒");
-        return l;
     }
 
-    private boolean isLog = true;
+    /**
+     * 创建事件修改的延迟写入队列，同一个事件的连续修改合并为一次写入
+     * 修改入队 EventWriteQueue.DEFAULT_FLUSH_DELAY_MILLIS 后或待写入事件数达到
+     * EventWriteQueue.DEFAULT_MAX_PENDING_EVENTS 时写入
+     */
+    public EventWriteQueue newWriteQueue() {
+        return newWriteQueue(EventWriteQueue.DEFAULT_FLUSH_DELAY_MILLIS, EventWriteQueue.DEFAULT_MAX_PENDING_EVENTS);
+    }
+
+    /**
+     * @param flushDelayMillis 第一个修改入队后多久写入
+     * @param maxPendingEvents 待写入的事件数达到该值时立即写入
+     */
+    public EventWriteQueue newWriteQueue(long flushDelayMillis, int maxPendingEvents) {
+        return new EventWriteQueue(new EventWriteQueue.Writer() {
+            @Override
+            public int write(Map<Long, EventPatch> patches) {
+                return patchCalendarEvents(patches);
+            }
+
+            @Override
+            public String defaultTimeZone() {
+                return CalendarTimeZones.getDefaultId();
+            }
+        }, mExecutor, flushDelayMillis, maxPendingEvents);
+    }
+
+    private Map<Long, Long> snapshotCalendarEvents() {
+        CalendarResolver resolver = resolver("snapshotCalendarEvents");
+        try {
+            long accountId = checkCalendarAccount(resolver);
+            if (accountId <= -1) return null;
+            Map<Long, Long> snapshot = EventChangeFeed.snapshot(resolver, accountId);
+            if (isLog && snapshot != null) log("事件快照 " + snapshot.size());
+            return snapshot;
+        } catch (RuntimeException e) {
+            //权限被收回等情况下 provider 抛出异常，本次不回调
+            if (isLog) log("事件快照失败 " + e.getMessage());
+            return null;
+        } finally {
+            resolver.finish();
+        }
+    }
 
     private void log(String log) {
         if (isLog) {
-            Log.e(TAG, log);
+            mLogger.log(TAG, log);
         }
     }
 
@@ -367,7 +1644,7 @@ public final class CalendarProviderManager {
         //事件持续时长 默认10 分钟
         private int mAlarmDurationTime = 10;
         //提前提醒时间
-        private long mAlarmLeadTime;
+        private int mAlarmLeadTime;
         //提前提醒时间类型 时、分、秒、天
         private CalendarAlarmDateType mAlarmDateType;
         //可选  新建日历名称
@@ -377,6 +1654,19 @@ public final class CalendarProviderManager {
         private String mEventTitle;
         //添加事件的描述
         private String mEventDescription;
+        //可选  异步操作线程池，默认使用 CalendarExecutor.getDefault()
+        private CalendarExecutor mExecutor;
+        //可选  日志输出，默认不输出
+        private CalendarLogger mLogger;
+        //可选  操作统计
+        private CalendarMetrics mMetrics;
+        //可选  provider 访问，默认为系统 ContentResolver
+        private CalendarProviderClient mProviderClient;
+        //可选  以日历账户的 sync adapter 身份写入
+        private boolean isSyncAdapter;
+        private int mEventCacheSize;
+        //多个日历共用的账户缓存，只用于自定义 CalendarProviderClient
+        private CalendarAccountCache mAccountCache;
 
         public Builder(Context context) {
             mContext = context;
@@ -417,6 +1707,62 @@ public final class CalendarProviderManager {
         }
 
 
+        public Builder setExecutor(CalendarExecutor executor) {
+            mExecutor = executor;
+            return this;
+        }
+
+        /**
+         * @param logger 日志输出，如 CalendarLogger.LOGCAT；不设置时不输出日志
+         */
+        public Builder setLogger(CalendarLogger logger) {
+            mLogger = logger;
+            return this;
+        }
+
+        /**
+         * @param metrics 每个操作结束时回调统计，在执行操作的线程上调用；不设置时不统计
+         */
+        public Builder setMetrics(CalendarMetrics metrics) {
+            mMetrics = metrics;
+            return this;
+        }
+
+        /**
+         * 替换 provider 访问，如 FakeCalendarProvider，用于在 JVM 上测试和基准测试
+         */
+        public Builder setProviderClient(CalendarProviderClient providerClient) {
+            mProviderClient = providerClient;
+            return this;
+        }
+
+        /**
+         * 以日历账户自身的 sync adapter 身份写入，需要设置 setCalendarName
+         * 写入不再标记 DIRTY、不触发同步，删除时直接删除行而不是留下墓碑。
+         * 只适用于本库创建的 LOCAL 账户，不要对其他应用同步的账户开启。
+         */
+        public Builder setSyncAdapter(boolean syncAdapter) {
+            isSyncAdapter = syncAdapter;
+            return this;
+        }
+
+        /**
+         * 开启 getCalendarEvent 的快照缓存
+         * 缓存在 provider 上注册 ContentObserver，不再使用时调用 CalendarProviderManager.close()
+         *
+         * @param maxSize 缓存容量 字节（按快照估算），0 表示不缓存
+         */
+        public Builder setEventCacheSize(int maxSize) {
+            if (maxSize < 0) throw new IllegalArgumentException("maxSize must not be negative");
+            mEventCacheSize = maxSize;
+            return this;
+        }
+
+        Builder setAccountCache(CalendarAccountCache accountCache) {
+            mAccountCache = accountCache;
+            return this;
+        }
+
         public CalendarProviderManager build() {
 
             return new CalendarProviderManager(this);
@@ -0,0 +1,289 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.os.RemoteException;
+import android.provider.CalendarContract;
+import android.text.TextUtils;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 将期望的事件集合与日历中的现有事件比对，只写入差异
+ * 事件通过外部 id（Events.UID_2445）关联，没有外部 id 的事件不参与同步。
+ * 提醒、参与人、扩展属性与 updateCalendarEvent 相同：读取现有子行比对，只写入变化的行。
+ */
+final class CalendarReconciler {
+    //外部 id 所在列
+    static final String EXTERNAL_ID = CalendarContract.Events.UID_2445;
+
+    private static final String[] EVENT_PROJECTION = new String[]{
+            CalendarContract.Events._ID,
+            EXTERNAL_ID,
+            CalendarContract.Events.TITLE,
+            CalendarContract.Events.DESCRIPTION,
+            CalendarContract.Events.DTSTART,
+            CalendarContract.Events.DTEND,
+            CalendarContract.Events.HAS_ALARM,
+            CalendarContract.Events.DURATION,
+            CalendarContract.Events.RRULE,
+            CalendarContract.Events.RDATE,
+            CalendarContract.Events.EXDATE,
+            CalendarContract.Events.EVENT_TIMEZONE,
+            CalendarContract.Events.ALL_DAY
+    };
+    private static final int INDEX_ID = 0;
+    private static final int INDEX_EXTERNAL_ID = 1;
+    private static final int INDEX_TITLE = 2;
+    private static final int INDEX_DESCRIPTION = 3;
+    private static final int INDEX_DTSTART = 4;
+    private static final int INDEX_DTEND = 5;
+    private static final int INDEX_HAS_ALARM = 6;
+    private static final int INDEX_DURATION = 7;
+    private static final int INDEX_RRULE = 8;
+    private static final int INDEX_RDATE = 9;
+    private static final int INDEX_EXDATE = 10;
+    private static final int INDEX_TIMEZONE = 11;
+    private static final int INDEX_ALL_DAY = 12;
+
+    private final CalendarResolver mResolver;
+    private final long mCalendarId;
+    //事件未设置时区时使用的时区 id
+    private final String mDefaultTimeZone;
+
+    CalendarReconciler(CalendarResolver resolver, long calendarId, String defaultTimeZone) {
+        mResolver = resolver;
+        mCalendarId = calendarId;
+        mDefaultTimeZone = defaultTimeZone;
+    }
+
+    ReconcileResult reconcile(Map<String, EventSpec> desiredEvents) {
+        Map<String, ExistingEvent> existingEvents = queryManagedEvents();
+        queryReminders(existingEvents);
+
+        List<String> insertKeys = new ArrayList<>();
+        List<ExistingEvent> matched = new ArrayList<>();
+        List<ExistingEvent> updates = new ArrayList<>();
+        List<ExistingEvent> deletes = new ArrayList<>();
+        Map<String, Long> eventIds = new HashMap<>();
+        int unchanged = 0;
+
+        List<Long> attendeeEventIds = new ArrayList<>();
+        List<Long> propertyEventIds = new ArrayList<>();
+        for (Map.Entry<String, EventSpec> entry : desiredEvents.entrySet()) {
+            ExistingEvent existing = existingEvents.get(entry.getKey());
+            if (existing == null) {
+                insertKeys.add(entry.getKey());
+                continue;
+            }
+            existing.mDesired = entry.getValue();
+            existing.mDesiredTimeZone = existing.mDesired.getTimeZone() != null
+                    ? existing.mDesired.getTimeZone() : mDefaultTimeZone;
+            eventIds.put(entry.getKey(), existing.mId);
+            matched.add(existing);
+            //与 updateCalendarEvent 相同，未设置参与人、扩展属性时不比对
+            if (existing.mDesired.isAttendeesSet()) attendeeEventIds.add(existing.mId);
+            if (!existing.mDesired.getExtendedProperties().isEmpty()) propertyEventIds.add(existing.mId);
+        }
+        Map<Long, Map<Long, EventAttendee>> attendees = attendeeEventIds.isEmpty()
+                ? Collections.<Long, Map<Long, EventAttendee>>emptyMap()
+                : EventAttendees.query(mResolver, attendeeEventIds);
+        Map<Long, Map<Long, String[]>> properties = propertyEventIds.isEmpty()
+                ? Collections.<Long, Map<Long, String[]>>emptyMap()
+                : EventProperties.query(mResolver, propertyEventIds);
+
+        for (ExistingEvent existing : matched) {
+            EventSpec desired = existing.mDesired;
+            existing.mChildOperations = EventReminders.diff(mResolver.uris(), existing.mId, existing.mReminders,
+                    desired.getReminders());
+            if (desired.isAttendeesSet()) {
+                existing.mChildOperations.addAll(EventAttendees.diff(mResolver.uris(), existing.mId,
+                        attendees.get(existing.mId), desired.getAttendees()));
+            }
+            if (!desired.getExtendedProperties().isEmpty()) {
+                existing.mChildOperations.addAll(EventProperties.diff(mResolver.uris(), existing.mId,
+                        properties.get(existing.mId), desired.getExtendedProperties()));
+            }
+            if (existing.isEventChanged() || !existing.mChildOperations.isEmpty()) {
+                updates.add(existing);
+            } else {
+                unchanged++;
+            }
+        }
+        for (ExistingEvent existing : existingEvents.values()) {
+            if (!desiredEvents.containsKey(existing.mExternalId)) {
+                deletes.add(existing);
+            }
+        }
+
+        OperationBatcher batcher = new OperationBatcher(mResolver,
+                OperationBatcher.DEFAULT_MAX_OPERATIONS, insertKeys.size());
+        try {
+            for (ExistingEvent existing : deletes) {
+                batcher.beginGroup(1);
+                batcher.delete(ContentProviderOperation.newDelete(mResolver.uris().event(existing.mId)).build());
+            }
+            for (ExistingEvent existing : updates) {
+                addUpdateOperations(batcher, existing);
+            }
+            for (int i = 0; i < insertKeys.size(); i++) {
+                String key = insertKeys.get(i);
+                addInsertOperations(batcher, key, desiredEvents.get(key), i);
+            }
+            batcher.flush();
+        } catch (RemoteException | OperationApplicationException e) {
+            //之前的批次已提交，按组的顺序（删除、更新、插入）统计已写入的部分
+            int committed = batcher.getCommittedGroups();
+            int deleted = Math.min(committed, deletes.size());
+            int updated = Math.min(committed - deleted, updates.size());
+            return new ReconcileResult(false, collectInsertedIds(batcher, insertKeys, eventIds),
+                    updated, deleted, unchanged, eventIds);
+        }
+        return new ReconcileResult(true, collectInsertedIds(batcher, insertKeys, eventIds),
+                updates.size(), deletes.size(), unchanged, eventIds);
+    }
+
+    /**
+     * 已提交的插入写入 eventIds
+     *
+     * @return 插入的事件数
+     */
+    private static int collectInsertedIds(OperationBatcher batcher, List<String> insertKeys,
+                                          Map<String, Long> eventIds) {
+        long[] insertedIds = batcher.getInsertedIds();
+        int inserted = 0;
+        for (int i = 0; i < insertKeys.size(); i++) {
+            if (insertedIds[i] > -1) {
+                eventIds.put(insertKeys.get(i), insertedIds[i]);
+                inserted++;
+            }
+        }
+        return inserted;
+    }
+
+    private void addInsertOperations(OperationBatcher batcher, String externalId, EventSpec event, int slot)
+            throws RemoteException, OperationApplicationException {
+        int eventIndex = batcher.beginGroup(1 + event.getChildRowCount());
+        ContentValues values = CalendarProviderManager.buildEventValues(mCalendarId, event, mDefaultTimeZone);
+        values.put(EXTERNAL_ID, externalId);
+        batcher.insert(ContentProviderOperation.newInsert(mResolver.uris().events())
+                .withValues(values)
+                .build(), slot);
+        batcher.addAll(CalendarProviderManager.insertChildOperations(mResolver.uris(), eventIndex, event));
+    }
+
+    private void addUpdateOperations(OperationBatcher batcher, ExistingEvent existing)
+            throws RemoteException, OperationApplicationException {
+        EventSpec event = existing.mDesired;
+        boolean eventChanged = existing.isEventChanged();
+        batcher.beginGroup((eventChanged ? 1 : 0) + existing.mChildOperations.size());
+
+        if (eventChanged) {
+            ContentValues values = CalendarProviderManager.buildEventValues(mCalendarId, event, mDefaultTimeZone);
+            values.remove(CalendarContract.Events.CALENDAR_ID);
+            batcher.update(ContentProviderOperation.newUpdate(mResolver.uris().event(existing.mId))
+                    .withValues(values)
+                    .build());
+        }
+        batcher.addAll(existing.mChildOperations);
+    }
+
+    /**
+     * 一次查询读取日历中所有带外部 id 的事件
+     */
+    private Map<String, ExistingEvent> queryManagedEvents() {
+        Map<String, ExistingEvent> events = new HashMap<>();
+        Cursor cursor = mResolver.query(CalendarContract.Events.CONTENT_URI, EVENT_PROJECTION,
+                CalendarContract.Events.CALENDAR_ID + "=? AND "
+                        + EXTERNAL_ID + " IS NOT NULL AND "
+                        + CalendarContract.Events.DELETED + "=0",
+                new String[]{String.valueOf(mCalendarId)}, null);
+        if (cursor == null) return events;
+        try {
+            while (cursor.moveToNext()) {
+                ExistingEvent event = new ExistingEvent();
+                event.mId = cursor.getLong(INDEX_ID);
+                event.mExternalId = cursor.getString(INDEX_EXTERNAL_ID);
+                event.mTitle = cursor.getString(INDEX_TITLE);
+                event.mDescription = cursor.getString(INDEX_DESCRIPTION);
+                event.mStartTime = cursor.getLong(INDEX_DTSTART);
+                event.mEndTime = cursor.getLong(INDEX_DTEND);
+                event.hasAlarm = cursor.getInt(INDEX_HAS_ALARM) != 0;
+                event.mDuration = cursor.getString(INDEX_DURATION);
+                event.mRecurrenceRule = cursor.getString(INDEX_RRULE);
+                event.mRecurrenceDates = cursor.getString(INDEX_RDATE);
+                event.mExceptionDates = cursor.getString(INDEX_EXDATE);
+                event.mTimeZone = cursor.getString(INDEX_TIMEZONE);
+                event.isAllDay = cursor.getInt(INDEX_ALL_DAY) != 0;
+                events.put(event.mExternalId, event);
+            }
+        } finally {
+            cursor.close();
+        }
+        return events;
+    }
+
+    /**
+     * 分段读取带提醒事件的提醒
+     */
+    private void queryReminders(Map<String, ExistingEvent> existingEvents) {
+        Map<Long, ExistingEvent> eventsById = new HashMap<>();
+        List<Long> ids = new ArrayList<>();
+        for (ExistingEvent event : existingEvents.values()) {
+            if (event.hasAlarm) {
+                eventsById.put(event.mId, event);
+                ids.add(event.mId);
+            }
+        }
+        Map<Long, Map<Long, EventReminder>> reminders = EventReminders.query(mResolver, ids);
+        for (Map.Entry<Long, Map<Long, EventReminder>> entry : reminders.entrySet()) {
+            eventsById.get(entry.getKey()).mReminders = entry.getValue();
+        }
+    }
+
+    private static final class ExistingEvent {
+        long mId;
+        String mExternalId;
+        String mTitle;
+        String mDescription;
+        long mStartTime;
+        long mEndTime;
+        boolean hasAlarm;
+        String mDuration;
+        String mRecurrenceRule;
+        String mRecurrenceDates;
+        String mExceptionDates;
+        String mTimeZone;
+        boolean isAllDay;
+        //提醒行 _ID -> 提醒
+        Map<Long, EventReminder> mReminders;
+        EventSpec mDesired;
+        //期望的时区，未设置时为设备时区
+        String mDesiredTimeZone;
+        //把现有提醒、参与人、扩展属性改为期望值的操作
+        OperationList mChildOperations;
+
+        boolean isEventChanged() {
+            return !TextUtils.equals(mTitle, mDesired.getEventTitle())
+                    || !TextUtils.equals(mDescription, mDesired.getEventDescription())
+                    || mStartTime != mDesired.getAlarmStartTime()
+                    || (mDesired.isRecurring()
+                    ? !TextUtils.equals(mDuration, mDesired.getDuration())
+                    : mEndTime != mDesired.getAlarmEndTime())
+                    || !TextUtils.equals(mRecurrenceRule, mDesired.getRecurrenceRule())
+                    || !TextUtils.equals(mRecurrenceDates, mDesired.getRecurrenceDates())
+                    || !TextUtils.equals(mExceptionDates, mDesired.getExceptionDates())
+                    || hasAlarm != mDesired.hasAlarm()
+                    || isAllDay != mDesired.isAllDay()
+                    || !TextUtils.equals(mTimeZone, mDesiredTimeZone);
+        }
+    }
+}
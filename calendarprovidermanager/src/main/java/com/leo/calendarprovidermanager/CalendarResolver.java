@@ -0,0 +1,198 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentProviderResult;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.database.CursorWrapper;
+import android.net.Uri;
+import android.os.RemoteException;
+
+import java.util.List;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 一次操作内对 provider 的访问入口
+ * 设置了 CalendarMetrics 时统计耗时、行数和交互次数，操作结束时调用 finish() 上报；
+ * 未设置时直接转发，不产生统计对象。
+ * 写入使用 uris() 中的 URI，sync adapter 模式下带有账户参数。
+ * 设置了 EventKeyIndex 时写入计入本实例的写入；删除事件或日历可能删掉带 key 的事件，按其它写入方处理。
+ */
+final class CalendarResolver {
+    private final CalendarProviderClient mResolver;
+    private final CalendarUris mUris;
+    private final CalendarMetrics mMetrics;
+    private final CalendarOperationStats mStats;
+    //外部 key 索引，null 时不记录写入
+    private final EventKeyIndex mKeyIndex;
+
+    CalendarResolver(CalendarProviderClient resolver, CalendarUris uris, String operation, CalendarMetrics metrics) {
+        this(resolver, uris, operation, metrics, null);
+    }
+
+    CalendarResolver(CalendarProviderClient resolver, CalendarUris uris, String operation, CalendarMetrics metrics,
+                     EventKeyIndex keyIndex) {
+        mResolver = resolver;
+        mUris = uris;
+        mMetrics = metrics;
+        mStats = metrics == null ? null : new CalendarOperationStats(operation);
+        mKeyIndex = keyIndex;
+    }
+
+    /**
+     * @return 写入使用的 URI
+     */
+    CalendarUris uris() {
+        return mUris;
+    }
+
+    Cursor query(Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        if (mStats == null) {
+            return mResolver.query(uri, projection, selection, selectionArgs, sortOrder);
+        }
+        long start = System.nanoTime();
+        Cursor cursor = mResolver.query(uri, projection, selection, selectionArgs, sortOrder);
+        mStats.recordQuery(System.nanoTime() - start);
+        return cursor == null ? null : new CountingCursor(cursor, mStats);
+    }
+
+    Uri insert(Uri uri, ContentValues values) {
+        boolean tracked = mKeyIndex != null && mKeyIndex.onWriteStarted();
+        Uri insert = null;
+        try {
+            insert = mResolver.insert(uri, values);
+        } finally {
+            if (tracked) mKeyIndex.onWriteFinished(insert != null);
+        }
+        if (mStats != null) {
+            mStats.recordIpc();
+            if (insert != null) mStats.recordInserted(1);
+        }
+        return insert;
+    }
+
+    int update(Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        boolean tracked = mKeyIndex != null && mKeyIndex.onWriteStarted();
+        int rows = 0;
+        try {
+            rows = mResolver.update(uri, values, selection, selectionArgs);
+        } finally {
+            if (tracked) mKeyIndex.onWriteFinished(rows > 0);
+        }
+        if (mStats != null) {
+            mStats.recordIpc();
+            mStats.recordUpdated(rows);
+        }
+        return rows;
+    }
+
+    int delete(Uri uri, String selection, String[] selectionArgs) {
+        boolean tracked = mKeyIndex != null && !isKeyedDelete(uri) && mKeyIndex.onWriteStarted();
+        int rows = 0;
+        try {
+            rows = mResolver.delete(uri, selection, selectionArgs);
+        } finally {
+            if (tracked) mKeyIndex.onWriteFinished(rows > 0);
+        }
+        if (mStats != null) {
+            mStats.recordIpc();
+            mStats.recordDeleted(rows);
+        }
+        return rows;
+    }
+
+    ContentProviderResult[] applyBatch(OperationList operations)
+            throws RemoteException, OperationApplicationException {
+        boolean tracked = mKeyIndex != null && !hasKeyedDeletes(operations) && mKeyIndex.onWriteStarted();
+        ContentProviderResult[] results = null;
+        try {
+            results = mResolver.applyBatch(operations.getOperations());
+        } finally {
+            if (tracked) mKeyIndex.onWriteFinished(isChanged(results));
+        }
+        if (mStats != null) {
+            mStats.recordIpc();
+            for (int i = 0; i < results.length; i++) {
+                ContentProviderResult result = results[i];
+                switch (operations.typeAt(i)) {
+                    case OperationList.INSERT:
+                        if (result.uri != null) mStats.recordInserted(1);
+                        break;
+                    case OperationList.UPDATE:
+                        if (result.count != null) mStats.recordUpdated(result.count);
+                        break;
+                    case OperationList.DELETE:
+                        if (result.count != null) mStats.recordDeleted(result.count);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        }
+        return results;
+    }
+
+    private static boolean hasKeyedDeletes(OperationList operations) {
+        for (int i = 0; i < operations.size(); i++) {
+            if (operations.typeAt(i) == OperationList.DELETE
+                    && isKeyedDelete(operations.getOperations().get(i).getUri())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 提醒、参与者、扩展属性等子行的删除不影响外部 key 索引
+     */
+    private static boolean isKeyedDelete(Uri uri) {
+        List<String> segments = uri.getPathSegments();
+        if (segments.isEmpty()) return true;
+        String table = segments.get(0);
+        return !"reminders".equals(table) && !"attendees".equals(table) && !"extendedproperties".equals(table);
+    }
+
+    private static boolean isChanged(ContentProviderResult[] results) {
+        if (results == null) return false;
+        for (ContentProviderResult result : results) {
+            if (result.uri != null || (result.count != null && result.count > 0)) return true;
+        }
+        return false;
+    }
+
+    /**
+     * 操作结束，上报统计
+     */
+    void finish() {
+        if (mStats == null) return;
+        mStats.finish();
+        mMetrics.onOperation(mStats);
+    }
+
+    /**
+     * 统计读取行数
+     */
+    private static final class CountingCursor extends CursorWrapper {
+        private final CalendarOperationStats mStats;
+
+        CountingCursor(Cursor cursor, CalendarOperationStats stats) {
+            super(cursor);
+            mStats = stats;
+        }
+
+        @Override
+        public boolean moveToFirst() {
+            boolean moved = super.moveToFirst();
+            if (moved) mStats.recordRow();
+            return moved;
+        }
+
+        @Override
+        public boolean moveToNext() {
+            boolean moved = super.moveToNext();
+            if (moved) mStats.recordRow();
+            return moved;
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.leo.calendarprovidermanager;
+
+import android.annotation.TargetApi;
+import android.app.job.JobParameters;
+import android.app.job.JobService;
+import android.os.Build;
+import android.os.PersistableBundle;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : API 21 以上执行 CalendarSyncQueue 的 JobService，已在库的 AndroidManifest 中声明
+ * 失败或被系统停止时交给 JobScheduler 按指数退避重新安排。
+ */
+@TargetApi(Build.VERSION_CODES.LOLLIPOP)
+public class CalendarSyncJobService extends JobService {
+    //jobId -> 停止标记
+    private final Map<Integer, AtomicBoolean> mRunningJobs = new HashMap<>();
+
+    @Override
+    public boolean onStartJob(final JobParameters params) {
+        PersistableBundle extras = params.getExtras();
+        final CalendarSyncQueue queue = CalendarSyncService.createQueue(this,
+                extras.getString(SyncScheduler.EXTRA_CALENDAR_NAME),
+                extras.getInt(SyncScheduler.EXTRA_SYNC_ADAPTER, 0) == 1);
+        SyncConstraints constraints = queue.getConstraints();
+        if (!SyncScheduler.isSatisfied(this, constraints)) {
+            //API 26 以下电量低，与 CalendarSyncService 相同稍后再检查；
+            //返回 false 表示任务已结束，此时 jobFinished 的重新安排不会生效
+            SyncScheduler.schedule(this, queue.getCalendarName(), queue.isSyncAdapter(), constraints,
+                    SyncScheduler.CONSTRAINT_RETRY_MILLIS);
+            return false;
+        }
+
+        final AtomicBoolean isStopped = new AtomicBoolean();
+        synchronized (mRunningJobs) {
+            mRunningJobs.put(params.getJobId(), isStopped);
+        }
+        //每次执行都会新建队列对象，按队列名称排队，同一个日历的任务依次执行
+        Future<Integer> future = CalendarExecutor.getDefault().submit(queue.getName(), new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                int count = -1;
+                try {
+                    count = queue.drain(isStopped);
+                    return count;
+                } finally {
+                    synchronized (mRunningJobs) {
+                        mRunningJobs.remove(params.getJobId());
+                    }
+                    //被停止时已由 onStopJob 要求重新安排
+                    if (!isStopped.get()) jobFinished(params, count < 0);
+                }
+            }
+        }, null);
+        if (isRejected(future)) {
+            //线程池队列已满，任务不会执行，结束任务并按退避重新安排，不占用 wakelock 等待系统超时
+            synchronized (mRunningJobs) {
+                mRunningJobs.remove(params.getJobId());
+            }
+            jobFinished(params, true);
+        }
+        return true;
+    }
+
+    /**
+     * CalendarExecutor 拒绝任务时在 submit 中立即完成 Future
+     */
+    private static boolean isRejected(Future<?> future) {
+        if (!future.isDone()) return false;
+        try {
+            future.get();
+            return false;
+        } catch (ExecutionException e) {
+            return e.getCause() instanceof RejectedExecutionException;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    @Override
+    public boolean onStopJob(JobParameters params) {
+        synchronized (mRunningJobs) {
+            AtomicBoolean isStopped = mRunningJobs.get(params.getJobId());
+            if (isStopped != null) isStopped.set(true);
+        }
+        //未执行完的记录保留在队列中，重新安排
+        return true;
+    }
+}
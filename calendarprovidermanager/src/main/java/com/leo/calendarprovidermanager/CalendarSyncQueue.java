@@ -0,0 +1,223 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+
+import androidx.annotation.NonNull;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UnsupportedEncodingException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 持久化的后台修改队列
+ * 修改先写入文件，schedule() 后由 CalendarSyncJobService（API 21 以上）或 CalendarSyncService（API 19、20）
+ * 在后台执行，应用退到后台或进程被杀都不会丢失。每次取 BATCH_SIZE 条在一个批次中提交，成功后写入检查点；
+ * 失败时按指数退避重试。添加事件使用外部 key，重复执行不会产生重复事件。
+ * drain() 可直接调用，如在 JVM 上配合 FakeCalendarProvider 测试。
+ */
+public final class CalendarSyncQueue {
+    //每个批次执行的记录数
+    static final int BATCH_SIZE = 100;
+
+    private static final String PREFERENCES_NAME = "calendar_provider_manager_sync";
+    private static final String ATTEMPT_SUFFIX = "#attempt";
+    private static final String CONSTRAINTS_SUFFIX = "#constraints";
+
+    private final Context mContext;
+    private final CalendarProviderManager mManager;
+    private final String mCalendarName;
+    private final boolean isSyncAdapter;
+    private final String mName;
+    private final SharedPreferences mPreferences;
+    private final SyncQueueFile mFile;
+
+    CalendarSyncQueue(Context context, CalendarProviderManager manager, String calendarName, boolean isSyncAdapter) {
+        mContext = context;
+        mManager = manager;
+        mCalendarName = calendarName;
+        this.isSyncAdapter = isSyncAdapter;
+        mName = queueName(calendarName);
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mFile = new SyncQueueFile(new File(context.getFilesDir(), mName + ".queue"), mPreferences, mName);
+    }
+
+    /**
+     * 日历名称可能包含文件名不允许的字符，也可能很长，使用完整名称的 SHA-1，不同日历的队列文件和检查点不会相同
+     *
+     * @return 队列文件和 SharedPreferences 中使用的名称
+     */
+    static String queueName(String calendarName) {
+        byte[] digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-1")
+                    .digest((calendarName == null ? "" : calendarName).getBytes("UTF-8"));
+        } catch (NoSuchAlgorithmException | UnsupportedEncodingException e) {
+            //所有 Android 版本都支持
+            throw new IllegalStateException(e);
+        }
+        StringBuilder name = new StringBuilder("calendar_sync_");
+        for (byte b : digest) {
+            name.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return name.toString();
+    }
+
+    /**
+     * 按外部 key 添加或覆盖事件，同 CalendarProviderManager.upsertCalendarEvent
+     *
+     * @return 已写入队列
+     */
+    public boolean enqueueUpsert(@NonNull String externalKey, @NonNull EventSpec event) {
+        return append(Collections.singletonList(
+                SyncOperation.upsert(externalKey, EventPatch.of(event, CalendarTimeZones.getDefaultId()))));
+    }
+
+    /**
+     * 批量添加或覆盖事件，如大量导入，一次写入队列
+     *
+     * @param events 外部 key -> 事件
+     */
+    public boolean enqueueUpserts(@NonNull Map<String, EventSpec> events) {
+        String defaultTimeZone = CalendarTimeZones.getDefaultId();
+        List<SyncOperation> operations = new ArrayList<>(events.size());
+        for (Map.Entry<String, EventSpec> entry : events.entrySet()) {
+            operations.add(SyncOperation.upsert(entry.getKey(), EventPatch.of(entry.getValue(), defaultTimeZone)));
+        }
+        return append(operations);
+    }
+
+    /**
+     * 用 event 覆盖事件，同 CalendarProviderManager.updateCalendarEvent
+     */
+    public boolean enqueueUpdate(long eventId, @NonNull EventSpec event) {
+        return append(Collections.singletonList(
+                SyncOperation.patch(eventId, EventPatch.of(event, CalendarTimeZones.getDefaultId()))));
+    }
+
+    /**
+     * 部分更新事件，同 CalendarProviderManager.patchCalendarEvent
+     */
+    public boolean enqueuePatch(long eventId, @NonNull EventPatch patch) {
+        if (patch.isEmpty()) return true;
+        return append(Collections.singletonList(SyncOperation.patch(eventId, patch)));
+    }
+
+    public boolean enqueueDelete(long eventId) {
+        return append(Collections.singletonList(SyncOperation.delete(eventId)));
+    }
+
+    /**
+     * @return 未执行的记录数，-1 表示读取失败
+     */
+    public int getPendingCount() {
+        try {
+            return mFile.pendingCount();
+        } catch (IOException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 安排后台执行，不限制条件
+     */
+    public void schedule() {
+        schedule(SyncConstraints.NONE);
+    }
+
+    /**
+     * 安排后台执行，已安排的任务被替换
+     */
+    public void schedule(@NonNull SyncConstraints constraints) {
+        mPreferences.edit().putInt(mName + CONSTRAINTS_SUFFIX, constraints.toFlags()).apply();
+        SyncScheduler.schedule(mContext, mCalendarName, isSyncAdapter, constraints, 0);
+    }
+
+    /**
+     * 在调用线程上执行全部记录
+     *
+     * @return 执行的记录数，不含 provider 拒绝而跳过的记录；-1 表示失败，已执行的批次不会回滚，检查点之后的记录保留在队列中
+     */
+    public int drain() {
+        return drain(new AtomicBoolean());
+    }
+
+    /**
+     * 同一个队列文件同时只有一处执行，其它调用（如后台任务与直接调用 drain()）等待其完成后从新的检查点继续，
+     * 不会重复执行同一批记录
+     *
+     * @param isStopped 置为 true 时在当前批次完成后停止
+     */
+    int drain(AtomicBoolean isStopped) {
+        synchronized (mFile.drainLock()) {
+            int count = 0;
+            while (!isStopped.get()) {
+                SyncQueueFile.Chunk chunk;
+                try {
+                    chunk = mFile.read(BATCH_SIZE);
+                } catch (IOException e) {
+                    return -1;
+                }
+                if (chunk.mOperations.isEmpty()) {
+                    mFile.commit(chunk);
+                    break;
+                }
+                int applied = mManager.applySyncOperations(chunk.mOperations);
+                if (applied < 0) return -1;
+                mFile.commit(chunk);
+                count += applied;
+            }
+            return count;
+        }
+    }
+
+    SyncConstraints getConstraints() {
+        return SyncConstraints.fromFlags(mPreferences.getInt(mName + CONSTRAINTS_SUFFIX, 0));
+    }
+
+    /**
+     * @return 连续失败的次数，用于计算 API 19、20 上的退避时间
+     */
+    int nextAttempt() {
+        int attempt = mPreferences.getInt(mName + ATTEMPT_SUFFIX, 0) + 1;
+        mPreferences.edit().putInt(mName + ATTEMPT_SUFFIX, attempt).apply();
+        return attempt;
+    }
+
+    void resetAttempts() {
+        mPreferences.edit().remove(mName + ATTEMPT_SUFFIX).apply();
+    }
+
+    String getCalendarName() {
+        return mCalendarName;
+    }
+
+    /**
+     * @return 队列名称，同一个日历的队列相同，用作 CalendarExecutor 的顺序 key
+     */
+    String getName() {
+        return mName;
+    }
+
+    boolean isSyncAdapter() {
+        return isSyncAdapter;
+    }
+
+    private boolean append(List<SyncOperation> operations) {
+        try {
+            mFile.append(operations);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+}
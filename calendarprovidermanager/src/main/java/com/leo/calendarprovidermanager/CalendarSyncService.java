@@ -0,0 +1,49 @@
+package com.leo.calendarprovidermanager;
+
+import android.app.IntentService;
+import android.content.Context;
+import android.content.Intent;
+import android.text.TextUtils;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : API 19、20 上执行 CalendarSyncQueue 的 Service，由 AlarmManager 启动，已在库的 AndroidManifest 中声明
+ * 执行前检查电池条件，不满足时 SyncScheduler.CONSTRAINT_RETRY_MILLIS 后再检查；失败时按指数退避重新安排。
+ */
+public class CalendarSyncService extends IntentService {
+
+    public CalendarSyncService() {
+        super("CalendarSyncService");
+    }
+
+    @Override
+    protected void onHandleIntent(Intent intent) {
+        if (intent == null) return;
+        CalendarSyncQueue queue = createQueue(this, intent.getStringExtra(SyncScheduler.EXTRA_CALENDAR_NAME),
+                intent.getBooleanExtra(SyncScheduler.EXTRA_SYNC_ADAPTER, false));
+        SyncConstraints constraints = queue.getConstraints();
+        if (!SyncScheduler.isSatisfied(this, constraints)) {
+            SyncScheduler.schedule(this, queue.getCalendarName(), queue.isSyncAdapter(), constraints,
+                    SyncScheduler.CONSTRAINT_RETRY_MILLIS);
+            return;
+        }
+
+        if (queue.drain() < 0) {
+            SyncScheduler.schedule(this, queue.getCalendarName(), queue.isSyncAdapter(), constraints,
+                    SyncScheduler.backoffMillis(queue.nextAttempt()));
+        } else {
+            queue.resetAttempts();
+        }
+    }
+
+    /**
+     * 按任务参数创建与 schedule 时相同的队列
+     */
+    static CalendarSyncQueue createQueue(Context context, String calendarName, boolean isSyncAdapter) {
+        CalendarProviderManager.Builder builder = new CalendarProviderManager.Builder(context)
+                .setSyncAdapter(isSyncAdapter);
+        if (!TextUtils.isEmpty(calendarName)) builder.setCalendarName(calendarName);
+        return builder.build().getSyncQueue();
+    }
+}
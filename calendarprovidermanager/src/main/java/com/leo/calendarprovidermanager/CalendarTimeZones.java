@@ -0,0 +1,44 @@
+package com.leo.calendarprovidermanager;
+
+import java.util.TimeZone;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 时区解析与缓存
+ * TimeZone.getTimeZone 每次都会读取时区数据，这里按 id 缓存解析结果，同一个时区只解析一次。
+ * 设备时区可能随时改变，不缓存；每个操作开始时读取一次，批量写入的所有事件共用。
+ */
+final class CalendarTimeZones {
+    static final String UTC = "UTC";
+
+    private static final ConcurrentHashMap<String, TimeZone> sTimeZones = new ConcurrentHashMap<>();
+
+    private CalendarTimeZones() {
+    }
+
+    /**
+     * @return id 对应的时区，未知 id 返回 null
+     */
+    static TimeZone get(String id) {
+        TimeZone timeZone = sTimeZones.get(id);
+        if (timeZone != null) return timeZone;
+        timeZone = TimeZone.getTimeZone(id);
+        //未知 id 会得到 GMT
+        if (!timeZone.getID().equals(id)) return null;
+        TimeZone cached = sTimeZones.putIfAbsent(id, timeZone);
+        return cached != null ? cached : timeZone;
+    }
+
+    static boolean isValid(String id) {
+        return id != null && get(id) != null;
+    }
+
+    /**
+     * @return 设备当前时区 id
+     */
+    static String getDefaultId() {
+        return TimeZone.getDefault().getID();
+    }
+}
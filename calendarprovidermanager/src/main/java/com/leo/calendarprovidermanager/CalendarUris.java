@@ -0,0 +1,116 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentUris;
+import android.net.Uri;
+import android.provider.CalendarContract;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 写入使用的 URI
+ * sync adapter 模式下带 CALLER_IS_SYNCADAPTER、ACCOUNT_NAME、ACCOUNT_TYPE 参数：
+ * 写入不会把事件标记为 DIRTY，删除直接删除行而不是留下 DELETED=1 的墓碑。
+ * 查询不需要这些参数，直接使用 CalendarContract 中的 URI。
+ * ExtendedProperties 表只允许 sync adapter 写入，有账户时始终使用 sync adapter URI。
+ */
+final class CalendarUris {
+    static final CalendarUris DEFAULT = new CalendarUris(CalendarContract.Calendars.CONTENT_URI,
+            CalendarContract.Events.CONTENT_URI, CalendarContract.Reminders.CONTENT_URI,
+            CalendarContract.Attendees.CONTENT_URI, CalendarContract.Events.CONTENT_EXCEPTION_URI, null);
+
+    private final Uri mCalendars;
+    private final Uri mEvents;
+    private final Uri mReminders;
+    private final Uri mAttendees;
+    private final Uri mExceptions;
+    //未知账户时为 null
+    private final Uri mExtendedProperties;
+
+    private CalendarUris(Uri calendars, Uri events, Uri reminders, Uri attendees, Uri exceptions,
+                         Uri extendedProperties) {
+        mCalendars = calendars;
+        mEvents = events;
+        mReminders = reminders;
+        mAttendees = attendees;
+        mExceptions = exceptions;
+        mExtendedProperties = extendedProperties;
+    }
+
+    /**
+     * 以普通应用身份写入，扩展属性以账户的 sync adapter 身份写入
+     */
+    static CalendarUris forAccount(String accountName, String accountType) {
+        return new CalendarUris(CalendarContract.Calendars.CONTENT_URI, CalendarContract.Events.CONTENT_URI,
+                CalendarContract.Reminders.CONTENT_URI, CalendarContract.Attendees.CONTENT_URI,
+                CalendarContract.Events.CONTENT_EXCEPTION_URI,
+                asSyncAdapter(CalendarContract.ExtendedProperties.CONTENT_URI, accountName, accountType));
+    }
+
+    /**
+     * 以日历账户自身的 sync adapter 身份写入
+     */
+    static CalendarUris syncAdapter(String accountName, String accountType) {
+        return new CalendarUris(asSyncAdapter(CalendarContract.Calendars.CONTENT_URI, accountName, accountType),
+                asSyncAdapter(CalendarContract.Events.CONTENT_URI, accountName, accountType),
+                asSyncAdapter(CalendarContract.Reminders.CONTENT_URI, accountName, accountType),
+                asSyncAdapter(CalendarContract.Attendees.CONTENT_URI, accountName, accountType),
+                asSyncAdapter(CalendarContract.Events.CONTENT_EXCEPTION_URI, accountName, accountType),
+                asSyncAdapter(CalendarContract.ExtendedProperties.CONTENT_URI, accountName, accountType));
+    }
+
+    static Uri asSyncAdapter(Uri uri, String accountName, String accountType) {
+        return uri.buildUpon()
+                .appendQueryParameter(CalendarContract.CALLER_IS_SYNCADAPTER, "true")
+                .appendQueryParameter(CalendarContract.Calendars.ACCOUNT_NAME, accountName)
+                .appendQueryParameter(CalendarContract.Calendars.ACCOUNT_TYPE, accountType)
+                .build();
+    }
+
+    Uri calendars() {
+        return mCalendars;
+    }
+
+    Uri events() {
+        return mEvents;
+    }
+
+    Uri event(long eventId) {
+        return ContentUris.withAppendedId(mEvents, eventId);
+    }
+
+    Uri reminders() {
+        return mReminders;
+    }
+
+    Uri reminder(long reminderId) {
+        return ContentUris.withAppendedId(mReminders, reminderId);
+    }
+
+    Uri attendees() {
+        return mAttendees;
+    }
+
+    Uri attendee(long attendeeId) {
+        return ContentUris.withAppendedId(mAttendees, attendeeId);
+    }
+
+    /**
+     * @throws IllegalStateException 未设置日历名称，无法以 sync adapter 身份写入
+     */
+    Uri extendedProperties() {
+        if (mExtendedProperties == null)
+            throw new IllegalStateException("Extended properties require a calendar name");
+        return mExtendedProperties;
+    }
+
+    Uri extendedProperty(long propertyId) {
+        return ContentUris.withAppendedId(extendedProperties(), propertyId);
+    }
+
+    /**
+     * @param eventId 重复事件 id
+     */
+    Uri exception(long eventId) {
+        return ContentUris.withAppendedId(mExceptions, eventId);
+    }
+}
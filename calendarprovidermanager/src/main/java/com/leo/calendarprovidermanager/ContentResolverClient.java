@@ -0,0 +1,65 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentResolver;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.net.Uri;
+import android.os.RemoteException;
+import android.provider.CalendarContract;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 默认的 provider 访问实现，直接转发给系统 ContentResolver
+ */
+final class ContentResolverClient implements CalendarProviderClient {
+    private final ContentResolver mResolver;
+
+    ContentResolverClient(ContentResolver resolver) {
+        mResolver = resolver;
+    }
+
+    @Override
+    public Cursor query(@NonNull Uri uri, String[] projection, String selection, String[] selectionArgs, String sortOrder) {
+        return mResolver.query(uri, projection, selection, selectionArgs, sortOrder);
+    }
+
+    @Override
+    public Uri insert(@NonNull Uri uri, ContentValues values) {
+        return mResolver.insert(uri, values);
+    }
+
+    @Override
+    public int update(@NonNull Uri uri, ContentValues values, String selection, String[] selectionArgs) {
+        return mResolver.update(uri, values, selection, selectionArgs);
+    }
+
+    @Override
+    public int delete(@NonNull Uri uri, String selection, String[] selectionArgs) {
+        return mResolver.delete(uri, selection, selectionArgs);
+    }
+
+    @Override
+    public ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+            throws RemoteException, OperationApplicationException {
+        return mResolver.applyBatch(CalendarContract.AUTHORITY, operations);
+    }
+
+    @Override
+    public void registerContentObserver(@NonNull Uri uri, boolean notifyForDescendants, @NonNull ContentObserver observer) {
+        mResolver.registerContentObserver(uri, notifyForDescendants, observer);
+    }
+
+    @Override
+    public void unregisterContentObserver(@NonNull ContentObserver observer) {
+        mResolver.unregisterContentObserver(observer);
+    }
+}
@@ -0,0 +1,86 @@
+package com.leo.calendarprovidermanager;
+
+import android.provider.CalendarContract;
+
+import androidx.annotation.NonNull;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 事件参与人，对应 Attendees 表的一行，同一事件中按邮箱区分
+ */
+public final class EventAttendee {
+    private final String mEmail;
+    private final String mName;
+    private final int mRelationship;
+    private final int mType;
+    private final int mStatus;
+
+    /**
+     * @param relationship 如 CalendarContract.Attendees.RELATIONSHIP_ATTENDEE、RELATIONSHIP_ORGANIZER
+     * @param type         如 CalendarContract.Attendees.TYPE_REQUIRED、TYPE_OPTIONAL
+     * @param status       如 CalendarContract.Attendees.ATTENDEE_STATUS_INVITED、ATTENDEE_STATUS_ACCEPTED
+     */
+    public EventAttendee(@NonNull String email, String name, int relationship, int type, int status) {
+        mEmail = email;
+        mName = name;
+        mRelationship = relationship;
+        mType = type;
+        mStatus = status;
+    }
+
+    /**
+     * 必须参加的受邀人，状态为已邀请
+     */
+    public EventAttendee(@NonNull String email, String name) {
+        this(email, name, CalendarContract.Attendees.RELATIONSHIP_ATTENDEE,
+                CalendarContract.Attendees.TYPE_REQUIRED, CalendarContract.Attendees.ATTENDEE_STATUS_INVITED);
+    }
+
+    public String getEmail() {
+        return mEmail;
+    }
+
+    public String getName() {
+        return mName;
+    }
+
+    public int getRelationship() {
+        return mRelationship;
+    }
+
+    public int getType() {
+        return mType;
+    }
+
+    public int getStatus() {
+        return mStatus;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EventAttendee)) return false;
+        EventAttendee that = (EventAttendee) o;
+        return mEmail.equals(that.mEmail)
+                && (mName == null ? that.mName == null : mName.equals(that.mName))
+                && mRelationship == that.mRelationship
+                && mType == that.mType
+                && mStatus == that.mStatus;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = mEmail.hashCode();
+        result = 31 * result + (mName == null ? 0 : mName.hashCode());
+        result = 31 * result + mRelationship;
+        result = 31 * result + mType;
+        return 31 * result + mStatus;
+    }
+
+    @Override
+    public String toString() {
+        return "EventAttendee{email=" + mEmail + ", name=" + mName + ", relationship=" + mRelationship
+                + ", type=" + mType + ", status=" + mStatus + '}';
+    }
+}
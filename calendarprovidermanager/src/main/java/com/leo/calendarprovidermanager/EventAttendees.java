@@ -0,0 +1,118 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentProviderOperation;
+import android.database.Cursor;
+import android.provider.CalendarContract;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : Attendees 表的读取与写入操作
+ */
+final class EventAttendees {
+    private static final String[] PROJECTION = new String[]{
+            CalendarContract.Attendees._ID,
+            CalendarContract.Attendees.EVENT_ID,
+            CalendarContract.Attendees.ATTENDEE_EMAIL,
+            CalendarContract.Attendees.ATTENDEE_NAME,
+            CalendarContract.Attendees.ATTENDEE_RELATIONSHIP,
+            CalendarContract.Attendees.ATTENDEE_TYPE,
+            CalendarContract.Attendees.ATTENDEE_STATUS
+    };
+
+    private EventAttendees() {
+    }
+
+    /**
+     * @param eventIndex 同一批次中插入事件的操作位置
+     */
+    static ContentProviderOperation insertWithBackReference(CalendarUris uris, int eventIndex,
+                                                            EventAttendee attendee) {
+        return newInsert(uris, attendee)
+                .withValueBackReference(CalendarContract.Attendees.EVENT_ID, eventIndex)
+                .build();
+    }
+
+    private static ContentProviderOperation.Builder newInsert(CalendarUris uris, EventAttendee attendee) {
+        return ContentProviderOperation.newInsert(uris.attendees())
+                .withValue(CalendarContract.Attendees.ATTENDEE_EMAIL, attendee.getEmail())
+                .withValue(CalendarContract.Attendees.ATTENDEE_NAME, attendee.getName())
+                .withValue(CalendarContract.Attendees.ATTENDEE_RELATIONSHIP, attendee.getRelationship())
+                .withValue(CalendarContract.Attendees.ATTENDEE_TYPE, attendee.getType())
+                .withValue(CalendarContract.Attendees.ATTENDEE_STATUS, attendee.getStatus());
+    }
+
+    /**
+     * 分段查询多个事件的参与人，每段一次 IN 查询
+     *
+     * @return eventId -> (参与人行 _ID -> 参与人)
+     */
+    static Map<Long, Map<Long, EventAttendee>> query(CalendarResolver resolver, List<Long> eventIds) {
+        Map<Long, Map<Long, EventAttendee>> attendees = new HashMap<>();
+        for (int from = 0; from < eventIds.size(); from += Selections.MAX_IN_ARGUMENTS) {
+            int to = Math.min(eventIds.size(), from + Selections.MAX_IN_ARGUMENTS);
+            Cursor cursor = resolver.query(CalendarContract.Attendees.CONTENT_URI, PROJECTION,
+                    Selections.in(CalendarContract.Attendees.EVENT_ID, to - from),
+                    Selections.args(eventIds, from, to), null);
+            if (cursor == null) continue;
+            try {
+                while (cursor.moveToNext()) {
+                    long eventId = cursor.getLong(1);
+                    Map<Long, EventAttendee> rows = attendees.get(eventId);
+                    if (rows == null) {
+                        rows = new LinkedHashMap<>();
+                        attendees.put(eventId, rows);
+                    }
+                    String email = cursor.getString(2);
+                    rows.put(cursor.getLong(0), new EventAttendee(email == null ? "" : email, cursor.getString(3),
+                            cursor.getInt(4), cursor.getInt(5), cursor.getInt(6)));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return attendees;
+    }
+
+    /**
+     * 计算把现有参与人替换为 desired 所需的操作，按邮箱对应：
+     * 未变化的不重写，有变化的原地更新，保留行 _ID 和 provider 记录的其它列
+     *
+     * @param existing 参与人行 _ID -> 参与人，可为 null
+     * @return 删除、更新、插入操作，无变化时为空
+     */
+    static OperationList diff(CalendarUris uris, long eventId, Map<Long, EventAttendee> existing,
+                              List<EventAttendee> desired) {
+        Map<String, EventAttendee> missing = new LinkedHashMap<>();
+        for (EventAttendee attendee : desired) {
+            missing.put(attendee.getEmail(), attendee);
+        }
+        OperationList operations = new OperationList();
+        if (existing != null) {
+            for (Map.Entry<Long, EventAttendee> row : existing.entrySet()) {
+                EventAttendee attendee = missing.remove(row.getValue().getEmail());
+                if (attendee == null) {
+                    operations.delete(ContentProviderOperation.newDelete(uris.attendee(row.getKey())).build());
+                } else if (!attendee.equals(row.getValue())) {
+                    operations.update(ContentProviderOperation.newUpdate(uris.attendee(row.getKey()))
+                            .withValue(CalendarContract.Attendees.ATTENDEE_NAME, attendee.getName())
+                            .withValue(CalendarContract.Attendees.ATTENDEE_RELATIONSHIP, attendee.getRelationship())
+                            .withValue(CalendarContract.Attendees.ATTENDEE_TYPE, attendee.getType())
+                            .withValue(CalendarContract.Attendees.ATTENDEE_STATUS, attendee.getStatus())
+                            .build());
+                }
+            }
+        }
+        for (EventAttendee attendee : missing.values()) {
+            operations.insert(newInsert(uris, attendee)
+                    .withValue(CalendarContract.Attendees.EVENT_ID, eventId)
+                    .build());
+        }
+        return operations;
+    }
+}
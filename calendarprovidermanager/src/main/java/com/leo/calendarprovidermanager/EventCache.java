@@ -0,0 +1,94 @@
+package com.leo.calendarprovidermanager;
+
+import android.database.ContentObserver;
+import android.provider.CalendarContract;
+import android.util.LruCache;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : eventId -> EventSnapshot 的 LRU 缓存，容量按估算的字节数计算
+ * 通过本实例写入的事件在写入后立即失效；其它应用的修改通过 Events、Reminders、Attendees、ExtendedProperties 上的 ContentObserver 整体失效。
+ * 与 CalendarAccountCache 相同，查询期间发生过失效的结果不写入缓存。
+ * ContentObserver 由 client 持有，不再使用时调用 close() 注销，之后不再缓存。
+ */
+final class EventCache {
+    private final LruCache<Long, EventSnapshot> mSnapshots;
+    //每次失效加一，用于丢弃失效前发起的查询结果
+    private final AtomicInteger mGeneration = new AtomicInteger();
+    private final CalendarProviderClient mClient;
+    private final ContentObserver mObserver;
+    private volatile boolean isClosed;
+
+    /**
+     * @param maxSize 容量 字节
+     */
+    EventCache(CalendarProviderClient client, int maxSize) {
+        mSnapshots = new LruCache<Long, EventSnapshot>(maxSize) {
+            @Override
+            protected int sizeOf(Long key, EventSnapshot value) {
+                return value.estimateSize();
+            }
+        };
+        mClient = client;
+        mObserver = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                invalidateAll();
+            }
+        };
+        client.registerContentObserver(CalendarContract.Events.CONTENT_URI, true, mObserver);
+        client.registerContentObserver(CalendarContract.Reminders.CONTENT_URI, true, mObserver);
+        client.registerContentObserver(CalendarContract.Attendees.CONTENT_URI, true, mObserver);
+        client.registerContentObserver(CalendarContract.ExtendedProperties.CONTENT_URI, true, mObserver);
+    }
+
+    /**
+     * 注销 ContentObserver 并清空缓存，之后收不到其它应用的修改，不再写入缓存
+     */
+    void close() {
+        if (isClosed) return;
+        isClosed = true;
+        mClient.unregisterContentObserver(mObserver);
+        invalidateAll();
+    }
+
+    /**
+     * @return 缓存的快照，null 表示未缓存，计入命中/未命中次数
+     */
+    EventSnapshot get(long eventId) {
+        return mSnapshots.get(eventId);
+    }
+
+    /**
+     * 查询前读取，put 时传回，查询期间发生过失效则不写入缓存
+     */
+    int generation() {
+        return mGeneration.get();
+    }
+
+    void put(EventSnapshot snapshot, int generation) {
+        if (isClosed) return;
+        mSnapshots.put(snapshot.getEventId(), snapshot);
+        if (generation != mGeneration.get()) {
+            mSnapshots.remove(snapshot.getEventId());
+        }
+    }
+
+    void invalidate(long eventId) {
+        mGeneration.incrementAndGet();
+        mSnapshots.remove(eventId);
+    }
+
+    void invalidateAll() {
+        mGeneration.incrementAndGet();
+        mSnapshots.evictAll();
+    }
+
+    EventCacheStats stats() {
+        return new EventCacheStats(mSnapshots.hitCount(), mSnapshots.missCount(), mSnapshots.evictionCount(),
+                mSnapshots.size(), mSnapshots.maxSize());
+    }
+}
@@ -0,0 +1,57 @@
+package com.leo.calendarprovidermanager;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 事件快照缓存的统计数据，取值时的副本
+ */
+public final class EventCacheStats {
+    private final int mHitCount;
+    private final int mMissCount;
+    private final int mEvictionCount;
+    private final int mSize;
+    private final int mMaxSize;
+
+    EventCacheStats(int hitCount, int missCount, int evictionCount, int size, int maxSize) {
+        mHitCount = hitCount;
+        mMissCount = missCount;
+        mEvictionCount = evictionCount;
+        mSize = size;
+        mMaxSize = maxSize;
+    }
+
+    public int getHitCount() {
+        return mHitCount;
+    }
+
+    public int getMissCount() {
+        return mMissCount;
+    }
+
+    /**
+     * @return 被移除的快照数，包括容量不足和整体失效时移除的
+     */
+    public int getEvictionCount() {
+        return mEvictionCount;
+    }
+
+    /**
+     * @return 当前占用 字节（估算）
+     */
+    public int getSize() {
+        return mSize;
+    }
+
+    /**
+     * @return 容量 字节
+     */
+    public int getMaxSize() {
+        return mMaxSize;
+    }
+
+    @Override
+    public String toString() {
+        return "EventCacheStats{hit=" + mHitCount + ", miss=" + mMissCount + ", eviction=" + mEvictionCount
+                + ", size=" + mSize + "/" + mMaxSize + '}';
+    }
+}
@@ -0,0 +1,198 @@
+package com.leo.calendarprovidermanager;
+
+import android.database.ContentObserver;
+import android.database.Cursor;
+import android.os.Handler;
+import android.os.Looper;
+import android.provider.CalendarContract;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 日历事件变化订阅
+ * 在 Events、Reminders 上注册 ContentObserver，一段时间内的多次通知合并为一次扫描，
+ * 与上次快照比对后只回调变化的事件 id，调用方不需要反复查询。
+ * 本地账户的 DIRTY 在写入后不会被清除，无法用来判断变化，因此比对的是每个事件内容和提醒的指纹。
+ * 通知不区分来源，本实例自己的写入也会回调。
+ */
+public final class EventChangeFeed {
+    //默认合并通知的时间 毫秒
+    static final long DEFAULT_DEBOUNCE_MILLIS = 500;
+
+    private static final String[] PROJECTION = new String[]{
+            CalendarContract.Events._ID,
+            CalendarContract.Events.TITLE,
+            CalendarContract.Events.DESCRIPTION,
+            CalendarContract.Events.EVENT_LOCATION,
+            CalendarContract.Events.DTSTART,
+            CalendarContract.Events.DTEND,
+            CalendarContract.Events.DURATION,
+            CalendarContract.Events.EVENT_TIMEZONE,
+            CalendarContract.Events.ALL_DAY,
+            CalendarContract.Events.RRULE,
+            CalendarContract.Events.RDATE,
+            CalendarContract.Events.EXDATE,
+            CalendarContract.Events.STATUS,
+            CalendarContract.Events.AVAILABILITY,
+            CalendarContract.Events.HAS_ALARM
+    };
+
+    /**
+     * 读取当前快照，由 CalendarProviderManager 提供
+     */
+    interface Source {
+        /**
+         * @return eventId -> 指纹，null 表示读取失败
+         */
+        Map<Long, Long> snapshot();
+    }
+
+    private final CalendarProviderClient mClient;
+    private final Source mSource;
+    private final EventChangeListener mListener;
+    private final CalendarExecutor mExecutor;
+    private final long mDebounceMillis;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final ContentObserver mObserver = new ContentObserver(null) {
+        @Override
+        public void onChange(boolean selfChange) {
+            if (isClosed) return;
+            mMainHandler.removeCallbacks(mScanRunnable);
+            mMainHandler.postDelayed(mScanRunnable, mDebounceMillis);
+        }
+    };
+    private final Runnable mScanRunnable = new Runnable() {
+        @Override
+        public void run() {
+            scan();
+        }
+    };
+    private volatile boolean isClosed;
+
+    //只在 mExecutor 上以本实例为 key 串行访问
+    private Map<Long, Long> mSnapshot;
+
+    /**
+     * @param snapshot 调用方在读取自己的数据前取得的快照，之后的变化都会回调；null 时在注册后读取初始快照
+     */
+    EventChangeFeed(CalendarProviderClient client, Source source, EventChangeListener listener,
+                    CalendarExecutor executor, long debounceMillis, Map<Long, Long> snapshot) {
+        mClient = client;
+        mSource = source;
+        mListener = listener;
+        mExecutor = executor;
+        mDebounceMillis = debounceMillis;
+        mSnapshot = snapshot;
+        client.registerContentObserver(CalendarContract.Events.CONTENT_URI, true, mObserver);
+        client.registerContentObserver(CalendarContract.Reminders.CONTENT_URI, true, mObserver);
+        //先取初始快照，之后的回调都是相对它的变化；已有快照时回调快照之后注册之前的变化
+        scan();
+    }
+
+    /**
+     * 取消订阅，已开始的扫描结果不再回调
+     */
+    public void close() {
+        isClosed = true;
+        mClient.unregisterContentObserver(mObserver);
+        mMainHandler.removeCallbacks(mScanRunnable);
+    }
+
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    private void scan() {
+        if (isClosed) return;
+        mExecutor.submit(this, new Callable<EventChanges>() {
+            @Override
+            public EventChanges call() {
+                return isClosed ? null : diff();
+            }
+        }, new CalendarCallback<EventChanges>() {
+            @Override
+            public void onSuccess(EventChanges result) {
+                if (result != null && !isClosed) mListener.onEventsChanged(result);
+            }
+
+            @Override
+            public void onFailure(Throwable throwable) {
+                //线程池已满时放弃这次扫描，下一次通知会重新比对
+            }
+        });
+    }
+
+    /**
+     * @return 与上次快照的差异，首次扫描、读取失败或无变化时为 null
+     */
+    private EventChanges diff() {
+        Map<Long, Long> current = mSource.snapshot();
+        if (current == null) return null;
+        Map<Long, Long> previous = mSnapshot;
+        mSnapshot = current;
+        if (previous == null) return null;
+
+        Set<Long> added = new HashSet<>();
+        Set<Long> updated = new HashSet<>();
+        for (Map.Entry<Long, Long> entry : current.entrySet()) {
+            Long fingerprint = previous.get(entry.getKey());
+            if (fingerprint == null) {
+                added.add(entry.getKey());
+            } else if (!fingerprint.equals(entry.getValue())) {
+                updated.add(entry.getKey());
+            }
+        }
+        Set<Long> deleted = new HashSet<>();
+        for (Long eventId : previous.keySet()) {
+            if (!current.containsKey(eventId)) deleted.add(eventId);
+        }
+        EventChanges changes = new EventChanges(added, updated, deleted);
+        return changes.isEmpty() ? null : changes;
+    }
+
+    /**
+     * 读取日历中所有未删除事件的指纹，包括提醒
+     *
+     * @return eventId -> 指纹，查询失败时为 null
+     */
+    static Map<Long, Long> snapshot(CalendarResolver resolver, long calendarId) {
+        Cursor cursor = resolver.query(CalendarContract.Events.CONTENT_URI, PROJECTION,
+                CalendarContract.Events.CALENDAR_ID + "=? AND " + CalendarContract.Events.DELETED + "=0",
+                new String[]{String.valueOf(calendarId)}, null);
+        if (cursor == null) return null;
+        Map<Long, Long> fingerprints = new HashMap<>(cursor.getCount() * 4 / 3 + 1);
+        try {
+            while (cursor.moveToNext()) {
+                long fingerprint = 17;
+                for (int i = 1; i < PROJECTION.length; i++) {
+                    String value = cursor.getString(i);
+                    fingerprint = fingerprint * 31 + (value == null ? 0 : value.hashCode());
+                }
+                fingerprints.put(cursor.getLong(0), fingerprint);
+            }
+        } finally {
+            cursor.close();
+        }
+        if (fingerprints.isEmpty()) return fingerprints;
+
+        List<Long> eventIds = new ArrayList<>(fingerprints.keySet());
+        for (Map.Entry<Long, Map<Long, EventReminder>> entry : EventReminders.query(resolver, eventIds).entrySet()) {
+            //提醒行的顺序不影响指纹
+            long reminders = 0;
+            for (EventReminder reminder : entry.getValue().values()) {
+                reminders += reminder.hashCode();
+            }
+            Long fingerprint = fingerprints.get(entry.getKey());
+            fingerprints.put(entry.getKey(), fingerprint * 31 + reminders);
+        }
+        return fingerprints;
+    }
+}
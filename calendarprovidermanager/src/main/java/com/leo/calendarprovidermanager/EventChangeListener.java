@@ -0,0 +1,11 @@
+package com.leo.calendarprovidermanager;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 日历事件变化监听，在主线程回调，只在有变化时回调
+ */
+public interface EventChangeListener {
+
+    void onEventsChanged(EventChanges changes);
+}
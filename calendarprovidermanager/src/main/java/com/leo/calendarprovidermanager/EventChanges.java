@@ -0,0 +1,51 @@
+package com.leo.calendarprovidermanager;
+
+import java.util.Collections;
+import java.util.Set;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 两次快照之间发生变化的事件 id
+ */
+public final class EventChanges {
+    private final Set<Long> mAddedIds;
+    private final Set<Long> mUpdatedIds;
+    private final Set<Long> mDeletedIds;
+
+    EventChanges(Set<Long> addedIds, Set<Long> updatedIds, Set<Long> deletedIds) {
+        mAddedIds = Collections.unmodifiableSet(addedIds);
+        mUpdatedIds = Collections.unmodifiableSet(updatedIds);
+        mDeletedIds = Collections.unmodifiableSet(deletedIds);
+    }
+
+    /**
+     * @return 新增的事件，包括重复事件新增的例外事件
+     */
+    public Set<Long> getAddedIds() {
+        return mAddedIds;
+    }
+
+    /**
+     * @return 内容或提醒被修改的事件
+     */
+    public Set<Long> getUpdatedIds() {
+        return mUpdatedIds;
+    }
+
+    /**
+     * @return 被删除的事件，包括等待同步删除的事件
+     */
+    public Set<Long> getDeletedIds() {
+        return mDeletedIds;
+    }
+
+    public boolean isEmpty() {
+        return mAddedIds.isEmpty() && mUpdatedIds.isEmpty() && mDeletedIds.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "EventChanges{added=" + mAddedIds + ", updated=" + mUpdatedIds + ", deleted=" + mDeletedIds + '}';
+    }
+}
@@ -0,0 +1,100 @@
+package com.leo.calendarprovidermanager;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 一批 EventPatch 需要比对的现有提醒、参与人、扩展属性
+ * 先用 add 登记每个修改，query 时每张表分段一次 IN 查询，只查询有修改设置了的表。
+ */
+final class EventChildRows {
+    private final Set<Long> mReminderEventIds = new LinkedHashSet<>();
+    private final Set<Long> mAttendeeEventIds = new LinkedHashSet<>();
+    private final Set<Long> mPropertyEventIds = new LinkedHashSet<>();
+    private Map<Long, Map<Long, EventReminder>> mReminders = Collections.emptyMap();
+    private Map<Long, Map<Long, EventAttendee>> mAttendees = Collections.emptyMap();
+    private Map<Long, Map<Long, String[]>> mProperties = Collections.emptyMap();
+
+    void add(long eventId, EventPatch patch) {
+        if (patch.hasReminders()) mReminderEventIds.add(eventId);
+        if (patch.hasAttendees()) mAttendeeEventIds.add(eventId);
+        if (patch.hasExtendedProperties()) mPropertyEventIds.add(eventId);
+    }
+
+    void query(CalendarResolver resolver) {
+        if (!mReminderEventIds.isEmpty()) {
+            mReminders = EventReminders.query(resolver, new ArrayList<>(mReminderEventIds));
+        }
+        if (!mAttendeeEventIds.isEmpty()) {
+            mAttendees = EventAttendees.query(resolver, new ArrayList<>(mAttendeeEventIds));
+        }
+        if (!mPropertyEventIds.isEmpty()) {
+            mProperties = EventProperties.query(resolver, new ArrayList<>(mPropertyEventIds));
+        }
+    }
+
+    /**
+     * @return 把事件的现有子行改为 patch 中设置的子行所需的操作，无变化时为空
+     */
+    OperationList diff(CalendarUris uris, long eventId, EventPatch patch) {
+        OperationList operations = new OperationList();
+        if (patch.hasReminders()) {
+            operations.addAll(EventReminders.diff(uris, eventId, mReminders.get(eventId), patch.getReminders()));
+        }
+        if (patch.hasAttendees()) {
+            operations.addAll(EventAttendees.diff(uris, eventId, mAttendees.get(eventId), patch.getAttendees()));
+        }
+        if (patch.hasExtendedProperties()) {
+            operations.addAll(EventProperties.diff(uris, eventId, mProperties.get(eventId),
+                    patch.getExtendedProperties()));
+        }
+        return operations;
+    }
+
+    /**
+     * @return insert 生成的操作数
+     */
+    static int insertCount(EventPatch patch) {
+        int count = 0;
+        if (patch.hasReminders()) count += patch.getReminders().size();
+        if (patch.hasAttendees()) count += patch.getAttendees().size();
+        if (patch.hasExtendedProperties()) {
+            for (String value : patch.getExtendedProperties().values()) {
+                if (value != null) count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * 新插入的事件没有现有子行，直接插入 patch 中设置的子行
+     *
+     * @param eventIndex 同一批次中插入事件的操作位置
+     */
+    static OperationList insert(CalendarUris uris, int eventIndex, EventPatch patch) {
+        OperationList operations = new OperationList();
+        if (patch.hasReminders()) {
+            for (EventReminder reminder : patch.getReminders()) {
+                operations.insert(EventReminders.insertWithBackReference(uris, eventIndex, reminder));
+            }
+        }
+        if (patch.hasAttendees()) {
+            for (EventAttendee attendee : patch.getAttendees()) {
+                operations.insert(EventAttendees.insertWithBackReference(uris, eventIndex, attendee));
+            }
+        }
+        if (patch.hasExtendedProperties()) {
+            for (Map.Entry<String, String> property : patch.getExtendedProperties().entrySet()) {
+                if (property.getValue() == null) continue;
+                operations.insert(EventProperties.insertWithBackReference(uris, eventIndex,
+                        property.getKey(), property.getValue()));
+            }
+        }
+        return operations;
+    }
+}
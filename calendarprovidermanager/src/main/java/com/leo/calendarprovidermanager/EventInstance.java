@@ -0,0 +1,70 @@
+package com.leo.calendarprovidermanager;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 日历事件的一次发生（Instances 表中的一行），重复事件的每次发生对应一个实例
+ */
+public final class EventInstance {
+    private final long mEventId;
+    private final long mBegin;
+    private final long mEnd;
+    private final boolean isAllDay;
+    private final String mEventTitle;
+    private final String mEventDescription;
+    private final long mCalendarId;
+
+    EventInstance(long eventId, long begin, long end, boolean isAllDay, String eventTitle, String eventDescription,
+                  long calendarId) {
+        mEventId = eventId;
+        mBegin = begin;
+        mEnd = end;
+        this.isAllDay = isAllDay;
+        mEventTitle = eventTitle;
+        mEventDescription = eventDescription;
+        mCalendarId = calendarId;
+    }
+
+    public long getEventId() {
+        return mEventId;
+    }
+
+    /**
+     * @return 本次发生的开始时间 时间戳
+     */
+    public long getBegin() {
+        return mBegin;
+    }
+
+    /**
+     * @return 本次发生的结束时间 时间戳
+     */
+    public long getEnd() {
+        return mEnd;
+    }
+
+    public boolean isAllDay() {
+        return isAllDay;
+    }
+
+    public String getEventTitle() {
+        return mEventTitle;
+    }
+
+    public String getEventDescription() {
+        return mEventDescription;
+    }
+
+    /**
+     * @return 所属日历的 Calendars._ID，用于区分 MultiCalendarManager 合并后的结果
+     */
+    public long getCalendarId() {
+        return mCalendarId;
+    }
+
+    @Override
+    public String toString() {
+        return "EventInstance{eventId=" + mEventId + ", begin=" + mBegin + ", end=" + mEnd
+                + ", title=" + mEventTitle + '}';
+    }
+}
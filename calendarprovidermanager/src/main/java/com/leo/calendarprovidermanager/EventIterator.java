@@ -0,0 +1,110 @@
+package com.leo.calendarprovidermanager;
+
+import android.database.Cursor;
+import android.provider.CalendarContract;
+
+import java.io.Closeable;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 按开始时间顺序逐行读取事件实例，不会把整个结果集加载到内存
+ * 读到末尾或达到 limit 时自动关闭游标；提前结束遍历时需调用 close()。
+ */
+public final class EventIterator implements Iterator<EventInstance>, Closeable {
+    static final String[] PROJECTION = new String[]{
+            CalendarContract.Instances.EVENT_ID,
+            CalendarContract.Instances.BEGIN,
+            CalendarContract.Instances.END,
+            CalendarContract.Instances.ALL_DAY,
+            CalendarContract.Instances.TITLE,
+            CalendarContract.Instances.DESCRIPTION,
+            CalendarContract.Instances.CALENDAR_ID
+    };
+    private static final int INDEX_EVENT_ID = 0;
+    private static final int INDEX_BEGIN = 1;
+    private static final int INDEX_END = 2;
+    private static final int INDEX_ALL_DAY = 3;
+    private static final int INDEX_TITLE = 4;
+    private static final int INDEX_DESCRIPTION = 5;
+    private static final int INDEX_CALENDAR_ID = 6;
+
+    private Cursor mCursor;
+    //关闭时上报统计，可为 null
+    private CalendarResolver mResolver;
+    //0 表示不限
+    private final int mLimit;
+    private int mCount;
+    private EventInstance mNext;
+    private EventInstance mLast;
+    private boolean isLimitReached;
+
+    EventIterator(Cursor cursor, int limit, CalendarResolver resolver) {
+        mCursor = cursor;
+        mLimit = limit;
+        mResolver = resolver;
+    }
+
+    @Override
+    public boolean hasNext() {
+        if (mNext != null) return true;
+        if (mCursor == null) return false;
+        if (mLimit > 0 && mCount >= mLimit) {
+            //查询多取了一行，有这一行才有下一页
+            isLimitReached = mCursor.moveToNext();
+            close();
+            return false;
+        }
+        if (!mCursor.moveToNext()) {
+            close();
+            return false;
+        }
+        mNext = new EventInstance(
+                mCursor.getLong(INDEX_EVENT_ID),
+                mCursor.getLong(INDEX_BEGIN),
+                mCursor.getLong(INDEX_END),
+                mCursor.getInt(INDEX_ALL_DAY) != 0,
+                mCursor.getString(INDEX_TITLE),
+                mCursor.getString(INDEX_DESCRIPTION),
+                mCursor.getLong(INDEX_CALENDAR_ID));
+        return true;
+    }
+
+    @Override
+    public EventInstance next() {
+        if (!hasNext()) throw new NoSuchElementException();
+        mLast = mNext;
+        mNext = null;
+        mCount++;
+        return mLast;
+    }
+
+    @Override
+    public void remove() {
+        throw new UnsupportedOperationException("remove");
+    }
+
+    /**
+     * 遍历结束后调用
+     *
+     * @return 下一页的续查位置，没有更多数据时返回 null
+     */
+    public EventPageToken getNextPageToken() {
+        if (!isLimitReached || mLast == null) return null;
+        return new EventPageToken(mLast.getBegin(), mLast.getEventId());
+    }
+
+    @Override
+    public void close() {
+        if (mCursor != null) {
+            mCursor.close();
+            mCursor = null;
+        }
+        if (mResolver != null) {
+            mResolver.finish();
+            mResolver = null;
+        }
+    }
+}
@@ -0,0 +1,209 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.Context;
+import android.content.SharedPreferences;
+import android.database.ContentObserver;
+import android.provider.CalendarContract;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 外部 key -> eventId 的本地索引，保存在 SharedPreferences 中
+ * key 同时写入事件的 UID_2445 列，provider 中的数据为准。
+ * 索引与 provider 一致时命中和未命中都直接采信，查找不访问 provider；
+ * Events 上的 ContentObserver 在 provider 发生变化后使索引失效，失效后第一次查找从 provider 完整读取一次。
+ * 本实例发出的插入和更新不改变 key -> eventId 的对应关系（或已由调用方写入索引），它们的通知不使索引失效；
+ * 删除可能删掉带 key 的事件，按其它写入方处理。
+ * 进程重启后收不到期间的修改，每个日历第一次使用时重新读取。
+ * 系统 provider 的索引进程内共享，自定义 CalendarProviderClient 使用各自的索引，不再使用时调用 close()。
+ */
+final class EventKeyIndex {
+    private static final String PREFERENCES_NAME = "calendar_provider_manager_event_keys";
+
+    private static volatile EventKeyIndex sDefault;
+    //所有实例共用同一个文件，每次写入加一，重建期间有其它写入时不覆盖
+    private static final AtomicInteger sModCount = new AtomicInteger();
+
+    private final SharedPreferences mPreferences;
+    private final CalendarProviderClient mClient;
+    private final ContentObserver mObserver;
+    //每次失效加一
+    private final AtomicInteger mGeneration = new AtomicInteger();
+    //本实例发出、尚未收到通知的写入数
+    private final AtomicInteger mPendingWrites = new AtomicInteger();
+    //日历 id -> 最近一次从 provider 完整读取时的 generation
+    private final ConcurrentHashMap<Long, Integer> mVerified = new ConcurrentHashMap<>();
+    private volatile boolean isWatching;
+    private volatile boolean isClosed;
+
+    EventKeyIndex(Context context, CalendarProviderClient client) {
+        mPreferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+        mClient = client;
+        mObserver = new ContentObserver(null) {
+            @Override
+            public void onChange(boolean selfChange) {
+                if (!consumePendingWrite()) invalidate();
+            }
+        };
+    }
+
+    /**
+     * 系统 provider 的共享索引，第一次查找时注册失效监听
+     */
+    static EventKeyIndex getDefault(Context context) {
+        if (sDefault != null) return sDefault;
+        synchronized (EventKeyIndex.class) {
+            if (sDefault == null) {
+                Context applicationContext = context.getApplicationContext();
+                sDefault = new EventKeyIndex(applicationContext,
+                        new ContentResolverClient(applicationContext.getContentResolver()));
+            }
+            return sDefault;
+        }
+    }
+
+    /**
+     * @return 该日历的索引与 provider 一致，get 的结果可以直接使用
+     */
+    boolean isCurrent(long calendarId) {
+        watch();
+        Integer generation = mVerified.get(calendarId);
+        return generation != null && generation == mGeneration.get() && !isClosed;
+    }
+
+    /**
+     * 从 provider 读取前调用，replace 时传回
+     */
+    int generation() {
+        watch();
+        return mGeneration.get();
+    }
+
+    /**
+     * 从 provider 读取前调用，replace 时传回，读取期间索引被写入过则不覆盖
+     */
+    int modCount() {
+        return sModCount.get();
+    }
+
+    /**
+     * @return 索引中的 eventId，-1 表示不存在
+     */
+    long get(long calendarId, String key) {
+        return mPreferences.getLong(entry(calendarId, key), -1);
+    }
+
+    void put(long calendarId, String key, long eventId) {
+        synchronized (EventKeyIndex.class) {
+            sModCount.incrementAndGet();
+            mPreferences.edit().putLong(entry(calendarId, key), eventId).apply();
+        }
+    }
+
+    void putAll(long calendarId, Map<String, Long> eventIds) {
+        if (eventIds.isEmpty()) return;
+        synchronized (EventKeyIndex.class) {
+            sModCount.incrementAndGet();
+            SharedPreferences.Editor editor = mPreferences.edit();
+            for (Map.Entry<String, Long> entry : eventIds.entrySet()) {
+                editor.putLong(entry(calendarId, entry.getKey()), entry.getValue());
+            }
+            editor.apply();
+        }
+    }
+
+    void remove(long calendarId, String key) {
+        synchronized (EventKeyIndex.class) {
+            sModCount.incrementAndGet();
+            mPreferences.edit().remove(entry(calendarId, key)).apply();
+        }
+    }
+
+    /**
+     * 用 provider 中读取的完整映射替换该日历的索引
+     * 读取期间 provider 发生过变化时仍写入，但不标记为一致，下次查找重新读取
+     *
+     * @param generation 读取前的 generation()
+     * @param modCount   读取前的 modCount()
+     */
+    void replace(long calendarId, Map<String, Long> eventIds, int generation, int modCount) {
+        synchronized (EventKeyIndex.class) {
+            //读取期间其它线程写入了索引，读取的结果可能缺少它们
+            if (sModCount.get() != modCount) return;
+            sModCount.incrementAndGet();
+            String prefix = calendarId + "/";
+            SharedPreferences.Editor editor = mPreferences.edit();
+            for (String entry : mPreferences.getAll().keySet()) {
+                if (entry.startsWith(prefix)) editor.remove(entry);
+            }
+            for (Map.Entry<String, Long> entry : eventIds.entrySet()) {
+                editor.putLong(entry(calendarId, entry.getKey()), entry.getValue());
+            }
+            editor.apply();
+        }
+        mVerified.put(calendarId, generation);
+    }
+
+    /**
+     * 本实例发出插入或更新前调用，它引起的通知不使索引失效
+     *
+     * @return 是否已计入，需要在写入结束后调用 onWriteFinished
+     */
+    boolean onWriteStarted() {
+        if (!isWatching) return false;
+        mPendingWrites.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * @param changed 写入修改了数据，provider 会发出通知
+     */
+    void onWriteFinished(boolean changed) {
+        if (changed) return;
+        //没有修改时不会收到通知；计数已被其它写入方的通知抵消时，那次修改没有被处理
+        if (!consumePendingWrite()) invalidate();
+    }
+
+    /**
+     * 所有日历的索引失效，下次查找时重新读取
+     */
+    void invalidate() {
+        mGeneration.incrementAndGet();
+    }
+
+    /**
+     * 注销 ContentObserver，之后每次查找都从 provider 读取
+     */
+    synchronized void close() {
+        if (isClosed) return;
+        isClosed = true;
+        if (isWatching) mClient.unregisterContentObserver(mObserver);
+        isWatching = false;
+        invalidate();
+    }
+
+    private void watch() {
+        if (isWatching) return;
+        synchronized (this) {
+            if (isWatching || isClosed) return;
+            mClient.registerContentObserver(CalendarContract.Events.CONTENT_URI, true, mObserver);
+            isWatching = true;
+        }
+    }
+
+    private boolean consumePendingWrite() {
+        while (true) {
+            int pending = mPendingWrites.get();
+            if (pending <= 0) return false;
+            if (mPendingWrites.compareAndSet(pending, pending - 1)) return true;
+        }
+    }
+
+    private static String entry(long calendarId, String key) {
+        return calendarId + "/" + key;
+    }
+}
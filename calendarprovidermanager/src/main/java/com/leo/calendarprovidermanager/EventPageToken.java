@@ -0,0 +1,30 @@
+package com.leo.calendarprovidermanager;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 分页查询的续查位置，指向上一页最后一个实例
+ * 按 (begin, eventId) 定位，同一时间开始的多个实例不会重复或遗漏。
+ */
+public final class EventPageToken {
+    private final long mBegin;
+    private final long mEventId;
+
+    public EventPageToken(long begin, long eventId) {
+        mBegin = begin;
+        mEventId = eventId;
+    }
+
+    public long getBegin() {
+        return mBegin;
+    }
+
+    public long getEventId() {
+        return mEventId;
+    }
+
+    @Override
+    public String toString() {
+        return "EventPageToken{begin=" + mBegin + ", eventId=" + mEventId + '}';
+    }
+}
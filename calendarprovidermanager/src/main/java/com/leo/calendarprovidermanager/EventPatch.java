@@ -0,0 +1,295 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentValues;
+import android.provider.CalendarContract;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 事件的部分修改，只写入设置过的列
+ * 未设置的列保持不变；未设置提醒、参与人、扩展属性时不读写对应的子行。
+ */
+public final class EventPatch {
+    private final ContentValues mValues;
+    //null 表示提醒不变
+    private final List<EventReminder> mReminders;
+    //null 表示参与人不变
+    private final List<EventAttendee> mAttendees;
+    //名称 -> 值，值为 null 表示删除；null 表示扩展属性不变
+    private final Map<String, String> mExtendedProperties;
+
+    private EventPatch(Builder builder) {
+        mValues = new ContentValues(builder.mValues);
+        mReminders = builder.mReminders == null ? null
+                : Collections.unmodifiableList(new ArrayList<>(builder.mReminders));
+        mAttendees = builder.mAttendees == null ? null
+                : Collections.unmodifiableList(new ArrayList<>(builder.mAttendees));
+        mExtendedProperties = builder.mExtendedProperties == null ? null
+                : Collections.unmodifiableMap(new LinkedHashMap<>(builder.mExtendedProperties));
+    }
+
+    /**
+     * 由修改前后的两个事件生成只包含差异的修改
+     */
+    public static EventPatch between(@NonNull EventSpec before, @NonNull EventSpec after) {
+        Builder builder = new Builder();
+        if (!equal(before.getEventTitle(), after.getEventTitle())) builder.setTitle(after.getEventTitle());
+        if (!equal(before.getEventDescription(), after.getEventDescription())) {
+            builder.setDescription(after.getEventDescription());
+        }
+        if (before.getAlarmStartTime() != after.getAlarmStartTime()) builder.setStartTime(after.getAlarmStartTime());
+        if (before.isAllDay() != after.isAllDay()) {
+            builder.mValues.put(CalendarContract.Events.ALL_DAY, after.isAllDay() ? 1 : 0);
+        }
+        if (!equal(before.getTimeZone(), after.getTimeZone()) && after.getTimeZone() != null) {
+            builder.setTimeZone(after.getTimeZone());
+        }
+        if (!after.isRecurring() && !equal(before.getEndTimeZone(), after.getEndTimeZone())) {
+            builder.mValues.put(CalendarContract.Events.EVENT_END_TIMEZONE,
+                    after.getEndTimeZone() != null ? after.getEndTimeZone() : after.getTimeZone());
+        }
+        if (before.isRecurring() != after.isRecurring()
+                || before.getAlarmDurationTime() != after.getAlarmDurationTime()
+                || before.isAllDay() != after.isAllDay()
+                || (!after.isRecurring() && before.getAlarmStartTime() != after.getAlarmStartTime())) {
+            if (after.isRecurring()) {
+                builder.setDurationTime(after.getAlarmDurationTime());
+            } else {
+                builder.setEndTime(after.getAlarmEndTime());
+            }
+        }
+        if (!equal(before.getRecurrenceRule(), after.getRecurrenceRule())) {
+            builder.setRecurrenceRule(after.getRecurrenceRule());
+        }
+        if (!equal(before.getRecurrenceDates(), after.getRecurrenceDates())) {
+            builder.setRecurrenceDates(after.getRecurrenceDates());
+        }
+        if (!equal(before.getExceptionDates(), after.getExceptionDates())) {
+            builder.setExceptionDates(after.getExceptionDates());
+        }
+        if (!before.getReminders().equals(after.getReminders())) builder.setReminders(after.getReminders());
+        if (after.isAttendeesSet() && !before.getAttendees().equals(after.getAttendees())) {
+            builder.setAttendees(after.getAttendees());
+        }
+        Map<String, String> properties = new LinkedHashMap<>();
+        for (Map.Entry<String, String> property : after.getExtendedProperties().entrySet()) {
+            if (!equal(before.getExtendedProperties().get(property.getKey()), property.getValue())) {
+                properties.put(property.getKey(), property.getValue());
+            }
+        }
+        for (String name : before.getExtendedProperties().keySet()) {
+            if (!after.getExtendedProperties().containsKey(name)) properties.put(name, null);
+        }
+        if (!properties.isEmpty()) builder.setExtendedProperties(properties);
+        return builder.build();
+    }
+
+    /**
+     * 用 event 覆盖事件的全部内容，与 updateCalendarEvent(long, EventSpec) 写入的列和子行相同
+     */
+    static EventPatch of(EventSpec event, String defaultTimeZone) {
+        Builder builder = new Builder();
+        builder.setTitle(event.getEventTitle());
+        builder.setDescription(event.getEventDescription());
+        builder.mValues.put(CalendarContract.Events.HAS_ALARM, event.hasAlarm() ? 1 : 0);
+        CalendarProviderManager.putTimeValues(builder.mValues, event, defaultTimeZone);
+        builder.setReminders(event.getReminders());
+        //与 updateCalendarEvent 相同，未设置参与人、扩展属性时不改动
+        if (event.isAttendeesSet()) builder.setAttendees(event.getAttendees());
+        if (!event.getExtendedProperties().isEmpty()) builder.setExtendedProperties(event.getExtendedProperties());
+        return builder.build();
+    }
+
+    /**
+     * 由已写好的列和子行恢复修改，用于读取持久化的队列
+     *
+     * @param reminders          null 表示提醒不变
+     * @param attendees          null 表示参与人不变
+     * @param extendedProperties null 表示扩展属性不变
+     */
+    static EventPatch of(ContentValues values, List<EventReminder> reminders, List<EventAttendee> attendees,
+                         Map<String, String> extendedProperties) {
+        Builder builder = new Builder();
+        builder.mValues.putAll(values);
+        builder.mReminders = reminders;
+        builder.mAttendees = attendees;
+        builder.mExtendedProperties = extendedProperties;
+        return builder.build();
+    }
+
+    /**
+     * 合并两次修改，later 中设置过的列、提醒和参与人覆盖本修改，扩展属性按名称合并
+     */
+    EventPatch merge(EventPatch later) {
+        Builder builder = new Builder();
+        builder.mValues.putAll(mValues);
+        builder.mValues.putAll(later.mValues);
+        builder.mReminders = later.mReminders != null ? later.mReminders : mReminders;
+        builder.mAttendees = later.mAttendees != null ? later.mAttendees : mAttendees;
+        if (mExtendedProperties == null || later.mExtendedProperties == null) {
+            builder.mExtendedProperties = later.mExtendedProperties != null
+                    ? later.mExtendedProperties : mExtendedProperties;
+        } else {
+            builder.mExtendedProperties = new LinkedHashMap<>(mExtendedProperties);
+            builder.mExtendedProperties.putAll(later.mExtendedProperties);
+        }
+        return builder.build();
+    }
+
+    /**
+     * @return 没有任何修改
+     */
+    public boolean isEmpty() {
+        return mValues.size() == 0 && !hasChildRows();
+    }
+
+    /**
+     * @return 设置了提醒、参与人或扩展属性，需要读取现有子行比对
+     */
+    boolean hasChildRows() {
+        return mReminders != null || mAttendees != null || mExtendedProperties != null;
+    }
+
+    /**
+     * @return 事件表中要写入的列
+     */
+    ContentValues getValues() {
+        return new ContentValues(mValues);
+    }
+
+    boolean hasReminders() {
+        return mReminders != null;
+    }
+
+    List<EventReminder> getReminders() {
+        return mReminders;
+    }
+
+    boolean hasAttendees() {
+        return mAttendees != null;
+    }
+
+    List<EventAttendee> getAttendees() {
+        return mAttendees;
+    }
+
+    boolean hasExtendedProperties() {
+        return mExtendedProperties != null;
+    }
+
+    Map<String, String> getExtendedProperties() {
+        return mExtendedProperties;
+    }
+
+    private static boolean equal(Object a, Object b) {
+        return a == null ? b == null : a.equals(b);
+    }
+
+    public static class Builder {
+        private final ContentValues mValues = new ContentValues();
+        private List<EventReminder> mReminders;
+        private List<EventAttendee> mAttendees;
+        private Map<String, String> mExtendedProperties;
+
+        public Builder setTitle(String title) {
+            mValues.put(CalendarContract.Events.TITLE, title);
+            return this;
+        }
+
+        public Builder setDescription(String description) {
+            mValues.put(CalendarContract.Events.DESCRIPTION, description);
+            return this;
+        }
+
+        /**
+         * 只修改开始时间，结束时间不变；整体平移时同时调用 setEndTime
+         */
+        public Builder setStartTime(long startTime) {
+            mValues.put(CalendarContract.Events.DTSTART, startTime);
+            return this;
+        }
+
+        /**
+         * 普通事件的结束时间
+         */
+        public Builder setEndTime(long endTime) {
+            mValues.put(CalendarContract.Events.DTEND, endTime);
+            mValues.putNull(CalendarContract.Events.DURATION);
+            return this;
+        }
+
+        /**
+         * 重复事件每次发生的时长 分钟
+         */
+        public Builder setDurationTime(int durationTime) {
+            mValues.putNull(CalendarContract.Events.DTEND);
+            mValues.put(CalendarContract.Events.DURATION, "P" + durationTime * 60L + "S");
+            return this;
+        }
+
+        /**
+         * @param timeZone 开始时间的时区 id，如 Asia/Shanghai
+         */
+        public Builder setTimeZone(@NonNull String timeZone) {
+            if (!CalendarTimeZones.isValid(timeZone))
+                throw new IllegalArgumentException("Unknown time zone " + timeZone);
+            mValues.put(CalendarContract.Events.EVENT_TIMEZONE, timeZone);
+            return this;
+        }
+
+        public Builder setRecurrenceRule(String rrule) {
+            mValues.put(CalendarContract.Events.RRULE, rrule);
+            return this;
+        }
+
+        public Builder setRecurrenceDates(String rdate) {
+            mValues.put(CalendarContract.Events.RDATE, rdate);
+            return this;
+        }
+
+        public Builder setExceptionDates(String exdate) {
+            mValues.put(CalendarContract.Events.EXDATE, exdate);
+            return this;
+        }
+
+        /**
+         * 替换事件的全部提醒，空列表表示删除所有提醒
+         * 与现有提醒比对，只删除多余的、插入缺少的，完全相同时不写入
+         */
+        public Builder setReminders(@NonNull List<EventReminder> reminders) {
+            mReminders = new ArrayList<>(reminders);
+            return this;
+        }
+
+        /**
+         * 替换事件的全部参与人，空列表表示删除所有参与人
+         * 按邮箱与现有参与人比对，未变化的不重写
+         */
+        public Builder setAttendees(@NonNull List<EventAttendee> attendees) {
+            mAttendees = new ArrayList<>(attendees);
+            return this;
+        }
+
+        /**
+         * 修改扩展属性，只处理出现的名称：值为 null 的删除，其余插入或更新，其它名称的属性不变
+         * 写入需要 sync adapter 模式
+         */
+        public Builder setExtendedProperties(@NonNull Map<String, String> properties) {
+            if (mExtendedProperties == null) mExtendedProperties = new LinkedHashMap<>();
+            mExtendedProperties.putAll(properties);
+            return this;
+        }
+
+        public EventPatch build() {
+            return new EventPatch(this);
+        }
+    }
+}
@@ -0,0 +1,118 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentProviderOperation;
+import android.database.Cursor;
+import android.provider.CalendarContract;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : ExtendedProperties 表的读取与写入操作
+ * provider 只允许 sync adapter 写入该表，写入使用 CalendarUris.extendedProperties()。
+ */
+final class EventProperties {
+    private static final String[] PROJECTION = new String[]{
+            CalendarContract.ExtendedProperties._ID,
+            CalendarContract.ExtendedProperties.EVENT_ID,
+            CalendarContract.ExtendedProperties.NAME,
+            CalendarContract.ExtendedProperties.VALUE
+    };
+
+    private EventProperties() {
+    }
+
+    /**
+     * @param eventIndex 同一批次中插入事件的操作位置
+     */
+    static ContentProviderOperation insertWithBackReference(CalendarUris uris, int eventIndex,
+                                                            String name, String value) {
+        return ContentProviderOperation.newInsert(uris.extendedProperties())
+                .withValueBackReference(CalendarContract.ExtendedProperties.EVENT_ID, eventIndex)
+                .withValue(CalendarContract.ExtendedProperties.NAME, name)
+                .withValue(CalendarContract.ExtendedProperties.VALUE, value)
+                .build();
+    }
+
+    /**
+     * 分段查询多个事件的扩展属性，每段一次 IN 查询
+     *
+     * @return eventId -> (属性行 _ID -> 名称、值)
+     */
+    static Map<Long, Map<Long, String[]>> query(CalendarResolver resolver, List<Long> eventIds) {
+        Map<Long, Map<Long, String[]>> properties = new HashMap<>();
+        for (int from = 0; from < eventIds.size(); from += Selections.MAX_IN_ARGUMENTS) {
+            int to = Math.min(eventIds.size(), from + Selections.MAX_IN_ARGUMENTS);
+            Cursor cursor = resolver.query(CalendarContract.ExtendedProperties.CONTENT_URI, PROJECTION,
+                    Selections.in(CalendarContract.ExtendedProperties.EVENT_ID, to - from),
+                    Selections.args(eventIds, from, to), null);
+            if (cursor == null) continue;
+            try {
+                while (cursor.moveToNext()) {
+                    long eventId = cursor.getLong(1);
+                    Map<Long, String[]> rows = properties.get(eventId);
+                    if (rows == null) {
+                        rows = new LinkedHashMap<>();
+                        properties.put(eventId, rows);
+                    }
+                    rows.put(cursor.getLong(0), new String[]{cursor.getString(2), cursor.getString(3)});
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return properties;
+    }
+
+    /**
+     * @param rows 属性行 _ID -> 名称、值，可为 null
+     * @return 名称 -> 值
+     */
+    static Map<String, String> toMap(Map<Long, String[]> rows) {
+        Map<String, String> properties = new LinkedHashMap<>();
+        if (rows == null) return properties;
+        for (String[] row : rows.values()) {
+            properties.put(row[0], row[1]);
+        }
+        return properties;
+    }
+
+    /**
+     * 只处理 desired 中出现的名称：值为 null 的删除，其余插入或更新，其它名称的属性不变
+     *
+     * @param existing 属性行 _ID -> 名称、值，可为 null
+     * @return 删除、更新、插入操作，无变化时为空
+     */
+    static OperationList diff(CalendarUris uris, long eventId, Map<Long, String[]> existing,
+                              Map<String, String> desired) {
+        Map<String, String> missing = new LinkedHashMap<>(desired);
+        OperationList operations = new OperationList();
+        if (existing != null) {
+            for (Map.Entry<Long, String[]> row : existing.entrySet()) {
+                String name = row.getValue()[0];
+                if (!missing.containsKey(name)) continue;
+                String value = missing.remove(name);
+                if (value == null) {
+                    operations.delete(ContentProviderOperation.newDelete(uris.extendedProperty(row.getKey())).build());
+                } else if (!value.equals(row.getValue()[1])) {
+                    operations.update(ContentProviderOperation.newUpdate(uris.extendedProperty(row.getKey()))
+                            .withValue(CalendarContract.ExtendedProperties.VALUE, value)
+                            .build());
+                }
+            }
+        }
+        for (Map.Entry<String, String> property : missing.entrySet()) {
+            if (property.getValue() == null) continue;
+            operations.insert(ContentProviderOperation.newInsert(uris.extendedProperties())
+                    .withValue(CalendarContract.ExtendedProperties.EVENT_ID, eventId)
+                    .withValue(CalendarContract.ExtendedProperties.NAME, property.getKey())
+                    .withValue(CalendarContract.ExtendedProperties.VALUE, property.getValue())
+                    .build());
+        }
+        return operations;
+    }
+}
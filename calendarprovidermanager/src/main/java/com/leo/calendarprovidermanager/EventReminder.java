@@ -0,0 +1,55 @@
+package com.leo.calendarprovidermanager;
+
+import android.provider.CalendarContract;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 事件提醒，提前分钟数 + 提醒方式
+ */
+public final class EventReminder {
+    private final long mMinutes;
+    private final int mMethod;
+
+    /**
+     * @param minutes 提前提醒的分钟数
+     * @param method  提醒方式，如 CalendarContract.Reminders.METHOD_ALERT、METHOD_EMAIL
+     */
+    public EventReminder(long minutes, int method) {
+        mMinutes = minutes;
+        mMethod = method;
+    }
+
+    /**
+     * 以弹窗方式提醒
+     */
+    public EventReminder(long leadTime, CalendarAlarmDateType dateType) {
+        this(dateType.toMinutes(leadTime), CalendarContract.Reminders.METHOD_ALERT);
+    }
+
+    public long getMinutes() {
+        return mMinutes;
+    }
+
+    public int getMethod() {
+        return mMethod;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof EventReminder)) return false;
+        EventReminder that = (EventReminder) o;
+        return mMinutes == that.mMinutes && mMethod == that.mMethod;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (int) (mMinutes ^ (mMinutes >>> 32)) + mMethod;
+    }
+
+    @Override
+    public String toString() {
+        return "EventReminder{minutes=" + mMinutes + ", method=" + mMethod + '}';
+    }
+}
@@ -0,0 +1,101 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentProviderOperation;
+import android.database.Cursor;
+import android.provider.CalendarContract;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : Reminders 表的读取与写入操作
+ */
+final class EventReminders {
+    private static final String[] PROJECTION = new String[]{
+            CalendarContract.Reminders._ID,
+            CalendarContract.Reminders.EVENT_ID,
+            CalendarContract.Reminders.MINUTES,
+            CalendarContract.Reminders.METHOD
+    };
+
+    private EventReminders() {
+    }
+
+    static ContentProviderOperation insert(CalendarUris uris, long eventId, EventReminder reminder) {
+        return ContentProviderOperation.newInsert(uris.reminders())
+                .withValue(CalendarContract.Reminders.EVENT_ID, eventId)
+                .withValue(CalendarContract.Reminders.MINUTES, reminder.getMinutes())
+                .withValue(CalendarContract.Reminders.METHOD, reminder.getMethod())
+                .build();
+    }
+
+    /**
+     * @param eventIndex 同一批次中插入事件的操作位置
+     */
+    static ContentProviderOperation insertWithBackReference(CalendarUris uris, int eventIndex,
+                                                            EventReminder reminder) {
+        return ContentProviderOperation.newInsert(uris.reminders())
+                .withValueBackReference(CalendarContract.Reminders.EVENT_ID, eventIndex)
+                .withValue(CalendarContract.Reminders.MINUTES, reminder.getMinutes())
+                .withValue(CalendarContract.Reminders.METHOD, reminder.getMethod())
+                .build();
+    }
+
+    /**
+     * 分段查询多个事件的提醒
+     *
+     * @return eventId -> (提醒行 _ID -> 提醒)
+     */
+    static Map<Long, Map<Long, EventReminder>> query(CalendarResolver resolver, List<Long> eventIds) {
+        Map<Long, Map<Long, EventReminder>> reminders = new HashMap<>();
+        for (int from = 0; from < eventIds.size(); from += Selections.MAX_IN_ARGUMENTS) {
+            int to = Math.min(eventIds.size(), from + Selections.MAX_IN_ARGUMENTS);
+            Cursor cursor = resolver.query(CalendarContract.Reminders.CONTENT_URI, PROJECTION,
+                    Selections.in(CalendarContract.Reminders.EVENT_ID, to - from),
+                    Selections.args(eventIds, from, to), null);
+            if (cursor == null) continue;
+            try {
+                while (cursor.moveToNext()) {
+                    long eventId = cursor.getLong(1);
+                    Map<Long, EventReminder> rows = reminders.get(eventId);
+                    if (rows == null) {
+                        rows = new LinkedHashMap<>();
+                        reminders.put(eventId, rows);
+                    }
+                    rows.put(cursor.getLong(0), new EventReminder(cursor.getLong(2), cursor.getInt(3)));
+                }
+            } finally {
+                cursor.close();
+            }
+        }
+        return reminders;
+    }
+
+    /**
+     * 计算把现有提醒替换为 desired 所需的操作，未变化的提醒不会被重写
+     *
+     * @param existing 提醒行 _ID -> 提醒，可为 null
+     * @return 删除多余提醒、插入缺少提醒的操作，无变化时为空
+     */
+    static OperationList diff(CalendarUris uris, long eventId, Map<Long, EventReminder> existing,
+                              List<EventReminder> desired) {
+        List<EventReminder> missing = new ArrayList<>(desired);
+        OperationList operations = new OperationList();
+        if (existing != null) {
+            for (Map.Entry<Long, EventReminder> row : existing.entrySet()) {
+                if (!missing.remove(row.getValue())) {
+                    operations.delete(ContentProviderOperation.newDelete(uris.reminder(row.getKey())).build());
+                }
+            }
+        }
+        for (EventReminder reminder : missing) {
+            operations.insert(insert(uris, eventId, reminder));
+        }
+        return operations;
+    }
+}
@@ -0,0 +1,196 @@
+package com.leo.calendarprovidermanager;
+
+import android.database.Cursor;
+import android.provider.CalendarContract;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 读取时日历事件的只读快照，按 provider 中的原样保存各列
+ */
+public final class EventSnapshot {
+    static final String[] PROJECTION = new String[]{
+            CalendarContract.Events._ID,
+            CalendarContract.Events.CALENDAR_ID,
+            CalendarContract.Events.TITLE,
+            CalendarContract.Events.DESCRIPTION,
+            CalendarContract.Events.DTSTART,
+            CalendarContract.Events.DTEND,
+            CalendarContract.Events.DURATION,
+            CalendarContract.Events.EVENT_TIMEZONE,
+            CalendarContract.Events.ALL_DAY,
+            CalendarContract.Events.RRULE,
+            CalendarContract.Events.RDATE,
+            CalendarContract.Events.EXDATE,
+            CalendarContract.Events.HAS_ALARM
+    };
+    //列下标与 PROJECTION 对应，读取时不需要 getColumnIndex
+    private static final int INDEX_ID = 0;
+    private static final int INDEX_CALENDAR_ID = 1;
+    private static final int INDEX_TITLE = 2;
+    private static final int INDEX_DESCRIPTION = 3;
+    private static final int INDEX_DTSTART = 4;
+    private static final int INDEX_DTEND = 5;
+    private static final int INDEX_DURATION = 6;
+    private static final int INDEX_TIMEZONE = 7;
+    private static final int INDEX_ALL_DAY = 8;
+    private static final int INDEX_RRULE = 9;
+    private static final int INDEX_RDATE = 10;
+    private static final int INDEX_EXDATE = 11;
+    private static final int INDEX_HAS_ALARM = 12;
+
+    private final long mEventId;
+    private final long mCalendarId;
+    private final String mEventTitle;
+    private final String mEventDescription;
+    private final long mStartTime;
+    private final long mEndTime;
+    private final String mDuration;
+    private final String mTimeZone;
+    private final boolean isAllDay;
+    private final String mRecurrenceRule;
+    private final String mRecurrenceDates;
+    private final String mExceptionDates;
+    private final boolean hasAlarm;
+    private final List<EventReminder> mReminders;
+    private final List<EventAttendee> mAttendees;
+    private final Map<String, String> mExtendedProperties;
+
+    /**
+     * 读取游标当前行，游标需使用 PROJECTION
+     *
+     * @param reminders          事件的提醒，可为 null
+     * @param attendees          事件的参与人，可为 null
+     * @param extendedProperties 事件的扩展属性，不会再被修改
+     */
+    EventSnapshot(Cursor cursor, Collection<EventReminder> reminders, Collection<EventAttendee> attendees,
+                  Map<String, String> extendedProperties) {
+        mEventId = cursor.getLong(INDEX_ID);
+        mCalendarId = cursor.getLong(INDEX_CALENDAR_ID);
+        mEventTitle = cursor.getString(INDEX_TITLE);
+        mEventDescription = cursor.getString(INDEX_DESCRIPTION);
+        mStartTime = cursor.getLong(INDEX_DTSTART);
+        mEndTime = cursor.isNull(INDEX_DTEND) ? -1 : cursor.getLong(INDEX_DTEND);
+        mDuration = cursor.getString(INDEX_DURATION);
+        mTimeZone = cursor.getString(INDEX_TIMEZONE);
+        isAllDay = cursor.getInt(INDEX_ALL_DAY) == 1;
+        mRecurrenceRule = cursor.getString(INDEX_RRULE);
+        mRecurrenceDates = cursor.getString(INDEX_RDATE);
+        mExceptionDates = cursor.getString(INDEX_EXDATE);
+        hasAlarm = cursor.getInt(INDEX_HAS_ALARM) == 1;
+        mReminders = reminders == null ? Collections.<EventReminder>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(reminders));
+        mAttendees = attendees == null ? Collections.<EventAttendee>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(attendees));
+        mExtendedProperties = Collections.unmodifiableMap(extendedProperties);
+    }
+
+    public long getEventId() {
+        return mEventId;
+    }
+
+    public long getCalendarId() {
+        return mCalendarId;
+    }
+
+    public String getEventTitle() {
+        return mEventTitle;
+    }
+
+    public String getEventDescription() {
+        return mEventDescription;
+    }
+
+    /**
+     * @return 开始时间 时间戳
+     */
+    public long getStartTime() {
+        return mStartTime;
+    }
+
+    /**
+     * @return 结束时间 时间戳，重复事件为 -1
+     */
+    public long getEndTime() {
+        return mEndTime;
+    }
+
+    /**
+     * @return 重复事件每次发生的时长，RFC 5545 格式，如 P3600S；普通事件为 null
+     */
+    public String getDuration() {
+        return mDuration;
+    }
+
+    public String getTimeZone() {
+        return mTimeZone;
+    }
+
+    public boolean isAllDay() {
+        return isAllDay;
+    }
+
+    public String getRecurrenceRule() {
+        return mRecurrenceRule;
+    }
+
+    public String getRecurrenceDates() {
+        return mRecurrenceDates;
+    }
+
+    public String getExceptionDates() {
+        return mExceptionDates;
+    }
+
+    public boolean hasAlarm() {
+        return hasAlarm;
+    }
+
+    public List<EventReminder> getReminders() {
+        return mReminders;
+    }
+
+    public List<EventAttendee> getAttendees() {
+        return mAttendees;
+    }
+
+    /**
+     * @return 扩展属性 名称 -> 值
+     */
+    public Map<String, String> getExtendedProperties() {
+        return mExtendedProperties;
+    }
+
+    /**
+     * @return 估算占用的内存 字节，用于缓存容量计算
+     */
+    int estimateSize() {
+        //对象头、基本类型字段和引用
+        int size = 96 + 32 * mReminders.size();
+        size += sizeOf(mEventTitle) + sizeOf(mEventDescription) + sizeOf(mDuration) + sizeOf(mTimeZone)
+                + sizeOf(mRecurrenceRule) + sizeOf(mRecurrenceDates) + sizeOf(mExceptionDates);
+        for (EventAttendee attendee : mAttendees) {
+            size += 48 + sizeOf(attendee.getEmail()) + sizeOf(attendee.getName());
+        }
+        for (Map.Entry<String, String> property : mExtendedProperties.entrySet()) {
+            size += 32 + sizeOf(property.getKey()) + sizeOf(property.getValue());
+        }
+        return size;
+    }
+
+    private static int sizeOf(String value) {
+        return value == null ? 0 : 40 + 2 * value.length();
+    }
+
+    @Override
+    public String toString() {
+        return "EventSnapshot{eventId=" + mEventId + ", title=" + mEventTitle + ", start=" + mStartTime
+                + ", end=" + mEndTime + ", duration=" + mDuration + '}';
+    }
+}
@@ -0,0 +1,393 @@
+package com.leo.calendarprovidermanager;
+
+import android.provider.CalendarContract;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TimeZone;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 日历事件描述，创建后不可修改，可用于批量添加
+ */
+public final class EventSpec {
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+    private static final int DAY_MINUTES = 24 * 60;
+
+    //事件开始时间 时间戳
+    private final long mAlarmStartTime;
+    //事件持续时长 分钟
+    private final int mAlarmDurationTime;
+
+    //提前提醒时间
+    private final long mAlarmLeadTime;
+    //提前提醒时间类型 时、分、秒、天
+    private final CalendarAlarmDateType mAlarmDateType;
+
+    //事件的标题
+    private final String mEventTitle;
+    //事件的描述
+    private final String mEventDescription;
+
+    //事件的全部提醒
+    private final List<EventReminder> mReminders;
+
+    //可选  重复规则 RFC 5545 RRULE，如 FREQ=WEEKLY;BYDAY=MO
+    private final String mRecurrenceRule;
+    //可选  额外发生日期 RDATE
+    private final String mRecurrenceDates;
+    //可选  排除日期 EXDATE
+    private final String mExceptionDates;
+
+    //可选  开始时间的时区 id，null 表示写入时的设备时区
+    private final String mTimeZone;
+    //可选  结束时间的时区 id，null 表示与开始时间相同
+    private final String mEndTimeZone;
+    //全天事件
+    private final boolean isAllDay;
+
+    //可选  参与人，与事件在同一批次中写入
+    private final List<EventAttendee> mAttendees;
+    private final boolean isAttendeesSet;
+    //可选  扩展属性 名称 -> 值，值为 null 表示更新时删除
+    private final Map<String, String> mExtendedProperties;
+
+    private EventSpec(Builder builder) {
+        if (builder.mTimeZone != null && !CalendarTimeZones.isValid(builder.mTimeZone))
+            throw new IllegalArgumentException("Unknown time zone " + builder.mTimeZone);
+        if (builder.mEndTimeZone != null && !CalendarTimeZones.isValid(builder.mEndTimeZone))
+            throw new IllegalArgumentException("Unknown time zone " + builder.mEndTimeZone);
+
+        long startTime = builder.mAlarmStartTime > 0 ? builder.mAlarmStartTime : System.currentTimeMillis();
+        isAllDay = builder.isAllDay;
+        if (isAllDay) {
+            //provider 要求全天事件从 UTC 零点开始、时长为整天，取开始时间在事件时区中的日期
+            TimeZone timeZone = builder.mTimeZone != null
+                    ? CalendarTimeZones.get(builder.mTimeZone) : TimeZone.getDefault();
+            long localTime = startTime + timeZone.getOffset(startTime);
+            long day = localTime / DAY_MILLIS;
+            if (localTime % DAY_MILLIS < 0) day--;
+            mAlarmStartTime = day * DAY_MILLIS;
+            mAlarmDurationTime = Math.max(1, (builder.mAlarmDurationTime + DAY_MINUTES - 1) / DAY_MINUTES)
+                    * DAY_MINUTES;
+            mTimeZone = CalendarTimeZones.UTC;
+            mEndTimeZone = CalendarTimeZones.UTC;
+        } else {
+            mAlarmStartTime = startTime;
+            mAlarmDurationTime = builder.mAlarmDurationTime;
+            mTimeZone = builder.mTimeZone;
+            mEndTimeZone = builder.mEndTimeZone;
+        }
+        mAlarmLeadTime = builder.mAlarmLeadTime;
+        mAlarmDateType = builder.mAlarmDateType;
+        mEventTitle = builder.mEventTitle;
+        mEventDescription = builder.mEventDescription;
+        mRecurrenceRule = builder.mRecurrenceRule;
+        mRecurrenceDates = builder.mRecurrenceDates;
+        mExceptionDates = builder.mExceptionDates;
+
+        if (!builder.mReminders.isEmpty()) {
+            mReminders = Collections.unmodifiableList(new ArrayList<>(builder.mReminders));
+        } else if (builder.hasAlarm) {
+            mReminders = Collections.singletonList(
+                    new EventReminder(getAlarmLeadMinutes(), CalendarContract.Reminders.METHOD_ALERT));
+        } else {
+            mReminders = Collections.emptyList();
+        }
+        mAttendees = builder.mAttendees.isEmpty() ? Collections.<EventAttendee>emptyList()
+                : Collections.unmodifiableList(new ArrayList<>(builder.mAttendees));
+        isAttendeesSet = builder.isAttendeesSet;
+        mExtendedProperties = builder.mExtendedProperties.isEmpty() ? Collections.<String, String>emptyMap()
+                : Collections.unmodifiableMap(new LinkedHashMap<>(builder.mExtendedProperties));
+    }
+
+    public long getAlarmStartTime() {
+        return mAlarmStartTime;
+    }
+
+    public int getAlarmDurationTime() {
+        return mAlarmDurationTime;
+    }
+
+    /**
+     * @return 事件结束时间 时间戳
+     */
+    public long getAlarmEndTime() {
+        return mAlarmStartTime + mAlarmDurationTime * 60000L;
+    }
+
+    /**
+     * @return 是否为重复事件，重复事件只写入一行，由 provider 展开每次发生
+     */
+    public boolean isRecurring() {
+        return mRecurrenceRule != null || mRecurrenceDates != null;
+    }
+
+    public String getRecurrenceRule() {
+        return mRecurrenceRule;
+    }
+
+    public String getRecurrenceDates() {
+        return mRecurrenceDates;
+    }
+
+    public String getExceptionDates() {
+        return mExceptionDates;
+    }
+
+    /**
+     * @return RFC 5545 格式的持续时长，重复事件用它代替 DTEND
+     */
+    public String getDuration() {
+        if (isAllDay) return "P" + mAlarmDurationTime / DAY_MINUTES + "D";
+        return "P" + mAlarmDurationTime * 60L + "S";
+    }
+
+    public boolean hasAlarm() {
+        return !mReminders.isEmpty();
+    }
+
+    /**
+     * @return 事件的全部提醒；未调用 addReminder 时为 setAlarmLeadTime 设置的单个提醒
+     */
+    public List<EventReminder> getReminders() {
+        return mReminders;
+    }
+
+    /**
+     * @return 提前提醒的分钟数
+     */
+    public long getAlarmLeadMinutes() {
+        return mAlarmDateType == null ? 0 : mAlarmDateType.toMinutes(mAlarmLeadTime);
+    }
+
+    /**
+     * @return 开始时间的时区 id，null 表示写入时的设备时区；全天事件为 UTC
+     */
+    public String getTimeZone() {
+        return mTimeZone;
+    }
+
+    /**
+     * @return 结束时间的时区 id，null 表示与开始时间相同
+     */
+    public String getEndTimeZone() {
+        return mEndTimeZone;
+    }
+
+    /**
+     * @return 是否为全天事件，全天事件的开始时间为 UTC 零点，时长为整天
+     */
+    public boolean isAllDay() {
+        return isAllDay;
+    }
+
+    public String getEventTitle() {
+        return mEventTitle;
+    }
+
+    public String getEventDescription() {
+        return mEventDescription;
+    }
+
+    public List<EventAttendee> getAttendees() {
+        return mAttendees;
+    }
+
+    /**
+     * @return 是否调用过 addAttendee/setAttendees，未调用时更新事件不改动现有参与人
+     */
+    boolean isAttendeesSet() {
+        return isAttendeesSet;
+    }
+
+    /**
+     * @return 扩展属性 名称 -> 值，值为 null 的属性在更新时删除、添加时忽略
+     */
+    public Map<String, String> getExtendedProperties() {
+        return mExtendedProperties;
+    }
+
+    /**
+     * @return 添加事件时随事件插入的子行数：提醒、参与人、扩展属性
+     */
+    int getChildRowCount() {
+        int count = mReminders.size() + mAttendees.size();
+        for (String value : mExtendedProperties.values()) {
+            if (value != null) count++;
+        }
+        return count;
+    }
+
+    public static class Builder {
+        //是否闹钟提醒
+        private boolean hasAlarm;
+        //事件开始时间  时间戳，不设置时使用创建时间
+        private long mAlarmStartTime;
+        //事件持续时长 默认10 分钟
+        private int mAlarmDurationTime = 10;
+        //提前提醒时间
+        private long mAlarmLeadTime;
+        //提前提醒时间类型 时、分、秒、天
+        private CalendarAlarmDateType mAlarmDateType;
+
+        //事件的标题
+        private String mEventTitle;
+        //事件的描述
+        private String mEventDescription;
+        //可选  多个提醒
+        private final List<EventReminder> mReminders = new ArrayList<>();
+        //可选  重复规则
+        private String mRecurrenceRule;
+        private String mRecurrenceDates;
+        private String mExceptionDates;
+        //可选  时区
+        private String mTimeZone;
+        private String mEndTimeZone;
+        private boolean isAllDay;
+        //可选  参与人、扩展属性
+        private final List<EventAttendee> mAttendees = new ArrayList<>();
+        private boolean isAttendeesSet;
+        private final Map<String, String> mExtendedProperties = new LinkedHashMap<>();
+
+        public Builder setHasAlarm(boolean hasAlarm) {
+            this.hasAlarm = hasAlarm;
+            return this;
+        }
+
+        public Builder setAlarmStartTime(long alarmStartTime) {
+            mAlarmStartTime = alarmStartTime;
+            return this;
+        }
+
+        public Builder setAlarmDurationTime(int alarmDurationTime) {
+            mAlarmDurationTime = alarmDurationTime;
+            return this;
+        }
+
+        public Builder setAlarmLeadTime(int alarmLeadTime, CalendarAlarmDateType alarmDateType) {
+            mAlarmLeadTime = alarmLeadTime;
+            mAlarmDateType = alarmDateType;
+            return this;
+        }
+
+        public Builder setEvent(@NonNull String eventTitle, @NonNull String eventDescription) {
+            this.mEventTitle = eventTitle;
+            this.mEventDescription = eventDescription;
+            return this;
+        }
+
+        /**
+         * 添加一个提醒，可多次调用；添加后 setHasAlarm/setAlarmLeadTime 不再生效
+         */
+        public Builder addReminder(@NonNull EventReminder reminder) {
+            mReminders.add(reminder);
+            return this;
+        }
+
+        /**
+         * 添加一个提醒
+         *
+         * @param method 提醒方式，如 CalendarContract.Reminders.METHOD_ALERT、METHOD_EMAIL
+         */
+        public Builder addReminder(int alarmLeadTime, CalendarAlarmDateType alarmDateType, int method) {
+            return addReminder(new EventReminder(alarmDateType.toMinutes(alarmLeadTime), method));
+        }
+
+        /**
+         * 设置重复规则，开始时间为第一次发生的时间，setAlarmDurationTime 为每次发生的时长
+         *
+         * @param rrule RFC 5545 RRULE，如 FREQ=DAILY;COUNT=10
+         */
+        public Builder setRecurrenceRule(String rrule) {
+            mRecurrenceRule = rrule;
+            return this;
+        }
+
+        /**
+         * @param rdate RFC 5545 RDATE，规则之外的额外发生时间
+         */
+        public Builder setRecurrenceDates(String rdate) {
+            mRecurrenceDates = rdate;
+            return this;
+        }
+
+        /**
+         * @param exdate RFC 5545 EXDATE，从规则中排除的发生时间
+         */
+        public Builder setExceptionDates(String exdate) {
+            mExceptionDates = exdate;
+            return this;
+        }
+
+        /**
+         * @param timeZone 开始时间的时区 id，如 Asia/Shanghai；不设置时使用写入时的设备时区
+         */
+        public Builder setTimeZone(String timeZone) {
+            mTimeZone = timeZone;
+            return this;
+        }
+
+        /**
+         * @param endTimeZone 结束时间的时区 id，用于跨时区的事件，如航班；不设置时与开始时间相同
+         */
+        public Builder setEndTimeZone(String endTimeZone) {
+            mEndTimeZone = endTimeZone;
+            return this;
+        }
+
+        /**
+         * 设为全天事件：开始时间取其在事件时区中的日期，转为该日期的 UTC 零点，
+         * 时长向上取整为整天，时区固定为 UTC
+         */
+        public Builder setAllDay(boolean allDay) {
+            isAllDay = allDay;
+            return this;
+        }
+
+        /**
+         * 添加一个参与人，可多次调用，同一邮箱只保留最后一次
+         */
+        public Builder addAttendee(@NonNull EventAttendee attendee) {
+            for (int i = mAttendees.size() - 1; i >= 0; i--) {
+                if (mAttendees.get(i).getEmail().equals(attendee.getEmail())) mAttendees.remove(i);
+            }
+            mAttendees.add(attendee);
+            isAttendeesSet = true;
+            return this;
+        }
+
+        /**
+         * 替换全部参与人；更新事件时传入空列表会删除现有参与人
+         */
+        public Builder setAttendees(@NonNull List<EventAttendee> attendees) {
+            mAttendees.clear();
+            for (EventAttendee attendee : attendees) {
+                addAttendee(attendee);
+            }
+            isAttendeesSet = true;
+            return this;
+        }
+
+        /**
+         * 设置一个扩展属性，如应用自己的同步数据；需要设置日历名称，provider 只允许 sync adapter 写入
+         * 更新事件时只改动设置过的名称，其它属性保持不变
+         *
+         * @param value null 表示更新时删除该属性
+         */
+        public Builder putExtendedProperty(@NonNull String name, String value) {
+            mExtendedProperties.put(name, value);
+            return this;
+        }
+
+        public EventSpec build() {
+            return new EventSpec(this);
+        }
+    }
+}
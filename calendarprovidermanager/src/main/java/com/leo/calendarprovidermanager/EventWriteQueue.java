@@ -0,0 +1,191 @@
+package com.leo.calendarprovidermanager;
+
+import android.os.Handler;
+import android.os.Looper;
+
+import androidx.annotation.NonNull;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 事件修改的延迟写入队列
+ * 拖动事件等连续修改先放入队列，同一个事件的多次修改合并为一次，中间状态不写入 provider。
+ * 第一个修改入队 flushDelayMillis 后，或待写入的事件数达到 maxPendingEvents 时，
+ * 在 CalendarExecutor 上用一个批次写入全部待写入的修改。
+ * 写入失败时修改放回队列，至少 RETRY_DELAY_MILLIS 后再次写入。
+ * 未写入的修改只在内存中，Activity.onStop 时应调用 flushAsync()，不在主线程上访问 provider；
+ * flush() 和 close() 在调用线程上写入，不应在主线程调用。
+ */
+public final class EventWriteQueue {
+    //默认延迟写入的时间 毫秒
+    static final long DEFAULT_FLUSH_DELAY_MILLIS = 1000;
+    //默认最多合并的事件数
+    static final int DEFAULT_MAX_PENDING_EVENTS = 50;
+    //写入失败后重试的最短间隔 毫秒
+    static final long RETRY_DELAY_MILLIS = 5000;
+
+    /**
+     * 写入一批修改，由 CalendarProviderManager 提供
+     */
+    interface Writer {
+        /**
+         * @return 更新的事件数，-1 表示失败
+         */
+        int write(Map<Long, EventPatch> patches);
+
+        /**
+         * @return 事件未设置时区时使用的时区 id
+         */
+        String defaultTimeZone();
+    }
+
+    private final Writer mWriter;
+    private final CalendarExecutor mExecutor;
+    private final long mFlushDelayMillis;
+    private final int mMaxPendingEvents;
+    private final Handler mMainHandler = new Handler(Looper.getMainLooper());
+    private final Runnable mFlushRunnable = new Runnable() {
+        @Override
+        public void run() {
+            flushAsync(null);
+        }
+    };
+
+    //eventId -> 合并后的修改，按第一次修改的顺序写入
+    private final Map<Long, EventPatch> mPending = new LinkedHashMap<>();
+    //保证取出和写入一起完成，同一个事件较早的修改不会晚于较新的修改写入
+    private final Object mWriteLock = new Object();
+    private boolean isScheduled;
+    private volatile boolean isClosed;
+
+    EventWriteQueue(Writer writer, CalendarExecutor executor, long flushDelayMillis, int maxPendingEvents) {
+        if (flushDelayMillis < 0 || maxPendingEvents <= 0)
+            throw new IllegalArgumentException("flushDelayMillis must not be negative and maxPendingEvents must be positive");
+        mWriter = writer;
+        mExecutor = executor;
+        mFlushDelayMillis = flushDelayMillis;
+        mMaxPendingEvents = maxPendingEvents;
+    }
+
+    /**
+     * 用 event 覆盖日历事件，之前未写入的修改被丢弃
+     */
+    public void updateCalendarEvent(long eventId, @NonNull EventSpec event) {
+        enqueue(eventId, EventPatch.of(event, mWriter.defaultTimeZone()), true);
+    }
+
+    /**
+     * 部分更新日历事件，与之前未写入的修改合并，相同的列以后设置的为准
+     */
+    public void patchCalendarEvent(long eventId, @NonNull EventPatch patch) {
+        if (patch.isEmpty()) return;
+        enqueue(eventId, patch, false);
+    }
+
+    /**
+     * 丢弃事件未写入的修改，如事件已被删除
+     */
+    public void discard(long eventId) {
+        synchronized (mPending) {
+            mPending.remove(eventId);
+        }
+    }
+
+    /**
+     * @return 待写入的事件数
+     */
+    public int getPendingCount() {
+        synchronized (mPending) {
+            return mPending.size();
+        }
+    }
+
+    /**
+     * 在调用线程上立即写入全部待写入的修改
+     * 写入失败时修改放回队列，与之后的修改合并后再次写入
+     *
+     * @return 更新的事件数，-1 表示失败
+     */
+    public int flush() {
+        synchronized (mWriteLock) {
+            Map<Long, EventPatch> patches;
+            synchronized (mPending) {
+                mMainHandler.removeCallbacks(mFlushRunnable);
+                isScheduled = false;
+                if (mPending.isEmpty()) return 0;
+                patches = new LinkedHashMap<>(mPending);
+                mPending.clear();
+            }
+            int count = mWriter.write(patches);
+            if (count < 0) requeue(patches);
+            return count;
+        }
+    }
+
+    /**
+     * 在 CalendarExecutor 上写入全部待写入的修改，不阻塞调用线程
+     *
+     * @return 更新的事件数，-1 表示失败
+     */
+    public Future<Integer> flushAsync(CalendarCallback<Integer> callback) {
+        return mExecutor.submit(this, new Callable<Integer>() {
+            @Override
+            public Integer call() {
+                return flush();
+            }
+        }, callback);
+    }
+
+    /**
+     * 写入剩余的修改并停止接收新的修改
+     *
+     * @return 更新的事件数，-1 表示失败
+     */
+    public int close() {
+        isClosed = true;
+        return flush();
+    }
+
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    private void enqueue(long eventId, EventPatch patch, boolean isReplace) {
+        if (isClosed) throw new IllegalStateException("EventWriteQueue is closed");
+        boolean isFull;
+        synchronized (mPending) {
+            EventPatch pending = mPending.get(eventId);
+            mPending.put(eventId, pending == null || isReplace ? patch : pending.merge(patch));
+            isFull = mPending.size() >= mMaxPendingEvents;
+            if (!isFull && !isScheduled) {
+                isScheduled = true;
+                mMainHandler.postDelayed(mFlushRunnable, mFlushDelayMillis);
+            }
+        }
+        if (isFull) flushAsync(null);
+    }
+
+    /**
+     * 失败的修改放回队列，队列中已有的较新修改覆盖它们，稍后再次写入
+     */
+    private void requeue(Map<Long, EventPatch> patches) {
+        synchronized (mPending) {
+            Map<Long, EventPatch> newer = new LinkedHashMap<>(mPending);
+            mPending.clear();
+            mPending.putAll(patches);
+            for (Map.Entry<Long, EventPatch> entry : newer.entrySet()) {
+                EventPatch failed = mPending.get(entry.getKey());
+                mPending.put(entry.getKey(), failed == null ? entry.getValue() : failed.merge(entry.getValue()));
+            }
+            //较新的修改可能已安排了写入，改为按重试间隔写入
+            mMainHandler.removeCallbacks(mFlushRunnable);
+            isScheduled = true;
+            mMainHandler.postDelayed(mFlushRunnable, Math.max(mFlushDelayMillis, RETRY_DELAY_MILLIS));
+        }
+    }
+}
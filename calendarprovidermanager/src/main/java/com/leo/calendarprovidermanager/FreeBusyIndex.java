@@ -0,0 +1,274 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentUris;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.CalendarContract;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TimeZone;
+import java.util.concurrent.Callable;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 一个时间窗口内的忙闲索引
+ * 创建时读取一次窗口内的 Instances，保存为 IntervalIndex，冲突查询不再访问 provider。
+ * 事件变化时通过 EventChangeFeed 得到变化的事件 id，只重新读取这些事件的实例并合并到索引中。
+ * 已取消的实例和忙闲状态为空闲（AVAILABILITY_FREE）的实例不占用时间；全天事件按设备时区的整天计算。
+ */
+public final class FreeBusyIndex {
+    private static final String[] PROJECTION = new String[]{
+            CalendarContract.Instances.EVENT_ID,
+            CalendarContract.Instances.BEGIN,
+            CalendarContract.Instances.END,
+            CalendarContract.Instances.ALL_DAY,
+            CalendarContract.Instances.STATUS,
+            CalendarContract.Instances.AVAILABILITY,
+            CalendarContract.Instances.ORIGINAL_ID
+    };
+
+    /**
+     * 读取窗口内的实例，由 CalendarProviderManager 提供
+     */
+    interface Loader {
+        /**
+         * @param eventIds    只读取这些事件，null 表示全部
+         * @param originalIds 写入读取到的例外事件 id -> 原重复事件 id
+         * @return 占用时间的实例，读取失败时为 null
+         */
+        IntervalIndex load(long windowStart, long windowEnd, Set<Long> eventIds, Map<Long, Long> originalIds);
+    }
+
+    private final long mWindowStart;
+    private final long mWindowEnd;
+    private final Loader mLoader;
+    private final CalendarExecutor mExecutor;
+    final EventChangeListener mListener = new EventChangeListener() {
+        @Override
+        public void onEventsChanged(EventChanges changes) {
+            refreshAsync(changes);
+        }
+    };
+
+    //只读，刷新时整体替换
+    private volatile IntervalIndex mIntervals;
+    //例外事件 id -> 原重复事件 id，例外事件变化时原事件的实例也要重新读取；只在 mExecutor 上访问
+    private final Map<Long, Long> mOriginalIds;
+    private EventChangeFeed mFeed;
+    private volatile boolean isClosed;
+
+    FreeBusyIndex(long windowStart, long windowEnd, IntervalIndex intervals, Map<Long, Long> originalIds,
+                  Loader loader, CalendarExecutor executor) {
+        mWindowStart = windowStart;
+        mWindowEnd = windowEnd;
+        mIntervals = intervals;
+        mOriginalIds = originalIds;
+        mLoader = loader;
+        mExecutor = executor;
+    }
+
+    void attach(EventChangeFeed feed) {
+        mFeed = feed;
+    }
+
+    public long getWindowStart() {
+        return mWindowStart;
+    }
+
+    public long getWindowEnd() {
+        return mWindowEnd;
+    }
+
+    /**
+     * @return 与 [start, end) 重叠的事件 id，按实例开始时间排列，不重复
+     */
+    public long[] findConflicts(long start, long end) {
+        checkRange(start, end);
+        IntervalIndex intervals = mIntervals;
+        int[] hits = intervals.overlapping(start, end);
+        Set<Long> eventIds = new LinkedHashSet<>();
+        for (int hit : hits) {
+            eventIds.add(intervals.eventIdAt(hit));
+        }
+        long[] result = new long[eventIds.size()];
+        int i = 0;
+        for (Long eventId : eventIds) {
+            result[i++] = eventId;
+        }
+        return result;
+    }
+
+    /**
+     * @return [start, end) 内没有任何占用时间的实例
+     */
+    public boolean isFree(long start, long end) {
+        checkRange(start, end);
+        return mIntervals.overlapping(start, end).length == 0;
+    }
+
+    /**
+     * 查找 [from, to) 内不短于 durationTime 的空闲时间段
+     *
+     * @param durationTime 最短时长 分钟
+     * @return 按时间排列的空闲时间段，每段都是完整的空闲区间
+     */
+    public List<TimeSlot> findFreeSlots(long from, long to, int durationTime) {
+        checkRange(from, to);
+        if (durationTime <= 0) throw new IllegalArgumentException("durationTime must be positive");
+        return freeSlots(mIntervals, from, to, durationTime * 60000L);
+    }
+
+    static List<TimeSlot> freeSlots(IntervalIndex intervals, long from, long to, long durationMillis) {
+        List<TimeSlot> slots = new ArrayList<>();
+        long cursor = from;
+        //重叠的实例按开始时间排列，依次推进空闲区间的起点
+        for (int hit : intervals.overlapping(from, to)) {
+            long begin = intervals.beginAt(hit);
+            if (begin - cursor >= durationMillis) slots.add(new TimeSlot(cursor, begin));
+            cursor = Math.max(cursor, intervals.endAt(hit));
+        }
+        if (to - cursor >= durationMillis) slots.add(new TimeSlot(cursor, to));
+        return slots;
+    }
+
+    /**
+     * 取消变化订阅，索引保持最后一次刷新的状态
+     */
+    public void close() {
+        isClosed = true;
+        if (mFeed != null) mFeed.close();
+    }
+
+    public boolean isClosed() {
+        return isClosed;
+    }
+
+    private void checkRange(long start, long end) {
+        if (start >= end || start < mWindowStart || end > mWindowEnd)
+            throw new IllegalArgumentException("Range must be inside the window ["
+                    + mWindowStart + ", " + mWindowEnd + ")");
+    }
+
+    private void refreshAsync(final EventChanges changes) {
+        if (isClosed) return;
+        mExecutor.submit(this, new Callable<Void>() {
+            @Override
+            public Void call() {
+                if (!isClosed) refresh(changes);
+                return null;
+            }
+        }, null);
+    }
+
+    private void refresh(EventChanges changes) {
+        Set<Long> eventIds = new HashSet<>();
+        eventIds.addAll(changes.getAddedIds());
+        eventIds.addAll(changes.getUpdatedIds());
+        eventIds.addAll(changes.getDeletedIds());
+        for (Long eventId : new ArrayList<>(eventIds)) {
+            Long originalId = mOriginalIds.get(eventId);
+            if (originalId != null) eventIds.add(originalId);
+        }
+
+        Map<Long, Long> originalIds = new HashMap<>();
+        IntervalIndex added = mLoader.load(mWindowStart, mWindowEnd, eventIds, originalIds);
+        if (added == null) return;
+        //新的例外事件改变了原重复事件的实例
+        if (!eventIds.containsAll(originalIds.values())) {
+            eventIds.addAll(originalIds.values());
+            added = mLoader.load(mWindowStart, mWindowEnd, eventIds, originalIds);
+            if (added == null) return;
+        }
+        mOriginalIds.keySet().removeAll(eventIds);
+        mOriginalIds.putAll(originalIds);
+        mIntervals = mIntervals.replace(eventIds, added);
+    }
+
+    /**
+     * 读取日历在窗口内的实例
+     *
+     * @return 占用时间的实例，查询失败时为 null
+     */
+    static IntervalIndex query(CalendarResolver resolver, long calendarId, long windowStart, long windowEnd,
+                               Set<Long> eventIds, Map<Long, Long> originalIds) {
+        Uri.Builder builder = CalendarContract.Instances.CONTENT_URI.buildUpon();
+        ContentUris.appendId(builder, windowStart);
+        ContentUris.appendId(builder, windowEnd);
+        Uri uri = builder.build();
+
+        Intervals intervals = new Intervals();
+        String selection = CalendarContract.Instances.CALENDAR_ID + "=?";
+        if (eventIds == null) {
+            if (!read(resolver.query(uri, PROJECTION, selection, new String[]{String.valueOf(calendarId)},
+                    CalendarContract.Instances.BEGIN + " ASC"), intervals, originalIds)) return null;
+            return intervals.build();
+        }
+
+        List<Long> ids = new ArrayList<>(eventIds);
+        for (int from = 0; from < ids.size(); from += Selections.MAX_IN_ARGUMENTS) {
+            int to = Math.min(from + Selections.MAX_IN_ARGUMENTS, ids.size());
+            String[] args = new String[to - from + 1];
+            args[0] = String.valueOf(calendarId);
+            System.arraycopy(Selections.args(ids, from, to), 0, args, 1, to - from);
+            if (!read(resolver.query(uri, PROJECTION,
+                    selection + " AND " + Selections.in(CalendarContract.Instances.EVENT_ID, to - from), args,
+                    CalendarContract.Instances.BEGIN + " ASC"), intervals, originalIds)) return null;
+        }
+        return intervals.build();
+    }
+
+    private static boolean read(Cursor cursor, Intervals intervals, Map<Long, Long> originalIds) {
+        if (cursor == null) return false;
+        TimeZone timeZone = TimeZone.getDefault();
+        try {
+            while (cursor.moveToNext()) {
+                long eventId = cursor.getLong(0);
+                if (!cursor.isNull(6)) originalIds.put(eventId, cursor.getLong(6));
+                if (!cursor.isNull(4) && cursor.getInt(4) == CalendarContract.Events.STATUS_CANCELED) continue;
+                if (!cursor.isNull(5) && cursor.getInt(5) == CalendarContract.Events.AVAILABILITY_FREE) continue;
+                long begin = cursor.getLong(1);
+                long end = cursor.getLong(2);
+                if (cursor.getInt(3) == 1) {
+                    //全天事件的时间是 UTC 零点，换算为设备时区的零点
+                    begin -= timeZone.getOffset(begin);
+                    end -= timeZone.getOffset(end);
+                }
+                intervals.add(begin, end, eventId);
+            }
+        } finally {
+            cursor.close();
+        }
+        return true;
+    }
+
+    private static final class Intervals {
+        private long[] mBegins = new long[16];
+        private long[] mEnds = new long[16];
+        private long[] mEventIds = new long[16];
+        private int mSize;
+
+        void add(long begin, long end, long eventId) {
+            if (mSize == mBegins.length) {
+                mBegins = Arrays.copyOf(mBegins, mSize * 2);
+                mEnds = Arrays.copyOf(mEnds, mSize * 2);
+                mEventIds = Arrays.copyOf(mEventIds, mSize * 2);
+            }
+            mBegins[mSize] = begin;
+            mEnds[mSize] = end;
+            mEventIds[mSize] = eventId;
+            mSize++;
+        }
+
+        IntervalIndex build() {
+            return IntervalIndex.of(mBegins, mEnds, mEventIds, mSize);
+        }
+    }
+}
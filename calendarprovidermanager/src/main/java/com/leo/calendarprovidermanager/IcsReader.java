@@ -0,0 +1,379 @@
+package com.leo.calendarprovidermanager;
+
+import android.provider.CalendarContract;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 逐个读取 .ics 文件中的 VEVENT
+ * 按行读取并展开折行，每次只保留当前事件，内存占用与文件大小无关。
+ * 支持 UID、SUMMARY、DESCRIPTION、DTSTART（含 TZID 和全天日期）、DTEND/DURATION、RRULE、RDATE、EXDATE 和 VALARM 中的 TRIGGER；
+ * 没有 DTSTART 的事件和 RECURRENCE-ID 例外事件被跳过。
+ */
+final class IcsReader implements Closeable {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final int DEFAULT_DURATION_MINUTES = 60;
+    private static final int ALL_DAY_MINUTES = 24 * 60;
+    private static final long DAY_MILLIS = 24 * 60 * 60 * 1000L;
+
+    private final BufferedReader mReader;
+    //预读的下一行，用于判断折行
+    private String mNextLine;
+    private final Calendar mCalendar = Calendar.getInstance();
+    private int mSkippedCount;
+    //最近一次 next() 返回的事件的 UID
+    private String mUid;
+
+    IcsReader(InputStream in) {
+        mReader = new BufferedReader(new InputStreamReader(in, UTF_8));
+    }
+
+    /**
+     * @return 下一个事件，没有更多事件时为 null
+     */
+    EventSpec next() throws IOException {
+        mUid = null;
+        String line;
+        while ((line = readLine()) != null) {
+            if (line.equalsIgnoreCase("BEGIN:VEVENT")) {
+                EventSpec event = readEvent();
+                if (event != null) return event;
+                mSkippedCount++;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * @return 最近一次 next() 返回的事件的 UID，没有时为 null
+     */
+    String getUid() {
+        return mUid;
+    }
+
+    /**
+     * @return 被跳过的事件数
+     */
+    int getSkippedCount() {
+        return mSkippedCount;
+    }
+
+    @Override
+    public void close() throws IOException {
+        mReader.close();
+    }
+
+    /**
+     * 读取到 END:VEVENT，无法导入时返回 null
+     */
+    private EventSpec readEvent() throws IOException {
+        EventSpec.Builder builder = new EventSpec.Builder();
+        String uid = null;
+        String title = "";
+        String description = "";
+        long start = -1;
+        long end = -1;
+        int duration = -1;
+        boolean isAllDay = false;
+        String timeZone = null;
+        boolean isException = false;
+        StringBuilder rdate = null;
+        StringBuilder exdate = null;
+        //VALARM 内的 TRIGGER 与 ACTION
+        boolean inAlarm = false;
+        long alarmMinutes = -1;
+        int alarmMethod = CalendarContract.Reminders.METHOD_ALERT;
+
+        String line;
+        while ((line = readLine()) != null) {
+            Property property = Property.parse(line);
+            if (property == null) continue;
+            String name = property.mName;
+            if (inAlarm) {
+                if (name.equals("END") && property.mValue.equalsIgnoreCase("VALARM")) {
+                    inAlarm = false;
+                    if (alarmMinutes >= 0) builder.addReminder(new EventReminder(alarmMinutes, alarmMethod));
+                } else if (name.equals("TRIGGER")) {
+                    alarmMinutes = triggerMinutes(property, start);
+                } else if (name.equals("ACTION") && property.mValue.equalsIgnoreCase("EMAIL")) {
+                    alarmMethod = CalendarContract.Reminders.METHOD_EMAIL;
+                }
+                continue;
+            }
+            switch (name) {
+                case "BEGIN":
+                    if (property.mValue.equalsIgnoreCase("VALARM")) {
+                        inAlarm = true;
+                        alarmMinutes = -1;
+                        alarmMethod = CalendarContract.Reminders.METHOD_ALERT;
+                    }
+                    break;
+                case "END":
+                    if (!property.mValue.equalsIgnoreCase("VEVENT")) break;
+                    if (start < 0 || isException) return null;
+                    if (duration < 0) {
+                        if (end >= start && isAllDay) {
+                            //跨夏令时切换的日期相差 23 或 25 小时，按整天取整
+                            duration = (int) Math.round((end - start) / (double) DAY_MILLIS) * ALL_DAY_MINUTES;
+                        } else if (end >= start) {
+                            duration = (int) ((end - start) / 60000);
+                        } else {
+                            duration = isAllDay ? ALL_DAY_MINUTES : DEFAULT_DURATION_MINUTES;
+                        }
+                    }
+                    mUid = uid;
+                    return builder.setEvent(title, description)
+                            .setAllDay(isAllDay)
+                            .setTimeZone(isAllDay ? null : timeZone)
+                            .setAlarmStartTime(start)
+                            .setAlarmDurationTime(duration)
+                            .setRecurrenceDates(rdate == null ? null : rdate.toString())
+                            .setExceptionDates(exdate == null ? null : exdate.toString())
+                            .build();
+                case "UID":
+                    uid = unescape(property.mValue);
+                    if (uid.isEmpty()) uid = null;
+                    break;
+                case "SUMMARY":
+                    title = unescape(property.mValue);
+                    break;
+                case "DESCRIPTION":
+                    description = unescape(property.mValue);
+                    break;
+                case "DTSTART":
+                    isAllDay = property.isDate();
+                    start = parseTime(property.mValue, property.param("TZID"));
+                    timeZone = property.mValue.endsWith("Z") ? CalendarTimeZones.UTC : property.param("TZID");
+                    //未知时区按设备时区处理
+                    if (timeZone != null && !CalendarTimeZones.isValid(timeZone)) timeZone = null;
+                    break;
+                case "DTEND":
+                    end = parseTime(property.mValue, property.param("TZID"));
+                    break;
+                case "DURATION":
+                    long seconds = parseDuration(property.mValue);
+                    if (seconds >= 0) duration = (int) (seconds / 60);
+                    break;
+                case "RRULE":
+                    builder.setRecurrenceRule(property.mValue);
+                    break;
+                case "RDATE":
+                    rdate = appendDates(rdate, property);
+                    break;
+                case "EXDATE":
+                    exdate = appendDates(exdate, property);
+                    break;
+                case "RECURRENCE-ID":
+                    isException = true;
+                    break;
+                default:
+                    break;
+            }
+        }
+        //文件在事件中途结束
+        return null;
+    }
+
+    /**
+     * provider 中 RDATE/EXDATE 的格式为 [TZID;]时间,时间...，多行合并为一个值
+     */
+    private static StringBuilder appendDates(StringBuilder dates, Property property) {
+        String tzid = property.param("TZID");
+        if (dates == null) {
+            dates = new StringBuilder();
+            if (tzid != null) dates.append(tzid).append(';');
+        } else {
+            dates.append(',');
+        }
+        return dates.append(property.mValue);
+    }
+
+    /**
+     * @return 提前提醒的分钟数，在开始时间之后的提醒返回 -1
+     */
+    private long triggerMinutes(Property property, long start) {
+        String value = property.mValue;
+        if ("DATE-TIME".equalsIgnoreCase(property.param("VALUE"))) {
+            if (start < 0) return -1;
+            long minutes = (start - parseTime(value, null)) / 60000;
+            return minutes >= 0 ? minutes : -1;
+        }
+        //RELATED=END 的提醒无法用 Reminders 表示，按开始时间处理
+        if (value.startsWith("-")) {
+            long seconds = parseDuration(value.substring(1));
+            return seconds < 0 ? -1 : seconds / 60;
+        }
+        long seconds = parseDuration(value.startsWith("+") ? value.substring(1) : value);
+        return seconds == 0 ? 0 : -1;
+    }
+
+    /**
+     * 解析 yyyyMMdd、yyyyMMddTHHmmss 和 yyyyMMddTHHmmssZ
+     * 没有 Z 和 TZID 的时间以及日期按设备时区处理
+     */
+    private long parseTime(String value, String tzid) {
+        if (value.length() < 8) return -1;
+        TimeZone timeZone;
+        if (value.endsWith("Z")) {
+            timeZone = timeZone("UTC");
+        } else if (tzid != null) {
+            timeZone = timeZone(tzid);
+        } else {
+            timeZone = TimeZone.getDefault();
+        }
+        try {
+            mCalendar.clear();
+            mCalendar.setTimeZone(timeZone);
+            mCalendar.set(Integer.parseInt(value.substring(0, 4)), Integer.parseInt(value.substring(4, 6)) - 1,
+                    Integer.parseInt(value.substring(6, 8)));
+            if (value.length() >= 15 && value.charAt(8) == 'T') {
+                mCalendar.set(Calendar.HOUR_OF_DAY, Integer.parseInt(value.substring(9, 11)));
+                mCalendar.set(Calendar.MINUTE, Integer.parseInt(value.substring(11, 13)));
+                mCalendar.set(Calendar.SECOND, Integer.parseInt(value.substring(13, 15)));
+            }
+            return mCalendar.getTimeInMillis();
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    private static TimeZone timeZone(String id) {
+        TimeZone timeZone = CalendarTimeZones.get(id);
+        return timeZone != null ? timeZone : TimeZone.getDefault();
+    }
+
+    /**
+     * 解析 RFC 5545 DURATION，如 PT1H30M、P1D、P2W
+     *
+     * @return 秒，格式错误时为 -1
+     */
+    static long parseDuration(String value) {
+        if (value.isEmpty() || value.charAt(0) != 'P') return -1;
+        long seconds = 0;
+        long number = 0;
+        boolean hasNumber = false;
+        for (int i = 1; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c >= '0' && c <= '9') {
+                number = number * 10 + (c - '0');
+                hasNumber = true;
+                continue;
+            }
+            if (c == 'T') continue;
+            if (!hasNumber) return -1;
+            switch (c) {
+                case 'W':
+                    seconds += number * 7 * 24 * 3600;
+                    break;
+                case 'D':
+                    seconds += number * 24 * 3600;
+                    break;
+                case 'H':
+                    seconds += number * 3600;
+                    break;
+                case 'M':
+                    seconds += number * 60;
+                    break;
+                case 'S':
+                    seconds += number;
+                    break;
+                default:
+                    return -1;
+            }
+            number = 0;
+            hasNumber = false;
+        }
+        return hasNumber ? -1 : seconds;
+    }
+
+    private static String unescape(String value) {
+        if (value.indexOf('\\') < 0) return value;
+        StringBuilder builder = new StringBuilder(value.length());
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '\\' && i + 1 < value.length()) {
+                char next = value.charAt(++i);
+                builder.append(next == 'n' || next == 'N' ? '\n' : next);
+            } else {
+                builder.append(c);
+            }
+        }
+        return builder.toString();
+    }
+
+    /**
+     * 读取一个逻辑行，以空格或制表符开头的行是上一行的延续
+     */
+    private String readLine() throws IOException {
+        String line = mNextLine != null ? mNextLine : mReader.readLine();
+        mNextLine = null;
+        if (line == null) return null;
+        StringBuilder unfolded = null;
+        String next;
+        while ((next = mReader.readLine()) != null) {
+            if (next.isEmpty() || (next.charAt(0) != ' ' && next.charAt(0) != '\t')) {
+                mNextLine = next;
+                break;
+            }
+            if (unfolded == null) unfolded = new StringBuilder(line);
+            unfolded.append(next, 1, next.length());
+        }
+        return unfolded == null ? line : unfolded.toString();
+    }
+
+    /**
+     * 内容行 NAME;PARAM=VALUE:VALUE
+     */
+    private static final class Property {
+        private String mName;
+        //;PARAM=VALUE... 部分，没有参数时为 null
+        private String mParams;
+        private String mValue;
+
+        static Property parse(String line) {
+            //参数值可以用引号包含冒号
+            boolean quoted = false;
+            int paramsStart = -1;
+            for (int i = 0; i < line.length(); i++) {
+                char c = line.charAt(i);
+                if (c == '"') {
+                    quoted = !quoted;
+                } else if (!quoted && c == ';' && paramsStart < 0) {
+                    paramsStart = i;
+                } else if (!quoted && c == ':') {
+                    Property property = new Property();
+                    property.mName = line.substring(0, paramsStart < 0 ? i : paramsStart).toUpperCase();
+                    property.mParams = paramsStart < 0 ? null : line.substring(paramsStart, i);
+                    property.mValue = line.substring(i + 1);
+                    return property;
+                }
+            }
+            return null;
+        }
+
+        String param(String name) {
+            if (mParams == null) return null;
+            String key = ';' + name + '=';
+            int index = mParams.toUpperCase().indexOf(key);
+            if (index < 0) return null;
+            int start = index + key.length();
+            int end = mParams.indexOf(';', start);
+            String value = mParams.substring(start, end < 0 ? mParams.length() : end);
+            if (value.length() >= 2 && value.charAt(0) == '"') value = value.substring(1, value.length() - 1);
+            return value;
+        }
+
+        boolean isDate() {
+            return "DATE".equalsIgnoreCase(param("VALUE")) || mValue.length() == 8;
+        }
+    }
+}
@@ -0,0 +1,311 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.os.RemoteException;
+import android.provider.CalendarContract;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 日历与 .ics 文件之间的导入导出
+ * 导入时边读边写，每 PAGE 个事件一页，事件及其提醒按 OperationBatcher 分批写入；
+ * 带 UID 的事件按 UID_2445 查找已有事件，存在时更新，否则插入并写入 UID_2445，导出后再导入不会重复；
+ * 没有 UID_2445 的事件导出为 eventId@uidDomain，导入时仍是同一个没有 key 的事件则更新它，不写入 key。
+ * 导出时按 PAGE 行读取游标，每页查询一次提醒后直接写出。两者占用的内存都与事件数无关。
+ */
+final class IcsTransfer {
+    //导入时每次查询已有子行、导出时每次查询提醒的事件数
+    private static final int PAGE = Selections.MAX_IN_ARGUMENTS;
+
+    private static final String[] EXPORT_PROJECTION = new String[]{
+            CalendarContract.Events._ID,
+            CalendarContract.Events.UID_2445,
+            CalendarContract.Events.TITLE,
+            CalendarContract.Events.DESCRIPTION,
+            CalendarContract.Events.DTSTART,
+            CalendarContract.Events.DTEND,
+            CalendarContract.Events.DURATION,
+            CalendarContract.Events.ALL_DAY,
+            CalendarContract.Events.RRULE,
+            CalendarContract.Events.RDATE,
+            CalendarContract.Events.EXDATE,
+            CalendarContract.Events.EVENT_TIMEZONE
+    };
+    private static final int INDEX_ID = 0;
+    private static final int INDEX_UID = 1;
+    private static final int INDEX_TITLE = 2;
+    private static final int INDEX_DESCRIPTION = 3;
+    private static final int INDEX_DTSTART = 4;
+    private static final int INDEX_DTEND = 5;
+    private static final int INDEX_DURATION = 6;
+    private static final int INDEX_ALL_DAY = 7;
+    private static final int INDEX_RRULE = 8;
+    private static final int INDEX_RDATE = 9;
+    private static final int INDEX_EXDATE = 10;
+    private static final int INDEX_TIMEZONE = 11;
+
+    /**
+     * 按 UID 查找和记录事件，由 CalendarProviderManager 通过 EventKeyIndex 提供
+     */
+    interface EventKeys {
+        /**
+         * @return UID_2445 为 uid 的事件 id，-1 表示不存在
+         */
+        long find(String uid);
+
+        /**
+         * 记录新插入的事件
+         */
+        void putAll(Map<String, Long> eventIds);
+    }
+
+    private final CalendarResolver mResolver;
+    private final long mCalendarId;
+    //事件未设置时区时使用的时区 id
+    private final String mDefaultTimeZone;
+
+    IcsTransfer(CalendarResolver resolver, long calendarId, String defaultTimeZone) {
+        mResolver = resolver;
+        mCalendarId = calendarId;
+        mDefaultTimeZone = defaultTimeZone;
+    }
+
+    /**
+     * 读取全部事件并分批写入，失败时之前已提交的批次不会回滚
+     * 同一个 UID 在文件中出现多次时以最后一个为准
+     *
+     * @param uidDomain 与导出时相同，用于识别本日历导出的没有 key 的事件
+     * @return 插入和更新的事件数
+     */
+    int importEvents(IcsReader reader, EventKeys keys, String uidDomain)
+            throws IOException, RemoteException, OperationApplicationException {
+        int count = 0;
+        //uid -> 事件，同一页中相同 UID 只保留最后一个
+        Map<String, EventSpec> keyed = new LinkedHashMap<>();
+        List<EventSpec> unkeyed = new ArrayList<>();
+        EventSpec event;
+        while ((event = reader.next()) != null) {
+            String uid = reader.getUid();
+            if (uid == null) {
+                unkeyed.add(event);
+            } else {
+                keyed.remove(uid);
+                keyed.put(uid, event);
+            }
+            if (keyed.size() + unkeyed.size() == PAGE) count += importPage(keyed, unkeyed, keys, uidDomain);
+        }
+        count += importPage(keyed, unkeyed, keys, uidDomain);
+        return count;
+    }
+
+    private int importPage(Map<String, EventSpec> keyed, List<EventSpec> unkeyed, EventKeys keys, String uidDomain)
+            throws RemoteException, OperationApplicationException {
+        if (keyed.isEmpty() && unkeyed.isEmpty()) return 0;
+        Map<String, Long> existingIds = new HashMap<>();
+        //eventId -> uid
+        Map<Long, String> exportedIds = new HashMap<>();
+        for (String uid : keyed.keySet()) {
+            long eventId = keys.find(uid);
+            if (eventId > -1) {
+                existingIds.put(uid, eventId);
+            } else {
+                eventId = exportedEventId(uid, uidDomain);
+                if (eventId > -1) exportedIds.put(eventId, uid);
+            }
+        }
+        matchExportedEvents(exportedIds, keyed, existingIds);
+
+        //已存在的事件改为更新，一次查询这一页中它们的提醒、参与人和扩展属性
+        Map<String, EventPatch> patches = new HashMap<>();
+        EventChildRows childRows = new EventChildRows();
+        for (Map.Entry<String, Long> entry : existingIds.entrySet()) {
+            EventPatch patch = EventPatch.of(keyed.get(entry.getKey()), mDefaultTimeZone);
+            patches.put(entry.getKey(), patch);
+            childRows.add(entry.getValue(), patch);
+        }
+        childRows.query(mResolver);
+
+        List<String> insertedKeys = new ArrayList<>(keyed.size() - existingIds.size());
+        OperationBatcher batcher = new OperationBatcher(mResolver, OperationBatcher.DEFAULT_MAX_OPERATIONS,
+                keyed.size() - existingIds.size());
+        try {
+            for (EventSpec event : unkeyed) {
+                insert(batcher, event, null, -1);
+            }
+            for (Map.Entry<String, EventSpec> entry : keyed.entrySet()) {
+                Long eventId = existingIds.get(entry.getKey());
+                if (eventId == null) {
+                    insert(batcher, entry.getValue(), entry.getKey(), insertedKeys.size());
+                    insertedKeys.add(entry.getKey());
+                    continue;
+                }
+                EventPatch patch = patches.get(entry.getKey());
+                OperationList childOperations = childRows.diff(mResolver.uris(), eventId, patch);
+                batcher.beginGroup(1 + childOperations.size());
+                batcher.update(ContentProviderOperation.newUpdate(mResolver.uris().event(eventId))
+                        .withValues(patch.getValues())
+                        .build());
+                batcher.addAll(childOperations);
+            }
+            batcher.flush();
+        } finally {
+            //已提交的批次中插入的事件写入索引，之后的页和 upsertCalendarEvent 能找到它们
+            long[] insertedIds = batcher.getInsertedIds();
+            Map<String, Long> insertedKeyIds = new HashMap<>();
+            for (int slot = 0; slot < insertedKeys.size(); slot++) {
+                if (insertedIds[slot] > -1) insertedKeyIds.put(insertedKeys.get(slot), insertedIds[slot]);
+            }
+            keys.putAll(insertedKeyIds);
+        }
+        int count = keyed.size() + unkeyed.size();
+        keyed.clear();
+        unkeyed.clear();
+        return count;
+    }
+
+    /**
+     * @return uid 为 exportEvents 生成的 eventId@uidDomain 时的 eventId，否则为 -1
+     */
+    private static long exportedEventId(String uid, String uidDomain) {
+        String suffix = "@" + uidDomain;
+        if (!uid.endsWith(suffix) || uid.length() == suffix.length()) return -1;
+        try {
+            return Long.parseLong(uid.substring(0, uid.length() - suffix.length()));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * 本日历中仍没有 key、开始时间也相同的事件视为导出的那个事件，写入 existingIds
+     * 在其它设备上恢复时 id 可能属于无关的事件，因此比较开始时间
+     */
+    private void matchExportedEvents(Map<Long, String> exportedIds, Map<String, EventSpec> keyed,
+                                     Map<String, Long> existingIds) {
+        if (exportedIds.isEmpty()) return;
+        List<Long> eventIds = new ArrayList<>(exportedIds.keySet());
+        String[] args = new String[eventIds.size() + 1];
+        args[0] = String.valueOf(mCalendarId);
+        System.arraycopy(Selections.args(eventIds, 0, eventIds.size()), 0, args, 1, eventIds.size());
+        Cursor cursor = mResolver.query(CalendarContract.Events.CONTENT_URI,
+                new String[]{CalendarContract.Events._ID, CalendarContract.Events.DTSTART},
+                CalendarContract.Events.CALENDAR_ID + "=? AND "
+                        + CalendarContract.Events.DELETED + "=0 AND "
+                        + CalendarContract.Events.ORIGINAL_ID + " IS NULL AND "
+                        + CalendarReconciler.EXTERNAL_ID + " IS NULL AND "
+                        + Selections.in(CalendarContract.Events._ID, eventIds.size()),
+                args, null);
+        if (cursor == null) return;
+        try {
+            while (cursor.moveToNext()) {
+                String uid = exportedIds.get(cursor.getLong(0));
+                Long start = CalendarProviderManager.buildEventValues(mCalendarId, keyed.get(uid), mDefaultTimeZone)
+                        .getAsLong(CalendarContract.Events.DTSTART);
+                if (start != null && start == cursor.getLong(1)) existingIds.put(uid, cursor.getLong(0));
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @param uid  写入 UID_2445，null 表示不写入
+     * @param slot 插入 id 的位置，-1 表示不需要
+     */
+    private void insert(OperationBatcher batcher, EventSpec event, String uid, int slot)
+            throws RemoteException, OperationApplicationException {
+        int eventIndex = batcher.beginGroup(1 + event.getChildRowCount());
+        ContentValues values = CalendarProviderManager.buildEventValues(mCalendarId, event, mDefaultTimeZone);
+        if (uid != null) values.put(CalendarReconciler.EXTERNAL_ID, uid);
+        ContentProviderOperation operation = ContentProviderOperation.newInsert(mResolver.uris().events())
+                .withValues(values)
+                .build();
+        if (slot > -1) {
+            batcher.insert(operation, slot);
+        } else {
+            batcher.insert(operation);
+        }
+        batcher.addAll(CalendarProviderManager.insertChildOperations(mResolver.uris(), eventIndex, event));
+    }
+
+    /**
+     * 导出日历中的事件，例外事件不导出
+     *
+     * @param uidDomain 没有 UID_2445 的事件导出为 eventId@uidDomain
+     * @return 导出的事件数
+     */
+    int exportEvents(IcsWriter writer, String uidDomain) throws IOException {
+        Cursor cursor = mResolver.query(CalendarContract.Events.CONTENT_URI, EXPORT_PROJECTION,
+                CalendarContract.Events.CALENDAR_ID + "=? AND "
+                        + CalendarContract.Events.DELETED + "=0 AND "
+                        + CalendarContract.Events.ORIGINAL_ID + " IS NULL",
+                new String[]{String.valueOf(mCalendarId)}, CalendarContract.Events._ID + " ASC");
+        if (cursor == null) return -1;
+        int count = 0;
+        writer.begin();
+        try {
+            List<Object[]> page = new ArrayList<>(PAGE);
+            List<Long> eventIds = new ArrayList<>(PAGE);
+            while (cursor.moveToNext()) {
+                Object[] row = new Object[EXPORT_PROJECTION.length];
+                row[INDEX_ID] = cursor.getLong(INDEX_ID);
+                row[INDEX_UID] = cursor.getString(INDEX_UID);
+                row[INDEX_TITLE] = cursor.getString(INDEX_TITLE);
+                row[INDEX_DESCRIPTION] = cursor.getString(INDEX_DESCRIPTION);
+                row[INDEX_DTSTART] = cursor.getLong(INDEX_DTSTART);
+                row[INDEX_DTEND] = cursor.isNull(INDEX_DTEND) ? -1L : cursor.getLong(INDEX_DTEND);
+                row[INDEX_DURATION] = cursor.getString(INDEX_DURATION);
+                row[INDEX_ALL_DAY] = cursor.getInt(INDEX_ALL_DAY) == 1;
+                row[INDEX_RRULE] = cursor.getString(INDEX_RRULE);
+                row[INDEX_RDATE] = cursor.getString(INDEX_RDATE);
+                row[INDEX_EXDATE] = cursor.getString(INDEX_EXDATE);
+                row[INDEX_TIMEZONE] = cursor.getString(INDEX_TIMEZONE);
+                page.add(row);
+                eventIds.add((Long) row[INDEX_ID]);
+                if (page.size() == PAGE) {
+                    count += writePage(writer, page, eventIds, uidDomain);
+                }
+            }
+            count += writePage(writer, page, eventIds, uidDomain);
+        } finally {
+            cursor.close();
+        }
+        writer.end();
+        return count;
+    }
+
+    private int writePage(IcsWriter writer, List<Object[]> page, List<Long> eventIds, String uidDomain)
+            throws IOException {
+        if (page.isEmpty()) return 0;
+        Map<Long, Map<Long, EventReminder>> reminders = EventReminders.query(mResolver, eventIds);
+        for (Object[] row : page) {
+            long eventId = (Long) row[INDEX_ID];
+            String uid = (String) row[INDEX_UID];
+            String duration = (String) row[INDEX_DURATION];
+            Map<Long, EventReminder> eventReminders = reminders.get(eventId);
+            writer.writeEvent(uid != null ? uid : eventId + "@" + uidDomain,
+                    (String) row[INDEX_TITLE], (String) row[INDEX_DESCRIPTION],
+                    (Long) row[INDEX_DTSTART], (Long) row[INDEX_DTEND],
+                    duration == null || duration.isEmpty() ? null : duration,
+                    (Boolean) row[INDEX_ALL_DAY], (String) row[INDEX_TIMEZONE],
+                    (String) row[INDEX_RRULE], (String) row[INDEX_RDATE], (String) row[INDEX_EXDATE],
+                    eventReminders == null ? Collections.<EventReminder>emptyList()
+                            : new ArrayList<>(eventReminders.values()));
+        }
+        int count = page.size();
+        page.clear();
+        eventIds.clear();
+        return count;
+    }
+}
@@ -0,0 +1,222 @@
+package com.leo.calendarprovidermanager;
+
+import android.provider.CalendarContract;
+
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.Charset;
+import java.util.Calendar;
+import java.util.List;
+import java.util.TimeZone;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 把事件逐个写入 .ics 文件
+ * 写入经过缓冲直接输出到流，不在内存中拼接整个文件；超过 75 字节的行按 RFC 5545 折行。
+ */
+final class IcsWriter implements Closeable {
+    private static final Charset UTF_8 = Charset.forName("UTF-8");
+    private static final String CRLF = "\r\n";
+    private static final int MAX_LINE_OCTETS = 75;
+
+    private final Writer mWriter;
+    private final TimeZone mUtc = CalendarTimeZones.get(CalendarTimeZones.UTC);
+    private final Calendar mCalendar = Calendar.getInstance(mUtc);
+    private final StringBuilder mTimeBuilder = new StringBuilder(16);
+    private final String mStamp;
+
+    IcsWriter(OutputStream out) {
+        mWriter = new BufferedWriter(new OutputStreamWriter(out, UTF_8));
+        mStamp = formatTime(System.currentTimeMillis(), false, null);
+    }
+
+    void begin() throws IOException {
+        writeLine("BEGIN:VCALENDAR");
+        writeLine("VERSION:2.0");
+        writeLine("PRODID:-//leo//CalendarProviderManager//CN");
+        writeLine("CALSCALE:GREGORIAN");
+    }
+
+    /**
+     * @param duration 重复事件的 RFC 5545 DURATION，为 null 时写入 DTEND
+     * @param timeZone 事件时区 id，重复事件按该时区的本地时间写入 DTSTART，其余事件写入 UTC 时间
+     * @param rdate    provider 格式的 RDATE，[TZID;]时间,时间...
+     */
+    void writeEvent(String uid, String title, String description, long start, long end, String duration,
+                    boolean isAllDay, String timeZone, String rrule, String rdate, String exdate,
+                    List<EventReminder> reminders) throws IOException {
+        writeLine("BEGIN:VEVENT");
+        writeLine("UID:" + escape(uid));
+        writeLine("DTSTAMP:" + mStamp);
+        //重复规则按 DTSTART 的时区展开，UTC 时间会在夏令时切换后偏移一小时
+        TimeZone zone = null;
+        if (!isAllDay && (rrule != null || rdate != null) && timeZone != null
+                && !CalendarTimeZones.UTC.equals(timeZone)) {
+            zone = CalendarTimeZones.get(timeZone);
+        }
+        if (isAllDay) {
+            writeLine("DTSTART;VALUE=DATE:" + formatTime(start, true, null));
+        } else if (zone != null) {
+            writeLine("DTSTART;TZID=" + timeZone + ':' + formatTime(start, false, zone));
+        } else {
+            writeLine("DTSTART:" + formatTime(start, false, null));
+        }
+        if (duration != null) {
+            writeLine("DURATION:" + normalizeDuration(duration));
+        } else if (end >= start) {
+            writeLine(isAllDay ? "DTEND;VALUE=DATE:" + formatTime(end, true, null)
+                    : "DTEND:" + formatTime(end, false, null));
+        }
+        if (title != null) writeLine("SUMMARY:" + escape(title));
+        if (description != null && !description.isEmpty()) writeLine("DESCRIPTION:" + escape(description));
+        if (rrule != null) writeLine("RRULE:" + rrule);
+        if (rdate != null) writeDates("RDATE", rdate);
+        if (exdate != null) writeDates("EXDATE", exdate);
+        if (reminders != null) {
+            for (EventReminder reminder : reminders) {
+                writeLine("BEGIN:VALARM");
+                boolean isEmail = reminder.getMethod() == CalendarContract.Reminders.METHOD_EMAIL;
+                writeLine(isEmail ? "ACTION:EMAIL" : "ACTION:DISPLAY");
+                writeLine("TRIGGER:-PT" + reminder.getMinutes() + "M");
+                if (isEmail) writeLine("SUMMARY:" + escape(title == null ? "" : title));
+                writeLine("DESCRIPTION:" + escape(title == null ? "" : title));
+                writeLine("END:VALARM");
+            }
+        }
+        writeLine("END:VEVENT");
+    }
+
+    void end() throws IOException {
+        writeLine("END:VCALENDAR");
+        mWriter.flush();
+    }
+
+    /**
+     * 关闭会同时关闭输出流
+     */
+    @Override
+    public void close() throws IOException {
+        mWriter.close();
+    }
+
+    private void writeDates(String name, String dates) throws IOException {
+        int separator = dates.indexOf(';');
+        if (separator > 0) {
+            writeLine(name + ";TZID=" + dates.substring(0, separator) + ':' + dates.substring(separator + 1));
+        } else {
+            writeLine(name + ':' + dates);
+        }
+    }
+
+    /**
+     * provider 写入的 P3600S 缺少 RFC 5545 要求的 T，补全为 PT3600S
+     */
+    private static String normalizeDuration(String duration) {
+        char unit = duration.charAt(duration.length() - 1);
+        if (duration.startsWith("P") && duration.indexOf('T') < 0 && (unit == 'H' || unit == 'M' || unit == 'S')) {
+            return "PT" + duration.substring(1);
+        }
+        return duration;
+    }
+
+    /**
+     * @param zone 为 null 时返回 UTC 的 yyyyMMddTHHmmssZ，否则返回该时区的本地时间 yyyyMMddTHHmmss
+     * @return 时间，或全天事件的 yyyyMMdd
+     */
+    private String formatTime(long millis, boolean isDate, TimeZone zone) {
+        mCalendar.setTimeZone(zone != null ? zone : mUtc);
+        mCalendar.setTimeInMillis(millis);
+        StringBuilder builder = mTimeBuilder;
+        builder.setLength(0);
+        appendPadded(builder, mCalendar.get(Calendar.YEAR), 4);
+        appendPadded(builder, mCalendar.get(Calendar.MONTH) + 1, 2);
+        appendPadded(builder, mCalendar.get(Calendar.DAY_OF_MONTH), 2);
+        if (!isDate) {
+            builder.append('T');
+            appendPadded(builder, mCalendar.get(Calendar.HOUR_OF_DAY), 2);
+            appendPadded(builder, mCalendar.get(Calendar.MINUTE), 2);
+            appendPadded(builder, mCalendar.get(Calendar.SECOND), 2);
+            if (zone == null) builder.append('Z');
+        }
+        return builder.toString();
+    }
+
+    private static void appendPadded(StringBuilder builder, int value, int width) {
+        String digits = Integer.toString(value);
+        for (int i = digits.length(); i < width; i++) builder.append('0');
+        builder.append(digits);
+    }
+
+    private static String escape(String text) {
+        StringBuilder builder = null;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            String replacement;
+            switch (c) {
+                case '\\':
+                    replacement = "\\\\";
+                    break;
+                case ';':
+                    replacement = "\\;";
+                    break;
+                case ',':
+                    replacement = "\\,";
+                    break;
+                case '\n':
+                    replacement = "\\n";
+                    break;
+                case '\r':
+                    replacement = "";
+                    break;
+                default:
+                    if (builder != null) builder.append(c);
+                    continue;
+            }
+            if (builder == null) {
+                builder = new StringBuilder(text.length() + 16);
+                builder.append(text, 0, i);
+            }
+            builder.append(replacement);
+        }
+        return builder == null ? text : builder.toString();
+    }
+
+    /**
+     * 写入一行，超过 75 字节时折行，不拆开多字节字符和代理对
+     */
+    private void writeLine(String line) throws IOException {
+        int octets = 0;
+        int lineStart = 0;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            int size;
+            if (c < 0x80) {
+                size = 1;
+            } else if (c < 0x800) {
+                size = 2;
+            } else if (Character.isHighSurrogate(c)) {
+                size = 4;
+            } else if (Character.isLowSurrogate(c)) {
+                continue;
+            } else {
+                size = 3;
+            }
+            if (octets + size > MAX_LINE_OCTETS) {
+                mWriter.write(line, lineStart, i - lineStart);
+                mWriter.write(CRLF);
+                mWriter.write(' ');
+                lineStart = i;
+                //续行的空格占一个字节
+                octets = 1;
+            }
+            octets += size;
+        }
+        mWriter.write(line, lineStart, line.length() - lineStart);
+        mWriter.write(CRLF);
+    }
+}
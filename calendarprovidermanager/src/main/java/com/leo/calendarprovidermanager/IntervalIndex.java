@@ -0,0 +1,148 @@
+package com.leo.calendarprovidermanager;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Set;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 只读的时间区间索引，区间为 [begin, end)
+ * 区间按 begin 排序存放在基本类型数组中，数组本身视为一棵平衡二叉树（[lo, hi) 的根为中点），
+ * mMaxEnds[i] 记录以 i 为根的子树中最大的 end。重叠查询为 O(log n + k)，不创建节点对象。
+ */
+final class IntervalIndex {
+    static final IntervalIndex EMPTY = new IntervalIndex(new long[0], new long[0], new long[0], 0);
+
+    private final long[] mBegins;
+    private final long[] mEnds;
+    private final long[] mEventIds;
+    private final long[] mMaxEnds;
+    private final int mSize;
+
+    /**
+     * @param begins 已按 begin 升序排列
+     */
+    private IntervalIndex(long[] begins, long[] ends, long[] eventIds, int size) {
+        mBegins = begins;
+        mEnds = ends;
+        mEventIds = eventIds;
+        mSize = size;
+        mMaxEnds = new long[size];
+        buildMaxEnds(0, size);
+    }
+
+    /**
+     * 由任意顺序的区间建立索引，数组不会被复制，调用后不应再修改
+     */
+    static IntervalIndex of(long[] begins, long[] ends, long[] eventIds, int size) {
+        for (int i = 1; i < size; i++) {
+            if (begins[i - 1] > begins[i]) return sorted(begins, ends, eventIds, size);
+        }
+        return new IntervalIndex(begins, ends, eventIds, size);
+    }
+
+    private static IntervalIndex sorted(final long[] begins, long[] ends, long[] eventIds, int size) {
+        Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) order[i] = i;
+        Arrays.sort(order, new Comparator<Integer>() {
+            @Override
+            public int compare(Integer a, Integer b) {
+                long x = begins[a];
+                long y = begins[b];
+                return x < y ? -1 : (x == y ? 0 : 1);
+            }
+        });
+        long[] sortedBegins = new long[size];
+        long[] sortedEnds = new long[size];
+        long[] sortedEventIds = new long[size];
+        for (int i = 0; i < size; i++) {
+            sortedBegins[i] = begins[order[i]];
+            sortedEnds[i] = ends[order[i]];
+            sortedEventIds[i] = eventIds[order[i]];
+        }
+        return new IntervalIndex(sortedBegins, sortedEnds, sortedEventIds, size);
+    }
+
+    private long buildMaxEnds(int lo, int hi) {
+        if (lo >= hi) return Long.MIN_VALUE;
+        int mid = (lo + hi) >>> 1;
+        long maxEnd = Math.max(mEnds[mid], Math.max(buildMaxEnds(lo, mid), buildMaxEnds(mid + 1, hi)));
+        mMaxEnds[mid] = maxEnd;
+        return maxEnd;
+    }
+
+    int size() {
+        return mSize;
+    }
+
+    long beginAt(int i) {
+        return mBegins[i];
+    }
+
+    long endAt(int i) {
+        return mEnds[i];
+    }
+
+    long eventIdAt(int i) {
+        return mEventIds[i];
+    }
+
+    /**
+     * @return 与 [start, end) 重叠的区间下标，按 begin 升序
+     */
+    int[] overlapping(long start, long end) {
+        Hits hits = new Hits();
+        collect(0, mSize, start, end, hits);
+        return Arrays.copyOf(hits.mIndexes, hits.mCount);
+    }
+
+    private void collect(int lo, int hi, long start, long end, Hits hits) {
+        if (lo >= hi) return;
+        int mid = (lo + hi) >>> 1;
+        //子树中所有区间都在 start 之前结束
+        if (mMaxEnds[mid] <= start) return;
+        collect(lo, mid, start, end, hits);
+        //右子树的 begin 都不小于 mBegins[mid]
+        if (mBegins[mid] >= end) return;
+        if (mEnds[mid] > start) hits.add(mid);
+        collect(mid + 1, hi, start, end, hits);
+    }
+
+    /**
+     * 去掉 removedIds 的全部区间并加入 added 中的区间，两者都有序，合并为 O(n)
+     */
+    IntervalIndex replace(Set<Long> removedIds, IntervalIndex added) {
+        int capacity = mSize + added.mSize;
+        long[] begins = new long[capacity];
+        long[] ends = new long[capacity];
+        long[] eventIds = new long[capacity];
+        int size = 0;
+        int i = 0;
+        int j = 0;
+        while (i < mSize || j < added.mSize) {
+            if (i < mSize && removedIds.contains(mEventIds[i])) {
+                i++;
+                continue;
+            }
+            boolean isOld = j >= added.mSize || (i < mSize && mBegins[i] <= added.mBegins[j]);
+            IntervalIndex from = isOld ? this : added;
+            int index = isOld ? i++ : j++;
+            begins[size] = from.mBegins[index];
+            ends[size] = from.mEnds[index];
+            eventIds[size] = from.mEventIds[index];
+            size++;
+        }
+        return new IntervalIndex(begins, ends, eventIds, size);
+    }
+
+    private static final class Hits {
+        private int[] mIndexes = new int[8];
+        private int mCount;
+
+        void add(int index) {
+            if (mCount == mIndexes.length) mIndexes = Arrays.copyOf(mIndexes, mCount * 2);
+            mIndexes[mCount++] = index;
+        }
+    }
+}
@@ -0,0 +1,461 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.Context;
+import android.database.Cursor;
+import android.provider.CalendarContract;
+
+import androidx.annotation.NonNull;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 管理多个日历，如每个团队一个日历
+ * 所有日历的 id 用一次 Calendars 查询得到，缓存在共用的 CalendarAccountCache 中；
+ * 查询和批量写入按日历拆分，在 CalendarExecutor 上并行执行，线程数由线程池限制。
+ * 每个日历使用各自的批次，某个日历失败不影响其它日历，失败记录在 MultiCalendarResult 中。
+ * 各方法会阻塞等待所有日历完成，不要在主线程或同一个 CalendarExecutor 的线程上调用。
+ */
+public final class MultiCalendarManager {
+    private static final String TAG = "calendar";
+    private static final String[] CALENDAR_PROJECTION = new String[]{
+            CalendarContract.Calendars._ID,
+            CalendarContract.Calendars.ACCOUNT_NAME
+    };
+
+    //日历名称 -> 该日历的 CalendarProviderManager
+    private final Map<String, CalendarProviderManager> mManagers;
+    private final CalendarProviderClient mClient;
+    private final CalendarAccountCache mAccountCache;
+    //账户缓存由本实例创建，close() 时注销监听
+    private final boolean isOwnAccountCache;
+    private final CalendarExecutor mExecutor;
+    private final CalendarLogger mLogger;
+    private final boolean isLog;
+    private final CalendarMetrics mMetrics;
+
+    private MultiCalendarManager(Builder builder) {
+        if (builder.mCalendarNames.isEmpty()) throw new IllegalArgumentException("No calendar names");
+        Context applicationContext = builder.mContext.getApplicationContext();
+        Context context = applicationContext != null ? applicationContext : builder.mContext;
+
+        if (builder.mProviderClient != null) {
+            mClient = builder.mProviderClient;
+            mAccountCache = new CalendarAccountCache(mClient);
+            isOwnAccountCache = true;
+        } else {
+            mClient = new ContentResolverClient(context.getContentResolver());
+            isOwnAccountCache = false;
+            mAccountCache = CalendarAccountCache.getDefault(context);
+        }
+        mExecutor = builder.mExecutor != null ? builder.mExecutor : CalendarExecutor.getDefault();
+        mLogger = builder.mLogger != null ? builder.mLogger : CalendarLogger.NONE;
+        isLog = mLogger.isLoggable();
+        mMetrics = builder.mMetrics;
+
+        mManagers = new LinkedHashMap<>();
+        for (String calendarName : builder.mCalendarNames) {
+            mManagers.put(calendarName, new CalendarProviderManager.Builder(context)
+                    .setCalendarName(calendarName)
+                    .setExecutor(mExecutor)
+                    .setLogger(builder.mLogger)
+                    .setMetrics(mMetrics)
+                    .setProviderClient(mClient)
+                    .setAccountCache(mAccountCache)
+                    .setSyncAdapter(builder.isSyncAdapter)
+                    .build());
+        }
+    }
+
+    /**
+     * @return 管理的日历名称，顺序与添加顺序一致
+     */
+    public Set<String> getCalendarNames() {
+        return Collections.unmodifiableSet(mManagers.keySet());
+    }
+
+    /**
+     * @return 单个日历的 CalendarProviderManager，与本实例共用账户缓存和线程池；null 表示未管理该日历
+     */
+    public CalendarProviderManager getManager(@NonNull String calendarName) {
+        return mManagers.get(calendarName);
+    }
+
+    /**
+     * 关闭各日历的 CalendarProviderManager 和本实例创建的账户缓存，释放它们注册的 ContentObserver
+     */
+    public void close() {
+        for (CalendarProviderManager manager : mManagers.values()) {
+            manager.close();
+        }
+        if (isOwnAccountCache) mAccountCache.close();
+    }
+
+    /**
+     * 一次 Calendars 查询得到所有日历的 id，已缓存的日历不再查询，不存在的日历逐个创建
+     *
+     * @return 日历名称 -> 日历 id，查询和创建都失败的日历不在结果中
+     */
+    public Map<String, Long> resolveCalendars() {
+        Map<String, Long> calendarIds = new LinkedHashMap<>();
+        //账户名称 -> 日历名称
+        Map<String, String> missing = new LinkedHashMap<>();
+        for (String calendarName : mManagers.keySet()) {
+            String accountName = CalendarProviderManager.accountName(calendarName);
+            Long calendarId = mAccountCache.get(accountName, CalendarProviderManager.ACCOUNT_TYPE);
+            if (calendarId != null) {
+                calendarIds.put(calendarName, calendarId);
+            } else {
+                missing.put(accountName, calendarName);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, Long> found = queryCalendarIds(new ArrayList<>(missing.keySet()));
+            for (Map.Entry<String, String> entry : missing.entrySet()) {
+                Long calendarId = found.get(entry.getKey());
+                //不存在的日历由 CalendarProviderManager 创建并写入缓存
+                if (calendarId == null) calendarId = mManagers.get(entry.getValue()).getCalendarId();
+                if (calendarId > -1) calendarIds.put(entry.getValue(), calendarId);
+            }
+            if (isLog) mLogger.log(TAG, "查询日历 " + missing.size() + "，已存在 " + found.size());
+        }
+
+        //按添加顺序返回
+        Map<String, Long> ordered = new LinkedHashMap<>();
+        for (String calendarName : mManagers.keySet()) {
+            Long calendarId = calendarIds.get(calendarName);
+            if (calendarId != null) ordered.put(calendarName, calendarId);
+        }
+        return ordered;
+    }
+
+    /**
+     * 分段 IN 查询账户对应的日历，同一账户有多个日历时取 _ID 最小的，与 CalendarProviderManager 一致
+     *
+     * @return 账户名称 -> 日历 id
+     */
+    private Map<String, Long> queryCalendarIds(List<String> accountNames) {
+        Map<String, Long> calendarIds = new LinkedHashMap<>();
+        int generation = mAccountCache.generation();
+        CalendarResolver resolver = new CalendarResolver(mClient, CalendarUris.DEFAULT, "resolveCalendars", mMetrics);
+        try {
+            for (int from = 0; from < accountNames.size(); from += Selections.MAX_IN_ARGUMENTS) {
+                int to = Math.min(accountNames.size(), from + Selections.MAX_IN_ARGUMENTS);
+                String[] selectionArgs = new String[to - from + 1];
+                selectionArgs[0] = CalendarProviderManager.ACCOUNT_TYPE;
+                for (int i = from; i < to; i++) {
+                    selectionArgs[i - from + 1] = accountNames.get(i);
+                }
+                Cursor cursor = resolver.query(CalendarContract.Calendars.CONTENT_URI, CALENDAR_PROJECTION,
+                        CalendarContract.Calendars.ACCOUNT_TYPE + "=? AND "
+                                + Selections.in(CalendarContract.Calendars.ACCOUNT_NAME, to - from),
+                        selectionArgs, CalendarContract.Calendars._ID + " ASC");
+                if (cursor == null) continue;
+                try {
+                    while (cursor.moveToNext()) {
+                        String accountName = cursor.getString(1);
+                        if (!calendarIds.containsKey(accountName)) calendarIds.put(accountName, cursor.getLong(0));
+                    }
+                } finally {
+                    cursor.close();
+                }
+            }
+        } finally {
+            resolver.finish();
+        }
+        for (Map.Entry<String, Long> entry : calendarIds.entrySet()) {
+            mAccountCache.put(entry.getKey(), CalendarProviderManager.ACCOUNT_TYPE, entry.getValue(), generation);
+        }
+        return calendarIds;
+    }
+
+    /**
+     * 查询所有日历在 [fromMillis, toMillis] 内的事件实例
+     *
+     * @return 按开始时间合并的实例，EventInstance.getCalendarId() 区分所属日历
+     */
+    public MultiCalendarResult<List<EventInstance>> queryEvents(long fromMillis, long toMillis) {
+        return queryEvents(mManagers.keySet(), fromMillis, toMillis);
+    }
+
+    /**
+     * 查询指定日历在 [fromMillis, toMillis] 内的事件实例
+     * 每个日历的结果已按开始时间排序，读取完成后归并
+     *
+     * @return 按开始时间合并的实例，开始时间相同时按日历 id、eventId 排序
+     */
+    public MultiCalendarResult<List<EventInstance>> queryEvents(@NonNull Collection<String> calendarNames,
+                                                                final long fromMillis, final long toMillis) {
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        Map<String, List<EventInstance>> shards = fanOut(calendarNames, new ShardTask<List<EventInstance>>() {
+            @Override
+            List<EventInstance> call(String calendarName, CalendarProviderManager manager) {
+                List<EventInstance> instances = new ArrayList<>();
+                EventIterator iterator = manager.queryEvents(fromMillis, toMillis);
+                try {
+                    while (iterator.hasNext()) {
+                        instances.add(iterator.next());
+                    }
+                } finally {
+                    iterator.close();
+                }
+                return instances;
+            }
+        }, failures);
+        return new MultiCalendarResult<>(merge(shards.values()), failures);
+    }
+
+    /**
+     * 批量添加事件，每个日历的事件在一个 applyBatch 中写入，不同日历并行写入
+     *
+     * @param events 日历名称 -> 事件列表
+     * @return 日历名称 -> 与事件列表顺序一致的 eventId
+     */
+    public MultiCalendarResult<Map<String, long[]>> addCalendarEvents(@NonNull final Map<String, List<EventSpec>> events) {
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        Map<String, long[]> eventIds = fanOut(events.keySet(), new ShardTask<long[]>() {
+            @Override
+            long[] call(String calendarName, CalendarProviderManager manager) {
+                return manager.addCalendarEvents(events.get(calendarName));
+            }
+
+            @Override
+            boolean isFailed(long[] result) {
+                //同一日历的事件在一个批次中写入，失败时全部为 -1
+                return result.length > 0 && result[0] <= -1;
+            }
+        }, failures);
+        return new MultiCalendarResult<>(eventIds, failures);
+    }
+
+    /**
+     * 按外部 id 同步多个日历的事件，同 CalendarProviderManager.reconcileCalendarEvents
+     *
+     * @param desiredEvents 日历名称 -> (外部 id -> 期望的事件)
+     */
+    public MultiCalendarResult<Map<String, ReconcileResult>> reconcileCalendarEvents(
+            @NonNull final Map<String, Map<String, EventSpec>> desiredEvents) {
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        Map<String, ReconcileResult> results = fanOut(desiredEvents.keySet(), new ShardTask<ReconcileResult>() {
+            @Override
+            ReconcileResult call(String calendarName, CalendarProviderManager manager) {
+                return manager.reconcileCalendarEvents(desiredEvents.get(calendarName));
+            }
+
+            @Override
+            boolean isFailed(ReconcileResult result) {
+                return !result.isSuccessful();
+            }
+        }, failures);
+        return new MultiCalendarResult<>(results, failures);
+    }
+
+    /**
+     * 删除所有日历中与 [fromMillis, toMillis) 重叠的事件，重复事件的规则见 CalendarProviderManager.deleteCalendarEvents
+     *
+     * @return 日历名称 -> 删除的事件数
+     */
+    public MultiCalendarResult<Map<String, Integer>> deleteCalendarEvents(final long fromMillis, final long toMillis) {
+        Map<String, Throwable> failures = new LinkedHashMap<>();
+        Map<String, Integer> counts = fanOut(mManagers.keySet(), new ShardTask<Integer>() {
+            @Override
+            Integer call(String calendarName, CalendarProviderManager manager) {
+                return manager.deleteCalendarEvents(fromMillis, toMillis);
+            }
+
+            @Override
+            boolean isFailed(Integer result) {
+                return result < 0;
+            }
+        }, failures);
+        return new MultiCalendarResult<>(counts, failures);
+    }
+
+    /**
+     * 在每个日历上执行 task，同一日历的任务按提交顺序串行，不同日历并行
+     *
+     * @param failures 写入失败的日历及原因
+     * @return 日历名称 -> 结果，顺序与 calendarNames 一致；返回失败的结果也包含在内
+     */
+    private <T> Map<String, T> fanOut(Collection<String> calendarNames, final ShardTask<T> task,
+                                      Map<String, Throwable> failures) {
+        //先统一解析日历 id，各日历的任务直接命中缓存
+        try {
+            resolveCalendars();
+        } catch (RuntimeException e) {
+            //解析失败时由各日历的任务单独重试
+            if (isLog) mLogger.log(TAG, "查询日历失败 " + e.getMessage());
+        }
+
+        Map<String, Future<T>> futures = new LinkedHashMap<>();
+        for (final String calendarName : calendarNames) {
+            final CalendarProviderManager manager = mManagers.get(calendarName);
+            if (manager == null) {
+                failures.put(calendarName, new IllegalArgumentException("Unknown calendar " + calendarName));
+                continue;
+            }
+            futures.put(calendarName, mExecutor.submit(manager, new Callable<T>() {
+                @Override
+                public T call() throws Exception {
+                    return task.call(calendarName, manager);
+                }
+            }, null));
+        }
+
+        Map<String, T> results = new LinkedHashMap<>();
+        for (Map.Entry<String, Future<T>> entry : futures.entrySet()) {
+            try {
+                T result = entry.getValue().get();
+                results.put(entry.getKey(), result);
+                if (task.isFailed(result)) {
+                    failures.put(entry.getKey(), new IllegalStateException("Operation failed on " + entry.getKey()));
+                }
+            } catch (ExecutionException e) {
+                failures.put(entry.getKey(), e.getCause());
+            } catch (InterruptedException e) {
+                //已提交的任务继续执行，不再等待
+                Thread.currentThread().interrupt();
+                failures.put(entry.getKey(), e);
+            }
+        }
+        if (isLog && !failures.isEmpty()) mLogger.log(TAG, "失败的日历 " + failures.keySet());
+        return results;
+    }
+
+    /**
+     * 多路归并各日历已排序的实例
+     */
+    private static List<EventInstance> merge(Collection<List<EventInstance>> shards) {
+        int size = 0;
+        PriorityQueue<Shard> queue = new PriorityQueue<>(Math.max(1, shards.size()), SHARD_ORDER);
+        for (List<EventInstance> instances : shards) {
+            size += instances.size();
+            if (!instances.isEmpty()) queue.add(new Shard(instances));
+        }
+        List<EventInstance> merged = new ArrayList<>(size);
+        while (!queue.isEmpty()) {
+            Shard shard = queue.poll();
+            merged.add(shard.head());
+            if (++shard.mPosition < shard.mInstances.size()) queue.add(shard);
+        }
+        return merged;
+    }
+
+    private static final Comparator<Shard> SHARD_ORDER = new Comparator<Shard>() {
+        @Override
+        public int compare(Shard a, Shard b) {
+            EventInstance x = a.head();
+            EventInstance y = b.head();
+            if (x.getBegin() != y.getBegin()) return x.getBegin() < y.getBegin() ? -1 : 1;
+            if (x.getCalendarId() != y.getCalendarId()) return x.getCalendarId() < y.getCalendarId() ? -1 : 1;
+            if (x.getEventId() != y.getEventId()) return x.getEventId() < y.getEventId() ? -1 : 1;
+            return 0;
+        }
+    };
+
+    private static final class Shard {
+        private final List<EventInstance> mInstances;
+        private int mPosition;
+
+        Shard(List<EventInstance> instances) {
+            mInstances = instances;
+        }
+
+        EventInstance head() {
+            return mInstances.get(mPosition);
+        }
+    }
+
+    /**
+     * 在单个日历上执行的操作
+     */
+    private abstract static class ShardTask<T> {
+        abstract T call(String calendarName, CalendarProviderManager manager) throws Exception;
+
+        /**
+         * @return 操作返回了失败值，如 -1
+         */
+        boolean isFailed(T result) {
+            return false;
+        }
+    }
+
+    public static class Builder {
+        private final Context mContext;
+        private final Set<String> mCalendarNames = new LinkedHashSet<>();
+        //可选  并行执行的线程池，默认使用 CalendarExecutor.getDefault()
+        private CalendarExecutor mExecutor;
+        private CalendarLogger mLogger;
+        private CalendarMetrics mMetrics;
+        private CalendarProviderClient mProviderClient;
+        private boolean isSyncAdapter;
+
+        public Builder(Context context) {
+            mContext = context;
+        }
+
+        /**
+         * 添加一个日历，同 CalendarProviderManager.Builder.setCalendarName
+         */
+        public Builder addCalendarName(@NonNull String calendarName) {
+            if (calendarName.isEmpty()) throw new IllegalArgumentException("Empty calendar name");
+            mCalendarNames.add(calendarName);
+            return this;
+        }
+
+        public Builder addCalendarNames(@NonNull Collection<String> calendarNames) {
+            for (String calendarName : calendarNames) {
+                addCalendarName(calendarName);
+            }
+            return this;
+        }
+
+        /**
+         * @param executor 并行执行各日历操作的线程池，线程数即最大并行数
+         */
+        public Builder setExecutor(CalendarExecutor executor) {
+            mExecutor = executor;
+            return this;
+        }
+
+        public Builder setLogger(CalendarLogger logger) {
+            mLogger = logger;
+            return this;
+        }
+
+        public Builder setMetrics(CalendarMetrics metrics) {
+            mMetrics = metrics;
+            return this;
+        }
+
+        public Builder setProviderClient(CalendarProviderClient providerClient) {
+            mProviderClient = providerClient;
+            return this;
+        }
+
+        /**
+         * 同 CalendarProviderManager.Builder.setSyncAdapter，对所有日历生效
+         */
+        public Builder setSyncAdapter(boolean syncAdapter) {
+            isSyncAdapter = syncAdapter;
+            return this;
+        }
+
+        public MultiCalendarManager build() {
+            return new MultiCalendarManager(this);
+        }
+    }
+}
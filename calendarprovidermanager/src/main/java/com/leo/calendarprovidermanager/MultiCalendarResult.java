@@ -0,0 +1,47 @@
+package com.leo.calendarprovidermanager;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : MultiCalendarManager 在多个日历上执行的结果
+ * 每个日历单独执行，某个日历失败不影响其它日历，失败的日历记录在 getFailures() 中。
+ */
+public final class MultiCalendarResult<T> {
+    private final T mValue;
+    //日历名称 -> 失败原因
+    private final Map<String, Throwable> mFailures;
+
+    MultiCalendarResult(T value, Map<String, Throwable> failures) {
+        mValue = value;
+        mFailures = Collections.unmodifiableMap(failures);
+    }
+
+    /**
+     * @return 各日历的结果，查询为合并后的结果
+     */
+    public T getValue() {
+        return mValue;
+    }
+
+    /**
+     * @return 日历名称 -> 失败原因：抛出的异常，或操作返回失败时的 IllegalStateException
+     */
+    public Map<String, Throwable> getFailures() {
+        return mFailures;
+    }
+
+    /**
+     * @return 是否所有日历都执行成功
+     */
+    public boolean isComplete() {
+        return mFailures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "MultiCalendarResult{value=" + mValue + ", failures=" + mFailures.keySet() + '}';
+    }
+}
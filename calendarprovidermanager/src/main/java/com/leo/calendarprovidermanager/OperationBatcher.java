@@ -0,0 +1,125 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
+import android.content.OperationApplicationException;
+import android.net.Uri;
+import android.os.RemoteException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 分批提交 ContentProviderOperation
+ * 操作按组添加（一个事件及其提醒、参与人等子行为一组），同一组不会被拆到两个批次中，
+ * 组内的 back-reference 始终指向同一批次。
+ */
+final class OperationBatcher {
+    //单次 applyBatch 的操作数上限，避免超出 Binder 事务大小
+    static final int DEFAULT_MAX_OPERATIONS = 200;
+
+    private final CalendarResolver mResolver;
+    private final int mMaxOperations;
+    private final OperationList mOperations = new OperationList();
+    //当前批次中 {插入事件操作的位置, 结果槽位}
+    private final ArrayList<int[]> mPendingInserts = new ArrayList<>();
+    private final long[] mInsertedIds;
+    private int mAffectedRows;
+    private int mUpdatedRows;
+    //已开始的组数和已提交的组数
+    private int mGroupCount;
+    private int mCommittedGroups;
+
+    /**
+     * @param insertSlots 需要返回 id 的插入操作数量
+     */
+    OperationBatcher(CalendarResolver resolver, int maxOperations, int insertSlots) {
+        mResolver = resolver;
+        mMaxOperations = maxOperations;
+        mInsertedIds = new long[insertSlots];
+        Arrays.fill(mInsertedIds, -1);
+    }
+
+    /**
+     * 开始一组操作，当前批次放不下时先提交
+     *
+     * @param groupSize 该组的操作数
+     * @return 该组第一个操作在批次中的位置，用作 back-reference
+     */
+    int beginGroup(int groupSize) throws RemoteException, OperationApplicationException {
+        if (!mOperations.isEmpty() && mOperations.size() + groupSize > mMaxOperations) {
+            flush();
+        }
+        mGroupCount++;
+        return mOperations.size();
+    }
+
+    void insert(ContentProviderOperation operation) {
+        mOperations.insert(operation);
+    }
+
+    /**
+     * 添加插入操作，提交后插入的 id 写入 slot
+     */
+    void insert(ContentProviderOperation operation, int slot) {
+        mPendingInserts.add(new int[]{mOperations.insert(operation), slot});
+    }
+
+    void update(ContentProviderOperation operation) {
+        mOperations.update(operation);
+    }
+
+    void delete(ContentProviderOperation operation) {
+        mOperations.delete(operation);
+    }
+
+    void addAll(OperationList operations) {
+        mOperations.addAll(operations);
+    }
+
+    void flush() throws RemoteException, OperationApplicationException {
+        if (mOperations.isEmpty()) return;
+        ContentProviderResult[] results = mResolver.applyBatch(mOperations);
+        for (int[] pending : mPendingInserts) {
+            Uri uri = results[pending[0]].uri;
+            mInsertedIds[pending[1]] = uri == null ? -1 : ContentUris.parseId(uri);
+        }
+        for (int i = 0; i < results.length; i++) {
+            Integer count = results[i].count;
+            if (count == null) continue;
+            mAffectedRows += count;
+            if (mOperations.typeAt(i) == OperationList.UPDATE) mUpdatedRows += count;
+        }
+        mOperations.clear();
+        mPendingInserts.clear();
+        mCommittedGroups = mGroupCount;
+    }
+
+    /**
+     * @return 已提交的组数，组按 beginGroup 的顺序提交，失败时用于统计之前已写入的部分
+     */
+    int getCommittedGroups() {
+        return mCommittedGroups;
+    }
+
+    long[] getInsertedIds() {
+        return mInsertedIds;
+    }
+
+    /**
+     * @return 已提交的更新、删除操作影响的行数
+     */
+    int getAffectedRows() {
+        return mAffectedRows;
+    }
+
+    /**
+     * @return 已提交的更新操作影响的行数
+     */
+    int getUpdatedRows() {
+        return mUpdatedRows;
+    }
+}
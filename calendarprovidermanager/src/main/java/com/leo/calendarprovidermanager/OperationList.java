@@ -0,0 +1,71 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentProviderOperation;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : ContentProviderOperation 列表，同时记录每个操作的类型，用于统计插入、更新、删除的行数
+ */
+final class OperationList {
+    static final byte INSERT = 0;
+    static final byte UPDATE = 1;
+    static final byte DELETE = 2;
+
+    private final ArrayList<ContentProviderOperation> mOperations = new ArrayList<>();
+    private byte[] mTypes = new byte[8];
+
+    int size() {
+        return mOperations.size();
+    }
+
+    boolean isEmpty() {
+        return mOperations.isEmpty();
+    }
+
+    /**
+     * @return 该操作在列表中的位置，用作 back-reference
+     */
+    int insert(ContentProviderOperation operation) {
+        return add(operation, INSERT);
+    }
+
+    int update(ContentProviderOperation operation) {
+        return add(operation, UPDATE);
+    }
+
+    int delete(ContentProviderOperation operation) {
+        return add(operation, DELETE);
+    }
+
+    void addAll(OperationList other) {
+        for (int i = 0; i < other.size(); i++) {
+            add(other.mOperations.get(i), other.mTypes[i]);
+        }
+    }
+
+    byte typeAt(int index) {
+        return mTypes[index];
+    }
+
+    ArrayList<ContentProviderOperation> getOperations() {
+        return mOperations;
+    }
+
+    void clear() {
+        mOperations.clear();
+    }
+
+    private int add(ContentProviderOperation operation, byte type) {
+        int index = mOperations.size();
+        if (index == mTypes.length) {
+            mTypes = Arrays.copyOf(mTypes, index * 2);
+        }
+        mTypes[index] = type;
+        mOperations.add(operation);
+        return index;
+    }
+}
@@ -0,0 +1,73 @@
+package com.leo.calendarprovidermanager;
+
+import java.util.Collections;
+import java.util.Map;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 同步结果
+ */
+public final class ReconcileResult {
+    private final boolean isSuccessful;
+    private final int mInsertedCount;
+    private final int mUpdatedCount;
+    private final int mDeletedCount;
+    private final int mUnchangedCount;
+    //外部 id -> eventId
+    private final Map<String, Long> mEventIds;
+
+    ReconcileResult(boolean isSuccessful, int insertedCount, int updatedCount, int deletedCount,
+                    int unchangedCount, Map<String, Long> eventIds) {
+        this.isSuccessful = isSuccessful;
+        mInsertedCount = insertedCount;
+        mUpdatedCount = updatedCount;
+        mDeletedCount = deletedCount;
+        mUnchangedCount = unchangedCount;
+        mEventIds = Collections.unmodifiableMap(eventIds);
+    }
+
+    static ReconcileResult failed() {
+        return new ReconcileResult(false, 0, 0, 0, 0, Collections.<String, Long>emptyMap());
+    }
+
+    /**
+     * @return 所有批次是否都已写入，失败时之前已提交的批次不会回滚，
+     * 各计数和 getEventIds 只包含已提交的批次
+     */
+    public boolean isSuccessful() {
+        return isSuccessful;
+    }
+
+    public int getInsertedCount() {
+        return mInsertedCount;
+    }
+
+    public int getUpdatedCount() {
+        return mUpdatedCount;
+    }
+
+    public int getDeletedCount() {
+        return mDeletedCount;
+    }
+
+    public int getUnchangedCount() {
+        return mUnchangedCount;
+    }
+
+    /**
+     * @return 外部 id -> eventId，写入失败的事件不包含在内
+     */
+    public Map<String, Long> getEventIds() {
+        return mEventIds;
+    }
+
+    @Override
+    public String toString() {
+        return "ReconcileResult{successful=" + isSuccessful
+                + ", inserted=" + mInsertedCount
+                + ", updated=" + mUpdatedCount
+                + ", deleted=" + mDeletedCount
+                + ", unchanged=" + mUnchangedCount + '}';
+    }
+}
@@ -0,0 +1,40 @@
+package com.leo.calendarprovidermanager;
+
+import java.util.List;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : selection 拼接工具
+ */
+final class Selections {
+    //SQLite 默认最多 999 个绑定参数，留出余量给其它条件
+    static final int MAX_IN_ARGUMENTS = 500;
+
+    private Selections() {
+    }
+
+    /**
+     * @return column IN (?,?,...)，共 count 个参数
+     */
+    static String in(String column, int count) {
+        StringBuilder builder = new StringBuilder(column.length() + 6 + count * 2);
+        builder.append(column).append(" IN (");
+        for (int i = 0; i < count; i++) {
+            if (i > 0) builder.append(',');
+            builder.append('?');
+        }
+        return builder.append(')').toString();
+    }
+
+    /**
+     * @return ids 中 [from, to) 部分转为 selectionArgs
+     */
+    static String[] args(List<Long> ids, int from, int to) {
+        String[] args = new String[to - from];
+        for (int i = from; i < to; i++) {
+            args[i - from] = String.valueOf(ids.get(i));
+        }
+        return args;
+    }
+}
@@ -0,0 +1,95 @@
+package com.leo.calendarprovidermanager;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 后台队列执行的条件
+ * API 21 以上交给 JobScheduler 判断；API 19、20 上执行前检查电池状态，设备空闲无法判断，视为满足。
+ */
+public final class SyncConstraints {
+    public static final SyncConstraints NONE = new Builder().build();
+
+    private static final int FLAG_CHARGING = 1;
+    private static final int FLAG_DEVICE_IDLE = 1 << 1;
+    private static final int FLAG_BATTERY_NOT_LOW = 1 << 2;
+
+    private final boolean isRequiresCharging;
+    private final boolean isRequiresDeviceIdle;
+    private final boolean isRequiresBatteryNotLow;
+
+    private SyncConstraints(Builder builder) {
+        isRequiresCharging = builder.isRequiresCharging;
+        isRequiresDeviceIdle = builder.isRequiresDeviceIdle;
+        isRequiresBatteryNotLow = builder.isRequiresBatteryNotLow;
+    }
+
+    public boolean isRequiresCharging() {
+        return isRequiresCharging;
+    }
+
+    public boolean isRequiresDeviceIdle() {
+        return isRequiresDeviceIdle;
+    }
+
+    public boolean isRequiresBatteryNotLow() {
+        return isRequiresBatteryNotLow;
+    }
+
+    /**
+     * 保存到 SharedPreferences 和 JobInfo extras 中
+     */
+    int toFlags() {
+        return (isRequiresCharging ? FLAG_CHARGING : 0)
+                | (isRequiresDeviceIdle ? FLAG_DEVICE_IDLE : 0)
+                | (isRequiresBatteryNotLow ? FLAG_BATTERY_NOT_LOW : 0);
+    }
+
+    static SyncConstraints fromFlags(int flags) {
+        return new Builder()
+                .setRequiresCharging((flags & FLAG_CHARGING) != 0)
+                .setRequiresDeviceIdle((flags & FLAG_DEVICE_IDLE) != 0)
+                .setRequiresBatteryNotLow((flags & FLAG_BATTERY_NOT_LOW) != 0)
+                .build();
+    }
+
+    @Override
+    public String toString() {
+        return "SyncConstraints{charging=" + isRequiresCharging + ", deviceIdle=" + isRequiresDeviceIdle
+                + ", batteryNotLow=" + isRequiresBatteryNotLow + '}';
+    }
+
+    public static class Builder {
+        private boolean isRequiresCharging;
+        private boolean isRequiresDeviceIdle;
+        private boolean isRequiresBatteryNotLow;
+
+        /**
+         * 只在充电时执行
+         */
+        public Builder setRequiresCharging(boolean requiresCharging) {
+            isRequiresCharging = requiresCharging;
+            return this;
+        }
+
+        /**
+         * 只在设备空闲时执行
+         * API 21 以上失败后不按指数退避，而是在下一个空闲窗口重试
+         */
+        public Builder setRequiresDeviceIdle(boolean requiresDeviceIdle) {
+            isRequiresDeviceIdle = requiresDeviceIdle;
+            return this;
+        }
+
+        /**
+         * 电量低时不执行，API 26 以下在执行前按电量 15% 判断
+         */
+        public Builder setRequiresBatteryNotLow(boolean requiresBatteryNotLow) {
+            isRequiresBatteryNotLow = requiresBatteryNotLow;
+            return this;
+        }
+
+        public SyncConstraints build() {
+            return new SyncConstraints(this);
+        }
+    }
+}
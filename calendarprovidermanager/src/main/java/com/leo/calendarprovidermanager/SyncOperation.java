@@ -0,0 +1,192 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentValues;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 后台队列中的一条事件修改
+ * 添加使用外部 key 的 upsert，重复执行不会产生重复事件；修改和删除重复执行结果相同。
+ * 因此批次提交后、检查点写入前进程被杀，重新执行该批次是安全的。
+ */
+final class SyncOperation {
+    static final int UPSERT = 1;
+    static final int PATCH = 2;
+    static final int DELETE = 3;
+
+    //ContentValues 中值的类型
+    private static final int VALUE_NULL = 0;
+    private static final int VALUE_STRING = 1;
+    private static final int VALUE_LONG = 2;
+    private static final int VALUE_INTEGER = 3;
+
+    final int mType;
+    //UPSERT 使用
+    final String mKey;
+    //PATCH、DELETE 使用
+    final long mEventId;
+    //UPSERT 为事件的全部列，PATCH 为修改的列；DELETE 为 null
+    final EventPatch mPatch;
+
+    private SyncOperation(int type, String key, long eventId, EventPatch patch) {
+        mType = type;
+        mKey = key;
+        mEventId = eventId;
+        mPatch = patch;
+    }
+
+    static SyncOperation upsert(String key, EventPatch patch) {
+        return new SyncOperation(UPSERT, key, -1, patch);
+    }
+
+    static SyncOperation patch(long eventId, EventPatch patch) {
+        return new SyncOperation(PATCH, null, eventId, patch);
+    }
+
+    static SyncOperation delete(long eventId) {
+        return new SyncOperation(DELETE, null, eventId, null);
+    }
+
+    void writeTo(DataOutputStream out) throws IOException {
+        out.writeByte(mType);
+        out.writeUTF(mKey == null ? "" : mKey);
+        out.writeLong(mEventId);
+        if (mPatch == null) return;
+
+        ContentValues values = mPatch.getValues();
+        out.writeInt(values.size());
+        for (Map.Entry<String, Object> entry : values.valueSet()) {
+            out.writeUTF(entry.getKey());
+            Object value = entry.getValue();
+            if (value == null) {
+                out.writeByte(VALUE_NULL);
+            } else if (value instanceof String) {
+                out.writeByte(VALUE_STRING);
+                out.writeUTF((String) value);
+            } else if (value instanceof Long) {
+                out.writeByte(VALUE_LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Integer) {
+                out.writeByte(VALUE_INTEGER);
+                out.writeInt((Integer) value);
+            } else {
+                throw new IllegalArgumentException("Unsupported value " + entry.getKey() + "=" + value);
+            }
+        }
+
+        List<EventReminder> reminders = mPatch.getReminders();
+        out.writeInt(reminders == null ? -1 : reminders.size());
+        if (reminders != null) {
+            for (EventReminder reminder : reminders) {
+                out.writeLong(reminder.getMinutes());
+                out.writeInt(reminder.getMethod());
+            }
+        }
+
+        List<EventAttendee> attendees = mPatch.getAttendees();
+        out.writeInt(attendees == null ? -1 : attendees.size());
+        if (attendees != null) {
+            for (EventAttendee attendee : attendees) {
+                out.writeUTF(attendee.getEmail());
+                writeNullableString(out, attendee.getName());
+                out.writeInt(attendee.getRelationship());
+                out.writeInt(attendee.getType());
+                out.writeInt(attendee.getStatus());
+            }
+        }
+
+        Map<String, String> properties = mPatch.getExtendedProperties();
+        out.writeInt(properties == null ? -1 : properties.size());
+        if (properties != null) {
+            for (Map.Entry<String, String> property : properties.entrySet()) {
+                out.writeUTF(property.getKey());
+                writeNullableString(out, property.getValue());
+            }
+        }
+    }
+
+    static SyncOperation readFrom(DataInputStream in) throws IOException {
+        int type = in.readByte();
+        String key = in.readUTF();
+        long eventId = in.readLong();
+        if (type == DELETE) return delete(eventId);
+        if (type != UPSERT && type != PATCH) throw new IOException("Unknown operation " + type);
+
+        ContentValues values = new ContentValues();
+        int valueCount = in.readInt();
+        for (int i = 0; i < valueCount; i++) {
+            String column = in.readUTF();
+            int valueType = in.readByte();
+            switch (valueType) {
+                case VALUE_NULL:
+                    values.putNull(column);
+                    break;
+                case VALUE_STRING:
+                    values.put(column, in.readUTF());
+                    break;
+                case VALUE_LONG:
+                    values.put(column, in.readLong());
+                    break;
+                case VALUE_INTEGER:
+                    values.put(column, in.readInt());
+                    break;
+                default:
+                    throw new IOException("Unknown value type " + valueType);
+            }
+        }
+
+        List<EventReminder> reminders = null;
+        int reminderCount = in.readInt();
+        if (reminderCount >= 0) {
+            reminders = new ArrayList<>(reminderCount);
+            for (int i = 0; i < reminderCount; i++) {
+                reminders.add(new EventReminder(in.readLong(), in.readInt()));
+            }
+        }
+
+        //之前版本写入的记录到提醒为止，参与人和扩展属性不变
+        List<EventAttendee> attendees = null;
+        Map<String, String> properties = null;
+        if (in.available() > 0) {
+            int attendeeCount = in.readInt();
+            if (attendeeCount >= 0) {
+                attendees = new ArrayList<>(attendeeCount);
+                for (int i = 0; i < attendeeCount; i++) {
+                    attendees.add(new EventAttendee(in.readUTF(), readNullableString(in),
+                            in.readInt(), in.readInt(), in.readInt()));
+                }
+            }
+            int propertyCount = in.readInt();
+            if (propertyCount >= 0) {
+                properties = new LinkedHashMap<>();
+                for (int i = 0; i < propertyCount; i++) {
+                    properties.put(in.readUTF(), readNullableString(in));
+                }
+            }
+        }
+        EventPatch patch = EventPatch.of(values, reminders, attendees, properties);
+        return type == UPSERT ? upsert(key, patch) : patch(eventId, patch);
+    }
+
+    private static void writeNullableString(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeUTF(value);
+    }
+
+    private static String readNullableString(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    @Override
+    public String toString() {
+        return "SyncOperation{type=" + mType + ", key=" + mKey + ", eventId=" + mEventId + '}';
+    }
+}
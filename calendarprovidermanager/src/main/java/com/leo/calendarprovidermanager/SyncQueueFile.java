@@ -0,0 +1,186 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.SharedPreferences;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 后台队列的持久化，只追加写入的文件 + 检查点
+ * 每条记录为 长度 + 内容，追加后立即 sync 到磁盘；检查点是已执行记录之后的文件位置，保存在 SharedPreferences 中。
+ * 全部执行完后先把检查点归零再删除文件，中途被杀最多重复执行已执行过的记录，不会跳过未执行的记录。
+ * 进程被杀留下的不完整记录在读取时截掉。
+ */
+final class SyncQueueFile {
+    private static final String CHECKPOINT_SUFFIX = "#checkpoint";
+    //文件路径 -> 该文件的锁，同一个文件在进程内共用
+    private static final Map<String, Locks> sLocks = new HashMap<>();
+
+    private final File mFile;
+    private final SharedPreferences mPreferences;
+    private final String mCheckpointKey;
+    //同一个文件的读写串行
+    private final Object mLock;
+    //同一个文件的执行串行，覆盖读取、执行、提交检查点
+    private final Object mDrainLock;
+
+    /**
+     * 读取的一段记录
+     */
+    static final class Chunk {
+        final List<SyncOperation> mOperations;
+        //最后一条记录之后的文件位置，执行成功后作为检查点
+        final long mEndOffset;
+
+        Chunk(List<SyncOperation> operations, long endOffset) {
+            mOperations = operations;
+            mEndOffset = endOffset;
+        }
+    }
+
+    SyncQueueFile(File file, SharedPreferences preferences, String name) {
+        mFile = file;
+        mPreferences = preferences;
+        mCheckpointKey = name + CHECKPOINT_SUFFIX;
+        synchronized (sLocks) {
+            Locks locks = sLocks.get(file.getPath());
+            if (locks == null) {
+                locks = new Locks();
+                sLocks.put(file.getPath(), locks);
+            }
+            mLock = locks.mFile;
+            mDrainLock = locks.mDrain;
+        }
+    }
+
+    /**
+     * 执行队列时持有，从读取到提交检查点期间同一个文件不会被另一处同时执行；
+     * 与读写锁分开，执行期间仍可追加
+     */
+    Object drainLock() {
+        return mDrainLock;
+    }
+
+    void append(List<SyncOperation> operations) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (SyncOperation operation : operations) {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            operation.writeTo(new DataOutputStream(record));
+            out.writeInt(record.size());
+            record.writeTo(out);
+        }
+        out.flush();
+
+        synchronized (mLock) {
+            File parent = mFile.getParentFile();
+            if (parent != null && !parent.exists() && !parent.mkdirs() && !parent.exists()) {
+                throw new IOException("Cannot create " + parent);
+            }
+            FileOutputStream stream = new FileOutputStream(mFile, true);
+            try {
+                bytes.writeTo(stream);
+                stream.getFD().sync();
+            } finally {
+                stream.close();
+            }
+        }
+    }
+
+    /**
+     * 从检查点开始读取最多 maxOperations 条记录
+     */
+    Chunk read(int maxOperations) throws IOException {
+        synchronized (mLock) {
+            long offset = checkpoint();
+            List<SyncOperation> operations = new ArrayList<>();
+            if (!mFile.exists()) return new Chunk(operations, offset);
+            RandomAccessFile file = new RandomAccessFile(mFile, "rw");
+            try {
+                long length = file.length();
+                if (offset > length) {
+                    //文件在检查点归零前已被删除，不会发生在正常流程中
+                    offset = 0;
+                }
+                file.seek(offset);
+                while (operations.size() < maxOperations && offset < length) {
+                    if (length - offset < 4) break;
+                    int size = file.readInt();
+                    if (size < 0 || length - offset - 4 < size) break;
+                    byte[] record = new byte[size];
+                    file.readFully(record);
+                    operations.add(SyncOperation.readFrom(new DataInputStream(new ByteArrayInputStream(record))));
+                    offset += 4 + size;
+                }
+                if (operations.size() < maxOperations && offset < length) {
+                    //进程在追加时被杀，截掉不完整的记录
+                    file.setLength(offset);
+                }
+            } finally {
+                file.close();
+            }
+            return new Chunk(operations, offset);
+        }
+    }
+
+    /**
+     * 记录 chunk 已执行，全部执行完时清空文件
+     */
+    void commit(Chunk chunk) {
+        synchronized (mLock) {
+            if (chunk.mEndOffset < mFile.length()) {
+                mPreferences.edit().putLong(mCheckpointKey, chunk.mEndOffset).commit();
+                return;
+            }
+            mPreferences.edit().putLong(mCheckpointKey, 0).commit();
+            //noinspection ResultOfMethodCallIgnored
+            mFile.delete();
+        }
+    }
+
+    /**
+     * @return 检查点之后的记录数
+     */
+    int pendingCount() throws IOException {
+        synchronized (mLock) {
+            if (!mFile.exists()) return 0;
+            RandomAccessFile file = new RandomAccessFile(mFile, "r");
+            try {
+                long length = file.length();
+                long offset = Math.min(checkpoint(), length);
+                int count = 0;
+                while (length - offset >= 4) {
+                    file.seek(offset);
+                    int size = file.readInt();
+                    if (size < 0 || length - offset - 4 < size) break;
+                    offset += 4 + size;
+                    count++;
+                }
+                return count;
+            } finally {
+                file.close();
+            }
+        }
+    }
+
+    private long checkpoint() {
+        return mPreferences.getLong(mCheckpointKey, 0);
+    }
+
+    private static final class Locks {
+        final Object mFile = new Object();
+        final Object mDrain = new Object();
+    }
+}
@@ -0,0 +1,149 @@
+package com.leo.calendarprovidermanager;
+
+import android.annotation.TargetApi;
+import android.app.AlarmManager;
+import android.app.PendingIntent;
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ComponentName;
+import android.content.Context;
+import android.content.Intent;
+import android.content.IntentFilter;
+import android.content.SharedPreferences;
+import android.os.BatteryManager;
+import android.os.Build;
+import android.os.PersistableBundle;
+import android.os.SystemClock;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 安排后台队列的执行
+ * API 21 以上使用 JobScheduler，重试间隔由 JobInfo 的指数退避控制（要求设备空闲的任务在下一个空闲窗口重试），任务在重启后保留；
+ * API 19、20 使用 AlarmManager 启动 CalendarSyncService，重试间隔由本类计算，重启后需重新调用 schedule。
+ */
+final class SyncScheduler {
+    static final String EXTRA_CALENDAR_NAME = "calendar_name";
+    static final String EXTRA_SYNC_ADAPTER = "sync_adapter";
+    static final String EXTRA_CONSTRAINTS = "constraints";
+
+    //第一次重试的间隔，之后每次翻倍
+    static final long INITIAL_BACKOFF_MILLIS = 30 * 1000L;
+    static final long MAX_BACKOFF_MILLIS = 5 * 60 * 60 * 1000L;
+    //执行前检查的条件（如 API 26 以下的电量）不满足时的检查间隔
+    static final long CONSTRAINT_RETRY_MILLIS = 15 * 60 * 1000L;
+    //未设置 JobInfo 条件时电量低的阈值
+    private static final int BATTERY_LOW_PERCENT = 15;
+    //第一个任务 id，之后按日历依次分配
+    private static final int JOB_ID_BASE = 0x4C450000;
+    //日历名称 -> 任务 id
+    private static final String PREFERENCES_NAME = "calendar_provider_manager_jobs";
+    private static final String NEXT_JOB_ID = "#next";
+    private static final String JOB_ID_PREFIX = "job/";
+
+    private SyncScheduler() {
+    }
+
+    /**
+     * 任务 id 在日历第一次安排时分配并保存，不同日历的 id 不会相同
+     *
+     * @return 日历对应的任务 id，同一个日历只有一个待执行的任务
+     */
+    static int jobId(Context context, String calendarName) {
+        String key = JOB_ID_PREFIX + (calendarName == null ? "" : calendarName);
+        synchronized (SyncScheduler.class) {
+            SharedPreferences preferences = context.getSharedPreferences(PREFERENCES_NAME, Context.MODE_PRIVATE);
+            int jobId = preferences.getInt(key, -1);
+            if (jobId != -1) return jobId;
+            jobId = preferences.getInt(NEXT_JOB_ID, JOB_ID_BASE);
+            //commit 后再返回，进程被杀后同一个日历仍使用这个 id
+            preferences.edit().putInt(key, jobId).putInt(NEXT_JOB_ID, jobId + 1).commit();
+            return jobId;
+        }
+    }
+
+    static void schedule(Context context, String calendarName, boolean isSyncAdapter,
+                         SyncConstraints constraints, long delayMillis) {
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.LOLLIPOP) {
+            scheduleJob(context, calendarName, isSyncAdapter, constraints, delayMillis);
+        } else {
+            scheduleAlarm(context, calendarName, isSyncAdapter, constraints, delayMillis);
+        }
+    }
+
+    @TargetApi(Build.VERSION_CODES.LOLLIPOP)
+    private static void scheduleJob(Context context, String calendarName, boolean isSyncAdapter,
+                                    SyncConstraints constraints, long delayMillis) {
+        PersistableBundle extras = new PersistableBundle();
+        extras.putString(EXTRA_CALENDAR_NAME, calendarName);
+        extras.putInt(EXTRA_SYNC_ADAPTER, isSyncAdapter ? 1 : 0);
+        extras.putInt(EXTRA_CONSTRAINTS, constraints.toFlags());
+
+        JobInfo.Builder builder = new JobInfo.Builder(jobId(context, calendarName),
+                new ComponentName(context, CalendarSyncJobService.class))
+                .setRequiresCharging(constraints.isRequiresCharging())
+                .setRequiresDeviceIdle(constraints.isRequiresDeviceIdle())
+                .setPersisted(true)
+                .setExtras(extras);
+        //空闲任务不能设置退避，build() 会抛出 IllegalArgumentException；失败后在下一个空闲窗口重试
+        if (!constraints.isRequiresDeviceIdle()) {
+            builder.setBackoffCriteria(INITIAL_BACKOFF_MILLIS, JobInfo.BACKOFF_POLICY_EXPONENTIAL);
+        }
+        boolean hasJobConstraint = constraints.isRequiresCharging() || constraints.isRequiresDeviceIdle();
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.O) {
+            builder.setRequiresBatteryNotLow(constraints.isRequiresBatteryNotLow());
+            hasJobConstraint |= constraints.isRequiresBatteryNotLow();
+        }
+        if (delayMillis > 0) builder.setMinimumLatency(delayMillis);
+        //没有任何条件的 JobInfo 在 build() 时抛出 IllegalArgumentException，没有系统条件时到时间即执行
+        if (!hasJobConstraint) builder.setOverrideDeadline(delayMillis);
+        JobScheduler scheduler = (JobScheduler) context.getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        scheduler.schedule(builder.build());
+    }
+
+    private static void scheduleAlarm(Context context, String calendarName, boolean isSyncAdapter,
+                                      SyncConstraints constraints, long delayMillis) {
+        Intent intent = new Intent(context, CalendarSyncService.class)
+                .putExtra(EXTRA_CALENDAR_NAME, calendarName)
+                .putExtra(EXTRA_SYNC_ADAPTER, isSyncAdapter);
+        //条件保存在 SharedPreferences 中，由 CalendarSyncQueue 读取
+        PendingIntent pendingIntent = PendingIntent.getService(context, jobId(context, calendarName), intent,
+                PendingIntent.FLAG_UPDATE_CURRENT);
+        AlarmManager alarmManager = (AlarmManager) context.getSystemService(Context.ALARM_SERVICE);
+        alarmManager.set(AlarmManager.ELAPSED_REALTIME_WAKEUP,
+                SystemClock.elapsedRealtime() + delayMillis, pendingIntent);
+    }
+
+    /**
+     * @param attempt 已连续失败的次数，从 1 开始
+     * @return 下一次重试前的等待时间
+     */
+    static long backoffMillis(int attempt) {
+        if (attempt <= 1) return INITIAL_BACKOFF_MILLIS;
+        //超过 20 次时左移会溢出，直接取上限
+        if (attempt > 20) return MAX_BACKOFF_MILLIS;
+        return Math.min(INITIAL_BACKOFF_MILLIS << (attempt - 1), MAX_BACKOFF_MILLIS);
+    }
+
+    /**
+     * 检查系统调度无法保证的条件：API 21 以下的充电、电量，API 26 以下的电量
+     */
+    static boolean isSatisfied(Context context, SyncConstraints constraints) {
+        boolean isCheckCharging = constraints.isRequiresCharging()
+                && Build.VERSION.SDK_INT < Build.VERSION_CODES.LOLLIPOP;
+        boolean isCheckBattery = constraints.isRequiresBatteryNotLow()
+                && Build.VERSION.SDK_INT < Build.VERSION_CODES.O;
+        if (!isCheckCharging && !isCheckBattery) return true;
+
+        //粘性广播，直接返回当前电池状态
+        Intent battery = context.registerReceiver(null, new IntentFilter(Intent.ACTION_BATTERY_CHANGED));
+        if (battery == null) return true;
+        if (isCheckCharging && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) == 0) return false;
+        if (isCheckBattery && battery.getIntExtra(BatteryManager.EXTRA_PLUGGED, 0) == 0) {
+            int level = battery.getIntExtra(BatteryManager.EXTRA_LEVEL, -1);
+            int scale = battery.getIntExtra(BatteryManager.EXTRA_SCALE, -1);
+            if (level >= 0 && scale > 0 && level * 100 / scale <= BATTERY_LOW_PERCENT) return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,48 @@
+package com.leo.calendarprovidermanager;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : 一段时间 [begin, end)
+ */
+public final class TimeSlot {
+    private final long mBegin;
+    private final long mEnd;
+
+    public TimeSlot(long begin, long end) {
+        mBegin = begin;
+        mEnd = end;
+    }
+
+    /**
+     * @return 开始时间 时间戳
+     */
+    public long getBegin() {
+        return mBegin;
+    }
+
+    /**
+     * @return 结束时间 时间戳，不包含
+     */
+    public long getEnd() {
+        return mEnd;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof TimeSlot)) return false;
+        TimeSlot slot = (TimeSlot) o;
+        return mBegin == slot.mBegin && mEnd == slot.mEnd;
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (int) (mBegin ^ (mBegin >>> 32)) + (int) (mEnd ^ (mEnd >>> 32));
+    }
+
+    @Override
+    public String toString() {
+        return "TimeSlot{begin=" + mBegin + ", end=" + mEnd + '}';
+    }
+}
@@ -0,0 +1,80 @@
+package com.leo.calendarprovidermanager;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : CalendarExecutor 按 key 排序的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CalendarExecutorTest {
+    private final CalendarExecutor mExecutor = new CalendarExecutor(2, 16);
+    private final List<String> mOrder = Collections.synchronizedList(new ArrayList<String>());
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+    }
+
+    private Callable<Void> record(final String name) {
+        return new Callable<Void>() {
+            @Override
+            public Void call() {
+                mOrder.add(name);
+                return null;
+            }
+        };
+    }
+
+    @Test
+    public void multiKeyTaskRunsBetweenTasksOfEachKey() throws Exception {
+        final CountDownLatch release = new CountDownLatch(1);
+        mExecutor.submit(1L, new Callable<Void>() {
+            @Override
+            public Void call() throws InterruptedException {
+                release.await();
+                mOrder.add("update 1");
+                return null;
+            }
+        }, null);
+        Future<Void> delete = mExecutor.submitForKeys(Arrays.asList(1L, 2L), record("delete"), null);
+        Future<Void> update = mExecutor.submit(2L, record("update 2"), null);
+        Future<Void> other = mExecutor.submit(3L, record("update 3"), null);
+
+        //其它 key 不受影响
+        other.get(5, TimeUnit.SECONDS);
+        //key 1 上的任务未完成时，删除和之后 key 2 上的任务都在等待
+        Thread.sleep(100);
+        assertFalse(delete.isDone());
+        assertFalse(update.isDone());
+
+        release.countDown();
+        update.get(5, TimeUnit.SECONDS);
+        assertTrue(delete.isDone());
+        assertEquals(Arrays.asList("update 3", "update 1", "delete", "update 2"), mOrder);
+    }
+
+    @Test
+    public void multiKeyTaskOnIdleKeysRunsImmediately() throws Exception {
+        mExecutor.submitForKeys(Arrays.asList(1L, 2L, 1L), record("delete"), null).get(5, TimeUnit.SECONDS);
+        mExecutor.submit(1L, record("update 1"), null).get(5, TimeUnit.SECONDS);
+        assertEquals(Arrays.asList("delete", "update 1"), mOrder);
+    }
+}
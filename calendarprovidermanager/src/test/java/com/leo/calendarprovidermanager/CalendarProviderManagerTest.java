@@ -0,0 +1,624 @@
+package com.leo.calendarprovidermanager;
+
+import android.content.ContentProviderOperation;
+import android.content.ContentProviderResult;
+import android.content.ContentUris;
+import android.content.ContentValues;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.net.Uri;
+import android.provider.CalendarContract;
+
+import androidx.annotation.NonNull;
+
+import com.leo.calendarprovidermanager.fake.FakeCalendarProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : CalendarProviderManager 在 FakeCalendarProvider 上的行为测试
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CalendarProviderManagerTest {
+    static final String CALENDAR_NAME = "test";
+    static final String ACCOUNT_NAME = "calendar@" + CALENDAR_NAME + ".com";
+    //2026-01-01 00:00 UTC
+    static final long START_TIME = 1767225600000L;
+
+    private FakeCalendarProvider mProvider;
+    private CalendarProviderManager mManager;
+    private long mCalendarId;
+
+    @Before
+    public void setUp() {
+        mProvider = new FakeCalendarProvider();
+        mCalendarId = insertCalendar(mProvider);
+        mManager = new CalendarProviderManager.Builder(RuntimeEnvironment.application)
+                .setCalendarName(CALENDAR_NAME)
+                .setProviderClient(mProvider)
+                .build();
+    }
+
+    /**
+     * 插入测试日历账户，与 CalendarProviderManager.accountName 一致
+     *
+     * @return 日历 id
+     */
+    static long insertCalendar(FakeCalendarProvider provider) {
+        ContentValues calendar = new ContentValues();
+        calendar.put(CalendarContract.Calendars.NAME, CALENDAR_NAME);
+        calendar.put(CalendarContract.Calendars.ACCOUNT_NAME, ACCOUNT_NAME);
+        calendar.put(CalendarContract.Calendars.ACCOUNT_TYPE, CalendarContract.ACCOUNT_TYPE_LOCAL);
+        calendar.put(CalendarContract.Calendars.CALENDAR_DISPLAY_NAME, CALENDAR_NAME);
+        return ContentUris.parseId(provider.insert(CalendarContract.Calendars.CONTENT_URI, calendar));
+    }
+
+    static EventSpec event(String title, int index) {
+        return new EventSpec.Builder()
+                .setEvent(title, "description " + title)
+                .setAlarmStartTime(START_TIME + index * 60 * 60 * 1000L)
+                .setAlarmDurationTime(30)
+                .build();
+    }
+
+    @Test
+    public void addCalendarEventsLinksChildRowsByBackReference() {
+        List<EventSpec> events = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            events.add(new EventSpec.Builder()
+                    .setEvent("event " + i, "description " + i)
+                    .setAlarmStartTime(START_TIME + i * 60 * 60 * 1000L)
+                    .addReminder(new EventReminder(10 + i, CalendarContract.Reminders.METHOD_ALERT))
+                    .addReminder(new EventReminder(60, CalendarContract.Reminders.METHOD_EMAIL))
+                    .addAttendee(new EventAttendee("guest" + i + "@test.com", "guest " + i))
+                    .putExtendedProperty("source", "test " + i)
+                    .build());
+        }
+        mProvider.resetIpcCount();
+
+        long[] eventIds = mManager.addCalendarEvents(events);
+
+        //账户查询一次，写入整批一次
+        assertEquals(2, mProvider.getIpcCount());
+        for (int i = 0; i < eventIds.length; i++) {
+            assertTrue(eventIds[i] > -1);
+            EventSnapshot snapshot = mManager.getCalendarEvent(eventIds[i]);
+            assertEquals("event " + i, snapshot.getEventTitle());
+            assertTrue(snapshot.hasAlarm());
+            assertEquals(Arrays.asList(new EventReminder(10 + i, CalendarContract.Reminders.METHOD_ALERT),
+                    new EventReminder(60, CalendarContract.Reminders.METHOD_EMAIL)), snapshot.getReminders());
+            assertEquals(Collections.singletonList(new EventAttendee("guest" + i + "@test.com", "guest " + i)),
+                    snapshot.getAttendees());
+            assertEquals("test " + i, snapshot.getExtendedProperties().get("source"));
+        }
+        assertEquals(6, count(CalendarContract.Reminders.CONTENT_URI, null, null));
+    }
+
+    @Test
+    public void updateCalendarEventRewritesOnlyChangedReminders() {
+        long eventId = mManager.addCalendarEvent(new EventSpec.Builder()
+                .setEvent("meeting", "weekly")
+                .setAlarmStartTime(START_TIME)
+                .addReminder(new EventReminder(10, CalendarContract.Reminders.METHOD_ALERT))
+                .addReminder(new EventReminder(30, CalendarContract.Reminders.METHOD_ALERT))
+                .build());
+        long keptReminderId = reminderId(eventId, 10);
+
+        assertTrue(mManager.updateCalendarEvent(eventId, new EventSpec.Builder()
+                .setEvent("meeting", "weekly")
+                .setAlarmStartTime(START_TIME)
+                .addReminder(new EventReminder(10, CalendarContract.Reminders.METHOD_ALERT))
+                .addReminder(new EventReminder(60, CalendarContract.Reminders.METHOD_EMAIL))
+                .build()));
+
+        //未变化的提醒保留原行，多余的删除，缺少的插入
+        assertEquals(keptReminderId, reminderId(eventId, 10));
+        assertEquals(-1, reminderId(eventId, 30));
+        assertNotEquals(-1, reminderId(eventId, 60));
+        assertEquals(2, count(CalendarContract.Reminders.CONTENT_URI,
+                CalendarContract.Reminders.EVENT_ID + "=?", new String[]{String.valueOf(eventId)}));
+
+        //去掉全部提醒后 provider 清除 HAS_ALARM
+        assertTrue(mManager.updateCalendarEvent(eventId, event("meeting", 0)));
+        assertFalse(mManager.getCalendarEvent(eventId).hasAlarm());
+        assertEquals(0, count(CalendarContract.Reminders.CONTENT_URI, null, null));
+    }
+
+    @Test
+    public void reconcileWritesOnlyTheDelta() {
+        Map<String, EventSpec> desired = new LinkedHashMap<>();
+        desired.put("a", event("a", 0));
+        desired.put("b", event("b", 1));
+        desired.put("c", event("c", 2));
+        ReconcileResult first = mManager.reconcileCalendarEvents(desired);
+        assertTrue(first.isSuccessful());
+        assertEquals(3, first.getInsertedCount());
+        long unkeyedId = mManager.addCalendarEvent(event("manual", 3));
+
+        desired.remove("a");
+        desired.put("b", event("b changed", 1));
+        desired.put("d", event("d", 4));
+        ReconcileResult second = mManager.reconcileCalendarEvents(desired);
+
+        assertTrue(second.isSuccessful());
+        assertEquals(1, second.getInsertedCount());
+        assertEquals(1, second.getUpdatedCount());
+        assertEquals(1, second.getDeletedCount());
+        assertEquals(1, second.getUnchangedCount());
+        //更新保留事件 id，没有外部 id 的事件不受影响
+        assertEquals(first.getEventIds().get("b"), second.getEventIds().get("b"));
+        assertEquals("b changed", mManager.getCalendarEvent(second.getEventIds().get("b")).getEventTitle());
+        assertEquals(-1, mManager.findCalendarEvent("a"));
+        assertEquals("manual", mManager.getCalendarEvent(unkeyedId).getEventTitle());
+
+        ReconcileResult third = mManager.reconcileCalendarEvents(desired);
+        assertEquals(3, third.getUnchangedCount());
+        assertEquals(0, third.getInsertedCount() + third.getUpdatedCount() + third.getDeletedCount());
+    }
+
+    @Test
+    public void reconcileUpdatesEventsWhoseAttendeesChanged() {
+        Map<String, EventSpec> desired = new LinkedHashMap<>();
+        desired.put("a", new EventSpec.Builder()
+                .setEvent("a", "attendees")
+                .setAlarmStartTime(START_TIME)
+                .addAttendee(new EventAttendee("first@test.com", "first"))
+                .build());
+        assertEquals(1, mManager.reconcileCalendarEvents(desired).getInsertedCount());
+
+        desired.put("a", new EventSpec.Builder()
+                .setEvent("a", "attendees")
+                .setAlarmStartTime(START_TIME)
+                .addAttendee(new EventAttendee("second@test.com", "second"))
+                .build());
+        ReconcileResult result = mManager.reconcileCalendarEvents(desired);
+
+        assertEquals(1, result.getUpdatedCount());
+        assertEquals(Collections.singletonList(new EventAttendee("second@test.com", "second")),
+                mManager.getCalendarEvent(result.getEventIds().get("a")).getAttendees());
+        assertEquals(1, mManager.reconcileCalendarEvents(desired).getUnchangedCount());
+    }
+
+    @Test
+    public void failedReconcileReportsCommittedBatches() {
+        FakeCalendarProvider provider = new FakeCalendarProvider() {
+            private int mBatches;
+
+            @Override
+            public @NonNull ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+                    throws OperationApplicationException {
+                //第二个批次失败
+                if (++mBatches == 2) throw new OperationApplicationException("second batch");
+                return super.applyBatch(operations);
+            }
+        };
+        insertCalendar(provider);
+        CalendarProviderManager manager = new CalendarProviderManager.Builder(RuntimeEnvironment.application)
+                .setCalendarName(CALENDAR_NAME)
+                .setProviderClient(provider)
+                .build();
+        Map<String, EventSpec> desired = new LinkedHashMap<>();
+        for (int i = 0; i < OperationBatcher.DEFAULT_MAX_OPERATIONS + 50; i++) {
+            desired.put("key " + i, event("event " + i, i));
+        }
+
+        ReconcileResult result = manager.reconcileCalendarEvents(desired);
+
+        assertFalse(result.isSuccessful());
+        Cursor cursor = provider.query(CalendarContract.Events.CONTENT_URI, null, null, null, null);
+        try {
+            assertTrue(cursor.getCount() > 0);
+            assertEquals(cursor.getCount(), result.getInsertedCount());
+            assertEquals(cursor.getCount(), result.getEventIds().size());
+        } finally {
+            cursor.close();
+        }
+        assertEquals((long) result.getEventIds().get("key 0"), manager.findCalendarEvent("key 0"));
+    }
+
+    @Test
+    public void queryEventsPagesAreLimitedByTheProvider() {
+        final List<Integer> instanceRows = new ArrayList<>();
+        FakeCalendarProvider provider = new FakeCalendarProvider() {
+            @Override
+            public Cursor query(@NonNull Uri uri, String[] projection, String selection, String[] selectionArgs,
+                                String sortOrder) {
+                Cursor cursor = super.query(uri, projection, selection, selectionArgs, sortOrder);
+                if (uri.toString().startsWith(CalendarContract.Instances.CONTENT_URI.toString())) {
+                    instanceRows.add(cursor.getCount());
+                }
+                return cursor;
+            }
+        };
+        insertCalendar(provider);
+        CalendarProviderManager manager = new CalendarProviderManager.Builder(RuntimeEnvironment.application)
+                .setCalendarName(CALENDAR_NAME)
+                .setProviderClient(provider)
+                .build();
+        for (int i = 0; i < 4; i++) {
+            assertTrue(manager.addCalendarEvent(event("event " + i, i)) > -1);
+        }
+
+        List<String> titles = new ArrayList<>();
+        EventPageToken token = null;
+        int pages = 0;
+        do {
+            EventIterator iterator = manager.queryEvents(START_TIME, START_TIME + 24 * 60 * 60 * 1000L, token, 2);
+            while (iterator.hasNext()) {
+                titles.add(iterator.next().getEventTitle());
+            }
+            token = iterator.getNextPageToken();
+            pages++;
+        } while (token != null);
+
+        assertEquals(Arrays.asList("event 0", "event 1", "event 2", "event 3"), titles);
+        //最后一页正好取完时不再返回续查位置
+        assertEquals(2, pages);
+        //每页只多读一行
+        assertEquals(Arrays.asList(3, 2), instanceRows);
+    }
+
+    @Test
+    public void freeBusyIndexSeesEventsAddedWhileItLoads() throws InterruptedException {
+        final long[] lateEventId = new long[]{-1};
+        FakeCalendarProvider provider = new FakeCalendarProvider() {
+            @Override
+            public Cursor query(@NonNull Uri uri, String[] projection, String selection, String[] selectionArgs,
+                                String sortOrder) {
+                Cursor cursor = super.query(uri, projection, selection, selectionArgs, sortOrder);
+                //读取实例之后、订阅变化之前其它应用插入事件
+                if (lateEventId[0] == -1 && uri.toString().startsWith(CalendarContract.Instances.CONTENT_URI.toString())) {
+                    ContentValues values = new ContentValues();
+                    values.put(CalendarContract.Events.CALENDAR_ID, 1L);
+                    values.put(CalendarContract.Events.TITLE, "late");
+                    values.put(CalendarContract.Events.DTSTART, START_TIME);
+                    values.put(CalendarContract.Events.DTEND, START_TIME + 30 * 60 * 1000L);
+                    values.put(CalendarContract.Events.EVENT_TIMEZONE, "UTC");
+                    lateEventId[0] = ContentUris.parseId(super.insert(CalendarContract.Events.CONTENT_URI, values));
+                }
+                return cursor;
+            }
+        };
+        assertEquals(1L, insertCalendar(provider));
+        CalendarProviderManager manager = new CalendarProviderManager.Builder(RuntimeEnvironment.application)
+                .setCalendarName(CALENDAR_NAME)
+                .setProviderClient(provider)
+                .build();
+
+        FreeBusyIndex index = manager.openFreeBusyIndex(START_TIME, START_TIME + 24 * 60 * 60 * 1000L);
+        try {
+            assertTrue(lateEventId[0] > -1);
+            //初始快照早于读取实例，订阅后回调这次插入并重新读取
+            long deadline = System.currentTimeMillis() + 5000;
+            while (index.isFree(START_TIME, START_TIME + 60000) && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            assertArrayEquals(new long[]{lateEventId[0]}, index.findConflicts(START_TIME, START_TIME + 60000));
+        } finally {
+            index.close();
+        }
+    }
+
+    @Test
+    public void keyedUpsertUpdatesTheSameEvent() {
+        long eventId = mManager.upsertCalendarEvent("key", event("first", 0));
+        assertTrue(eventId > -1);
+        assertEquals(eventId, mManager.addCalendarEvent("key", event("ignored", 1)));
+        assertEquals("first", mManager.getCalendarEvent(eventId).getEventTitle());
+
+        assertEquals(eventId, mManager.upsertCalendarEvent("key", event("second", 1)));
+        assertEquals("second", mManager.getCalendarEvent(eventId).getEventTitle());
+        assertEquals(1, count(CalendarContract.Events.CONTENT_URI, null, null));
+
+        assertTrue(mManager.deleteCalendarEventByKey("key"));
+        assertEquals(-1, mManager.findCalendarEvent("key"));
+        assertNotEquals(eventId, mManager.upsertCalendarEvent("key", event("third", 2)));
+    }
+
+    @Test
+    public void keyedAddFindsEventsWrittenOutsideTheIndex() {
+        //建立索引
+        assertEquals(-1, mManager.findCalendarEvent("server"));
+
+        //sync adapter 写入的事件不经过索引
+        ContentValues values = new ContentValues();
+        values.put(CalendarContract.Events.CALENDAR_ID, mCalendarId);
+        values.put(CalendarContract.Events.TITLE, "from server");
+        values.put(CalendarContract.Events.DTSTART, START_TIME);
+        values.put(CalendarContract.Events.DTEND, START_TIME + 60 * 1000L);
+        values.put(CalendarContract.Events.EVENT_TIMEZONE, "UTC");
+        values.put(CalendarContract.Events.UID_2445, "server");
+        long serverId = ContentUris.parseId(mProvider.insert(asSyncAdapter(CalendarContract.Events.CONTENT_URI), values));
+
+        assertEquals(serverId, mManager.addCalendarEvent("server", event("local", 0)));
+        assertEquals(serverId, mManager.upsertCalendarEvent("server", event("local", 0)));
+        assertEquals(1, count(CalendarContract.Events.CONTENT_URI, null, null));
+        assertEquals("local", mManager.getCalendarEvent(serverId).getEventTitle());
+    }
+
+    @Test
+    public void keyedLookupsAfterOwnWritesUseOnlyTheIndex() {
+        long firstId = mManager.upsertCalendarEvent("first", event("first", 0));
+        mManager.upsertCalendarEvent("second", event("second", 1));
+        mManager.upsertCalendarEvent("first", event("first changed", 0));
+
+        //写入后账户缓存失效，第一次查找重新读取账户
+        assertEquals(firstId, mManager.findCalendarEvent("first"));
+
+        //本实例的写入不使索引失效，命中和未命中都不查询 provider
+        mProvider.resetIpcCount();
+        assertEquals(firstId, mManager.findCalendarEvent("first"));
+        assertEquals(-1, mManager.findCalendarEvent("missing"));
+        assertEquals(0, mProvider.getIpcCount());
+    }
+
+    @Test
+    public void keyedLookupAfterDeleteByIdRebuildsTheIndex() {
+        long eventId = mManager.upsertCalendarEvent("key", event("keyed", 0));
+        assertTrue(mManager.deleteCalendarEvent(eventId));
+
+        assertEquals(-1, mManager.findCalendarEvent("key"));
+        assertNotEquals(eventId, mManager.upsertCalendarEvent("key", event("keyed", 0)));
+        assertEquals(1, count(CalendarContract.Events.CONTENT_URI, null, null));
+    }
+
+    @Test
+    public void deleteLeavesTombstoneOnlyForSyncedEvents() {
+        long localId = mManager.addCalendarEvent(event("local", 0));
+        long syncedId = mManager.addCalendarEvent(event("synced", 1));
+        //应用写入的事件等待同步
+        assertEquals(1, eventColumn(localId, CalendarContract.Events.DIRTY));
+
+        ContentValues synced = new ContentValues();
+        synced.put(CalendarContract.Events._SYNC_ID, "server-1");
+        synced.put(CalendarContract.Events.DIRTY, 0);
+        mProvider.update(asSyncAdapter(ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, syncedId)),
+                synced, null, null);
+        assertEquals(0, eventColumn(syncedId, CalendarContract.Events.DIRTY));
+
+        assertTrue(mManager.deleteCalendarEvent(localId));
+        assertTrue(mManager.deleteCalendarEvent(syncedId));
+
+        //未同步的事件直接删除，已同步的事件留下墓碑
+        assertEquals(-1, eventColumn(localId, CalendarContract.Events.DELETED));
+        assertEquals(1, eventColumn(syncedId, CalendarContract.Events.DELETED));
+        assertEquals(1, eventColumn(syncedId, CalendarContract.Events.DIRTY));
+        //墓碑不影响重新添加相同的事件
+        assertEquals(-1, mManager.queryCalendarEvent("synced", "description synced"));
+        assertTrue(mManager.addCalendarEvent(event("synced", 1)) > -1);
+
+        //sync adapter 删除墓碑
+        assertEquals(1, mProvider.delete(asSyncAdapter(
+                ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, syncedId)), null, null));
+        assertEquals(-1, eventColumn(syncedId, CalendarContract.Events.DELETED));
+    }
+
+    @Test
+    public void rangeDeleteRemovesOverlappingEventsAndOnlySeriesInsideTheRange() {
+        long hour = 60 * 60 * 1000L;
+        long from = START_TIME + 24 * hour;
+        long to = START_TIME + 8 * 24 * hour;
+        long inside = insertRawEvent(from + hour, from + 2 * hour, null);
+        long crossingStart = insertRawEvent(from - hour, from + hour, null);
+        long crossingEnd = insertRawEvent(to - hour, to + hour, null);
+        long endsAtFrom = insertRawEvent(from - hour, from, null);
+        long startsAtTo = insertRawEvent(to, to + hour, null);
+        long seriesInside = insertRawEvent(from + hour, from + 2 * hour, "FREQ=DAILY;COUNT=3");
+        long seriesForever = insertRawEvent(from + hour, from + 2 * hour, "FREQ=WEEKLY");
+        long seriesFromBefore = insertRawEvent(from - 3 * 24 * hour, from - 3 * 24 * hour + hour, "FREQ=DAILY;COUNT=5");
+
+        assertEquals(4, mManager.deleteCalendarEvents(from, to));
+
+        for (long eventId : new long[]{inside, crossingStart, crossingEnd, seriesInside}) {
+            assertEquals(-1, eventColumn(eventId, CalendarContract.Events._ID));
+        }
+        //相接不算重叠；范围外还有发生的重复事件保留
+        for (long eventId : new long[]{endsAtFrom, startsAtTo, seriesForever, seriesFromBefore}) {
+            assertEquals(eventId, eventColumn(eventId, CalendarContract.Events._ID));
+        }
+    }
+
+    /**
+     * @param rrule 非 null 时用 DURATION 代替 DTEND
+     */
+    private long insertRawEvent(long start, long end, String rrule) {
+        ContentValues values = new ContentValues();
+        values.put(CalendarContract.Events.CALENDAR_ID, mCalendarId);
+        values.put(CalendarContract.Events.TITLE, "raw");
+        values.put(CalendarContract.Events.DTSTART, start);
+        values.put(CalendarContract.Events.EVENT_TIMEZONE, "UTC");
+        if (rrule == null) {
+            values.put(CalendarContract.Events.DTEND, end);
+        } else {
+            values.put(CalendarContract.Events.RRULE, rrule);
+            values.put(CalendarContract.Events.DURATION, "P" + (end - start) / 1000 + "S");
+        }
+        return ContentUris.parseId(mProvider.insert(CalendarContract.Events.CONTENT_URI, values));
+    }
+
+    @Test
+    public void reimportingExportedIcsUpdatesEventsByUid() throws Exception {
+        long keyedId = mManager.upsertCalendarEvent("external", event("keyed", 0));
+        long plainId = mManager.addCalendarEvent(event("plain", 1));
+        ByteArrayOutputStream exported = new ByteArrayOutputStream();
+        assertEquals(2, mManager.exportIcs(exported));
+
+        String ics = exported.toString("UTF-8")
+                .replace("SUMMARY:keyed", "SUMMARY:keyed again")
+                .replace("SUMMARY:plain", "SUMMARY:plain again");
+        assertEquals(2, mManager.importIcs(new ByteArrayInputStream(ics.getBytes("UTF-8"))));
+
+        assertEquals(2, count(CalendarContract.Events.CONTENT_URI, null, null));
+        assertEquals("keyed again", mManager.getCalendarEvent(keyedId).getEventTitle());
+        assertEquals("plain again", mManager.getCalendarEvent(plainId).getEventTitle());
+        assertEquals(keyedId, mManager.findCalendarEvent("external"));
+        //没有 key 的事件导出为 eventId@域名，导入时更新原事件，仍然没有 key，不参与 reconcile
+        assertEquals(-1, mManager.findCalendarEvent(plainId + "@" + ACCOUNT_NAME));
+    }
+
+    @Test
+    public void importedUidsBecomeKeysAndRepeatedUidsCollapse() throws Exception {
+        String ics = "BEGIN:VCALENDAR\r\n"
+                + "BEGIN:VEVENT\r\nUID:meeting@example.com\r\nSUMMARY:first\r\nDTSTART:20260101T090000Z\r\nEND:VEVENT\r\n"
+                + "BEGIN:VEVENT\r\nUID:meeting@example.com\r\nSUMMARY:second\r\nDTSTART:20260101T100000Z\r\nEND:VEVENT\r\n"
+                + "END:VCALENDAR\r\n";
+        assertEquals(1, mManager.importIcs(new ByteArrayInputStream(ics.getBytes("UTF-8"))));
+        assertEquals(1, mManager.importIcs(new ByteArrayInputStream(ics.getBytes("UTF-8"))));
+
+        assertEquals(1, count(CalendarContract.Events.CONTENT_URI, null, null));
+        long eventId = mManager.findCalendarEvent("meeting@example.com");
+        assertEquals("second", mManager.getCalendarEvent(eventId).getEventTitle());
+    }
+
+    @Test
+    public void closeUnregistersEveryObserverTheManagersCreated() {
+        FakeCalendarProvider provider = new FakeCalendarProvider();
+        insertCalendar(provider);
+        CalendarProviderManager manager = new CalendarProviderManager.Builder(RuntimeEnvironment.application)
+                .setCalendarName(CALENDAR_NAME)
+                .setProviderClient(provider)
+                .setEventCacheSize(64 * 1024)
+                .build();
+        manager.getCalendarEvent(manager.upsertCalendarEvent("key", event("observed", 0)));
+        assertTrue(provider.getObserverCount() > 0);
+        manager.close();
+        assertEquals(0, provider.getObserverCount());
+
+        MultiCalendarManager multiManager = new MultiCalendarManager.Builder(RuntimeEnvironment.application)
+                .addCalendarNames(Arrays.asList(CALENDAR_NAME, "other"))
+                .setProviderClient(provider)
+                .build();
+        assertTrue(provider.getObserverCount() > 0);
+        multiManager.close();
+        assertEquals(0, provider.getObserverCount());
+    }
+
+    @Test
+    public void closedCacheStopsCaching() {
+        CalendarProviderManager manager = new CalendarProviderManager.Builder(RuntimeEnvironment.application)
+                .setCalendarName(CALENDAR_NAME)
+                .setProviderClient(mProvider)
+                .setEventCacheSize(64 * 1024)
+                .build();
+        long eventId = manager.addCalendarEvent(event("cached", 0));
+        manager.getCalendarEvent(eventId);
+        manager.getCalendarEvent(eventId);
+        assertEquals(1, manager.getEventCacheStats().getHitCount());
+
+        manager.close();
+        assertEquals(0, manager.getEventCacheStats().getSize());
+        //关闭后收不到其它写入方的通知，读取直接查询 provider
+        ContentValues title = new ContentValues();
+        title.put(CalendarContract.Events.TITLE, "changed");
+        mProvider.update(ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, eventId), title, null, null);
+        assertEquals("changed", manager.getCalendarEvent(eventId).getEventTitle());
+        assertEquals(0, manager.getEventCacheStats().getSize());
+    }
+
+    @Test
+    public void failedApplyBatchRollsBackEveryOperation() throws Exception {
+        long eventId = mManager.addCalendarEvent(new EventSpec.Builder()
+                .setEvent("kept", "rollback")
+                .setAlarmStartTime(START_TIME)
+                .addReminder(new EventReminder(10, CalendarContract.Reminders.METHOD_ALERT))
+                .build());
+
+        ContentValues title = new ContentValues();
+        title.put(CalendarContract.Events.TITLE, "changed");
+        ArrayList<ContentProviderOperation> operations = new ArrayList<>();
+        operations.add(ContentProviderOperation
+                .newUpdate(ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, eventId))
+                .withValues(title)
+                .build());
+        operations.add(ContentProviderOperation
+                .newDelete(ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, eventId))
+                .build());
+        operations.add(ContentProviderOperation.newInsert(CalendarContract.Events.CONTENT_URI)
+                .withValue(CalendarContract.Events.CALENDAR_ID, mCalendarId)
+                .withValue(CalendarContract.Events.TITLE, "inserted")
+                .withValue(CalendarContract.Events.DTSTART, START_TIME)
+                .withValue(CalendarContract.Events.DTEND, START_TIME + 60 * 1000L)
+                .withValue(CalendarContract.Events.EVENT_TIMEZONE, "UTC")
+                .build());
+        //最后一个操作写入不存在的事件，整批失败
+        operations.add(ContentProviderOperation.newInsert(CalendarContract.Reminders.CONTENT_URI)
+                .withValue(CalendarContract.Reminders.EVENT_ID, eventId + 100)
+                .withValue(CalendarContract.Reminders.MINUTES, 5)
+                .build());
+        try {
+            mProvider.applyBatch(operations);
+            fail("applyBatch should fail");
+        } catch (IllegalArgumentException | OperationApplicationException expected) {
+            //预期失败
+        }
+
+        EventSnapshot snapshot = mManager.getCalendarEvent(eventId);
+        assertEquals("kept", snapshot.getEventTitle());
+        assertEquals(Collections.singletonList(new EventReminder(10, CalendarContract.Reminders.METHOD_ALERT)),
+                snapshot.getReminders());
+        assertEquals(1, count(CalendarContract.Events.CONTENT_URI, null, null));
+    }
+
+    private static Uri asSyncAdapter(Uri uri) {
+        return CalendarUris.asSyncAdapter(uri, ACCOUNT_NAME, CalendarContract.ACCOUNT_TYPE_LOCAL);
+    }
+
+    private int count(Uri uri, String selection, String[] selectionArgs) {
+        Cursor cursor = mProvider.query(uri, null, selection, selectionArgs, null);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return 事件某一整数列的值，事件不存在时为 -1
+     */
+    private long eventColumn(long eventId, String column) {
+        Cursor cursor = mProvider.query(ContentUris.withAppendedId(CalendarContract.Events.CONTENT_URI, eventId),
+                new String[]{column}, null, null, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * @return 事件中提前 minutes 分钟的提醒行 _ID，不存在时为 -1
+     */
+    private long reminderId(long eventId, long minutes) {
+        Cursor cursor = mProvider.query(CalendarContract.Reminders.CONTENT_URI,
+                new String[]{CalendarContract.Reminders._ID},
+                CalendarContract.Reminders.EVENT_ID + "=? AND " + CalendarContract.Reminders.MINUTES + "=?",
+                new String[]{String.valueOf(eventId), String.valueOf(minutes)}, null);
+        try {
+            return cursor.moveToFirst() ? cursor.getLong(0) : -1;
+        } finally {
+            cursor.close();
+        }
+    }
+}
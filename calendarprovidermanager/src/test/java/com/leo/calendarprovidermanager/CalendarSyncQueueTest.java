@@ -0,0 +1,287 @@
+package com.leo.calendarprovidermanager;
+
+import android.app.job.JobInfo;
+import android.app.job.JobScheduler;
+import android.content.ContentProviderOperation;
+import android.content.Context;
+import android.content.ContentProviderResult;
+import android.content.OperationApplicationException;
+import android.database.Cursor;
+import android.os.Build;
+import android.provider.CalendarContract;
+
+import androidx.annotation.NonNull;
+
+import com.leo.calendarprovidermanager.fake.FakeCalendarProvider;
+
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.annotation.Config;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : CalendarSyncQueue 在 FakeCalendarProvider 上执行，覆盖检查点、重复执行和不完整记录
+ */
+@RunWith(RobolectricTestRunner.class)
+public class CalendarSyncQueueTest {
+    private FailingProvider mProvider;
+
+    @Before
+    public void setUp() {
+        mProvider = new FailingProvider();
+        CalendarProviderManagerTest.insertCalendar(mProvider);
+    }
+
+    /**
+     * 每次创建新的 manager 和队列，与后台任务每次执行时相同
+     */
+    private CalendarSyncQueue newQueue() {
+        return newQueue(CalendarProviderManagerTest.CALENDAR_NAME);
+    }
+
+    private CalendarSyncQueue newQueue(String calendarName) {
+        return new CalendarProviderManager.Builder(RuntimeEnvironment.application)
+                .setCalendarName(calendarName)
+                .setProviderClient(mProvider)
+                .build()
+                .getSyncQueue();
+    }
+
+    private static Map<String, EventSpec> events(int count, String title) {
+        Map<String, EventSpec> events = new LinkedHashMap<>();
+        for (int i = 0; i < count; i++) {
+            events.put("key " + i, CalendarProviderManagerTest.event(title + " " + i, i));
+        }
+        return events;
+    }
+
+    @Test
+    public void drainAppliesQueuedOperations() {
+        CalendarSyncQueue queue = newQueue();
+        assertTrue(queue.enqueueUpserts(events(3, "first")));
+        assertTrue(queue.enqueueUpsert("key 1", CalendarProviderManagerTest.event("second", 1)));
+        assertEquals(4, queue.getPendingCount());
+
+        assertEquals(4, queue.drain());
+
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(3, eventCount());
+        assertEquals(1, eventCount(CalendarContract.Events.TITLE + "=?", "second"));
+        assertEquals(0, newQueue().drain());
+    }
+
+    @Test
+    public void upsertCarriesAttendeesAndExtendedProperties() {
+        CalendarSyncQueue queue = newQueue();
+        assertTrue(queue.enqueueUpsert("key", new EventSpec.Builder()
+                .setEvent("meeting", "with guests")
+                .setAlarmStartTime(CalendarProviderManagerTest.START_TIME)
+                .addAttendee(new EventAttendee("first@test.com", "first"))
+                .putExtendedProperty("source", "queue")
+                .build()));
+        assertEquals(1, newQueue().drain());
+
+        //重新读取的队列记录保留参与人和扩展属性，覆盖时比对后更新
+        assertTrue(queue.enqueueUpsert("key", new EventSpec.Builder()
+                .setEvent("meeting", "with guests")
+                .setAlarmStartTime(CalendarProviderManagerTest.START_TIME)
+                .addAttendee(new EventAttendee("second@test.com", "second"))
+                .putExtendedProperty("source", "queue changed")
+                .build()));
+        assertEquals(1, newQueue().drain());
+
+        CalendarProviderManager manager = new CalendarProviderManager.Builder(RuntimeEnvironment.application)
+                .setCalendarName(CalendarProviderManagerTest.CALENDAR_NAME)
+                .setProviderClient(mProvider)
+                .build();
+        EventSnapshot snapshot = manager.getCalendarEvent(manager.findCalendarEvent("key"));
+        assertEquals(Collections.singletonList(new EventAttendee("second@test.com", "second")),
+                snapshot.getAttendees());
+        assertEquals("queue changed", snapshot.getExtendedProperties().get("source"));
+        assertEquals(1, eventCount());
+    }
+
+    @Test
+    public void failedChunkKeepsCheckpointOfCommittedChunks() {
+        CalendarSyncQueue queue = newQueue();
+        int total = CalendarSyncQueue.BATCH_SIZE + 50;
+        assertTrue(queue.enqueueUpserts(events(total, "event")));
+
+        //第一段成功，第二段暂时失败
+        mProvider.mFailAfterBatches = 1;
+        assertEquals(-1, queue.drain());
+        assertEquals(50, queue.getPendingCount());
+        assertEquals(CalendarSyncQueue.BATCH_SIZE, eventCount());
+
+        mProvider.mFailAfterBatches = -1;
+        assertEquals(50, newQueue().drain());
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(total, eventCount());
+    }
+
+    @Test
+    public void replayAfterCrashBetweenApplyAndCommitIsIdempotent() {
+        CalendarSyncQueue queue = newQueue();
+        assertTrue(queue.enqueueUpserts(events(10, "event")));
+
+        //批次已写入 provider，进程在提交检查点和写入 key 索引前被杀
+        mProvider.isCrashAfterApply = true;
+        assertEquals(-1, queue.drain());
+        assertEquals(10, eventCount());
+        assertEquals(10, queue.getPendingCount());
+
+        mProvider.isCrashAfterApply = false;
+        assertEquals(10, newQueue().drain());
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(10, eventCount());
+    }
+
+    @Test
+    public void tornTailIsTruncated() throws IOException {
+        CalendarSyncQueue queue = newQueue();
+        assertTrue(queue.enqueueUpserts(events(3, "event")));
+        //进程在追加时被杀，只写入了长度和部分内容
+        FileOutputStream out = new FileOutputStream(queueFile(), true);
+        try {
+            out.write(new byte[]{0, 0, 1, 0, 1, 2, 3});
+        } finally {
+            out.close();
+        }
+        assertEquals(3, queue.getPendingCount());
+
+        assertEquals(3, queue.drain());
+        assertEquals(3, eventCount());
+        assertFalse(queueFile().exists());
+
+        //截掉后追加的记录正常执行
+        assertTrue(queue.enqueueUpsert("key 3", CalendarProviderManagerTest.event("event 3", 3)));
+        assertEquals(1, queue.drain());
+        assertEquals(4, eventCount());
+    }
+
+    @Test
+    public void rejectedRecordIsSkipped() {
+        CalendarSyncQueue queue = newQueue();
+        assertTrue(queue.enqueueUpsert("before", CalendarProviderManagerTest.event("before", 0)));
+        assertTrue(queue.enqueueUpsert("invalid", new EventSpec.Builder()
+                .setEvent("invalid", "invalid rrule")
+                .setAlarmStartTime(CalendarProviderManagerTest.START_TIME)
+                .setRecurrenceRule("INVALID")
+                .build()));
+        assertTrue(queue.enqueueUpsert("after", CalendarProviderManagerTest.event("after", 2)));
+
+        assertEquals(2, queue.drain());
+
+        assertEquals(0, queue.getPendingCount());
+        assertEquals(1, eventCount(CalendarContract.Events.TITLE + "=?", "before"));
+        assertEquals(1, eventCount(CalendarContract.Events.TITLE + "=?", "after"));
+        assertEquals(0, eventCount(CalendarContract.Events.TITLE + "=?", "invalid"));
+    }
+
+    @Test
+    public void scheduleWithoutConstraints() {
+        newQueue().schedule();
+        JobInfo job = pendingJob();
+        //没有系统条件时立即执行
+        assertEquals(0, job.getMaxExecutionDelayMillis());
+        assertEquals(CalendarProviderManagerTest.CALENDAR_NAME, job.getExtras().getString(SyncScheduler.EXTRA_CALENDAR_NAME));
+    }
+
+    @Test
+    public void scheduleRequiringDeviceIdle() {
+        newQueue().schedule(new SyncConstraints.Builder().setRequiresDeviceIdle(true).build());
+        assertTrue(pendingJob().isRequireDeviceIdle());
+    }
+
+    @Test
+    @Config(sdk = Build.VERSION_CODES.M)
+    public void scheduleRequiringBatteryNotLowBeforeOreo() {
+        //API 26 以下电量条件在执行前检查，JobInfo 中没有系统条件
+        newQueue().schedule(new SyncConstraints.Builder().setRequiresBatteryNotLow(true).build());
+        assertEquals(0, pendingJob().getMaxExecutionDelayMillis());
+    }
+
+    @Test
+    public void calendarsWithSameHashCodeUseSeparateQueues() {
+        //"Aa" 与 "BB" 的 hashCode 相同
+        CalendarSyncQueue first = newQueue("Aa");
+        CalendarSyncQueue second = newQueue("BB");
+        assertTrue(first.enqueueUpsert("key", CalendarProviderManagerTest.event("first", 0)));
+        assertTrue(second.enqueueUpsert("key", CalendarProviderManagerTest.event("second", 0)));
+
+        assertEquals(1, first.drain());
+        assertEquals(1, second.getPendingCount());
+        assertEquals(1, eventCount(CalendarContract.Events.TITLE + "=?", "first"));
+        assertEquals(0, eventCount(CalendarContract.Events.TITLE + "=?", "second"));
+
+        first.schedule();
+        second.schedule();
+        JobScheduler scheduler = (JobScheduler) RuntimeEnvironment.application
+                .getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        assertEquals(2, scheduler.getAllPendingJobs().size());
+    }
+
+    private static JobInfo pendingJob() {
+        JobScheduler scheduler = (JobScheduler) RuntimeEnvironment.application
+                .getSystemService(Context.JOB_SCHEDULER_SERVICE);
+        List<JobInfo> jobs = scheduler.getAllPendingJobs();
+        assertEquals(1, jobs.size());
+        return jobs.get(0);
+    }
+
+    private File queueFile() {
+        return new File(RuntimeEnvironment.application.getFilesDir(),
+                CalendarSyncQueue.queueName(CalendarProviderManagerTest.CALENDAR_NAME) + ".queue");
+    }
+
+    private int eventCount() {
+        return eventCount(null);
+    }
+
+    private int eventCount(String selection, String... selectionArgs) {
+        Cursor cursor = mProvider.query(CalendarContract.Events.CONTENT_URI, null, selection,
+                selection == null ? null : selectionArgs, null);
+        try {
+            return cursor.getCount();
+        } finally {
+            cursor.close();
+        }
+    }
+
+    /**
+     * 可模拟暂时失败和执行后被杀的 provider
+     */
+    private static final class FailingProvider extends FakeCalendarProvider {
+        //成功执行这么多批次后抛出 SecurityException，-1 表示不失败
+        int mFailAfterBatches = -1;
+        //批次写入后抛出异常，模拟提交检查点前进程被杀
+        boolean isCrashAfterApply;
+
+        @Override
+        public @NonNull ContentProviderResult[] applyBatch(@NonNull ArrayList<ContentProviderOperation> operations)
+                throws OperationApplicationException {
+            if (mFailAfterBatches == 0) throw new SecurityException("permission revoked");
+            if (mFailAfterBatches > 0) mFailAfterBatches--;
+            ContentProviderResult[] results = super.applyBatch(operations);
+            if (isCrashAfterApply) throw new IllegalStateException("process killed");
+            return results;
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package com.leo.calendarprovidermanager;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.shadows.ShadowLooper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : EventWriteQueue 合并和失败重试的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+public class EventWriteQueueTest {
+    private final CalendarExecutor mExecutor = new CalendarExecutor(1, 16);
+    //每次写入的修改，mFailures 次之前的写入失败
+    private final List<Map<Long, EventPatch>> mWrites = new ArrayList<>();
+    private int mFailures;
+
+    private final EventWriteQueue mQueue = new EventWriteQueue(new EventWriteQueue.Writer() {
+        @Override
+        public int write(Map<Long, EventPatch> patches) {
+            synchronized (mWrites) {
+                mWrites.add(patches);
+                return mWrites.size() <= mFailures ? -1 : patches.size();
+            }
+        }
+
+        @Override
+        public String defaultTimeZone() {
+            return "UTC";
+        }
+    }, mExecutor, 1000, 50);
+
+    @After
+    public void tearDown() {
+        mExecutor.shutdown();
+    }
+
+    @Test
+    public void flushAsyncWritesMergedPatchesOnce() throws Exception {
+        mQueue.patchCalendarEvent(1, new EventPatch.Builder().setTitle("a").build());
+        mQueue.patchCalendarEvent(1, new EventPatch.Builder().setDescription("b").build());
+        mQueue.patchCalendarEvent(2, new EventPatch.Builder().setTitle("c").build());
+
+        assertEquals(2, (int) mQueue.flushAsync(null).get(5, TimeUnit.SECONDS));
+        assertEquals(1, mWrites.size());
+        assertEquals(0, mQueue.getPendingCount());
+    }
+
+    @Test
+    public void failedWriteIsRetriedWithoutNewEdits() throws Exception {
+        mFailures = 1;
+        mQueue.patchCalendarEvent(1, new EventPatch.Builder().setTitle("a").build());
+        assertEquals(-1, mQueue.flush());
+        assertEquals(1, mQueue.getPendingCount());
+
+        //重试在 CalendarExecutor 上执行，之后的 flushAsync 排在它后面
+        ShadowLooper.idleMainLooper(EventWriteQueue.RETRY_DELAY_MILLIS, TimeUnit.MILLISECONDS);
+        assertEquals(0, (int) mQueue.flushAsync(null).get(5, TimeUnit.SECONDS));
+        assertEquals(2, mWrites.size());
+        assertEquals(0, mQueue.getPendingCount());
+    }
+}
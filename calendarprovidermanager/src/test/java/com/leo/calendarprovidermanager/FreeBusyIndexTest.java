@@ -0,0 +1,87 @@
+package com.leo.calendarprovidermanager;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : FreeBusyIndex 冲突和空闲时间段的测试
+ */
+public class FreeBusyIndexTest {
+    private static final long MINUTE = 60000L;
+
+    private static FreeBusyIndex index(long windowStart, long windowEnd, long[]... intervals) {
+        long[] begins = new long[intervals.length];
+        long[] ends = new long[intervals.length];
+        long[] eventIds = new long[intervals.length];
+        for (int i = 0; i < intervals.length; i++) {
+            begins[i] = intervals[i][0] * MINUTE;
+            ends[i] = intervals[i][1] * MINUTE;
+            eventIds[i] = intervals[i][2];
+        }
+        return new FreeBusyIndex(windowStart * MINUTE, windowEnd * MINUTE,
+                IntervalIndex.of(begins, ends, eventIds, intervals.length), new HashMap<Long, Long>(), null, null);
+    }
+
+    private static TimeSlot slot(long begin, long end) {
+        return new TimeSlot(begin * MINUTE, end * MINUTE);
+    }
+
+    @Test
+    public void emptyWindowIsOneFreeSlot() {
+        FreeBusyIndex index = index(0, 600);
+        assertTrue(index.isFree(0, 600 * MINUTE));
+        assertEquals(0, index.findConflicts(0, 600 * MINUTE).length);
+        assertEquals(Collections.singletonList(slot(0, 600)), index.findFreeSlots(0, 600 * MINUTE, 30));
+    }
+
+    @Test
+    public void conflictsAreDistinctEventsInStartOrder() {
+        //事件 1 是重复事件，窗口内有两个实例
+        FreeBusyIndex index = index(0, 600, new long[]{300, 360, 2}, new long[]{60, 120, 1},
+                new long[]{400, 460, 1});
+        assertArrayEquals(new long[]{1, 2}, index.findConflicts(0, 600 * MINUTE));
+        assertArrayEquals(new long[]{2, 1}, index.findConflicts(330 * MINUTE, 420 * MINUTE));
+        assertFalse(index.isFree(100 * MINUTE, 101 * MINUTE));
+    }
+
+    @Test
+    public void adjacentEventsLeaveNoGapAndDoNotConflict() {
+        FreeBusyIndex index = index(0, 600, new long[]{60, 120, 1}, new long[]{120, 180, 2});
+        assertTrue(index.isFree(180 * MINUTE, 240 * MINUTE));
+        assertTrue(index.isFree(0, 60 * MINUTE));
+        assertEquals(Arrays.asList(slot(0, 60), slot(180, 600)), index.findFreeSlots(0, 600 * MINUTE, 30));
+    }
+
+    @Test
+    public void nestedEventDoesNotShortenOuterBusyTime() {
+        //事件 2 在事件 1 内，空闲时间从事件 1 结束开始
+        FreeBusyIndex index = index(0, 600, new long[]{60, 300, 1}, new long[]{90, 120, 2});
+        assertEquals(Arrays.asList(slot(0, 60), slot(300, 600)), index.findFreeSlots(0, 600 * MINUTE, 30));
+        assertArrayEquals(new long[]{1, 2}, index.findConflicts(100 * MINUTE, 110 * MINUTE));
+        assertArrayEquals(new long[]{1}, index.findConflicts(200 * MINUTE, 210 * MINUTE));
+    }
+
+    @Test
+    public void freeSlotsShorterThanDurationAreSkipped() {
+        FreeBusyIndex index = index(0, 600, new long[]{20, 60, 1}, new long[]{80, 200, 2}, new long[]{560, 600, 3});
+        //0-20 和 60-80 不足 30 分钟
+        assertEquals(Collections.singletonList(slot(200, 560)), index.findFreeSlots(0, 600 * MINUTE, 30));
+        //查询范围从事件中间开始
+        assertEquals(Arrays.asList(slot(60, 80), slot(200, 560)), index.findFreeSlots(30 * MINUTE, 600 * MINUTE, 20));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rangeOutsideWindowIsRejected() {
+        index(0, 600).isFree(500 * MINUTE, 700 * MINUTE);
+    }
+}
@@ -0,0 +1,158 @@
+package com.leo.calendarprovidermanager;
+
+import android.provider.CalendarContract;
+
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.Calendar;
+import java.util.TimeZone;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : IcsReader 解析 .ics 内容行的测试
+ */
+@RunWith(RobolectricTestRunner.class)
+public class IcsReaderTest {
+
+    private static IcsReader reader(String... lines) {
+        StringBuilder ics = new StringBuilder("BEGIN:VCALENDAR\r\n");
+        for (String line : lines) {
+            ics.append(line).append("\r\n");
+        }
+        ics.append("END:VCALENDAR\r\n");
+        return new IcsReader(new ByteArrayInputStream(ics.toString().getBytes(Charset.forName("UTF-8"))));
+    }
+
+    private static long time(TimeZone timeZone, int year, int month, int day, int hour, int minute) {
+        Calendar calendar = Calendar.getInstance(timeZone);
+        calendar.clear();
+        calendar.set(year, month - 1, day, hour, minute, 0);
+        return calendar.getTimeInMillis();
+    }
+
+    @Test
+    public void foldedLinesAreUnfolded() throws IOException {
+        IcsReader reader = reader(
+                "BEGIN:VEVENT",
+                "UID:folded-",
+                " uid@example.com",
+                "SUMMARY:A long",
+                "\t title",
+                "DTSTART:20260101T090000Z",
+                "END:VEVENT");
+        EventSpec event = reader.next();
+        //只去掉续行开头的一个空白字符
+        assertEquals("A long title", event.getEventTitle());
+        assertEquals("folded-uid@example.com", reader.getUid());
+        assertNull(reader.next());
+    }
+
+    @Test
+    public void textValuesAreUnescaped() throws IOException {
+        IcsReader reader = reader(
+                "BEGIN:VEVENT",
+                "SUMMARY:Lunch\\, then coffee\\; maybe",
+                "DESCRIPTION:line one\\nline two\\Nline three \\\\ done",
+                "DTSTART:20260101T090000Z",
+                "END:VEVENT");
+        EventSpec event = reader.next();
+        assertEquals("Lunch, then coffee; maybe", event.getEventTitle());
+        assertEquals("line one\nline two\nline three \\ done", event.getEventDescription());
+        assertNull(reader.getUid());
+    }
+
+    @Test
+    public void tzidAndUtcTimesAreConverted() throws IOException {
+        IcsReader reader = reader(
+                "BEGIN:VEVENT",
+                "DTSTART;TZID=America/New_York:20260701T090000",
+                "DTEND;TZID=America/New_York:20260701T103000",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "DTSTART:20260701T090000Z",
+                "DURATION:PT45M",
+                "END:VEVENT");
+        EventSpec zoned = reader.next();
+        assertEquals(time(TimeZone.getTimeZone("America/New_York"), 2026, 7, 1, 9, 0), zoned.getAlarmStartTime());
+        assertEquals(90, zoned.getAlarmDurationTime());
+        assertEquals("America/New_York", zoned.getTimeZone());
+
+        EventSpec utc = reader.next();
+        assertEquals(time(TimeZone.getTimeZone("UTC"), 2026, 7, 1, 9, 0), utc.getAlarmStartTime());
+        assertEquals(45, utc.getAlarmDurationTime());
+        assertEquals("UTC", utc.getTimeZone());
+    }
+
+    @Test
+    public void dateValuesAreAllDay() throws IOException {
+        IcsReader reader = reader(
+                "BEGIN:VEVENT",
+                "DTSTART;VALUE=DATE:20260310",
+                "DTEND;VALUE=DATE:20260312",
+                "END:VEVENT");
+        EventSpec event = reader.next();
+        assertTrue(event.isAllDay());
+        assertEquals(2 * 24 * 60, event.getAlarmDurationTime());
+    }
+
+    @Test
+    public void alarmsBecomeReminders() throws IOException {
+        IcsReader reader = reader(
+                "BEGIN:VEVENT",
+                "DTSTART:20260101T090000Z",
+                "BEGIN:VALARM",
+                "ACTION:DISPLAY",
+                "TRIGGER:-PT15M",
+                "END:VALARM",
+                "BEGIN:VALARM",
+                "ACTION:EMAIL",
+                "TRIGGER;VALUE=DATE-TIME:20260101T080000Z",
+                "END:VALARM",
+                "BEGIN:VALARM",
+                "ACTION:DISPLAY",
+                "TRIGGER:PT10M",
+                "END:VALARM",
+                "END:VEVENT");
+        EventSpec event = reader.next();
+        //开始之后的提醒无法表示，被忽略
+        assertEquals(Arrays.asList(
+                new EventReminder(15, CalendarContract.Reminders.METHOD_ALERT),
+                new EventReminder(60, CalendarContract.Reminders.METHOD_EMAIL)), event.getReminders());
+    }
+
+    @Test
+    public void eventsWithoutStartAndExceptionsAreSkipped() throws IOException {
+        IcsReader reader = reader(
+                "BEGIN:VEVENT",
+                "SUMMARY:no start",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "UID:series",
+                "RECURRENCE-ID:20260108T090000Z",
+                "DTSTART:20260108T100000Z",
+                "END:VEVENT",
+                "BEGIN:VEVENT",
+                "UID:series",
+                "SUMMARY:kept",
+                "DTSTART:20260101T090000Z",
+                "RRULE:FREQ=WEEKLY",
+                "END:VEVENT");
+        EventSpec event = reader.next();
+        assertEquals("kept", event.getEventTitle());
+        assertEquals("FREQ=WEEKLY", event.getRecurrenceRule());
+        assertEquals("series", reader.getUid());
+        assertNull(reader.next());
+        assertEquals(2, reader.getSkippedCount());
+    }
+}
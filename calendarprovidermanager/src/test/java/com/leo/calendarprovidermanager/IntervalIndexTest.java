@@ -0,0 +1,107 @@
+package com.leo.calendarprovidermanager;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Random;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Created by : Leo
+ * Date : 2026/10/18
+ * Describe : IntervalIndex 重叠查询和替换的测试
+ */
+public class IntervalIndexTest {
+
+    private static IntervalIndex index(long[]... intervals) {
+        long[] begins = new long[intervals.length];
+        long[] ends = new long[intervals.length];
+        long[] eventIds = new long[intervals.length];
+        for (int i = 0; i < intervals.length; i++) {
+            begins[i] = intervals[i][0];
+            ends[i] = intervals[i][1];
+            eventIds[i] = intervals[i][2];
+        }
+        return IntervalIndex.of(begins, ends, eventIds, intervals.length);
+    }
+
+    private static long[] eventIds(IntervalIndex index, int[] hits) {
+        long[] eventIds = new long[hits.length];
+        for (int i = 0; i < hits.length; i++) {
+            eventIds[i] = index.eventIdAt(hits[i]);
+        }
+        return eventIds;
+    }
+
+    @Test
+    public void emptyIndexHasNoOverlaps() {
+        assertEquals(0, IntervalIndex.EMPTY.overlapping(0, Long.MAX_VALUE).length);
+        assertEquals(0, index().overlapping(0, 100).length);
+    }
+
+    @Test
+    public void overlappingIsSortedByBegin() {
+        IntervalIndex index = index(new long[]{50, 60, 3}, new long[]{10, 20, 1}, new long[]{30, 40, 2});
+        assertArrayEquals(new long[]{1, 2, 3}, eventIds(index, index.overlapping(0, 100)));
+        assertArrayEquals(new long[]{2}, eventIds(index, index.overlapping(35, 36)));
+        assertArrayEquals(new long[]{1, 2}, eventIds(index, index.overlapping(15, 35)));
+    }
+
+    @Test
+    public void adjacentIntervalsDoNotOverlap() {
+        IntervalIndex index = index(new long[]{10, 20, 1}, new long[]{20, 30, 2});
+        //区间是 [begin, end)，首尾相接不算重叠
+        assertArrayEquals(new long[]{2}, eventIds(index, index.overlapping(20, 25)));
+        assertArrayEquals(new long[]{1}, eventIds(index, index.overlapping(15, 20)));
+        assertEquals(0, index.overlapping(30, 40).length);
+        assertEquals(0, index.overlapping(0, 10).length);
+    }
+
+    @Test
+    public void nestedIntervalsAreFoundThroughLongerParent() {
+        //长区间开始得最早，短区间在后面的子树中，需要 maxEnd 才能找到长区间
+        IntervalIndex index = index(new long[]{0, 1000, 1}, new long[]{100, 200, 2}, new long[]{300, 400, 3},
+                new long[]{500, 600, 4}, new long[]{700, 800, 5});
+        assertArrayEquals(new long[]{1}, eventIds(index, index.overlapping(900, 950)));
+        assertArrayEquals(new long[]{1, 4}, eventIds(index, index.overlapping(550, 560)));
+    }
+
+    @Test
+    public void overlappingMatchesLinearScan() {
+        Random random = new Random(42);
+        long[][] intervals = new long[200][];
+        for (int i = 0; i < intervals.length; i++) {
+            long begin = random.nextInt(10000);
+            intervals[i] = new long[]{begin, begin + 1 + random.nextInt(500), i};
+        }
+        IntervalIndex index = index(intervals);
+        for (int query = 0; query < 200; query++) {
+            long start = random.nextInt(10500);
+            long end = start + 1 + random.nextInt(300);
+            int expected = 0;
+            for (long[] interval : intervals) {
+                if (interval[0] < end && interval[1] > start) expected++;
+            }
+            int[] hits = index.overlapping(start, end);
+            assertEquals(expected, hits.length);
+            for (int i = 1; i < hits.length; i++) {
+                assertEquals(true, index.beginAt(hits[i - 1]) <= index.beginAt(hits[i]));
+            }
+        }
+    }
+
+    @Test
+    public void replaceRemovesAllIntervalsOfEventAndMergesAdded() {
+        IntervalIndex index = index(new long[]{10, 20, 1}, new long[]{30, 40, 2}, new long[]{50, 60, 1});
+        IntervalIndex replaced = index.replace(new HashSet<>(Collections.singletonList(1L)),
+                index(new long[]{35, 45, 1}, new long[]{5, 8, 3}));
+        assertEquals(3, replaced.size());
+        assertArrayEquals(new long[]{3, 2, 1}, eventIds(replaced, replaced.overlapping(0, 100)));
+        assertEquals(0, replaced.overlapping(50, 60).length);
+        assertEquals(Arrays.asList(35L, 45L), Arrays.asList(replaced.beginAt(2), replaced.endAt(2)));
+    }
+}